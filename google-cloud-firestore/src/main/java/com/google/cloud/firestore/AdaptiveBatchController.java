@@ -0,0 +1,121 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.firestore;
+
+import com.google.common.base.Preconditions;
+import java.time.Duration;
+import javax.annotation.Nullable;
+
+/**
+ * An additive-increase/multiplicative-decrease controller that tunes the batch size and request
+ * rate of a {@link BulkWriter}.
+ *
+ * <p>After each BatchWrite request, the controller is told how many writes the batch contained, how
+ * many of them failed with {@code ABORTED} or {@code RESOURCE_EXHAUSTED}, and how long the request
+ * took. A batch is considered congested if the share of contended writes exceeds {@link
+ * #CONTENTION_THRESHOLD} or if it took longer than the target latency. Congested batches halve both
+ * the batch size and the rate factor, while uncongested batches grow them additively. The batch
+ * size never grows beyond the number of writes of the last batch's average size that fit into the
+ * maximum number of bytes per batch.
+ *
+ * <p>This class is not thread-safe. BulkWriter only accesses it while holding its lock.
+ */
+final class AdaptiveBatchController {
+  /** The share of contended writes in a batch above which the batch is considered congested. */
+  static final double CONTENTION_THRESHOLD = 0.1;
+
+  /** The factor applied to the batch size and rate factor when a batch is congested. */
+  static final double DECREASE_FACTOR = 0.5;
+
+  /** The number of writes added to the batch size after each uncongested batch. */
+  static final int BATCH_SIZE_INCREMENT = 1;
+
+  /** The amount added to the rate factor after each uncongested batch. */
+  static final double RATE_FACTOR_INCREMENT = 0.05;
+
+  /** The smallest share of the rate limiter's capacity that the controller throttles down to. */
+  static final double MIN_RATE_FACTOR = 0.1;
+
+  private final int maxBatchSize;
+  private final long maxBatchBytes;
+  @Nullable private final Long targetLatencyMillis;
+
+  private int batchSize;
+  private double rateFactor = 1.0;
+
+  /**
+   * @param initialBatchSize The batch size to start with.
+   * @param maxBatchSize The largest batch size the controller grows to.
+   * @param maxBatchBytes The largest encoded size of the writes in a batch.
+   * @param targetLatency The BatchWrite latency to stay under, or null to only adapt to contention.
+   */
+  AdaptiveBatchController(
+      int initialBatchSize,
+      int maxBatchSize,
+      long maxBatchBytes,
+      @Nullable Duration targetLatency) {
+    Preconditions.checkArgument(maxBatchSize >= 1, "maxBatchSize must be at least 1");
+    Preconditions.checkArgument(maxBatchBytes >= 1, "maxBatchBytes must be at least 1");
+    this.maxBatchSize = maxBatchSize;
+    this.maxBatchBytes = maxBatchBytes;
+    this.batchSize = Math.max(1, Math.min(initialBatchSize, maxBatchSize));
+    this.targetLatencyMillis = targetLatency != null ? targetLatency.toMillis() : null;
+  }
+
+  /** Returns the number of writes that the next batch should contain. */
+  int getBatchSize() {
+    return batchSize;
+  }
+
+  /** Returns the share of the rate limiter's capacity that BulkWriter should use. */
+  double getRateFactor() {
+    return rateFactor;
+  }
+
+  /**
+   * Updates the batch size and rate factor based on the outcome of a BatchWrite request.
+   *
+   * @param writeCount The number of writes in the batch.
+   * @param batchBytes The total encoded size of the writes in the batch.
+   * @param contendedWriteCount The number of writes that failed with {@code ABORTED} or {@code
+   *     RESOURCE_EXHAUSTED}.
+   * @param latencyMillis The time it took for the BatchWrite request to complete.
+   * @return Whether the batch was considered congested.
+   */
+  boolean onBatchCompleted(
+      int writeCount, long batchBytes, int contendedWriteCount, long latencyMillis) {
+    if (writeCount == 0) {
+      return false;
+    }
+
+    boolean congested =
+        contendedWriteCount > writeCount * CONTENTION_THRESHOLD
+            || (targetLatencyMillis != null && latencyMillis > targetLatencyMillis);
+
+    if (congested) {
+      batchSize = Math.max(1, (int) (batchSize * DECREASE_FACTOR));
+      rateFactor = Math.max(MIN_RATE_FACTOR, rateFactor * DECREASE_FACTOR);
+    } else {
+      batchSize = Math.min(maxBatchSize, batchSize + BATCH_SIZE_INCREMENT);
+      rateFactor = Math.min(1.0, rateFactor + RATE_FACTOR_INCREMENT);
+    }
+
+    long averageWriteBytes = Math.max(1, batchBytes / writeCount);
+    batchSize = (int) Math.max(1, Math.min(batchSize, maxBatchBytes / averageWriteBytes));
+    return congested;
+  }
+}
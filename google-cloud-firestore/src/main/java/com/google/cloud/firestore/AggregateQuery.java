@@ -34,6 +34,7 @@ import com.google.cloud.firestore.telemetry.TelemetryConstants.MetricType;
 import com.google.cloud.firestore.telemetry.TraceUtil;
 import com.google.cloud.firestore.telemetry.TraceUtil.Scope;
 import com.google.cloud.firestore.v1.FirestoreSettings;
+import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableMap;
 import com.google.firestore.v1.RunAggregationQueryRequest;
 import com.google.firestore.v1.RunAggregationQueryResponse;
@@ -140,16 +141,34 @@ public class AggregateQuery {
   @Nonnull
   ApiFuture<AggregateQuerySnapshot> get(
       @Nullable final ByteString transactionId, @Nullable com.google.protobuf.Timestamp readTime) {
+    return get(
+        transactionId, readTime, /* newTransaction= */ null, /* newTransactionId= */ null);
+  }
+
+  /**
+   * Executes this query. If {@code newTransaction} is set, the request starts a new transaction
+   * with these options and the id of the new transaction is delivered to {@code newTransactionId}.
+   */
+  @Nonnull
+  ApiFuture<AggregateQuerySnapshot> get(
+      @Nullable final ByteString transactionId,
+      @Nullable com.google.protobuf.Timestamp readTime,
+      @Nullable com.google.firestore.v1.TransactionOptions newTransaction,
+      @Nullable SettableApiFuture<ByteString> newTransactionId) {
+    Preconditions.checkArgument(
+        (newTransaction == null) == (newTransactionId == null),
+        "newTransaction and newTransactionId must be set together");
+    boolean isTransactional = transactionId != null || newTransaction != null;
     TraceUtil.Span span =
         getTraceUtil()
             .startSpan(
-                transactionId == null
+                !isTransactional
                     ? TelemetryConstants.METHOD_NAME_AGGREGATION_QUERY_GET
                     : TelemetryConstants.METHOD_NAME_TRANSACTION_GET_AGGREGATION_QUERY);
 
     MetricsContext metricsContext =
         createMetricsContext(
-            transactionId == null
+            !isTransactional
                 ? TelemetryConstants.METHOD_NAME_RUN_AGGREGATION_QUERY_GET
                 : TelemetryConstants.METHOD_NAME_RUN_AGGREGATION_QUERY_TRANSACTIONAL);
 
@@ -159,6 +178,8 @@ public class AggregateQuery {
               transactionId,
               readTime,
               /* startTimeNanos= */ query.rpcContext.getClock().nanoTime(),
+              newTransaction,
+              newTransactionId,
               metricsContext);
       runQuery(responseDeliverer, /* attempt= */ 0);
       ApiFuture<AggregateQuerySnapshot> result = responseDeliverer.getFuture();
@@ -176,6 +197,10 @@ public class AggregateQuery {
             responseDeliverer.getTransactionId(),
             responseDeliverer.getReadTime(),
             responseDeliverer.getExplainOptions());
+    if (responseDeliverer.getNewTransaction() != null) {
+      request =
+          request.toBuilder().setNewTransaction(responseDeliverer.getNewTransaction()).build();
+    }
     AggregateQueryResponseObserver<T> responseObserver =
         new AggregateQueryResponseObserver<T>(responseDeliverer, attempt);
     ServerStreamingCallable<RunAggregationQueryRequest, RunAggregationQueryResponse> callable =
@@ -195,6 +220,8 @@ public class AggregateQuery {
     private final @Nullable ByteString transactionId;
     private final @Nullable com.google.protobuf.Timestamp readTime;
     private final long startTimeNanos;
+    private final @Nullable com.google.firestore.v1.TransactionOptions newTransaction;
+    private final @Nullable SettableApiFuture<ByteString> newTransactionId;
     private final SettableApiFuture<T> future = SettableApiFuture.create();
     private MetricsContext metricsContext;
 
@@ -202,10 +229,14 @@ public class AggregateQuery {
         @Nullable ByteString transactionId,
         @Nullable com.google.protobuf.Timestamp readTime,
         long startTimeNanos,
+        @Nullable com.google.firestore.v1.TransactionOptions newTransaction,
+        @Nullable SettableApiFuture<ByteString> newTransactionId,
         MetricsContext metricsContext) {
       this.transactionId = transactionId;
       this.readTime = readTime;
       this.startTimeNanos = startTimeNanos;
+      this.newTransaction = newTransaction;
+      this.newTransactionId = newTransactionId;
       this.metricsContext = metricsContext;
     }
 
@@ -223,6 +254,11 @@ public class AggregateQuery {
       return startTimeNanos;
     }
 
+    @Nullable
+    com.google.firestore.v1.TransactionOptions getNewTransaction() {
+      return newTransaction;
+    }
+
     @Nullable
     ExplainOptions getExplainOptions() {
       return null;
@@ -236,7 +272,16 @@ public class AggregateQuery {
       metricsContext.recordLatency(MetricType.FIRST_RESPONSE_LATENCY);
     }
 
+    void deliverTransactionId(ByteString transactionId) {
+      if (newTransactionId != null) {
+        newTransactionId.set(transactionId);
+      }
+    }
+
     void deliverError(Throwable throwable) {
+      if (newTransactionId != null) {
+        newTransactionId.setException(throwable);
+      }
       future.setException(throwable);
       metricsContext.recordLatency(MetricType.END_TO_END_LATENCY, throwable);
     }
@@ -245,6 +290,10 @@ public class AggregateQuery {
         @Nullable Map<String, Value> serverData,
         Timestamp readTime,
         @Nullable ExplainMetrics metrics) {
+      if (newTransactionId != null && !newTransactionId.isDone()) {
+        newTransactionId.setException(
+            new IllegalStateException("RunAggregationQuery did not return a transaction"));
+      }
       try {
         T result = processResult(serverData, readTime, metrics);
         future.set(result);
@@ -265,8 +314,16 @@ public class AggregateQuery {
         @Nullable ByteString transactionId,
         @Nullable com.google.protobuf.Timestamp readTime,
         long startTimeNanos,
+        @Nullable com.google.firestore.v1.TransactionOptions newTransaction,
+        @Nullable SettableApiFuture<ByteString> newTransactionId,
         MetricsContext metricsContext) {
-      super(transactionId, readTime, startTimeNanos, metricsContext);
+      super(
+          transactionId,
+          readTime,
+          startTimeNanos,
+          newTransaction,
+          newTransactionId,
+          metricsContext);
     }
 
     @Override
@@ -294,7 +351,13 @@ public class AggregateQuery {
         long startTimeNanos,
         @Nullable ExplainOptions explainOptions,
         MetricsContext metricsContext) {
-      super(transactionId, readTime, startTimeNanos, metricsContext);
+      super(
+          transactionId,
+          readTime,
+          startTimeNanos,
+          /* newTransaction= */ null,
+          /* newTransactionId= */ null,
+          metricsContext);
       this.explainOptions = explainOptions;
     }
 
@@ -364,6 +427,10 @@ public class AggregateQuery {
           .currentSpan()
           .addEvent(
               METHOD_NAME_RUN_AGGREGATION_QUERY + " Response Received.", getAttemptAttributes());
+      if (!response.getTransaction().isEmpty()) {
+        responseDeliverer.deliverTransactionId(response.getTransaction());
+      }
+
       if (response.hasReadTime()) {
         readTime = Timestamp.fromProto(response.getReadTime());
       }
@@ -414,6 +481,11 @@ public class AggregateQuery {
         return false;
       }
 
+      // A retry would start a second transaction.
+      if (responseDeliverer.getNewTransaction() != null) {
+        return false;
+      }
+
       Set<StatusCode.Code> retryableCodes =
           FirestoreSettings.newBuilder().runAggregationQuerySettings().getRetryableCodes();
       return query.shouldRetryQuery(
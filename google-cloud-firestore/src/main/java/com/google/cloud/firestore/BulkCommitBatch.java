@@ -24,12 +24,15 @@ import com.google.common.base.Preconditions;
 import com.google.common.util.concurrent.MoreExecutors;
 import com.google.firestore.v1.BatchWriteRequest;
 import com.google.firestore.v1.BatchWriteResponse;
+import com.google.firestore.v1.Write;
 import io.grpc.Status;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
 
 /** Used to represent a batch that contains scheduled BulkWriterOperations. */
 class BulkCommitBatch extends UpdateBuilder<ApiFuture<WriteResult>> {
@@ -39,6 +42,18 @@ class BulkCommitBatch extends UpdateBuilder<ApiFuture<WriteResult>> {
   private final Executor executor;
   private int maxBatchSize;
 
+  /** The total encoded size of the writes in this batch. */
+  private long encodedBytes;
+
+  /** The time it took for the BatchWrite request to return, or -1 if it has not returned yet. */
+  private volatile long commitLatencyMillis = -1;
+
+  /** The number of writes that failed with ABORTED or RESOURCE_EXHAUSTED. */
+  private volatile int contendedWriteCount;
+
+  /** Runs once the BatchWrite response is received, before write results are delivered. */
+  @Nullable private Runnable responseListener;
+
   BulkCommitBatch(FirestoreImpl firestore, Executor executor, int maxBatchSize) {
     super(firestore);
     this.executor = executor;
@@ -56,6 +71,35 @@ class BulkCommitBatch extends UpdateBuilder<ApiFuture<WriteResult>> {
     this.maxBatchSize = size;
   }
 
+  /** Returns the total encoded size of the writes in this batch. */
+  long getEncodedBytes() {
+    return encodedBytes;
+  }
+
+  @Override
+  ApiFuture<WriteResult> addEncodedWrite(DocumentReference documentReference, Write write) {
+    encodedBytes += write.getSerializedSize();
+    return super.addEncodedWrite(documentReference, write);
+  }
+
+  /** Returns the time it took for the BatchWrite request to return, or -1 if it is pending. */
+  long getCommitLatencyMillis() {
+    return commitLatencyMillis;
+  }
+
+  /** Returns the number of writes that failed with ABORTED or RESOURCE_EXHAUSTED. */
+  int getContendedWriteCount() {
+    return contendedWriteCount;
+  }
+
+  /**
+   * Registers a listener that runs once the BatchWrite response has been received and before any
+   * write result is delivered to the user.
+   */
+  void setResponseListener(Runnable listener) {
+    this.responseListener = listener;
+  }
+
   ApiFuture<WriteResult> wrapResult(int writeIndex) {
     return pendingOperations.get(writeIndex).getFuture();
   }
@@ -69,6 +113,7 @@ class BulkCommitBatch extends UpdateBuilder<ApiFuture<WriteResult>> {
     // Follows same thread safety logic as `UpdateBuilder::commit`.
     committed = true;
     BatchWriteRequest request = buildBatchWriteRequest();
+    final long startTimeNanos = firestore.getClock().nanoTime();
 
     ApiFuture<BatchWriteResponse> response =
         processExceptions(
@@ -77,12 +122,27 @@ class BulkCommitBatch extends UpdateBuilder<ApiFuture<WriteResult>> {
     return ApiFutures.transformAsync(
         response,
         batchWriteResponse -> {
+          commitLatencyMillis =
+              TimeUnit.NANOSECONDS.toMillis(firestore.getClock().nanoTime() - startTimeNanos);
           List<ApiFuture<Void>> pendingUserCallbacks = new ArrayList<>();
 
           List<com.google.firestore.v1.WriteResult> writeResults =
               batchWriteResponse.getWriteResultsList();
           List<com.google.rpc.Status> statuses = batchWriteResponse.getStatusList();
 
+          int contendedWrites = 0;
+          for (com.google.rpc.Status status : statuses) {
+            Status.Code code = Status.fromCodeValue(status.getCode()).getCode();
+            if (code == Status.Code.ABORTED || code == Status.Code.RESOURCE_EXHAUSTED) {
+              ++contendedWrites;
+            }
+          }
+          contendedWriteCount = contendedWrites;
+          if (responseListener != null) {
+            responseListener.run();
+          }
+          invalidateCachedDocuments(writeResults, statuses);
+
           for (int i = 0; i < writeResults.size(); ++i) {
             com.google.firestore.v1.WriteResult writeResult = writeResults.get(i);
             com.google.rpc.Status status = statuses.get(i);
@@ -103,6 +163,29 @@ class BulkCommitBatch extends UpdateBuilder<ApiFuture<WriteResult>> {
         executor);
   }
 
+  /**
+   * Evicts the written documents from the client-side document cache before the write results are
+   * delivered. After a successful write, cached versions that were read at or after its update
+   * time are kept. Documents whose write failed or has no update time are evicted unconditionally.
+   */
+  private void invalidateCachedDocuments(
+      List<com.google.firestore.v1.WriteResult> writeResults,
+      List<com.google.rpc.Status> statuses) {
+    DocumentCache documentCache = firestore.getDocumentCache();
+    if (documentCache == null) {
+      return;
+    }
+    for (int i = 0; i < writeResults.size(); ++i) {
+      Timestamp updateTime = null;
+      if (statuses.get(i).getCode() == Status.Code.OK.value()
+          && writeResults.get(i).hasUpdateTime()) {
+        updateTime = Timestamp.fromProto(writeResults.get(i).getUpdateTime());
+      }
+      ResourcePath path = pendingOperations.get(i).getDocumentReference().getResourcePath();
+      documentCache.invalidate(path, updateTime);
+    }
+  }
+
   private BatchWriteRequest buildBatchWriteRequest() {
     BatchWriteRequest.Builder builder = BatchWriteRequest.newBuilder();
     builder.setDatabase(firestore.getDatabaseName());
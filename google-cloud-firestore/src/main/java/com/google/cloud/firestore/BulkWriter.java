@@ -36,15 +36,21 @@ import com.google.cloud.firestore.v1.FirestoreSettings;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
 import com.google.common.util.concurrent.MoreExecutors;
-import java.util.ArrayList;
-import java.util.List;
+import com.google.firestore.v1.Write;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Date;
+import java.util.HashMap;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.annotation.Nonnull;
@@ -90,6 +96,15 @@ public final class BulkWriter implements AutoCloseable {
   /** The maximum number of writes that can be in a batch containing retries. */
   public static final int RETRY_MAX_BATCH_SIZE = 10;
 
+  /** The maximum number of writes that the BatchWrite API accepts in a single request. */
+  static final int MAX_ADAPTIVE_BATCH_SIZE = 500;
+
+  /**
+   * The maximum encoded size of the writes in a single batch. This is below the 10 MiB request
+   * limit of the BatchWrite API to leave room for the rest of the request.
+   */
+  static final long MAX_BATCH_BYTES = 9L * 1024 * 1024;
+
   /**
    * The maximum number of retries that will be attempted with backoff before stopping all retry
    * attempts.
@@ -166,18 +181,18 @@ public final class BulkWriter implements AutoCloseable {
    */
   boolean autoShutdownBulkWriterExecutor;
 
-  /** The maximum number of writes that can be in a single batch. */
-  private int maxBatchSize = MAX_BATCH_SIZE;
-
   /**
    * Lock object for all mutable state in bulk writer. BulkWriter state is accessed from the user
    * thread and via {@code bulkWriterExecutor}.
    */
   private final Object lock = new Object();
 
-  /** Rate limiter used to throttle requests as per the 500/50/5 rule. */
-  @GuardedBy("lock")
-  private final RateLimiter rateLimiter;
+  /**
+   * The lanes that writes are hashed into by document path. Each lane forms and sends its own
+   * batches and has its own share of the request rate. Unless sharding is enabled via {@link
+   * BulkWriterOptions#getLaneCount()}, a single lane is used.
+   */
+  private final BatchLane[] lanes;
 
   /**
    * The number of pending operations enqueued on this BulkWriter instance. An operation is
@@ -187,11 +202,12 @@ public final class BulkWriter implements AutoCloseable {
   private int pendingOpsCount = 0;
 
   /**
-   * An array containing buffered BulkWriter operations after the maximum number of pending
-   * operations has been enqueued.
+   * Buffered BulkWriter operations after the maximum number of pending operations has been
+   * enqueued. Their encoded writes are spilled to disk once they exceed {@link
+   * BulkWriterOptions#getMaxBufferedBytes()}.
    */
   @GuardedBy("lock")
-  private final List<Runnable> bufferedOperations = new ArrayList<>();
+  private final SpillableWriteBuffer<BufferedWrite> bufferedOperations;
 
   /**
    * The maximum number of pending operations that can be enqueued onto this BulkWriter instance.
@@ -199,16 +215,6 @@ public final class BulkWriter implements AutoCloseable {
    */
   private int maxPendingOpCount = DEFAULT_MAXIMUM_PENDING_OPERATIONS_COUNT;
 
-  /**
-   * The batch that is currently used to schedule operations. Once this batch reaches maximum
-   * capacity, a new batch is created.
-   *
-   * <p>Access to the BulkCommitBatch should only occur under lock as it can be accessed by both the
-   * user thread as well as by the backoff logic in BulkWriter.
-   */
-  @GuardedBy("lock")
-  private BulkCommitBatch bulkCommitBatch;
-
   /**
    * A pointer to the tail of all active BulkWriter applications. This pointer is advanced every
    * time a new write is enqueued.
@@ -216,13 +222,17 @@ public final class BulkWriter implements AutoCloseable {
   @GuardedBy("lock")
   private ApiFuture<Void> lastOperation = ApiFutures.immediateFuture(null);
 
-  /** A pointer to the lastOperation pointer as of last flush operation. */
-  @GuardedBy("lock")
-  private ApiFuture<Void> lastFlushOperation = lastOperation;
+  /**
+   * A pointer to the lastOperation pointer as of last flush operation. Only written under lock, but
+   * read by the lanes to decide whether to send partially filled batches.
+   */
+  private volatile ApiFuture<Void> lastFlushOperation = lastOperation;
 
-  /** Whether this BulkWriter instance is closed. Once closed, it cannot be opened again. */
-  @GuardedBy("lock")
-  private boolean closed = false;
+  /**
+   * Whether this BulkWriter instance is closed. Once closed, it cannot be opened again. Only
+   * written under lock, but read without it when writes are enqueued.
+   */
+  private volatile boolean closed = false;
 
   @GuardedBy("lock")
   private WriteResultCallback successListener = DEFAULT_SUCCESS_LISTENER;
@@ -242,8 +252,20 @@ public final class BulkWriter implements AutoCloseable {
    * Used to track when writes are enqueued. The user handler executors cannot be changed after a
    * write has been enqueued.
    */
-  @GuardedBy("lock")
-  private boolean writesEnqueued = false;
+  private volatile boolean writesEnqueued = false;
+
+  /**
+   * Writes that have been encoded by the calling thread but not yet been assigned to a batch. Any
+   * number of threads add writes without taking {@link #lock}, while a single thread at a time
+   * moves them into batches.
+   */
+  private final Queue<PendingWrite> pendingWrites = new ConcurrentLinkedQueue<>();
+
+  /**
+   * The number of requests to drain {@link #pendingWrites}. The thread that increments the count
+   * from zero drains the queue until all requests have been served.
+   */
+  private final AtomicInteger drainRequests = new AtomicInteger();
 
   BulkWriter(FirestoreImpl firestore, BulkWriterOptions options) {
     this.firestore = firestore;
@@ -256,44 +278,16 @@ public final class BulkWriter implements AutoCloseable {
     }
     this.successExecutor = MoreExecutors.directExecutor();
     this.errorExecutor = MoreExecutors.directExecutor();
-    this.bulkCommitBatch = new BulkCommitBatch(firestore, bulkWriterExecutor, maxBatchSize);
     this.traceContext = firestore.getOptions().getTraceUtil().currentContext();
 
-    if (!options.getThrottlingEnabled()) {
-      this.rateLimiter =
-          new RateLimiter(
-              Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE);
-    } else {
-      double startingRate = DEFAULT_STARTING_MAXIMUM_OPS_PER_SECOND;
-      double maxRate = Double.POSITIVE_INFINITY;
-
-      if (options.getInitialOpsPerSecond() != null) {
-        startingRate = options.getInitialOpsPerSecond();
-      }
-
-      if (options.getMaxOpsPerSecond() != null) {
-        maxRate = options.getMaxOpsPerSecond();
-      }
+    Long maxBufferedBytes = options.getMaxBufferedBytes();
+    this.bufferedOperations =
+        new SpillableWriteBuffer<>(maxBufferedBytes != null ? maxBufferedBytes : Long.MAX_VALUE);
 
-      // The initial validation step ensures that the maxOpsPerSecond is greater than
-      // initialOpsPerSecond. If this inequality is true, that means initialOpsPerSecond was not
-      // set and maxOpsPerSecond is less than the default starting rate.
-      if (maxRate < startingRate) {
-        startingRate = maxRate;
-      }
-
-      // Ensure that the batch size is not larger than the number of allowed
-      // operations per second.
-      if (startingRate < maxBatchSize) {
-        this.maxBatchSize = (int) startingRate;
-      }
-
-      this.rateLimiter =
-          new RateLimiter(
-              (int) startingRate,
-              RATE_LIMITER_MULTIPLIER,
-              RATE_LIMITER_MULTIPLIER_MILLIS,
-              (int) maxRate);
+    int laneCount = options.getLaneCount() != null ? options.getLaneCount() : 1;
+    this.lanes = new BatchLane[laneCount];
+    for (int i = 0; i < laneCount; ++i) {
+      lanes[i] = new BatchLane(options, laneCount);
     }
   }
 
@@ -603,19 +597,24 @@ public final class BulkWriter implements AutoCloseable {
   /**
    * Schedules the provided write operation and runs the user success callback when the write result
    * is obtained.
+   *
+   * <p>The write is encoded on the calling thread and handed to {@link #pendingWrites} without
+   * acquiring {@link #lock}, so that many threads can enqueue writes concurrently.
    */
   private ApiFuture<WriteResult> executeWrite(
       final DocumentReference documentReference,
       final OperationType operationType,
-      final ApiFunction<BulkCommitBatch, ApiFuture<WriteResult>> enqueueOperationOnBatchCallback) {
+      final ApiFunction<UpdateBuilder<?>, ?> encodeWriteCallback) {
+    verifyNotClosed();
+    final Write write = WriteEncoder.encode(firestore, encodeWriteCallback);
+    final BatchLane lane = laneFor(documentReference);
     final BulkWriterOperation operation =
         new BulkWriterOperation(
             documentReference,
             operationType,
             op -> {
-              synchronized (lock) {
-                sendOperationLocked(enqueueOperationOnBatchCallback, op);
-              }
+              // Retries resend the write that was added to the batch of the previous attempt.
+              lane.sendOperation(op.getWrite(), op);
               return null;
             },
             writeResult -> {
@@ -629,33 +628,9 @@ public final class BulkWriter implements AutoCloseable {
               }
             });
 
-    synchronized (lock) {
-      verifyNotClosedLocked();
-      writesEnqueued = true;
-
-      // Advance the lastOperation pointer. This ensures that lastOperation only completes when
-      // both the previous and the current write complete.
-      lastOperation =
-          ApiFutures.transformAsync(
-              lastOperation,
-              aVoid -> silenceFuture(operation.getFuture()),
-              MoreExecutors.directExecutor());
-
-      // Schedule the operation if the BulkWriter has fewer than the maximum number of allowed
-      // pending operations, or add the operation to the buffer.
-      if (pendingOpsCount < maxPendingOpCount) {
-        pendingOpsCount++;
-        sendOperationLocked(enqueueOperationOnBatchCallback, operation);
-      } else {
-        bufferedOperations.add(
-            () -> {
-              synchronized (lock) {
-                pendingOpsCount++;
-                sendOperationLocked(enqueueOperationOnBatchCallback, operation);
-              }
-            });
-      }
-    }
+    writesEnqueued = true;
+    pendingWrites.add(new PendingWrite(operation, lane, write));
+    drainPendingWrites();
 
     ApiFuture<WriteResult> processedOperationFuture =
         ApiFutures.transformAsync(
@@ -682,14 +657,84 @@ public final class BulkWriter implements AutoCloseable {
         MoreExecutors.directExecutor());
   }
 
+  /**
+   * Moves all pending writes into batches, unless another thread is already doing so. In that case,
+   * the other thread picks up the writes that were added before this call.
+   */
+  private void drainPendingWrites() {
+    if (drainRequests.getAndIncrement() != 0) {
+      return;
+    }
+    int missed = 1;
+    do {
+      synchronized (lock) {
+        drainPendingWritesLocked();
+      }
+      missed = drainRequests.addAndGet(-missed);
+    } while (missed != 0);
+  }
+
+  /**
+   * Moves all pending writes into batches. Writes are removed from the queue while holding the
+   * lock, which keeps them in the order in which they were enqueued.
+   */
+  private void drainPendingWritesLocked() {
+    PendingWrite pendingWrite;
+    while ((pendingWrite = pendingWrites.poll()) != null) {
+      enqueueWriteLocked(pendingWrite);
+    }
+  }
+
+  private void enqueueWriteLocked(final PendingWrite pendingWrite) {
+    final BulkWriterOperation operation = pendingWrite.operation;
+    if (closed) {
+      // The write raced with close() and was enqueued after the final flush.
+      operation.fail(new IllegalStateException("BulkWriter has already been closed."));
+      return;
+    }
+
+    // Advance the lastOperation pointer. This ensures that lastOperation only completes when
+    // both the previous and the current write complete.
+    lastOperation =
+        ApiFutures.transformAsync(
+            lastOperation,
+            aVoid -> silenceFuture(operation.getFuture()),
+            MoreExecutors.directExecutor());
+
+    // Schedule the operation if the BulkWriter has fewer than the maximum number of allowed
+    // pending operations, or add the operation to the buffer.
+    if (pendingOpsCount < maxPendingOpCount) {
+      pendingOpsCount++;
+      pendingWrite.lane.sendOperation(pendingWrite.write, operation);
+    } else {
+      bufferedOperations.add(new BufferedWrite(operation, pendingWrite.lane), pendingWrite.write);
+    }
+  }
+
+  /** Returns the lane that writes to the provided document are sent on. */
+  private BatchLane laneFor(DocumentReference documentReference) {
+    if (lanes.length == 1) {
+      return lanes[0];
+    }
+    return lanes[Math.floorMod(documentReference.getPath().hashCode(), lanes.length)];
+  }
+
   /**
    * Manages the pending operation counter and schedules the next BulkWriter operation if we're
    * under the maximum limit.
    */
   private void processBufferedOperations() {
-    if (pendingOpsCount < maxPendingOpCount && bufferedOperations.size() > 0) {
-      Runnable nextOp = bufferedOperations.remove(0);
-      nextOp.run();
+    while (pendingOpsCount < maxPendingOpCount && bufferedOperations.size() > 0) {
+      BufferedWrite next = bufferedOperations.peek();
+      Write write;
+      try {
+        write = bufferedOperations.poll();
+      } catch (IOException e) {
+        next.operation.fail(FirestoreException.forIOException(e, /* retryable= */ false));
+        continue;
+      }
+      pendingOpsCount++;
+      next.lane.sendOperation(write, next.operation);
     }
   }
 
@@ -715,10 +760,13 @@ public final class BulkWriter implements AutoCloseable {
   }
 
   private ApiFuture<Void> flushLocked() {
-    verifyNotClosedLocked();
+    verifyNotClosed();
+    drainPendingWritesLocked();
     if (!lastOperation.isDone()) {
       lastFlushOperation = lastOperation;
-      scheduleCurrentBatchLocked();
+      for (BatchLane lane : lanes) {
+        lane.scheduleCurrentBatch();
+      }
     }
     return lastFlushOperation;
   }
@@ -742,22 +790,19 @@ public final class BulkWriter implements AutoCloseable {
       flushFuture = lastFlushOperation;
     }
     flushFuture.get();
+    synchronized (lock) {
+      bufferedOperations.close();
+    }
     if (autoShutdownBulkWriterExecutor) {
       bulkWriterExecutor.shutdown();
     }
   }
 
   /**
-   * Used for verifying that the BulkWriter instance isn't closed when calling from outside this
-   * class.
+   * Used for verifying that the BulkWriter instance isn't closed. Does not require the lock, since
+   * writes are enqueued without it.
    */
   void verifyNotClosed() {
-    synchronized (lock) {
-      verifyNotClosedLocked();
-    }
-  }
-
-  void verifyNotClosedLocked() {
     if (this.closed) {
       throw new IllegalStateException("BulkWriter has already been closed.");
     }
@@ -899,96 +944,21 @@ public final class BulkWriter implements AutoCloseable {
     }
   }
 
-  /** Sends the current batch and resets {@link #bulkCommitBatch}. */
-  private void scheduleCurrentBatchLocked() {
-    if (bulkCommitBatch.getMutationsSize() == 0) return;
-
-    final BulkCommitBatch pendingBatch = bulkCommitBatch;
-    bulkCommitBatch = new BulkCommitBatch(firestore, bulkWriterExecutor, maxBatchSize);
-
-    // Use the write with the longest backoff duration when determining backoff.
-    int highestBackoffDuration = 0;
-    for (BulkWriterOperation op : pendingBatch.pendingOperations) {
-      if (op.getBackoffDuration() > highestBackoffDuration) {
-        highestBackoffDuration = op.getBackoffDuration();
-      }
-    }
-    final int backoffMsWithJitter = applyJitter(highestBackoffDuration);
-
-    bulkWriterExecutor.schedule(
-        () -> {
-          synchronized (lock) {
-            sendBatchLocked(pendingBatch);
-          }
-        },
-        backoffMsWithJitter,
-        TimeUnit.MILLISECONDS);
-  }
-
-  /** Sends the provided batch once the rate limiter does not require any delay. */
-  private void sendBatchLocked(final BulkCommitBatch batch) {
-    // Send the batch if it does not require any delay, or schedule another attempt after the
-    // appropriate timeout.
-    boolean underRateLimit = rateLimiter.tryMakeRequest(batch.getMutationsSize());
-    if (underRateLimit) {
-      TraceUtil.Span span =
-          firestore
-              .getOptions()
-              .getTraceUtil()
-              .startSpan(TelemetryConstants.METHOD_NAME_BULK_WRITER_COMMIT, traceContext)
-              .setAttribute(ATTRIBUTE_KEY_DOC_COUNT, batch.getMutationsSize());
-
-      MetricsContext metricsContext =
-          firestore
-              .getOptions()
-              .getMetricsUtil()
-              .createMetricsContext(TelemetryConstants.METHOD_NAME_BULK_WRITER_COMMIT);
-
-      try (Scope ignored = span.makeCurrent()) {
-        ApiFuture<Void> result = batch.bulkCommit();
-        if (!lastFlushOperation.isDone()) {
-          result.addListener(
-              () -> {
-                if (!lastFlushOperation.isDone()) {
-                  synchronized (lock) {
-                    scheduleCurrentBatchLocked();
-                  }
-                }
-              },
-              MoreExecutors.directExecutor());
-        }
-        span.endAtFuture(result);
-        metricsContext.recordLatencyAtFuture(MetricType.END_TO_END_LATENCY, result);
-      } catch (Exception error) {
-        span.end(error);
-        metricsContext.recordLatency(MetricType.END_TO_END_LATENCY, error);
-        throw error;
-      }
-    } else {
-      long delayMs = rateLimiter.getNextRequestDelayMs(batch.getMutationsSize());
-      logger.log(Level.FINE, () -> String.format("Backing off for %d seconds", delayMs / 1000));
-      bulkWriterExecutor.schedule(
-          () -> {
-            synchronized (lock) {
-              sendBatchLocked(batch);
-            }
-          },
-          delayMs,
-          TimeUnit.MILLISECONDS);
+  @VisibleForTesting
+  void setMaxBatchSize(int size) {
+    for (BatchLane lane : lanes) {
+      lane.setMaxBatchSize(size);
     }
   }
 
   @VisibleForTesting
-  void setMaxBatchSize(int size) {
-    Preconditions.checkState(
-        bulkCommitBatch.getMutationsSize() == 0, "BulkCommitBatch should be empty");
-    maxBatchSize = size;
-    bulkCommitBatch = new BulkCommitBatch(firestore, bulkWriterExecutor, size);
+  RateLimiter getRateLimiter() {
+    return lanes[0].rateLimiter;
   }
 
   @VisibleForTesting
-  RateLimiter getRateLimiter() {
-    return rateLimiter;
+  int getLaneCount() {
+    return lanes.length;
   }
 
   @VisibleForTesting
@@ -996,43 +966,24 @@ public final class BulkWriter implements AutoCloseable {
     return bufferedOperations.size();
   }
 
+  /** Returns the number of bytes of encoded writes that buffered operations keep on the heap. */
   @VisibleForTesting
-  void setMaxPendingOpCount(int newMax) {
-    maxPendingOpCount = newMax;
-  }
-
-  /**
-   * Schedules the provided operations on the current BulkCommitBatch. Sends the BulkCommitBatch if
-   * it reaches maximum capacity.
-   */
-  private void sendOperationLocked(
-      ApiFunction<BulkCommitBatch, ApiFuture<WriteResult>> enqueueOperationOnBatchCallback,
-      final BulkWriterOperation op) {
-    // A backoff duration greater than 0 implies that this batch is a retry.
-    // Retried writes are sent with a batch size of 10 in order to guarantee
-    // that the batch is under the 10MiB limit.
-    if (op.getBackoffDuration() > 0) {
-      if (bulkCommitBatch.getMutationsSize() >= RETRY_MAX_BATCH_SIZE) {
-        scheduleCurrentBatchLocked();
+  long getBufferedHeapBytes() {
+    synchronized (lock) {
+      long bytes = bufferedOperations.getBufferedBytes();
+      for (BufferedWrite bufferedWrite : bufferedOperations.elements()) {
+        Write write = bufferedWrite.operation.getWrite();
+        if (write != null) {
+          bytes += write.getSerializedSize();
+        }
       }
-      bulkCommitBatch.setMaxBatchSize(RETRY_MAX_BATCH_SIZE);
-    }
-
-    if (bulkCommitBatch.has(op.getDocumentReference())) {
-      // Create a new batch since the backend doesn't support batches with two writes to the same
-      // document.
-      scheduleCurrentBatchLocked();
+      return bytes;
     }
+  }
 
-    // Run the operation on the current batch and advance the `lastOperation` pointer. This
-    // ensures that `lastOperation` only resolves when both the previous and the current write
-    // resolves.
-    bulkCommitBatch.enqueueOperation(op);
-    enqueueOperationOnBatchCallback.apply(bulkCommitBatch);
-
-    if (bulkCommitBatch.getMutationsSize() >= bulkCommitBatch.getMaxBatchSize()) {
-      scheduleCurrentBatchLocked();
-    }
+  @VisibleForTesting
+  void setMaxPendingOpCount(int newMax) {
+    maxPendingOpCount = newMax;
   }
 
   /** Invokes the user error callback on the user callback executor and returns the result. */
@@ -1095,4 +1046,430 @@ public final class BulkWriter implements AutoCloseable {
     double jitter = DEFAULT_JITTER_FACTOR * (Math.random() * 2 - 1);
     return (int) Math.min(DEFAULT_BACKOFF_MAX_DELAY_MS, backoffMs + jitter * backoffMs);
   }
+
+  /** A write that has been encoded but not yet been assigned to a batch. */
+  private static final class PendingWrite {
+    final BulkWriterOperation operation;
+    final BatchLane lane;
+    final Write write;
+
+    PendingWrite(BulkWriterOperation operation, BatchLane lane, Write write) {
+      this.operation = operation;
+      this.lane = lane;
+      this.write = write;
+    }
+  }
+
+  /** A write on an ordered lane that waits for an earlier write to the same document. */
+  private static final class BlockedWrite {
+    final Write write;
+    final BulkWriterOperation operation;
+
+    BlockedWrite(Write write, BulkWriterOperation operation) {
+      this.write = write;
+      this.operation = operation;
+    }
+  }
+
+  /** An operation that waits for the number of pending operations to drop below the maximum. */
+  private static final class BufferedWrite {
+    final BulkWriterOperation operation;
+    final BatchLane lane;
+
+    BufferedWrite(BulkWriterOperation operation, BatchLane lane) {
+      this.operation = operation;
+      this.lane = lane;
+    }
+  }
+
+  /** Encodes a single write without adding it to a batch. */
+  private static final class WriteEncoder extends UpdateBuilder<Void> {
+    private Write write;
+
+    private WriteEncoder(FirestoreImpl firestore) {
+      super(firestore);
+    }
+
+    /** Runs the callback against a new encoder and returns the write that it added. */
+    static Write encode(FirestoreImpl firestore, ApiFunction<UpdateBuilder<?>, ?> callback) {
+      WriteEncoder encoder = new WriteEncoder(firestore);
+      callback.apply(encoder);
+      encoder.forEachWrite(encoded -> encoder.write = encoded);
+      return encoder.write;
+    }
+
+    @Override
+    Void wrapResult(int writeIndex) {
+      return null;
+    }
+  }
+
+  /**
+   * Forms and sends batches for the documents that hash to it. Each lane has its own lock, pending
+   * batch and rate limiter, so that lanes can form and send batches concurrently.
+   *
+   * <p>An ordered lane sends one batch at a time and only sends the next batch once the previous
+   * batch has been committed. As writes to the same document always hash to the same lane, this
+   * commits them in the order in which they were enqueued. To keep that order across retries, an
+   * ordered lane only adds a write to a batch once all earlier writes to the same document have
+   * resolved. Later writes wait behind a write that is being retried.
+   *
+   * <p>A lane's lock may be acquired while holding {@link BulkWriter#lock}, but not the other way
+   * around.
+   */
+  private final class BatchLane {
+    private final Object lock = new Object();
+
+    /** Whether batches are sent one at a time, in the order in which they were formed. */
+    private final boolean ordered;
+
+    /** The maximum number of writes that can be in a single batch. */
+    @GuardedBy("lock")
+    private int maxBatchSize = MAX_BATCH_SIZE;
+
+    /** Rate limiter used to throttle requests as per the 500/50/5 rule. */
+    @GuardedBy("lock")
+    private final RateLimiter rateLimiter;
+
+    /** Tunes the batch size and request rate if adaptive batching is enabled. */
+    @GuardedBy("lock")
+    @Nullable
+    private final AdaptiveBatchController adaptiveBatchController;
+
+    /**
+     * The batch that is currently used to schedule operations. Once this batch reaches maximum
+     * capacity, a new batch is created.
+     *
+     * <p>Access to the BulkCommitBatch should only occur under lock as it can be accessed by both
+     * the user thread as well as by the backoff logic in BulkWriter.
+     */
+    @GuardedBy("lock")
+    private BulkCommitBatch bulkCommitBatch;
+
+    /** Completes once the last batch that was scheduled on an ordered lane has been committed. */
+    @GuardedBy("lock")
+    private ApiFuture<Void> lastBatchCommitted = ApiFutures.immediateFuture(null);
+
+    /**
+     * On an ordered lane, the write to each document that has been added to a batch but has not
+     * resolved yet. Retries of that write are sent right away.
+     */
+    @GuardedBy("lock")
+    private final Map<DocumentReference, BulkWriterOperation> unresolvedWrites = new HashMap<>();
+
+    /**
+     * On an ordered lane, the writes that wait for an unresolved write to the same document, in
+     * the order in which they were enqueued.
+     */
+    @GuardedBy("lock")
+    private final Map<DocumentReference, Queue<BlockedWrite>> blockedWrites = new HashMap<>();
+
+    /**
+     * @param options The options that the BulkWriter was created with.
+     * @param laneCount The number of lanes that share the BulkWriter's request rate.
+     */
+    BatchLane(BulkWriterOptions options, int laneCount) {
+      this.ordered = options.getLaneCount() != null;
+
+      if (!options.getThrottlingEnabled()) {
+        this.rateLimiter =
+            new RateLimiter(
+                Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE);
+      } else {
+        double startingRate = DEFAULT_STARTING_MAXIMUM_OPS_PER_SECOND;
+        double maxRate = Double.POSITIVE_INFINITY;
+
+        if (options.getInitialOpsPerSecond() != null) {
+          startingRate = options.getInitialOpsPerSecond();
+        }
+
+        if (options.getMaxOpsPerSecond() != null) {
+          maxRate = options.getMaxOpsPerSecond();
+        }
+
+        // The initial validation step ensures that the maxOpsPerSecond is greater than
+        // initialOpsPerSecond. If this inequality is true, that means initialOpsPerSecond was not
+        // set and maxOpsPerSecond is less than the default starting rate.
+        if (maxRate < startingRate) {
+          startingRate = maxRate;
+        }
+
+        // Each lane receives an equal share of the overall rate.
+        startingRate = Math.max(1, startingRate / laneCount);
+        maxRate = Math.max(1, maxRate / laneCount);
+
+        // Ensure that the batch size is not larger than the number of allowed
+        // operations per second.
+        if (startingRate < maxBatchSize) {
+          this.maxBatchSize = (int) startingRate;
+        }
+
+        this.rateLimiter =
+            new RateLimiter(
+                (int) startingRate,
+                RATE_LIMITER_MULTIPLIER,
+                RATE_LIMITER_MULTIPLIER_MILLIS,
+                (int) maxRate);
+      }
+
+      if (options.getAdaptiveBatchingEnabled()) {
+        int maxAdaptiveBatchSize =
+            options.getMaxAdaptiveBatchSize() != null
+                ? options.getMaxAdaptiveBatchSize()
+                : MAX_BATCH_SIZE;
+        this.adaptiveBatchController =
+            new AdaptiveBatchController(
+                maxBatchSize,
+                maxAdaptiveBatchSize,
+                MAX_BATCH_BYTES,
+                options.getTargetBatchLatency());
+        this.maxBatchSize = adaptiveBatchController.getBatchSize();
+      } else {
+        this.adaptiveBatchController = null;
+      }
+
+      this.bulkCommitBatch = new BulkCommitBatch(firestore, bulkWriterExecutor, maxBatchSize);
+    }
+
+    void sendOperation(Write write, BulkWriterOperation op) {
+      synchronized (lock) {
+        if (ordered) {
+          DocumentReference documentReference = op.getDocumentReference();
+          BulkWriterOperation unresolvedWrite = unresolvedWrites.get(documentReference);
+          if (unresolvedWrite == null) {
+            trackUnresolvedWriteLocked(op);
+          } else if (unresolvedWrite != op) {
+            blockedWrites
+                .computeIfAbsent(documentReference, key -> new ArrayDeque<>())
+                .add(new BlockedWrite(write, op));
+            return;
+          }
+        }
+        sendOperationLocked(write, op);
+      }
+    }
+
+    /** Blocks later writes to the operation's document until the operation resolves. */
+    private void trackUnresolvedWriteLocked(final BulkWriterOperation op) {
+      unresolvedWrites.put(op.getDocumentReference(), op);
+      // The operation resolves before its batch's commit future completes, so a released write
+      // is added to the current batch before a pending flush sends it.
+      op.getFuture()
+          .addListener(
+              () -> {
+                synchronized (lock) {
+                  releaseBlockedWriteLocked(op.getDocumentReference());
+                }
+              },
+              MoreExecutors.directExecutor());
+    }
+
+    /** Sends the next write to the document that waited for the previous write to resolve. */
+    private void releaseBlockedWriteLocked(DocumentReference documentReference) {
+      Queue<BlockedWrite> queue = blockedWrites.get(documentReference);
+      BlockedWrite next = queue != null ? queue.poll() : null;
+      if (queue != null && queue.isEmpty()) {
+        blockedWrites.remove(documentReference);
+      }
+      if (next == null) {
+        unresolvedWrites.remove(documentReference);
+        return;
+      }
+      trackUnresolvedWriteLocked(next.operation);
+      sendOperationLocked(next.write, next.operation);
+    }
+
+    void scheduleCurrentBatch() {
+      synchronized (lock) {
+        scheduleCurrentBatchLocked();
+      }
+    }
+
+    void setMaxBatchSize(int size) {
+      synchronized (lock) {
+        Preconditions.checkState(
+            bulkCommitBatch.getMutationsSize() == 0, "BulkCommitBatch should be empty");
+        maxBatchSize = size;
+        bulkCommitBatch = new BulkCommitBatch(firestore, bulkWriterExecutor, size);
+      }
+    }
+
+    /**
+     * Schedules the provided operations on the current BulkCommitBatch. Sends the BulkCommitBatch
+     * if it reaches maximum capacity.
+     */
+    private void sendOperationLocked(Write write, final BulkWriterOperation op) {
+      // A backoff duration greater than 0 implies that this batch is a retry.
+      // Retried writes are sent with a batch size of 10 in order to guarantee
+      // that the batch is under the 10MiB limit.
+      if (op.getBackoffDuration() > 0) {
+        int retryBatchSize =
+            adaptiveBatchController != null
+                ? Math.min(RETRY_MAX_BATCH_SIZE, maxBatchSize)
+                : RETRY_MAX_BATCH_SIZE;
+        if (bulkCommitBatch.getMutationsSize() >= retryBatchSize) {
+          scheduleCurrentBatchLocked();
+        }
+        bulkCommitBatch.setMaxBatchSize(retryBatchSize);
+      }
+
+      if (bulkCommitBatch.has(op.getDocumentReference())) {
+        // Create a new batch since the backend doesn't support batches with two writes to the
+        // same document.
+        scheduleCurrentBatchLocked();
+      } else if (bulkCommitBatch.getEncodedBytes() + write.getSerializedSize() > MAX_BATCH_BYTES) {
+        // Large documents can exceed the request size limit before the batch is full.
+        scheduleCurrentBatchLocked();
+      }
+
+      // Run the operation on the current batch and advance the `lastOperation` pointer. This
+      // ensures that `lastOperation` only resolves when both the previous and the current write
+      // resolves.
+      op.setWrite(write);
+      bulkCommitBatch.enqueueOperation(op);
+      bulkCommitBatch.addEncodedWrite(op.getDocumentReference(), write);
+
+      if (bulkCommitBatch.getMutationsSize() >= bulkCommitBatch.getMaxBatchSize()) {
+        scheduleCurrentBatchLocked();
+      }
+    }
+
+    /** Sends the current batch and resets {@link #bulkCommitBatch}. */
+    private void scheduleCurrentBatchLocked() {
+      if (bulkCommitBatch.getMutationsSize() == 0) return;
+
+      final BulkCommitBatch pendingBatch = bulkCommitBatch;
+      bulkCommitBatch = new BulkCommitBatch(firestore, bulkWriterExecutor, maxBatchSize);
+
+      // Use the write with the longest backoff duration when determining backoff.
+      int highestBackoffDuration = 0;
+      for (BulkWriterOperation op : pendingBatch.pendingOperations) {
+        if (op.getBackoffDuration() > highestBackoffDuration) {
+          highestBackoffDuration = op.getBackoffDuration();
+        }
+      }
+      final int backoffMsWithJitter = applyJitter(highestBackoffDuration);
+
+      // Ordered lanes only send a batch once the previously scheduled batch has been committed.
+      final SettableApiFuture<Void> batchCommitted = SettableApiFuture.create();
+      ApiFuture<Void> previousBatchCommitted = lastBatchCommitted;
+      if (ordered) {
+        lastBatchCommitted = batchCommitted;
+      }
+
+      previousBatchCommitted.addListener(
+          () ->
+              bulkWriterExecutor.schedule(
+                  () -> {
+                    synchronized (lock) {
+                      sendBatchLocked(pendingBatch, batchCommitted);
+                    }
+                  },
+                  backoffMsWithJitter,
+                  TimeUnit.MILLISECONDS),
+          MoreExecutors.directExecutor());
+    }
+
+    /**
+     * Sends the provided batch once the rate limiter does not require any delay.
+     *
+     * @param batchCommitted Completed once the batch has been committed.
+     */
+    private void sendBatchLocked(
+        final BulkCommitBatch batch, final SettableApiFuture<Void> batchCommitted) {
+      // Send the batch if it does not require any delay, or schedule another attempt after the
+      // appropriate timeout.
+      boolean underRateLimit = rateLimiter.tryMakeRequest(batch.getMutationsSize());
+      if (underRateLimit) {
+        TraceUtil.Span span =
+            firestore
+                .getOptions()
+                .getTraceUtil()
+                .startSpan(TelemetryConstants.METHOD_NAME_BULK_WRITER_COMMIT, traceContext)
+                .setAttribute(ATTRIBUTE_KEY_DOC_COUNT, batch.getMutationsSize());
+
+        MetricsContext metricsContext =
+            firestore
+                .getOptions()
+                .getMetricsUtil()
+                .createMetricsContext(TelemetryConstants.METHOD_NAME_BULK_WRITER_COMMIT);
+
+        try (Scope ignored = span.makeCurrent()) {
+          if (adaptiveBatchController != null) {
+            batch.setResponseListener(
+                () -> {
+                  synchronized (lock) {
+                    adaptBatchSizeLocked(batch, metricsContext);
+                  }
+                });
+          }
+          ApiFuture<Void> result = batch.bulkCommit();
+          result.addListener(() -> batchCommitted.set(null), MoreExecutors.directExecutor());
+          if (!lastFlushOperation.isDone()) {
+            result.addListener(
+                () -> {
+                  if (!lastFlushOperation.isDone()) {
+                    synchronized (lock) {
+                      scheduleCurrentBatchLocked();
+                    }
+                  }
+                },
+                MoreExecutors.directExecutor());
+          }
+          span.endAtFuture(result);
+          metricsContext.recordLatencyAtFuture(MetricType.END_TO_END_LATENCY, result);
+        } catch (Exception error) {
+          batchCommitted.set(null);
+          span.end(error);
+          metricsContext.recordLatency(MetricType.END_TO_END_LATENCY, error);
+          throw error;
+        }
+      } else {
+        long delayMs = rateLimiter.getNextRequestDelayMs(batch.getMutationsSize());
+        logger.log(Level.FINE, () -> String.format("Backing off for %d seconds", delayMs / 1000));
+        bulkWriterExecutor.schedule(
+            () -> {
+              synchronized (lock) {
+                sendBatchLocked(batch, batchCommitted);
+              }
+            },
+            delayMs,
+            TimeUnit.MILLISECONDS);
+      }
+    }
+
+    /**
+     * Feeds the outcome of a committed batch to the adaptive controller and applies the resulting
+     * batch size and request rate to subsequent batches.
+     */
+    private void adaptBatchSizeLocked(BulkCommitBatch batch, MetricsContext metricsContext) {
+      adaptiveBatchController.onBatchCompleted(
+          batch.getMutationsSize(),
+          batch.getEncodedBytes(),
+          batch.getContendedWriteCount(),
+          batch.getCommitLatencyMillis());
+      rateLimiter.setCapacityFactor(adaptiveBatchController.getRateFactor());
+
+      // Never build batches that the rate limiter cannot admit.
+      int capacity = rateLimiter.calculateCapacity(new Date().getTime());
+      int batchSize = Math.max(1, Math.min(adaptiveBatchController.getBatchSize(), capacity));
+      maxBatchSize = batchSize;
+      if (bulkCommitBatch.getMaxBatchSize() > batchSize) {
+        // Shrink the batch that is currently being filled. Larger sizes take effect with the next
+        // batch.
+        if (bulkCommitBatch.getMutationsSize() >= batchSize) {
+          scheduleCurrentBatchLocked();
+        } else {
+          bulkCommitBatch.setMaxBatchSize(batchSize);
+        }
+      }
+
+      logger.log(
+          Level.FINE,
+          () ->
+              String.format("Adapted batch size to %d and rate to %d ops/s", batchSize, capacity));
+      metricsContext.recordValue(MetricType.BULK_WRITER_BATCH_SIZE, batchSize);
+      metricsContext.recordValue(MetricType.BULK_WRITER_OPS_PER_SECOND, capacity);
+    }
+  }
 }
@@ -22,7 +22,9 @@ import com.google.api.core.ApiFutureCallback;
 import com.google.api.core.ApiFutures;
 import com.google.api.core.SettableApiFuture;
 import com.google.common.util.concurrent.MoreExecutors;
+import com.google.firestore.v1.Write;
 import io.grpc.Status;
+import javax.annotation.Nullable;
 
 /**
  * Represents a single write for BulkWriter, encapsulating operation dispatch and error handling.
@@ -52,6 +54,12 @@ class BulkWriterOperation {
 
   private int backoffDuration = 0;
 
+  /**
+   * The encoded write, which is only set once the write has been added to a batch. Writes that are
+   * waiting in the BulkWriter's buffer are not referenced, so that they can be spilled to disk.
+   */
+  @Nullable private volatile Write write;
+
   /**
    * @param documentReference The document reference being written to.
    * @param operationType The type of operation that created this write.
@@ -80,6 +88,21 @@ class BulkWriterOperation {
     return operationFuture;
   }
 
+  /** Fails the operation without invoking the error listener or retrying it. */
+  void fail(Throwable error) {
+    operationFuture.setException(error);
+  }
+
+  /** Returns the encoded write, or null if the write has not been added to a batch yet. */
+  @Nullable
+  Write getWrite() {
+    return write;
+  }
+
+  void setWrite(Write write) {
+    this.write = write;
+  }
+
   public DocumentReference getDocumentReference() {
     return documentReference;
   }
@@ -17,6 +17,7 @@
 package com.google.cloud.firestore;
 
 import com.google.auto.value.AutoValue;
+import java.time.Duration;
 import java.util.concurrent.ScheduledExecutorService;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -57,12 +58,71 @@ public abstract class BulkWriterOptions {
   @Nullable
   public abstract ScheduledExecutorService getExecutor();
 
+  /**
+   * Returns whether BulkWriter adapts its batch size and request rate to the observed latency and
+   * contention of its BatchWrite requests.
+   *
+   * @return Whether adaptive batching is enabled.
+   */
+  public abstract boolean getAdaptiveBatchingEnabled();
+
+  /**
+   * Returns the largest batch size that adaptive batching can grow to.
+   *
+   * @return The largest adaptive batch size, or null if the default of {@link
+   *     BulkWriter#MAX_BATCH_SIZE} is used.
+   */
+  @Nullable
+  public abstract Integer getMaxAdaptiveBatchSize();
+
+  /**
+   * Returns the BatchWrite latency that adaptive batching aims to stay under.
+   *
+   * <p>Batches that take longer than the target shrink the batch size and request rate in the same
+   * way as writes that fail with {@code ABORTED} or {@code RESOURCE_EXHAUSTED}.
+   *
+   * @return The target BatchWrite latency, or null if only contention is used to adapt.
+   */
+  @Nullable
+  public abstract Duration getTargetBatchLatency();
+
+  /**
+   * Returns the number of lanes that writes are sharded into.
+   *
+   * <p>Writes are assigned to a lane by hashing their document path. Each lane forms its own
+   * batches, receives an equal share of the request rate and has one BatchWrite request in flight
+   * at a time, so that writes to the same document are committed in the order in which they were
+   * enqueued.
+   *
+   * @return The number of lanes, or null if writes are not sharded.
+   */
+  @Nullable
+  public abstract Integer getLaneCount();
+
+  /**
+   * Returns the maximum number of bytes of buffered writes that BulkWriter keeps in memory.
+   *
+   * <p>Once more writes are enqueued than BulkWriter allows to be in flight, further writes are
+   * buffered until earlier writes complete. Buffered writes that exceed this limit are serialized
+   * to a temporary file and read back when they are sent.
+   *
+   * @return The memory limit for buffered writes in bytes, or null if buffered writes are always
+   *     kept in memory.
+   */
+  @Nullable
+  public abstract Long getMaxBufferedBytes();
+
   public static Builder builder() {
     return new AutoValue_BulkWriterOptions.Builder()
         .setMaxOpsPerSecond(null)
         .setInitialOpsPerSecond(null)
         .setThrottlingEnabled(true)
-        .setExecutor(null);
+        .setExecutor(null)
+        .setAdaptiveBatchingEnabled(false)
+        .setMaxAdaptiveBatchSize(null)
+        .setTargetBatchLatency(null)
+        .setLaneCount(null)
+        .setMaxBufferedBytes(null);
   }
 
   public abstract Builder toBuilder();
@@ -121,6 +181,70 @@ public abstract class BulkWriterOptions {
      */
     public abstract Builder setExecutor(@Nullable ScheduledExecutorService executor);
 
+    /**
+     * Sets whether BulkWriter adapts its batch size and request rate to the observed BatchWrite
+     * latency and the rate of writes that fail with {@code ABORTED} or {@code RESOURCE_EXHAUSTED}.
+     * The batch size grows additively while batches succeed and is halved, together with the
+     * request rate, when a batch is contended or slower than the target latency. By default,
+     * adaptive batching is disabled.
+     *
+     * @param enabled Whether adaptive batching should be enabled.
+     */
+    public abstract Builder setAdaptiveBatchingEnabled(boolean enabled);
+
+    abstract Builder setMaxAdaptiveBatchSize(@Nullable Integer maxAdaptiveBatchSize);
+
+    /**
+     * Sets the largest batch size that adaptive batching can grow to. Defaults to {@link
+     * BulkWriter#MAX_BATCH_SIZE}. Batches of large documents are kept smaller, so that each
+     * BatchWrite request stays within its 10 MiB size limit.
+     *
+     * @param maxAdaptiveBatchSize The largest batch size. Must be between 1 and 500.
+     */
+    public Builder setMaxAdaptiveBatchSize(int maxAdaptiveBatchSize) {
+      return setMaxAdaptiveBatchSize(Integer.valueOf(maxAdaptiveBatchSize));
+    }
+
+    /**
+     * Sets the BatchWrite latency that adaptive batching aims to stay under. By default, only the
+     * rate of contended writes is used to adapt the batch size.
+     *
+     * @param targetBatchLatency The target latency of a single BatchWrite request. Must be
+     *     positive.
+     */
+    public abstract Builder setTargetBatchLatency(@Nullable Duration targetBatchLatency);
+
+    abstract Builder setLaneCount(@Nullable Integer laneCount);
+
+    /**
+     * Sets the number of lanes that writes are sharded into by document path. Each lane forms its
+     * own batches, receives an equal share of the request rate and commits one batch at a time,
+     * which preserves the order of writes to the same document. While a write is being retried,
+     * later writes to the same document wait until the retry has succeeded or failed.
+     *
+     * <p>By default, writes are not sharded and batches are sent as soon as they are full, without
+     * any ordering guarantees between batches.
+     *
+     * @param laneCount The number of lanes. Must be at least 1.
+     */
+    public Builder setLaneCount(int laneCount) {
+      return setLaneCount(Integer.valueOf(laneCount));
+    }
+
+    abstract Builder setMaxBufferedBytes(@Nullable Long maxBufferedBytes);
+
+    /**
+     * Sets the maximum number of bytes of buffered writes that BulkWriter keeps in memory. Buffered
+     * writes beyond this limit are serialized to a temporary file until they are sent, which bounds
+     * the memory used by large imports. The file is deleted once its writes have been sent and when
+     * the BulkWriter is closed. By default, all buffered writes are kept in memory.
+     *
+     * @param maxBufferedBytes The memory limit for buffered writes in bytes. Must not be negative.
+     */
+    public Builder setMaxBufferedBytes(long maxBufferedBytes) {
+      return setMaxBufferedBytes(Long.valueOf(maxBufferedBytes));
+    }
+
     public abstract BulkWriterOptions autoBuild();
 
     @Nonnull
@@ -151,6 +275,45 @@ public abstract class BulkWriterOptions {
             "Cannot set 'initialOpsPerSecond' or 'maxOpsPerSecond' when 'throttlingEnabled' is set"
                 + " to false.");
       }
+
+      Integer maxAdaptiveBatchSize = options.getMaxAdaptiveBatchSize();
+      Duration targetBatchLatency = options.getTargetBatchLatency();
+
+      if (maxAdaptiveBatchSize != null
+          && (maxAdaptiveBatchSize < 1
+              || maxAdaptiveBatchSize > BulkWriter.MAX_ADAPTIVE_BATCH_SIZE)) {
+        throw FirestoreException.forInvalidArgument(
+            "Value for argument 'maxAdaptiveBatchSize' must be between 1 and "
+                + BulkWriter.MAX_ADAPTIVE_BATCH_SIZE
+                + ", but was: "
+                + maxAdaptiveBatchSize);
+      }
+
+      if (targetBatchLatency != null
+          && (targetBatchLatency.isNegative() || targetBatchLatency.isZero())) {
+        throw FirestoreException.forInvalidArgument(
+            "Value for argument 'targetBatchLatency' must be positive, but was: "
+                + targetBatchLatency);
+      }
+
+      if (options.getLaneCount() != null && options.getLaneCount() < 1) {
+        throw FirestoreException.forInvalidArgument(
+            "Value for argument 'laneCount' must be at least 1, but was: "
+                + options.getLaneCount());
+      }
+
+      if (options.getMaxBufferedBytes() != null && options.getMaxBufferedBytes() < 0) {
+        throw FirestoreException.forInvalidArgument(
+            "Value for argument 'maxBufferedBytes' must not be negative, but was: "
+                + options.getMaxBufferedBytes());
+      }
+
+      if (!options.getAdaptiveBatchingEnabled()
+          && (maxAdaptiveBatchSize != null || targetBatchLatency != null)) {
+        throw FirestoreException.forInvalidArgument(
+            "Cannot set 'maxAdaptiveBatchSize' or 'targetBatchLatency' when"
+                + " 'adaptiveBatchingEnabled' is set to false.");
+      }
       return options;
     }
   }
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.firestore;
+
+/**
+ * Represents a listener that merges snapshots before delivering them. The registration that is
+ * returned for listeners with a coalescing window or with coalescing while a callback is running
+ * implements this interface.
+ *
+ * @see SnapshotListenOptions
+ */
+public interface CoalescingListenerRegistration extends ListenerRegistration {
+
+  /**
+   * Returns the number of delivered snapshots that were merged from more than one snapshot.
+   *
+   * @return The number of merged snapshots delivered so far.
+   */
+  long getCoalescedSnapshotCount();
+
+  /**
+   * Returns the number of intermediate snapshots that were not delivered on their own, either
+   * because they were merged into a later snapshot or because the listener was removed before they
+   * could be delivered.
+   *
+   * @return The number of intermediate snapshots dropped so far.
+   */
+  long getDroppedSnapshotCount();
+}
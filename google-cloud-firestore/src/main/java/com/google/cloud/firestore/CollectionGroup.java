@@ -36,6 +36,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.function.Function;
+import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
 /**
@@ -152,6 +153,18 @@ public class CollectionGroup extends Query {
     }
   }
 
+  /**
+   * Returns a scan that splits this collection group into partitions and streams the partitions
+   * concurrently.
+   *
+   * @param options The options that configure the scan.
+   * @return A scan over all documents in this collection group.
+   */
+  @Nonnull
+  public ParallelScan parallelScan(@Nonnull ParallelScanOptions options) {
+    return new ParallelScan(this, options);
+  }
+
   private PartitionQueryRequest buildRequest(long desiredPartitionCount) {
     Preconditions.checkArgument(
         desiredPartitionCount > 0, "Desired partition count must be one or greater");
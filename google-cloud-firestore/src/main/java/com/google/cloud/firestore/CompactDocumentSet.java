@@ -0,0 +1,190 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.firestore;
+
+import com.google.cloud.firestore.DocumentChange.Type;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.Nullable;
+
+/**
+ * A memory-compact, array-backed set of documents ordered by the given comparator.
+ *
+ * <p>The set stores two arrays of references: the documents in query order and the same documents
+ * ordered by key. Lookups by key are binary searches and indexes are array positions. Compared to
+ * {@link DocumentSet}, which keeps two persistent trees with one node per document each, this uses
+ * a fraction of the heap for large result sets.
+ *
+ * <p>The arrays are never modified after construction. Applying changes merges them with the batch
+ * in a single pass and produces new arrays, which makes every change cost O(n) in the size of the
+ * set. In exchange, snapshots share the query-ordered array with the view instead of copying it.
+ */
+final class CompactDocumentSet implements DocumentView {
+  private static final QueryDocumentSnapshot[] EMPTY = new QueryDocumentSnapshot[0];
+
+  private static final Comparator<QueryDocumentSnapshot> KEY_COMPARATOR =
+      QueryDocumentSnapshot::compareDocumentId;
+
+  /** Returns an empty CompactDocumentSet sorted by the given comparator. */
+  static CompactDocumentSet emptySet(Comparator<QueryDocumentSnapshot> comparator) {
+    return new CompactDocumentSet(EMPTY, EMPTY, comparator);
+  }
+
+  /** The documents ordered by 'comparator'. */
+  private final QueryDocumentSnapshot[] documents;
+
+  /** The documents ordered by their key. */
+  private final QueryDocumentSnapshot[] keyIndex;
+
+  private final Comparator<QueryDocumentSnapshot> comparator;
+
+  private CompactDocumentSet(
+      QueryDocumentSnapshot[] documents,
+      QueryDocumentSnapshot[] keyIndex,
+      Comparator<QueryDocumentSnapshot> comparator) {
+    this.documents = documents;
+    this.keyIndex = keyIndex;
+    this.comparator = comparator;
+  }
+
+  @Override
+  public int size() {
+    return documents.length;
+  }
+
+  @Override
+  public boolean contains(ResourcePath key) {
+    return findKey(key) >= 0;
+  }
+
+  @Nullable
+  @Override
+  public QueryDocumentSnapshot getDocument(ResourcePath key) {
+    int position = findKey(key);
+    return position >= 0 ? keyIndex[position] : null;
+  }
+
+  /**
+   * Returns the index of the provided key in the document set, or -1 if the document key is not
+   * present in the set.
+   */
+  int indexOf(ResourcePath key) {
+    QueryDocumentSnapshot document = getDocument(key);
+    if (document == null) {
+      return -1;
+    }
+    return Arrays.binarySearch(documents, document, comparator);
+  }
+
+  /** Returns the documents in query order. The list shares its storage with this set. */
+  @Override
+  public List<QueryDocumentSnapshot> toList() {
+    return Collections.unmodifiableList(Arrays.asList(documents));
+  }
+
+  @Override
+  public Iterator<QueryDocumentSnapshot> iterator() {
+    return toList().iterator();
+  }
+
+  @Override
+  public ChangeResult<CompactDocumentSet> applyChanges(
+      List<QueryDocumentSnapshot> deletes,
+      List<QueryDocumentSnapshot> adds,
+      List<QueryDocumentSnapshot> updates) {
+    deletes.sort(comparator);
+    adds.sort(comparator);
+    updates.sort(comparator);
+
+    DocumentSet.MergeResult merged =
+        DocumentSet.mergeChanges(this, comparator, deletes, adds, updates);
+    if (merged.changes.isEmpty()) {
+      return new ChangeResult<>(this, merged.changes);
+    }
+
+    QueryDocumentSnapshot[] newDocuments = merged.documents.toArray(EMPTY);
+    QueryDocumentSnapshot[] newKeyIndex = mergeKeyIndex(merged.changes, newDocuments.length);
+    return new ChangeResult<>(
+        new CompactDocumentSet(newDocuments, newKeyIndex, comparator), merged.changes);
+  }
+
+  /** Applies the given changes to the key-ordered array in a single pass. */
+  private QueryDocumentSnapshot[] mergeKeyIndex(List<DocumentChange> changes, int newSize) {
+    Set<ResourcePath> removed = new HashSet<>();
+    Map<ResourcePath, QueryDocumentSnapshot> modified = new HashMap<>();
+    List<QueryDocumentSnapshot> added = new ArrayList<>();
+
+    for (DocumentChange change : changes) {
+      QueryDocumentSnapshot document = change.getDocument();
+      if (change.getType() == Type.REMOVED) {
+        removed.add(document.getReference().getResourcePath());
+      } else if (change.getType() == Type.ADDED) {
+        added.add(document);
+      } else {
+        modified.put(document.getReference().getResourcePath(), document);
+      }
+    }
+    added.sort(KEY_COMPARATOR);
+
+    QueryDocumentSnapshot[] result = new QueryDocumentSnapshot[newSize];
+    int nextAdded = 0;
+    int next = 0;
+    for (QueryDocumentSnapshot document : keyIndex) {
+      ResourcePath resourcePath = document.getReference().getResourcePath();
+      if (removed.contains(resourcePath)) {
+        continue;
+      }
+      while (nextAdded < added.size()
+          && KEY_COMPARATOR.compare(added.get(nextAdded), document) < 0) {
+        result[next++] = added.get(nextAdded++);
+      }
+      QueryDocumentSnapshot replacement = modified.get(resourcePath);
+      result[next++] = replacement != null ? replacement : document;
+    }
+    while (nextAdded < added.size()) {
+      result[next++] = added.get(nextAdded++);
+    }
+
+    return result;
+  }
+
+  /** Returns the position of the key in 'keyIndex', or a negative value if it is not present. */
+  private int findKey(ResourcePath key) {
+    int low = 0;
+    int high = keyIndex.length - 1;
+    while (low <= high) {
+      int middle = (low + high) >>> 1;
+      int cmp = keyIndex[middle].getReference().getResourcePath().compareTo(key);
+      if (cmp < 0) {
+        low = middle + 1;
+      } else if (cmp > 0) {
+        high = middle - 1;
+      } else {
+        return middle;
+      }
+    }
+    return -1;
+  }
+}
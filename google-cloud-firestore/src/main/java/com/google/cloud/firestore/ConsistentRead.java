@@ -0,0 +1,163 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.firestore;
+
+import com.google.auto.value.AutoValue;
+import com.google.cloud.Timestamp;
+import com.google.common.collect.ImmutableList;
+import java.util.Arrays;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * A set of document lookups, queries and aggregations that {@link
+ * Firestore#readAtConsistentTime(ConsistentRead)} executes at a single read time.
+ *
+ * <p>All reads observe the database as it was at the same point in time, so their results are
+ * consistent with each other even if the reads are executed concurrently.
+ */
+@AutoValue
+public abstract class ConsistentRead {
+  /** The default number of reads that are executed concurrently. */
+  static final int DEFAULT_MAX_CONCURRENCY = 10;
+
+  /** Returns the documents to read, in the order in which they were added. */
+  @Nonnull
+  public abstract ImmutableList<DocumentReference> getDocuments();
+
+  /** Returns the queries to execute, in the order in which they were added. */
+  @Nonnull
+  public abstract ImmutableList<Query> getQueries();
+
+  /** Returns the aggregate queries to execute, in the order in which they were added. */
+  @Nonnull
+  public abstract ImmutableList<AggregateQuery> getAggregateQueries();
+
+  /**
+   * Returns the time at which all reads are executed.
+   *
+   * @return The read time, or {@code null} if the read time is chosen by the backend.
+   */
+  @Nullable
+  public abstract Timestamp getReadTime();
+
+  /** Returns the maximum number of reads that are executed concurrently. */
+  public abstract int getMaxConcurrency();
+
+  /** Returns the total number of reads, with all document lookups counting as a single read. */
+  int getReadCount() {
+    return (getDocuments().isEmpty() ? 0 : 1) + getQueries().size() + getAggregateQueries().size();
+  }
+
+  @Nonnull
+  public static Builder builder() {
+    return new AutoValue_ConsistentRead.Builder().setMaxConcurrency(DEFAULT_MAX_CONCURRENCY);
+  }
+
+  @Nonnull
+  public abstract Builder toBuilder();
+
+  @AutoValue.Builder
+  public abstract static class Builder {
+    abstract ImmutableList.Builder<DocumentReference> documentsBuilder();
+
+    abstract ImmutableList.Builder<Query> queriesBuilder();
+
+    abstract ImmutableList.Builder<AggregateQuery> aggregateQueriesBuilder();
+
+    /**
+     * Adds documents to read. All documents are fetched with a single request.
+     *
+     * @param documentReferences The documents to read.
+     */
+    @Nonnull
+    public Builder addDocuments(@Nonnull DocumentReference... documentReferences) {
+      return addDocuments(Arrays.asList(documentReferences));
+    }
+
+    /**
+     * Adds documents to read. All documents are fetched with a single request.
+     *
+     * @param documentReferences The documents to read.
+     */
+    @Nonnull
+    public Builder addDocuments(@Nonnull Iterable<DocumentReference> documentReferences) {
+      documentsBuilder().addAll(documentReferences);
+      return this;
+    }
+
+    /**
+     * Adds a query to execute.
+     *
+     * @param query The query to execute.
+     */
+    @Nonnull
+    public Builder addQuery(@Nonnull Query query) {
+      queriesBuilder().add(query);
+      return this;
+    }
+
+    /**
+     * Adds an aggregate query to execute.
+     *
+     * @param aggregateQuery The aggregate query to execute.
+     */
+    @Nonnull
+    public Builder addAggregateQuery(@Nonnull AggregateQuery aggregateQuery) {
+      aggregateQueriesBuilder().add(aggregateQuery);
+      return this;
+    }
+
+    /**
+     * Sets the time at which all reads are executed. By default, the first read is executed at the
+     * current time and all other reads use the read time that the backend chose for it.
+     *
+     * @param readTime The read time, or {@code null} to let the backend choose the read time.
+     */
+    @Nonnull
+    public abstract Builder setReadTime(@Nullable Timestamp readTime);
+
+    /**
+     * Sets the maximum number of reads that are executed concurrently. All document lookups count
+     * as a single read. By default, up to 10 reads are executed concurrently.
+     *
+     * @param maxConcurrency The maximum number of concurrent reads. Must be positive.
+     */
+    @Nonnull
+    public abstract Builder setMaxConcurrency(int maxConcurrency);
+
+    abstract ConsistentRead autoBuild();
+
+    @Nonnull
+    public ConsistentRead build() {
+      ConsistentRead read = autoBuild();
+
+      if (read.getMaxConcurrency() < 1) {
+        throw FirestoreException.forInvalidArgument(
+            "Value for argument 'maxConcurrency' must be positive, but was: "
+                + read.getMaxConcurrency());
+      }
+
+      if (read.getReadCount() == 0) {
+        throw FirestoreException.forInvalidArgument(
+            "A ConsistentRead must contain at least one document, query or aggregate query.");
+      }
+
+      return read;
+    }
+  }
+}
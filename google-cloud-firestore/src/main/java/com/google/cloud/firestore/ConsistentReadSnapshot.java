@@ -0,0 +1,77 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.firestore;
+
+import com.google.api.core.InternalExtensionOnly;
+import com.google.cloud.Timestamp;
+import java.util.List;
+import javax.annotation.Nonnull;
+
+/** The results of executing a {@link ConsistentRead}. */
+@InternalExtensionOnly
+public class ConsistentReadSnapshot {
+
+  @Nonnull private final Timestamp readTime;
+  @Nonnull private final List<DocumentSnapshot> documents;
+  @Nonnull private final List<QuerySnapshot> querySnapshots;
+  @Nonnull private final List<AggregateQuerySnapshot> aggregateQuerySnapshots;
+
+  ConsistentReadSnapshot(
+      @Nonnull Timestamp readTime,
+      @Nonnull List<DocumentSnapshot> documents,
+      @Nonnull List<QuerySnapshot> querySnapshots,
+      @Nonnull List<AggregateQuerySnapshot> aggregateQuerySnapshots) {
+    this.readTime = readTime;
+    this.documents = documents;
+    this.querySnapshots = querySnapshots;
+    this.aggregateQuerySnapshots = aggregateQuerySnapshots;
+  }
+
+  /** Returns the time at which all reads were executed. */
+  @Nonnull
+  public Timestamp getReadTime() {
+    return readTime;
+  }
+
+  /**
+   * Returns the snapshots of the requested documents, in the order in which the documents were
+   * added to the {@link ConsistentRead}. Documents that do not exist are returned as snapshots for
+   * which {@link DocumentSnapshot#exists()} returns {@code false}.
+   */
+  @Nonnull
+  public List<DocumentSnapshot> getDocuments() {
+    return documents;
+  }
+
+  /**
+   * Returns the results of the requested queries, in the order in which the queries were added to
+   * the {@link ConsistentRead}.
+   */
+  @Nonnull
+  public List<QuerySnapshot> getQuerySnapshots() {
+    return querySnapshots;
+  }
+
+  /**
+   * Returns the results of the requested aggregate queries, in the order in which the aggregate
+   * queries were added to the {@link ConsistentRead}.
+   */
+  @Nonnull
+  public List<AggregateQuerySnapshot> getAggregateQuerySnapshots() {
+    return aggregateQuerySnapshots;
+  }
+}
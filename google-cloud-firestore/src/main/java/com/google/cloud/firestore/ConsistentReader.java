@@ -0,0 +1,233 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.firestore;
+
+import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutureCallback;
+import com.google.api.core.ApiFutures;
+import com.google.api.core.SettableApiFuture;
+import com.google.cloud.Timestamp;
+import com.google.common.util.concurrent.MoreExecutors;
+import java.util.ArrayList;
+import java.util.List;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+
+/**
+ * Executes the reads of a {@link ConsistentRead} at a single read time.
+ *
+ * <p>If the caller does not specify a read time, the first read is executed without one and all
+ * other reads use the read time that the backend returned for it. This avoids deriving the read
+ * time from the local clock, which may be ahead of the backend. At most {@link
+ * ConsistentRead#getMaxConcurrency()} reads are in flight at any time, and no further reads are
+ * started once a read has failed.
+ */
+final class ConsistentReader {
+
+  private final ConsistentRead read;
+  @Nullable private final ReadTask<List<DocumentSnapshot>> documentsTask;
+  private final List<ReadTask<QuerySnapshot>> queryTasks = new ArrayList<>();
+  private final List<ReadTask<AggregateQuerySnapshot>> aggregateQueryTasks = new ArrayList<>();
+  private final List<ReadTask<?>> tasks = new ArrayList<>();
+
+  @Nullable private volatile com.google.protobuf.Timestamp readTime;
+
+  @GuardedBy("this")
+  private int nextTask;
+
+  @GuardedBy("this")
+  private boolean failed;
+
+  ConsistentReader(final FirestoreImpl firestore, ConsistentRead read) {
+    this.read = read;
+
+    if (read.getDocuments().isEmpty()) {
+      documentsTask = null;
+    } else {
+      final DocumentReference[] documentReferences =
+          read.getDocuments().toArray(new DocumentReference[0]);
+      documentsTask =
+          new ReadTask<List<DocumentSnapshot>>() {
+            @Override
+            ApiFuture<List<DocumentSnapshot>> execute(
+                @Nullable com.google.protobuf.Timestamp readTime) {
+              return firestore.getAllFromBackend(
+                  documentReferences, /* fieldMask= */ null, /* transactionId= */ null, readTime);
+            }
+
+            @Override
+            Timestamp getReadTime(List<DocumentSnapshot> documents) {
+              return documents.get(0).getReadTime();
+            }
+          };
+      tasks.add(documentsTask);
+    }
+
+    for (final Query query : read.getQueries()) {
+      ReadTask<QuerySnapshot> task =
+          new ReadTask<QuerySnapshot>() {
+            @Override
+            ApiFuture<QuerySnapshot> execute(@Nullable com.google.protobuf.Timestamp readTime) {
+              return query.get(/* transactionId= */ null, readTime);
+            }
+
+            @Override
+            Timestamp getReadTime(QuerySnapshot snapshot) {
+              return snapshot.getReadTime();
+            }
+          };
+      queryTasks.add(task);
+      tasks.add(task);
+    }
+
+    for (final AggregateQuery aggregateQuery : read.getAggregateQueries()) {
+      ReadTask<AggregateQuerySnapshot> task =
+          new ReadTask<AggregateQuerySnapshot>() {
+            @Override
+            ApiFuture<AggregateQuerySnapshot> execute(
+                @Nullable com.google.protobuf.Timestamp readTime) {
+              return aggregateQuery.get(/* transactionId= */ null, readTime);
+            }
+
+            @Override
+            Timestamp getReadTime(AggregateQuerySnapshot snapshot) {
+              return snapshot.getReadTime();
+            }
+          };
+      aggregateQueryTasks.add(task);
+      tasks.add(task);
+    }
+  }
+
+  /** Executes all reads and combines their results once every read has completed. */
+  @Nonnull
+  ApiFuture<ConsistentReadSnapshot> execute() {
+    List<ApiFuture<?>> results = new ArrayList<>(tasks.size());
+    for (ReadTask<?> task : tasks) {
+      results.add(task.result);
+    }
+
+    if (read.getReadTime() != null) {
+      readTime = read.getReadTime().toProto();
+      startTasks(read.getMaxConcurrency());
+    } else {
+      final ReadTask<?> firstTask = tasks.get(0);
+      synchronized (this) {
+        nextTask = 1;
+      }
+      firstTask.start(
+          /* readTime= */ null,
+          new Runnable() {
+            @Override
+            public void run() {
+              readTime = firstTask.getReadTime().toProto();
+              startTasks(read.getMaxConcurrency());
+            }
+          });
+    }
+
+    return ApiFutures.transform(
+        ApiFutures.allAsList(results),
+        ignored -> createSnapshot(),
+        MoreExecutors.directExecutor());
+  }
+
+  private void startTasks(int count) {
+    for (int i = 0; i < count; ++i) {
+      startNextTask();
+    }
+  }
+
+  /** Starts the next pending read, which in turn starts another read once it completes. */
+  private void startNextTask() {
+    ReadTask<?> task;
+    synchronized (this) {
+      if (failed || nextTask == tasks.size()) {
+        return;
+      }
+      task = tasks.get(nextTask++);
+    }
+    task.start(readTime, this::startNextTask);
+  }
+
+  private synchronized void markFailed() {
+    failed = true;
+  }
+
+  private ConsistentReadSnapshot createSnapshot() {
+    List<DocumentSnapshot> documents =
+        documentsTask != null ? documentsTask.value : new ArrayList<DocumentSnapshot>();
+    List<QuerySnapshot> querySnapshots = new ArrayList<>(queryTasks.size());
+    for (ReadTask<QuerySnapshot> task : queryTasks) {
+      querySnapshots.add(task.value);
+    }
+    List<AggregateQuerySnapshot> aggregateQuerySnapshots =
+        new ArrayList<>(aggregateQueryTasks.size());
+    for (ReadTask<AggregateQuerySnapshot> task : aggregateQueryTasks) {
+      aggregateQuerySnapshots.add(task.value);
+    }
+    return new ConsistentReadSnapshot(
+        Timestamp.fromProto(readTime), documents, querySnapshots, aggregateQuerySnapshots);
+  }
+
+  /** A single read whose result is published to {@code result} once it completes. */
+  private abstract class ReadTask<T> {
+    final SettableApiFuture<T> result = SettableApiFuture.create();
+    @Nullable T value;
+
+    /** Sends the read, using the given read time if set. */
+    abstract ApiFuture<T> execute(@Nullable com.google.protobuf.Timestamp readTime);
+
+    /** Returns the read time of a completed read. */
+    abstract Timestamp getReadTime(T value);
+
+    Timestamp getReadTime() {
+      return getReadTime(value);
+    }
+
+    /** Sends the read and invokes {@code onSuccess} before publishing its result. */
+    void start(@Nullable com.google.protobuf.Timestamp readTime, final Runnable onSuccess) {
+      ApiFuture<T> future;
+      try {
+        future = execute(readTime);
+      } catch (RuntimeException e) {
+        future = ApiFutures.immediateFailedFuture(e);
+      }
+      ApiFutures.addCallback(
+          future,
+          new ApiFutureCallback<T>() {
+            @Override
+            public void onSuccess(T snapshot) {
+              value = snapshot;
+              try {
+                onSuccess.run();
+              } finally {
+                result.set(snapshot);
+              }
+            }
+
+            @Override
+            public void onFailure(Throwable throwable) {
+              markFailed();
+              result.setException(throwable);
+            }
+          },
+          MoreExecutors.directExecutor());
+    }
+  }
+}
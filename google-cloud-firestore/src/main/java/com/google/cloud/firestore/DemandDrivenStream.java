@@ -0,0 +1,235 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.firestore;
+
+import com.google.api.gax.rpc.ResponseObserver;
+import com.google.api.gax.rpc.StreamController;
+import com.google.common.base.Preconditions;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import javax.annotation.Nullable;
+
+/**
+ * Adapts a server-streaming RPC to a {@link ResponseObserver} that signals demand.
+ *
+ * <p>The RPC runs with manual inbound flow control. A single message is requested from the server
+ * at a time, and only while the consumer has requested more items than are currently buffered. A
+ * slow consumer therefore holds back the server instead of forcing the client to buffer the
+ * result set. Each server message may produce zero or more items, which are buffered until the
+ * consumer requests them.
+ *
+ * <p>The RPC may be restarted, for example to resume a query from a cursor after a retryable
+ * error. Each restart calls {@link #onStart} with the new stream's controller; the consumer only
+ * observes a single stream.
+ *
+ * @param <T> The type of items delivered to the consumer.
+ */
+final class DemandDrivenStream<T> implements StreamController {
+  private final ResponseObserver<T> consumer;
+  private final Queue<T> buffer = new ArrayDeque<>();
+
+  @Nullable private StreamController upstream;
+  private boolean upstreamRequested;
+  private boolean started;
+  private boolean autoFlowControl = true;
+  private long demand;
+
+  private boolean done;
+  @Nullable private Throwable error;
+  private boolean cancelled;
+
+  private boolean draining;
+  private boolean pendingDrain;
+
+  DemandDrivenStream(ResponseObserver<T> consumer) {
+    this.consumer = consumer;
+  }
+
+  /** Called when an RPC of this stream starts, including RPCs that resume the stream. */
+  void onStart(StreamController streamController) {
+    streamController.disableAutoInboundFlowControl();
+
+    boolean firstStart;
+    synchronized (this) {
+      upstream = streamController;
+      upstreamRequested = false;
+      firstStart = !started;
+    }
+
+    if (firstStart) {
+      consumer.onStart(this);
+      synchronized (this) {
+        started = true;
+        if (autoFlowControl) {
+          demand = Long.MAX_VALUE;
+        }
+      }
+    }
+
+    synchronized (this) {
+      if (cancelled) {
+        streamController.cancel();
+        return;
+      }
+    }
+
+    drain();
+  }
+
+  /** Buffers an item that was decoded from the current server message. */
+  synchronized void onNext(T item) {
+    if (!cancelled) {
+      buffer.add(item);
+    }
+  }
+
+  /** Called once all items of a server message were passed to {@link #onNext}. */
+  void onMessageEnd() {
+    synchronized (this) {
+      upstreamRequested = false;
+    }
+    drain();
+  }
+
+  /** Called when the stream fails. Buffered items are delivered before the error. */
+  void onError(Throwable throwable) {
+    synchronized (this) {
+      if (done) {
+        return;
+      }
+      done = true;
+      error = throwable;
+    }
+    drain();
+  }
+
+  /** Called when the stream completes. Buffered items are delivered before completion. */
+  void onComplete() {
+    synchronized (this) {
+      if (done) {
+        return;
+      }
+      done = true;
+    }
+    drain();
+  }
+
+  @Override
+  public synchronized void disableAutoInboundFlowControl() {
+    Preconditions.checkState(
+        !started, "Automatic flow control can only be disabled in ResponseObserver.onStart()");
+    autoFlowControl = false;
+  }
+
+  @Override
+  public void request(int count) {
+    Preconditions.checkArgument(count > 0, "Count must be positive, but was %s", count);
+    synchronized (this) {
+      Preconditions.checkState(!autoFlowControl, "Automatic flow control is enabled");
+      demand = demand > Long.MAX_VALUE - count ? Long.MAX_VALUE : demand + count;
+    }
+    drain();
+  }
+
+  @Override
+  public void cancel() {
+    StreamController streamController;
+    synchronized (this) {
+      if (cancelled) {
+        return;
+      }
+      cancelled = true;
+      buffer.clear();
+      streamController = upstream;
+    }
+    if (streamController != null) {
+      streamController.cancel();
+    }
+  }
+
+  /**
+   * Delivers buffered items as long as there is demand, and requests the next server message once
+   * the buffer no longer covers the demand. Only one thread drains at a time; calls that arrive
+   * while another thread drains, including re-entrant calls from the consumer, make the draining
+   * thread loop once more.
+   */
+  private void drain() {
+    synchronized (this) {
+      if (draining) {
+        pendingDrain = true;
+        return;
+      }
+      draining = true;
+    }
+
+    while (true) {
+      T next = null;
+      boolean terminate = false;
+      Throwable terminalError = null;
+      StreamController requestFrom = null;
+      boolean exit = false;
+
+      synchronized (this) {
+        if (cancelled) {
+          draining = false;
+          return;
+        }
+
+        if (!buffer.isEmpty() && demand > 0) {
+          next = buffer.poll();
+          if (demand != Long.MAX_VALUE) {
+            --demand;
+          }
+        } else if (buffer.isEmpty() && done) {
+          terminate = true;
+          terminalError = error;
+          cancelled = true;
+        } else {
+          if (!done && !upstreamRequested && upstream != null && buffer.size() < demand) {
+            upstreamRequested = true;
+            requestFrom = upstream;
+          }
+          if (pendingDrain) {
+            pendingDrain = false;
+          } else {
+            draining = false;
+            exit = true;
+          }
+        }
+      }
+
+      if (next != null) {
+        consumer.onResponse(next);
+      } else if (terminate) {
+        if (terminalError != null) {
+          consumer.onError(terminalError);
+        } else {
+          consumer.onComplete();
+        }
+        return;
+      }
+
+      if (requestFrom != null) {
+        requestFrom.request(1);
+      }
+
+      if (exit) {
+        return;
+      }
+    }
+  }
+}
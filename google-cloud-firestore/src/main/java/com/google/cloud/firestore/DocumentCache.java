@@ -0,0 +1,187 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.firestore;
+
+import com.google.api.core.ApiClock;
+import com.google.cloud.Timestamp;
+import com.google.firestore.v1.Value;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * A bounded in-memory cache of document snapshots, keyed by document path.
+ *
+ * <p>Entries are evicted in least-recently-used order once either the number of entries or the
+ * estimated size of the cached documents exceeds the configured limit. Entries expire once they
+ * are older than the configured maximum staleness, measured from the time they were cached.
+ *
+ * <p>Updates are ordered by read time: a snapshot never replaces a snapshot with a later read
+ * time. Invalidating a document leaves a tombstone with the time of the invalidation behind, so
+ * that a read that was in flight while the document was written cannot put the old version back.
+ */
+final class DocumentCache {
+  /** Estimated per-entry overhead of the map entry, the snapshot and the document reference. */
+  private static final long ENTRY_OVERHEAD_BYTES = 128;
+
+  private static final class Entry {
+    /** The cached snapshot, or null if the entry is a tombstone. */
+    @Nullable final DocumentSnapshot snapshot;
+
+    /** The read time of the snapshot, or the time at which a tombstoned document was written. */
+    final Timestamp readTime;
+
+    final long weight;
+    final long cachedAtNanos;
+
+    Entry(
+        @Nullable DocumentSnapshot snapshot, Timestamp readTime, long weight, long cachedAtNanos) {
+      this.snapshot = snapshot;
+      this.readTime = readTime;
+      this.weight = weight;
+      this.cachedAtNanos = cachedAtNanos;
+    }
+  }
+
+  private final DocumentCacheOptions options;
+  private final ApiClock clock;
+  private final long maxStalenessNanos;
+
+  // All reads and writes on `entries` and `totalBytes` must be done while holding the lock on
+  // `this`. Lookups reorder the access-ordered map, so reads need the lock as well.
+  private final LinkedHashMap<ResourcePath, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+  private long totalBytes;
+
+  DocumentCache(DocumentCacheOptions options, ApiClock clock) {
+    this.options = options;
+    this.clock = clock;
+    this.maxStalenessNanos = options.getMaxStaleness().toNanos();
+  }
+
+  DocumentCacheOptions getOptions() {
+    return options;
+  }
+
+  /**
+   * Returns the cached snapshot of the document at the given path, or null if the document is not
+   * cached or its entry has expired.
+   */
+  @Nullable
+  synchronized DocumentSnapshot get(@Nonnull ResourcePath path) {
+    Entry entry = entries.get(path);
+    if (entry == null || entry.snapshot == null) {
+      return null;
+    }
+    if (clock.nanoTime() - entry.cachedAtNanos > maxStalenessNanos) {
+      remove(path);
+      return null;
+    }
+    return entry.snapshot;
+  }
+
+  /**
+   * Caches the given snapshot. The snapshot is ignored if the cache already holds a snapshot or a
+   * tombstone with a later read time.
+   */
+  synchronized void put(@Nonnull DocumentSnapshot snapshot) {
+    Timestamp readTime = snapshot.getReadTime();
+    if (readTime == null) {
+      return;
+    }
+    ResourcePath path = snapshot.getReference().getResourcePath();
+    Entry existing = entries.get(path);
+    if (existing != null && existing.readTime.compareTo(readTime) > 0) {
+      return;
+    }
+    long weight = estimateWeight(snapshot);
+    if (weight > options.getMaxBytes()) {
+      remove(path);
+      return;
+    }
+    replace(path, new Entry(snapshot, readTime, weight, clock.nanoTime()));
+  }
+
+  /**
+   * Evicts the document at the given path.
+   *
+   * @param path The path of the document.
+   * @param updateTime The time at which the document changed. A cached snapshot that was read at
+   *     or after this time is kept, and older snapshots are not accepted until the tombstone is
+   *     evicted. If null, the document is evicted unconditionally.
+   */
+  synchronized void invalidate(@Nonnull ResourcePath path, @Nullable Timestamp updateTime) {
+    if (updateTime == null) {
+      remove(path);
+      return;
+    }
+    Entry existing = entries.get(path);
+    if (existing != null && existing.readTime.compareTo(updateTime) >= 0) {
+      return;
+    }
+    replace(path, new Entry(null, updateTime, ENTRY_OVERHEAD_BYTES, clock.nanoTime()));
+  }
+
+  /** Returns the number of entries in the cache, including tombstones. */
+  synchronized int size() {
+    return entries.size();
+  }
+
+  /** Returns the estimated size in bytes of all entries in the cache. */
+  synchronized long getWeightedSize() {
+    return totalBytes;
+  }
+
+  private void replace(ResourcePath path, Entry entry) {
+    Entry previous = entries.put(path, entry);
+    if (previous != null) {
+      totalBytes -= previous.weight;
+    }
+    totalBytes += entry.weight;
+    evict();
+  }
+
+  private void remove(ResourcePath path) {
+    Entry previous = entries.remove(path);
+    if (previous != null) {
+      totalBytes -= previous.weight;
+    }
+  }
+
+  /** Evicts the least recently used entries until the cache is within its limits. */
+  private void evict() {
+    Iterator<Map.Entry<ResourcePath, Entry>> iterator = entries.entrySet().iterator();
+    while (iterator.hasNext()
+        && (entries.size() > options.getMaxEntries() || totalBytes > options.getMaxBytes())) {
+      totalBytes -= iterator.next().getValue().weight;
+      iterator.remove();
+    }
+  }
+
+  /** Estimates the heap footprint of a snapshot from the serialized size of its fields. */
+  private static long estimateWeight(DocumentSnapshot snapshot) {
+    long weight = ENTRY_OVERHEAD_BYTES + snapshot.getReference().getName().length();
+    Map<String, Value> fields = snapshot.getProtoFields();
+    if (fields != null) {
+      for (Map.Entry<String, Value> field : fields.entrySet()) {
+        weight += field.getKey().length() + field.getValue().getSerializedSize();
+      }
+    }
+    return weight;
+  }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.firestore;
+
+import com.google.auto.value.AutoValue;
+import java.io.Serializable;
+import java.time.Duration;
+import javax.annotation.Nonnull;
+
+/**
+ * Options used to configure the client-side document cache.
+ *
+ * <p>If a cache is configured in {@link FirestoreOptions.Builder#setDocumentCacheOptions}, {@link
+ * DocumentReference#get()} and {@link Firestore#getAll(DocumentReference...)} serve documents that
+ * were read within the last {@link #getMaxStaleness()} from memory instead of sending a
+ * BatchGetDocuments request. Reads with a field mask, reads at a fixed read time and reads in
+ * transactions always bypass the cache. Other reads can bypass the cache by passing {@link
+ * Source#SERVER} to {@link DocumentReference#get(Source)} or {@link
+ * Firestore#getAll(DocumentReference[], Source)}.
+ */
+@AutoValue
+public abstract class DocumentCacheOptions implements Serializable {
+  private static final long serialVersionUID = 2875183409615217744L;
+
+  /**
+   * Returns the maximum number of documents that are kept in the cache. Once the cache is full,
+   * the least recently used documents are evicted.
+   */
+  public abstract long getMaxEntries();
+
+  /**
+   * Returns the approximate maximum number of bytes of document data that are kept in the cache.
+   * The size of a document is estimated from the serialized size of its fields.
+   */
+  public abstract long getMaxBytes();
+
+  /**
+   * Returns how long a document may be served from the cache after it was read from the backend.
+   * Documents that are older are fetched again on the next read.
+   */
+  public abstract Duration getMaxStaleness();
+
+  /**
+   * Returns whether snapshot listeners update the cache.
+   *
+   * <p>If enabled, documents delivered by a snapshot listener replace older cached versions, and
+   * documents that are removed from a listener's result set are evicted. Listeners on queries with
+   * a field projection only evict documents.
+   */
+  public abstract boolean getListenerUpdatesEnabled();
+
+  public static Builder builder() {
+    return new AutoValue_DocumentCacheOptions.Builder()
+        .setMaxEntries(10_000)
+        .setMaxBytes(64L * 1024 * 1024)
+        .setMaxStaleness(Duration.ofSeconds(30))
+        .setListenerUpdatesEnabled(true);
+  }
+
+  public abstract Builder toBuilder();
+
+  @AutoValue.Builder
+  public abstract static class Builder {
+    /**
+     * Sets the maximum number of documents that are kept in the cache. By default, up to 10,000
+     * documents are cached.
+     *
+     * @param maxEntries The number of documents. Must be at least 1.
+     */
+    public abstract Builder setMaxEntries(long maxEntries);
+
+    /**
+     * Sets the approximate maximum number of bytes of document data that are kept in the cache.
+     * By default, up to 64 MiB are cached.
+     *
+     * @param maxBytes The number of bytes. Must be at least 1.
+     */
+    public abstract Builder setMaxBytes(long maxBytes);
+
+    /**
+     * Sets how long a document may be served from the cache after it was read from the backend.
+     * By default, documents are served for up to 30 seconds.
+     *
+     * @param maxStaleness The maximum staleness. Must be positive.
+     */
+    public abstract Builder setMaxStaleness(@Nonnull Duration maxStaleness);
+
+    /**
+     * Sets whether snapshot listeners update the cache. By default, listener updates are enabled.
+     *
+     * @param enabled Whether snapshot listeners update the cache.
+     */
+    public abstract Builder setListenerUpdatesEnabled(boolean enabled);
+
+    abstract DocumentCacheOptions autoBuild();
+
+    @Nonnull
+    public DocumentCacheOptions build() {
+      DocumentCacheOptions options = autoBuild();
+
+      if (options.getMaxEntries() < 1) {
+        throw FirestoreException.forInvalidArgument(
+            "Value for argument 'maxEntries' must be at least 1, but was: "
+                + options.getMaxEntries());
+      }
+
+      if (options.getMaxBytes() < 1) {
+        throw FirestoreException.forInvalidArgument(
+            "Value for argument 'maxBytes' must be at least 1, but was: " + options.getMaxBytes());
+      }
+
+      if (options.getMaxStaleness().isNegative() || options.getMaxStaleness().isZero()) {
+        throw FirestoreException.forInvalidArgument(
+            "Value for argument 'maxStaleness' must be positive, but was: "
+                + options.getMaxStaleness());
+      }
+
+      return options;
+    }
+  }
+}
@@ -164,7 +164,7 @@ public class DocumentReference {
 
     try (Scope ignored = span.makeCurrent()) {
       WriteBatch writeBatch = rpcContext.getFirestore().batch();
-      ApiFuture<WriteResult> result = extractFirst(writeBatch.create(this, fields).commit());
+      ApiFuture<WriteResult> result = writeBatch.create(this, fields).commitSingleWrite();
       span.endAtFuture(result);
       metricsContext.recordLatencyAtFuture(MetricType.END_TO_END_LATENCY, result);
       return result;
@@ -190,7 +190,7 @@ public class DocumentReference {
 
     try (Scope ignored = span.makeCurrent()) {
       WriteBatch writeBatch = rpcContext.getFirestore().batch();
-      ApiFuture<WriteResult> result = extractFirst(writeBatch.create(this, pojo).commit());
+      ApiFuture<WriteResult> result = writeBatch.create(this, pojo).commitSingleWrite();
       span.endAtFuture(result);
       metricsContext.recordLatencyAtFuture(MetricType.END_TO_END_LATENCY, result);
       return result;
@@ -216,7 +216,7 @@ public class DocumentReference {
 
     try (Scope ignored = span.makeCurrent()) {
       WriteBatch writeBatch = rpcContext.getFirestore().batch();
-      ApiFuture<WriteResult> result = extractFirst(writeBatch.set(this, fields).commit());
+      ApiFuture<WriteResult> result = writeBatch.set(this, fields).commitSingleWrite();
       span.endAtFuture(result);
       metricsContext.recordLatencyAtFuture(MetricType.END_TO_END_LATENCY, result);
       return result;
@@ -245,7 +245,7 @@ public class DocumentReference {
 
     try (Scope ignored = span.makeCurrent()) {
       WriteBatch writeBatch = rpcContext.getFirestore().batch();
-      ApiFuture<WriteResult> result = extractFirst(writeBatch.set(this, fields, options).commit());
+      ApiFuture<WriteResult> result = writeBatch.set(this, fields, options).commitSingleWrite();
       span.endAtFuture(result);
       metricsContext.recordLatencyAtFuture(MetricType.END_TO_END_LATENCY, result);
       return result;
@@ -271,7 +271,7 @@ public class DocumentReference {
 
     try (Scope ignored = span.makeCurrent()) {
       WriteBatch writeBatch = rpcContext.getFirestore().batch();
-      ApiFuture<WriteResult> result = extractFirst(writeBatch.set(this, pojo).commit());
+      ApiFuture<WriteResult> result = writeBatch.set(this, pojo).commitSingleWrite();
       span.endAtFuture(result);
       metricsContext.recordLatencyAtFuture(MetricType.END_TO_END_LATENCY, result);
       return result;
@@ -299,7 +299,7 @@ public class DocumentReference {
 
     try (Scope ignored = span.makeCurrent()) {
       WriteBatch writeBatch = rpcContext.getFirestore().batch();
-      ApiFuture<WriteResult> result = extractFirst(writeBatch.set(this, pojo, options).commit());
+      ApiFuture<WriteResult> result = writeBatch.set(this, pojo, options).commitSingleWrite();
       span.endAtFuture(result);
       metricsContext.recordLatencyAtFuture(MetricType.END_TO_END_LATENCY, result);
       return result;
@@ -325,7 +325,7 @@ public class DocumentReference {
 
     try (Scope ignored = span.makeCurrent()) {
       WriteBatch writeBatch = rpcContext.getFirestore().batch();
-      ApiFuture<WriteResult> result = extractFirst(writeBatch.update(this, fields).commit());
+      ApiFuture<WriteResult> result = writeBatch.update(this, fields).commitSingleWrite();
       span.endAtFuture(result);
       metricsContext.recordLatencyAtFuture(MetricType.END_TO_END_LATENCY, result);
       return result;
@@ -352,8 +352,7 @@ public class DocumentReference {
 
     try (Scope ignored = span.makeCurrent()) {
       WriteBatch writeBatch = rpcContext.getFirestore().batch();
-      ApiFuture<WriteResult> result =
-          extractFirst(writeBatch.update(this, fields, options).commit());
+      ApiFuture<WriteResult> result = writeBatch.update(this, fields, options).commitSingleWrite();
       span.endAtFuture(result);
       metricsContext.recordLatencyAtFuture(MetricType.END_TO_END_LATENCY, result);
       return result;
@@ -383,7 +382,7 @@ public class DocumentReference {
     try (Scope ignored = span.makeCurrent()) {
       WriteBatch writeBatch = rpcContext.getFirestore().batch();
       ApiFuture<WriteResult> result =
-          extractFirst(writeBatch.update(this, field, value, moreFieldsAndValues).commit());
+          writeBatch.update(this, field, value, moreFieldsAndValues).commitSingleWrite();
       span.endAtFuture(result);
       metricsContext.recordLatencyAtFuture(MetricType.END_TO_END_LATENCY, result);
       return result;
@@ -413,7 +412,7 @@ public class DocumentReference {
     try (Scope ignored = span.makeCurrent()) {
       WriteBatch writeBatch = rpcContext.getFirestore().batch();
       ApiFuture<WriteResult> result =
-          extractFirst(writeBatch.update(this, fieldPath, value, moreFieldsAndValues).commit());
+          writeBatch.update(this, fieldPath, value, moreFieldsAndValues).commitSingleWrite();
       span.endAtFuture(result);
       metricsContext.recordLatencyAtFuture(MetricType.END_TO_END_LATENCY, result);
       return result;
@@ -447,8 +446,7 @@ public class DocumentReference {
     try (Scope ignored = span.makeCurrent()) {
       WriteBatch writeBatch = rpcContext.getFirestore().batch();
       ApiFuture<WriteResult> result =
-          extractFirst(
-              writeBatch.update(this, options, field, value, moreFieldsAndValues).commit());
+          writeBatch.update(this, options, field, value, moreFieldsAndValues).commitSingleWrite();
       span.endAtFuture(result);
       metricsContext.recordLatencyAtFuture(MetricType.END_TO_END_LATENCY, result);
       return result;
@@ -482,8 +480,9 @@ public class DocumentReference {
     try (Scope ignored = span.makeCurrent()) {
       WriteBatch writeBatch = rpcContext.getFirestore().batch();
       ApiFuture<WriteResult> result =
-          extractFirst(
-              writeBatch.update(this, options, fieldPath, value, moreFieldsAndValues).commit());
+          writeBatch
+              .update(this, options, fieldPath, value, moreFieldsAndValues)
+              .commitSingleWrite();
       span.endAtFuture(result);
       metricsContext.recordLatencyAtFuture(MetricType.END_TO_END_LATENCY, result);
       return result;
@@ -508,7 +507,7 @@ public class DocumentReference {
 
     try (Scope ignored = span.makeCurrent()) {
       WriteBatch writeBatch = rpcContext.getFirestore().batch();
-      ApiFuture<WriteResult> result = extractFirst(writeBatch.delete(this, options).commit());
+      ApiFuture<WriteResult> result = writeBatch.delete(this, options).commitSingleWrite();
       span.endAtFuture(result);
       metricsContext.recordLatencyAtFuture(MetricType.END_TO_END_LATENCY, result);
       return result;
@@ -532,7 +531,7 @@ public class DocumentReference {
 
     try (Scope ignored = span.makeCurrent()) {
       WriteBatch writeBatch = rpcContext.getFirestore().batch();
-      ApiFuture<WriteResult> result = extractFirst(writeBatch.delete(this).commit());
+      ApiFuture<WriteResult> result = writeBatch.delete(this).commitSingleWrite();
       span.endAtFuture(result);
       metricsContext.recordLatencyAtFuture(MetricType.END_TO_END_LATENCY, result);
       return result;
@@ -568,6 +567,34 @@ public class DocumentReference {
     }
   }
 
+  /**
+   * Reads the document referenced by this DocumentReference from the given source. If the document
+   * doesn't exist, the get(Source source) will return an empty DocumentSnapshot.
+   *
+   * @param source Where to read the document from. Use {@link Source#SERVER} to read the latest
+   *     version of a document that may be cached.
+   * @return An ApiFuture that will be resolved with the contents of the Document at this
+   *     DocumentReference.
+   */
+  @Nonnull
+  public ApiFuture<DocumentSnapshot> get(@Nonnull Source source) {
+    TraceUtil.Span span = getTraceUtil().startSpan(TelemetryConstants.METHOD_NAME_DOC_REF_GET);
+    MetricsContext metricsContext =
+        getMetricsUtil().createMetricsContext(TelemetryConstants.METHOD_NAME_DOC_REF_GET);
+
+    try (Scope ignored = span.makeCurrent()) {
+      ApiFuture<DocumentSnapshot> result =
+          extractFirst(rpcContext.getFirestore().getAll(new DocumentReference[] {this}, source));
+      span.endAtFuture(result);
+      metricsContext.recordLatencyAtFuture(MetricType.END_TO_END_LATENCY, result);
+      return result;
+    } catch (Exception error) {
+      span.end(error);
+      metricsContext.recordLatency(MetricType.END_TO_END_LATENCY, error);
+      throw error;
+    }
+  }
+
   /**
    * Reads the document referenced by this DocumentReference. If the document doesn't exist, the
    * get(FieldMask fieldMask) will return an empty DocumentSnapshot.
@@ -595,6 +622,24 @@ public class DocumentReference {
     }
   }
 
+  /**
+   * Reads the document referenced by this DocumentReference and converts it to an instance of the
+   * given class. Only the fields that are populated in an instance of the class are fetched, which
+   * reduces the amount of data that is transferred for documents with many unused fields.
+   *
+   * @param valueType The Java class to convert the document to.
+   * @return An ApiFuture that will be resolved with the contents of the document in an object of
+   *     type T, or with null if the document doesn't exist.
+   */
+  @Nonnull
+  public <T> ApiFuture<T> get(@Nonnull Class<T> valueType) {
+    FieldMask fieldMask = FieldMask.forClass(valueType);
+    return ApiFutures.transform(
+        fieldMask != null ? get(fieldMask) : get(),
+        snapshot -> snapshot.toObject(valueType),
+        MoreExecutors.directExecutor());
+  }
+
   /**
    * Fetches the subcollections that are direct children of this document.
    *
@@ -661,9 +706,41 @@ public class DocumentReference {
   @Nonnull
   public ListenerRegistration addSnapshotListener(
       @Nonnull Executor executor, @Nonnull final EventListener<DocumentSnapshot> listener) {
+    return addSnapshotListener(executor, SnapshotListenOptions.builder().build(), listener);
+  }
+
+  /**
+   * Starts listening to the document referenced by this DocumentReference with the provided
+   * options.
+   *
+   * @param options The options that configure the listener.
+   * @param listener The event listener that will be called with the snapshots.
+   * @return A registration object that can be used to remove the listener.
+   */
+  @Nonnull
+  public ListenerRegistration addSnapshotListener(
+      @Nonnull SnapshotListenOptions options, @Nonnull EventListener<DocumentSnapshot> listener) {
+    return addSnapshotListener(rpcContext.getClient().getExecutor(), options, listener);
+  }
+
+  /**
+   * Starts listening to the document referenced by this DocumentReference with the provided
+   * options.
+   *
+   * @param executor The executor to use to call the listener.
+   * @param options The options that configure the listener.
+   * @param listener The event listener that will be called with the snapshots.
+   * @return A registration object that can be used to remove the listener.
+   */
+  @Nonnull
+  public ListenerRegistration addSnapshotListener(
+      @Nonnull Executor executor,
+      @Nonnull SnapshotListenOptions options,
+      @Nonnull final EventListener<DocumentSnapshot> listener) {
     return Watch.forDocument(this)
         .runWatch(
             executor,
+            options,
             (value, error) -> {
               if (value == null) {
                 listener.onEvent(null, error);
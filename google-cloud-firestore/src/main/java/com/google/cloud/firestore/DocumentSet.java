@@ -16,27 +16,47 @@
 
 package com.google.cloud.firestore;
 
+import com.google.cloud.firestore.DocumentChange.Type;
 import com.google.cloud.firestore.collection.ImmutableSortedMap;
 import com.google.cloud.firestore.collection.ImmutableSortedSet;
+import com.google.common.annotations.VisibleForTesting;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import javax.annotation.Nullable;
 
 /**
  * An immutable set of documents (unique by key) ordered by the given comparator or ordered by key
  * by default if no document is present.
  */
-class DocumentSet implements Iterable<QueryDocumentSnapshot> {
+class DocumentSet implements DocumentView {
   private static final ImmutableSortedMap<ResourcePath, QueryDocumentSnapshot> EMPTY_DOCUMENT_MAP =
       ImmutableSortedMap.Builder.emptyMap(ResourcePath.comparator());
 
   /** Returns an empty DocumentSet sorted by the given comparator, then by keys. */
   static DocumentSet emptySet(final Comparator<QueryDocumentSnapshot> comparator) {
     return new DocumentSet(
-        EMPTY_DOCUMENT_MAP, new ImmutableSortedSet<>(Collections.emptyList(), comparator));
+        EMPTY_DOCUMENT_MAP,
+        new ImmutableSortedSet<>(Collections.emptyList(), comparator),
+        comparator);
+  }
+
+  /** The ordered documents and the changes that result from merging a batch of changes. */
+  static final class MergeResult {
+    /** The documents after all changes were applied, in query order. */
+    final List<QueryDocumentSnapshot> documents;
+
+    /** The applied changes in the order expected by snapshot listeners. */
+    final List<DocumentChange> changes;
+
+    private MergeResult(List<QueryDocumentSnapshot> documents, List<DocumentChange> changes) {
+      this.documents = documents;
+      this.changes = changes;
+    }
   }
 
   /**
@@ -53,14 +73,20 @@ class DocumentSet implements Iterable<QueryDocumentSnapshot> {
    */
   private final ImmutableSortedSet<QueryDocumentSnapshot> sortedSet;
 
+  /** The comparator that defines the order of 'sortedSet'. */
+  private final Comparator<QueryDocumentSnapshot> comparator;
+
   private DocumentSet(
       ImmutableSortedMap<ResourcePath, QueryDocumentSnapshot> keyIndex,
-      ImmutableSortedSet<QueryDocumentSnapshot> sortedSet) {
+      ImmutableSortedSet<QueryDocumentSnapshot> sortedSet,
+      Comparator<QueryDocumentSnapshot> comparator) {
     this.keyIndex = keyIndex;
     this.sortedSet = sortedSet;
+    this.comparator = comparator;
   }
 
-  int size() {
+  @Override
+  public int size() {
     return keyIndex.size();
   }
 
@@ -69,13 +95,15 @@ class DocumentSet implements Iterable<QueryDocumentSnapshot> {
   }
 
   /** Returns true iff this set contains a document with the given key. */
-  boolean contains(ResourcePath key) {
+  @Override
+  public boolean contains(ResourcePath key) {
     return keyIndex.containsKey(key);
   }
 
   /** Returns the document from this set with the given key if it exists or null if it doesn't. */
   @Nullable
-  QueryDocumentSnapshot getDocument(ResourcePath key) {
+  @Override
+  public QueryDocumentSnapshot getDocument(ResourcePath key) {
     return keyIndex.get(key);
   }
 
@@ -103,7 +131,7 @@ class DocumentSet implements Iterable<QueryDocumentSnapshot> {
     ImmutableSortedMap<ResourcePath, QueryDocumentSnapshot> newKeyIndex =
         removed.keyIndex.insert(document.getReference().getResourcePath(), document);
     ImmutableSortedSet<QueryDocumentSnapshot> newSortedSet = removed.sortedSet.insert(document);
-    return new DocumentSet(newKeyIndex, newSortedSet);
+    return new DocumentSet(newKeyIndex, newSortedSet, comparator);
   }
 
   /** Returns a new DocumentSet with the document for the provided key removed. */
@@ -115,11 +143,246 @@ class DocumentSet implements Iterable<QueryDocumentSnapshot> {
 
     ImmutableSortedMap<ResourcePath, QueryDocumentSnapshot> newKeyIndex = keyIndex.remove(key);
     ImmutableSortedSet<QueryDocumentSnapshot> newSortedSet = sortedSet.remove(document);
-    return new DocumentSet(newKeyIndex, newSortedSet);
+    return new DocumentSet(newKeyIndex, newSortedSet, comparator);
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>Small batches are applied one document at a time. Large batches relative to the size of the
+   * set are merged with the existing documents in a single pass, which computes all indexes in the
+   * same walk and rebuilds the ordered tree in bulk instead of copying a tree path per change.
+   */
+  @Override
+  public ChangeResult<DocumentSet> applyChanges(
+      List<QueryDocumentSnapshot> deletes,
+      List<QueryDocumentSnapshot> adds,
+      List<QueryDocumentSnapshot> updates) {
+    int changeCount = deletes.size() + adds.size() + updates.size();
+    return applyChanges(deletes, adds, updates, shouldApplyInBulk(changeCount));
+  }
+
+  @VisibleForTesting
+  ChangeResult<DocumentSet> applyChanges(
+      List<QueryDocumentSnapshot> deletes,
+      List<QueryDocumentSnapshot> adds,
+      List<QueryDocumentSnapshot> updates,
+      boolean inBulk) {
+    deletes.sort(comparator);
+    adds.sort(comparator);
+    updates.sort(comparator);
+    return inBulk
+        ? applyChangesInBulk(deletes, adds, updates)
+        : applyChangesIncrementally(deletes, adds, updates);
+  }
+
+  /**
+   * Returns whether a batch is cheaper to apply with a single pass over the set than with one tree
+   * update per change. Each incremental change copies a path whose length is logarithmic in the
+   * size of the set, while the bulk path is linear in the size of the set.
+   */
+  private boolean shouldApplyInBulk(int changeCount) {
+    int treeDepth = 32 - Integer.numberOfLeadingZeros(size() + 1);
+    return (long) changeCount * treeDepth >= size();
+  }
+
+  /** Applies the sorted changes one document at a time. */
+  private ChangeResult<DocumentSet> applyChangesIncrementally(
+      List<QueryDocumentSnapshot> deletes,
+      List<QueryDocumentSnapshot> adds,
+      List<QueryDocumentSnapshot> updates) {
+    List<DocumentChange> changes = new ArrayList<>();
+    DocumentSet result = this;
+
+    for (QueryDocumentSnapshot delete : deletes) {
+      ResourcePath resourcePath = delete.getReference().getResourcePath();
+      int oldIndex = result.indexOf(resourcePath);
+      result = result.remove(resourcePath);
+      changes.add(new DocumentChange(delete, Type.REMOVED, oldIndex, -1));
+    }
+
+    for (QueryDocumentSnapshot add : adds) {
+      ResourcePath resourcePath = add.getReference().getResourcePath();
+      result = result.add(add);
+      int newIndex = result.indexOf(resourcePath);
+      changes.add(new DocumentChange(add, Type.ADDED, -1, newIndex));
+    }
+
+    for (QueryDocumentSnapshot update : updates) {
+      ResourcePath resourcePath = update.getReference().getResourcePath();
+      DocumentSnapshot oldDocument = result.getDocument(resourcePath);
+      if (!oldDocument.getUpdateTime().equals(update.getUpdateTime())) {
+        int oldIndex = result.indexOf(resourcePath);
+        result = result.remove(resourcePath);
+        result = result.add(update);
+        int newIndex = result.indexOf(resourcePath);
+        changes.add(new DocumentChange(update, Type.MODIFIED, oldIndex, newIndex));
+      }
+    }
+
+    return new ChangeResult<>(result, changes);
+  }
+
+  /** Applies the sorted changes by merging them with the existing documents in a single pass. */
+  private ChangeResult<DocumentSet> applyChangesInBulk(
+      List<QueryDocumentSnapshot> deletes,
+      List<QueryDocumentSnapshot> adds,
+      List<QueryDocumentSnapshot> updates) {
+    MergeResult merged = mergeChanges(this, comparator, deletes, adds, updates);
+
+    ImmutableSortedMap<ResourcePath, QueryDocumentSnapshot> newKeyIndex = keyIndex;
+    for (DocumentChange change : merged.changes) {
+      QueryDocumentSnapshot document = change.getDocument();
+      ResourcePath resourcePath = document.getReference().getResourcePath();
+      if (change.getType() == Type.REMOVED) {
+        newKeyIndex = newKeyIndex.remove(resourcePath);
+      } else {
+        newKeyIndex = newKeyIndex.insert(resourcePath, document);
+      }
+    }
+
+    return new ChangeResult<>(
+        new DocumentSet(
+            newKeyIndex, new ImmutableSortedSet<>(merged.documents, comparator), comparator),
+        merged.changes);
+  }
+
+  /**
+   * Merges sorted changes with the documents of a view in a single pass.
+   *
+   * <p>The existing documents and all incoming documents are merged into one ordered sequence. A
+   * Fenwick tree over that sequence tracks which documents are present, so that the index of a
+   * document after all previously applied changes is a prefix sum. The documents that are present
+   * at the end form the new contents of the view.
+   *
+   * @param view The view to apply the changes to.
+   * @param comparator The comparator that orders the view.
+   * @param deletes The documents to remove, sorted by the comparator.
+   * @param adds The documents to add, sorted by the comparator.
+   * @param updates The new versions of existing documents, sorted by the comparator.
+   */
+  static MergeResult mergeChanges(
+      DocumentView view,
+      Comparator<QueryDocumentSnapshot> comparator,
+      List<QueryDocumentSnapshot> deletes,
+      List<QueryDocumentSnapshot> adds,
+      List<QueryDocumentSnapshot> updates) {
+    List<QueryDocumentSnapshot> incoming = new ArrayList<>(adds.size() + updates.size());
+    incoming.addAll(adds);
+    incoming.addAll(updates);
+    incoming.sort(comparator);
+
+    // The existing documents whose positions are needed to compute their old index.
+    Map<QueryDocumentSnapshot, Integer> positions = new IdentityHashMap<>();
+    for (QueryDocumentSnapshot delete : deletes) {
+      positions.put(delete, -1);
+    }
+    for (QueryDocumentSnapshot update : updates) {
+      positions.put(view.getDocument(update.getReference().getResourcePath()), -1);
+    }
+
+    int sequenceSize = view.size() + incoming.size();
+    QueryDocumentSnapshot[] sequence = new QueryDocumentSnapshot[sequenceSize];
+    boolean[] present = new boolean[sequenceSize];
+    int[] presenceTree = new int[sequenceSize + 1];
+
+    Iterator<QueryDocumentSnapshot> existing = view.iterator();
+    QueryDocumentSnapshot nextExisting = existing.hasNext() ? existing.next() : null;
+    int nextIncoming = 0;
+    for (int i = 0; i < sequenceSize; ++i) {
+      if (nextExisting != null
+          && (nextIncoming == incoming.size()
+              || comparator.compare(nextExisting, incoming.get(nextIncoming)) <= 0)) {
+        if (positions.containsKey(nextExisting)) {
+          positions.put(nextExisting, i);
+        }
+        sequence[i] = nextExisting;
+        present[i] = true;
+        presenceTree[i + 1] = 1;
+        nextExisting = existing.hasNext() ? existing.next() : null;
+      } else {
+        QueryDocumentSnapshot document = incoming.get(nextIncoming++);
+        positions.put(document, i);
+        sequence[i] = document;
+      }
+    }
+
+    // Turn the presence flags into a Fenwick tree in linear time.
+    for (int i = 1; i <= sequenceSize; ++i) {
+      int parent = i + (i & -i);
+      if (parent <= sequenceSize) {
+        presenceTree[parent] += presenceTree[i];
+      }
+    }
+
+    List<DocumentChange> changes = new ArrayList<>();
+    int size = view.size();
+
+    for (QueryDocumentSnapshot delete : deletes) {
+      int position = positions.get(delete);
+      int oldIndex = countPresentBefore(presenceTree, position);
+      markAbsent(presenceTree, present, position);
+      --size;
+      changes.add(new DocumentChange(delete, Type.REMOVED, oldIndex, -1));
+    }
+
+    for (QueryDocumentSnapshot add : adds) {
+      int position = positions.get(add);
+      markPresent(presenceTree, present, position);
+      int newIndex = countPresentBefore(presenceTree, position);
+      ++size;
+      changes.add(new DocumentChange(add, Type.ADDED, -1, newIndex));
+    }
+
+    for (QueryDocumentSnapshot update : updates) {
+      QueryDocumentSnapshot oldDocument = view.getDocument(update.getReference().getResourcePath());
+      if (!oldDocument.getUpdateTime().equals(update.getUpdateTime())) {
+        int oldPosition = positions.get(oldDocument);
+        int oldIndex = countPresentBefore(presenceTree, oldPosition);
+        markAbsent(presenceTree, present, oldPosition);
+        int newPosition = positions.get(update);
+        markPresent(presenceTree, present, newPosition);
+        int newIndex = countPresentBefore(presenceTree, newPosition);
+        changes.add(new DocumentChange(update, Type.MODIFIED, oldIndex, newIndex));
+      }
+    }
+
+    List<QueryDocumentSnapshot> documents = new ArrayList<>(size);
+    for (int i = 0; i < sequenceSize; ++i) {
+      if (present[i]) {
+        documents.add(sequence[i]);
+      }
+    }
+
+    return new MergeResult(documents, changes);
+  }
+
+  /** Returns the number of present documents before the given position in the Fenwick tree. */
+  private static int countPresentBefore(int[] presenceTree, int position) {
+    int count = 0;
+    for (int i = position; i > 0; i -= i & -i) {
+      count += presenceTree[i];
+    }
+    return count;
+  }
+
+  private static void markPresent(int[] presenceTree, boolean[] present, int position) {
+    present[position] = true;
+    for (int i = position + 1; i < presenceTree.length; i += i & -i) {
+      ++presenceTree[i];
+    }
+  }
+
+  private static void markAbsent(int[] presenceTree, boolean[] present, int position) {
+    present[position] = false;
+    for (int i = position + 1; i < presenceTree.length; i += i & -i) {
+      --presenceTree[i];
+    }
   }
 
   /** Returns a copy of the documents in this set as array. This is O(n) in the size of the set. */
-  List<QueryDocumentSnapshot> toList() {
+  @Override
+  public List<QueryDocumentSnapshot> toList() {
     List<QueryDocumentSnapshot> documents = new ArrayList<>(size());
     for (QueryDocumentSnapshot document : this) {
       documents.add(document);
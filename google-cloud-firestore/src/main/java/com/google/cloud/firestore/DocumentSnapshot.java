@@ -169,12 +169,7 @@ public class DocumentSnapshot {
       return null;
     }
 
-    Map<String, Object> decodedFields = new HashMap<>();
-    for (Map.Entry<String, Value> entry : fields.entrySet()) {
-      Object decodedValue = UserDataConverter.decodeValue(rpcContext, entry.getValue());
-      decodedFields.put(entry.getKey(), decodedValue);
-    }
-    return decodedFields;
+    return new LazyDecodedMap(rpcContext, fields);
   }
 
   /**
@@ -186,8 +181,12 @@ public class DocumentSnapshot {
    */
   @Nullable
   public <T> T toObject(@Nonnull Class<T> valueType) {
-    Map<String, Object> data = getData();
-    return data == null ? null : CustomClassMapper.convertToCustomClass(data, valueType, docRef);
+    if (fields == null) {
+      return null;
+    }
+
+    return CustomClassMapper.convertToCustomClass(
+        fields, valueType, docRef, value -> UserDataConverter.decodeValue(rpcContext, value));
   }
 
   /**
@@ -250,7 +249,7 @@ public class DocumentSnapshot {
       return null;
     }
 
-    return UserDataConverter.decodeValue(rpcContext, value);
+    return LazyDecodedMap.decodeValue(rpcContext, value);
   }
 
   /**
@@ -287,6 +286,12 @@ public class DocumentSnapshot {
     return value;
   }
 
+  /** Converts a Value Proto returned by {@link #extractField} to its Java representation. */
+  @Nullable
+  private Object decodeField(@Nullable Value value) {
+    return value == null ? null : LazyDecodedMap.decodeValue(rpcContext, value);
+  }
+
   /**
    * Returns the value of the field as a boolean.
    *
@@ -296,7 +301,11 @@ public class DocumentSnapshot {
    */
   @Nullable
   public Boolean getBoolean(@Nonnull String field) {
-    return (Boolean) get(field);
+    Value value = extractField(FieldPath.fromDotSeparatedString(field));
+    if (value != null && value.getValueTypeCase() == Value.ValueTypeCase.BOOLEAN_VALUE) {
+      return value.getBooleanValue();
+    }
+    return (Boolean) decodeField(value);
   }
 
   /**
@@ -308,7 +317,18 @@ public class DocumentSnapshot {
    */
   @Nullable
   public Double getDouble(@Nonnull String field) {
-    Number number = (Number) get(field);
+    Value value = extractField(FieldPath.fromDotSeparatedString(field));
+    if (value != null) {
+      switch (value.getValueTypeCase()) {
+        case DOUBLE_VALUE:
+          return value.getDoubleValue();
+        case INTEGER_VALUE:
+          return (double) value.getIntegerValue();
+        default:
+          break;
+      }
+    }
+    Number number = (Number) decodeField(value);
     return number == null ? null : number.doubleValue();
   }
 
@@ -321,7 +341,11 @@ public class DocumentSnapshot {
    */
   @Nullable
   public String getString(@Nonnull String field) {
-    return (String) get(field);
+    Value value = extractField(FieldPath.fromDotSeparatedString(field));
+    if (value != null && value.getValueTypeCase() == Value.ValueTypeCase.STRING_VALUE) {
+      return value.getStringValue();
+    }
+    return (String) decodeField(value);
   }
 
   /**
@@ -333,7 +357,18 @@ public class DocumentSnapshot {
    */
   @Nullable
   public Long getLong(@Nonnull String field) {
-    Number number = (Number) get(field);
+    Value value = extractField(FieldPath.fromDotSeparatedString(field));
+    if (value != null) {
+      switch (value.getValueTypeCase()) {
+        case INTEGER_VALUE:
+          return value.getIntegerValue();
+        case DOUBLE_VALUE:
+          return (long) value.getDoubleValue();
+        default:
+          break;
+      }
+    }
+    Number number = (Number) decodeField(value);
     return number == null ? null : number.longValue();
   }
 
@@ -359,7 +394,11 @@ public class DocumentSnapshot {
    */
   @Nullable
   public Timestamp getTimestamp(@Nonnull String field) {
-    return (Timestamp) get(field);
+    Value value = extractField(FieldPath.fromDotSeparatedString(field));
+    if (value != null && value.getValueTypeCase() == Value.ValueTypeCase.TIMESTAMP_VALUE) {
+      return Timestamp.fromProto(value.getTimestampValue());
+    }
+    return (Timestamp) decodeField(value);
   }
 
   /**
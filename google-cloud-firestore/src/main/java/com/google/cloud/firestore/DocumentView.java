@@ -0,0 +1,74 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.firestore;
+
+import java.util.List;
+import javax.annotation.Nullable;
+
+/**
+ * The ordered set of documents that a Watch maintains for its target. Implementations are
+ * immutable: applying changes returns a new view and leaves the current view untouched, so that
+ * snapshots that were created from an older view remain valid.
+ */
+interface DocumentView extends Iterable<QueryDocumentSnapshot> {
+
+  /** The result of applying a batch of changes to a view. */
+  final class ChangeResult<T extends DocumentView> {
+    /** The view with all changes applied. */
+    final T documentSet;
+
+    /** The applied changes in the order expected by snapshot listeners. */
+    final List<DocumentChange> changes;
+
+    ChangeResult(T documentSet, List<DocumentChange> changes) {
+      this.documentSet = documentSet;
+      this.changes = changes;
+    }
+  }
+
+  int size();
+
+  /** Returns true iff this view contains a document with the given key. */
+  boolean contains(ResourcePath key);
+
+  /** Returns the document from this view with the given key if it exists or null if it doesn't. */
+  @Nullable
+  QueryDocumentSnapshot getDocument(ResourcePath key);
+
+  /**
+   * Returns the documents in this view in query order. The returned list must not be modified and
+   * may share its storage with the view.
+   */
+  List<QueryDocumentSnapshot> toList();
+
+  /**
+   * Applies a batch of removals, additions and modifications. Changes are applied in the order
+   * that is expected by snapshot listeners: all removals, then all additions and then all
+   * modifications, each sorted by the view's comparator. The old and new index of every change
+   * reflect all changes that were applied before it. Modifications that do not change a document's
+   * update time are skipped.
+   *
+   * @param deletes The documents to remove. All documents must be contained in this view.
+   * @param adds The documents to add. No document may be contained in this view.
+   * @param updates The new versions of documents that are contained in this view.
+   * @return The updated view and the applied changes.
+   */
+  ChangeResult<? extends DocumentView> applyChanges(
+      List<QueryDocumentSnapshot> deletes,
+      List<QueryDocumentSnapshot> adds,
+      List<QueryDocumentSnapshot> updates);
+}
@@ -16,12 +16,15 @@
 
 package com.google.cloud.firestore;
 
+import com.google.cloud.firestore.encoding.CustomClassMapper;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Map;
+import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
 /** A FieldMask can be used to limit the number of fields returned by a `getAll()` call. */
 public final class FieldMask {
@@ -65,6 +68,27 @@ public final class FieldMask {
     return new FieldMask(paths);
   }
 
+  /**
+   * Creates a FieldMask with the fields that are read when converting a document to an instance of
+   * the given class, or returns null if documents are not converted to this class as a POJO.
+   */
+  @Nullable
+  static FieldMask forClass(Class<?> clazz) {
+    Set<String> propertyNames = CustomClassMapper.getDeserializablePropertyNames(clazz);
+    if (propertyNames == null) {
+      return null;
+    }
+    TreeSet<FieldPath> paths = new TreeSet<>();
+    for (String propertyName : propertyNames) {
+      if (propertyName.isEmpty()) {
+        // Empty field names cannot be expressed in a mask.
+        return null;
+      }
+      paths.add(FieldPath.of(propertyName));
+    }
+    return new FieldMask(paths);
+  }
+
   static FieldMask fromObject(Map<String, Object> values) {
     TreeSet<FieldPath> fieldPaths = extractFromMap(values, FieldPath.empty());
     return new FieldMask(fieldPaths);
@@ -91,6 +115,10 @@ public final class FieldMask {
     return fieldPaths;
   }
 
+  SortedSet<FieldPath> getFieldPaths() {
+    return fieldPaths;
+  }
+
   com.google.firestore.v1.DocumentMask toPb() {
     com.google.firestore.v1.DocumentMask.Builder updateMask =
         com.google.firestore.v1.DocumentMask.newBuilder();
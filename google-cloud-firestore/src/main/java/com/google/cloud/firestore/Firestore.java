@@ -178,6 +178,22 @@ public interface Firestore extends Service<FirestoreOptions>, AutoCloseable {
   ApiFuture<List<DocumentSnapshot>> getAll(
       @Nonnull DocumentReference[] documentReferences, @Nullable FieldMask fieldMask);
 
+  /**
+   * Retrieves multiple documents from Firestore, reading them from the given source. Use {@link
+   * Source#SERVER} to read the latest versions of documents that may be cached.
+   *
+   * <p>The default implementation ignores the source and calls {@link
+   * #getAll(DocumentReference...)}.
+   *
+   * @param documentReferences Array with Document References to fetch.
+   * @param source Where to read the documents from.
+   */
+  @Nonnull
+  default ApiFuture<List<DocumentSnapshot>> getAll(
+      @Nonnull DocumentReference[] documentReferences, @Nonnull Source source) {
+    return getAll(documentReferences);
+  }
+
   /**
    * Retrieves multiple documents from Firestore while optionally applying a field mask to reduce
    * the amount of data transmitted. Returned documents will be out of order.
@@ -192,6 +208,21 @@ public interface Firestore extends Service<FirestoreOptions>, AutoCloseable {
       @Nullable FieldMask fieldMask,
       final ApiStreamObserver<DocumentSnapshot> responseObserver);
 
+  /**
+   * Executes a set of document lookups, queries and aggregate queries at a single read time.
+   *
+   * <p>All reads observe the same consistent snapshot of the database, even though they are sent
+   * as separate, concurrent requests. If {@link ConsistentRead#getReadTime()} is not set, the first
+   * read is executed at the current time and all other reads reuse the read time that the backend
+   * chose for it.
+   *
+   * @param read The reads to execute.
+   * @return An ApiFuture that resolves with the results of all reads, or fails with the error of
+   *     the first read that failed.
+   */
+  @Nonnull
+  ApiFuture<ConsistentReadSnapshot> readAtConsistentTime(@Nonnull ConsistentRead read);
+
   /**
    * Gets a Firestore {@link WriteBatch} instance that can be used to combine multiple writes.
    *
@@ -0,0 +1,235 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.firestore;
+
+import com.google.common.base.Preconditions;
+import com.google.firestore.bundle.BundleElement;
+import com.google.firestore.bundle.BundleMetadata;
+import com.google.protobuf.util.JsonFormat;
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Reads the elements of a Firestore data bundle one at a time.
+ *
+ * <p>The reader only holds the element that is currently being parsed in memory. Bundles can be
+ * read from a stream, from a {@link ByteBuffer} such as the one returned by {@link
+ * FirestoreBundle#toByteBuffer}, or from a file, which is memory-mapped if it is small enough.
+ * Bundles are usually loaded into a {@link LocalSnapshotStore} rather than read directly.
+ *
+ * <p>This class is not thread-safe.
+ */
+public final class FirestoreBundleReader implements Closeable {
+  private static final JsonFormat.Parser PARSER = JsonFormat.parser();
+
+  // The number of digits of the largest supported element length.
+  private static final int MAX_LENGTH_DIGITS = String.valueOf(Integer.MAX_VALUE).length();
+
+  private final InputStream input;
+  private final FirestoreBundleWriter.Encoding encoding;
+  @Nullable private BundleMetadata metadata;
+
+  private FirestoreBundleReader(InputStream input, FirestoreBundleWriter.Encoding encoding) {
+    this.input = input;
+    this.encoding = encoding;
+  }
+
+  /**
+   * Creates a reader for a JSON encoded bundle.
+   *
+   * @param input The stream to read the bundle from. It is closed when the reader is closed.
+   * @return The new reader.
+   */
+  @Nonnull
+  public static FirestoreBundleReader create(@Nonnull InputStream input) {
+    return create(input, FirestoreBundleWriter.Encoding.JSON);
+  }
+
+  /**
+   * Creates a reader for a bundle with the given element encoding.
+   *
+   * @param input The stream to read the bundle from. It is closed when the reader is closed.
+   * @param encoding The encoding of the elements in the bundle.
+   * @return The new reader.
+   */
+  @Nonnull
+  public static FirestoreBundleReader create(
+      @Nonnull InputStream input, @Nonnull FirestoreBundleWriter.Encoding encoding) {
+    Preconditions.checkNotNull(input, "input must not be null");
+    Preconditions.checkNotNull(encoding, "encoding must not be null");
+    return new FirestoreBundleReader(new BufferedInputStream(input), encoding);
+  }
+
+  /**
+   * Creates a reader for a bundle that is held in a buffer. The elements are parsed directly from
+   * the buffer, starting at its current position.
+   *
+   * @param buffer The buffer that contains the bundle.
+   * @param encoding The encoding of the elements in the bundle.
+   * @return The new reader.
+   */
+  @Nonnull
+  public static FirestoreBundleReader create(
+      @Nonnull ByteBuffer buffer, @Nonnull FirestoreBundleWriter.Encoding encoding) {
+    Preconditions.checkNotNull(buffer, "buffer must not be null");
+    Preconditions.checkNotNull(encoding, "encoding must not be null");
+    return new FirestoreBundleReader(new ByteBufferInputStream(buffer.slice()), encoding);
+  }
+
+  /**
+   * Creates a reader for a bundle file. Files of up to 2 GiB are memory-mapped, larger files are
+   * streamed.
+   *
+   * @param path The path of the bundle file.
+   * @param encoding The encoding of the elements in the bundle.
+   * @return The new reader.
+   * @throws IOException If the file could not be opened.
+   */
+  @Nonnull
+  public static FirestoreBundleReader open(
+      @Nonnull Path path, @Nonnull FirestoreBundleWriter.Encoding encoding) throws IOException {
+    Preconditions.checkNotNull(path, "path must not be null");
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      if (channel.size() <= Integer.MAX_VALUE) {
+        // The mapping stays valid after the channel is closed.
+        return create(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), encoding);
+      }
+    }
+    return create(Files.newInputStream(path), encoding);
+  }
+
+  /**
+   * Returns the metadata of the bundle, which is stored in its first element.
+   *
+   * @return The bundle metadata.
+   * @throws IOException If the metadata could not be read.
+   */
+  @Nonnull
+  public BundleMetadata getMetadata() throws IOException {
+    if (metadata == null) {
+      BundleElement element = readElement();
+      if (element == null || !element.hasMetadata()) {
+        throw new IOException("Bundle does not start with its metadata");
+      }
+      metadata = element.getMetadata();
+    }
+    return metadata;
+  }
+
+  /**
+   * Reads the next named query, document metadata or document of the bundle.
+   *
+   * @return The next element, or null if the end of the bundle was reached.
+   * @throws IOException If the element could not be read.
+   */
+  @Nullable
+  public BundleElement next() throws IOException {
+    getMetadata();
+    return readElement();
+  }
+
+  /** Closes the underlying stream. */
+  @Override
+  public void close() throws IOException {
+    input.close();
+  }
+
+  @Nullable
+  private BundleElement readElement() throws IOException {
+    if (encoding == FirestoreBundleWriter.Encoding.PROTOBUF) {
+      return BundleElement.parseDelimitedFrom(input);
+    }
+
+    long length = 0;
+    int digits = 0;
+    int b;
+    while ((b = input.read()) != '{') {
+      if (b == -1) {
+        if (digits == 0) {
+          return null;
+        }
+        throw new EOFException("Unexpected end of bundle after length prefix");
+      }
+      if (b < '0' || b > '9' || digits == MAX_LENGTH_DIGITS) {
+        throw new IOException("Invalid length prefix in bundle");
+      }
+      length = length * 10 + (b - '0');
+      ++digits;
+    }
+    if (digits == 0 || length == 0 || length > Integer.MAX_VALUE) {
+      throw new IOException("Invalid length prefix in bundle");
+    }
+
+    byte[] json = new byte[(int) length];
+    json[0] = '{';
+    int offset = 1;
+    while (offset < json.length) {
+      int read = input.read(json, offset, json.length - offset);
+      if (read == -1) {
+        throw new EOFException("Unexpected end of bundle element");
+      }
+      offset += read;
+    }
+
+    BundleElement.Builder element = BundleElement.newBuilder();
+    PARSER.merge(new String(json, StandardCharsets.UTF_8), element);
+    return element.build();
+  }
+
+  /** An input stream that reads from a buffer without copying it. */
+  private static final class ByteBufferInputStream extends InputStream {
+    private final ByteBuffer buffer;
+
+    ByteBufferInputStream(ByteBuffer buffer) {
+      this.buffer = buffer;
+    }
+
+    @Override
+    public int read() {
+      return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) {
+      if (length == 0) {
+        return 0;
+      }
+      if (!buffer.hasRemaining()) {
+        return -1;
+      }
+      int count = Math.min(length, buffer.remaining());
+      buffer.get(bytes, offset, count);
+      return count;
+    }
+
+    @Override
+    public int available() {
+      return buffer.remaining();
+    }
+  }
+}
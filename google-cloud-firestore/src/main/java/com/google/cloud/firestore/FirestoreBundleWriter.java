@@ -0,0 +1,332 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.firestore;
+
+import com.google.cloud.Timestamp;
+import com.google.common.base.Preconditions;
+import com.google.firestore.bundle.BundleElement;
+import com.google.firestore.bundle.BundleMetadata;
+import com.google.firestore.bundle.BundledDocumentMetadata;
+import com.google.firestore.bundle.NamedQuery;
+import com.google.protobuf.util.JsonFormat;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Writes a Firestore data bundle to an output stream while documents are added.
+ *
+ * <p>Unlike {@link FirestoreBundle.Builder}, which keeps all documents in memory until the bundle
+ * is built, the writer encodes each document as soon as it is added, for example from the observer
+ * passed to {@link Query#stream}. Since the metadata at the start of a bundle contains the total
+ * number of documents and bytes, encoded documents are staged in a temporary file and copied to the
+ * output after the metadata when the writer is closed. Only the bundle metadata and the named
+ * queries are kept in memory. The staging file is deleted when the writer is closed, so a writer
+ * must always be closed, even if the bundle is not used.
+ *
+ * <p>Documents are not deduplicated. A document that is added more than once, for example because
+ * it is a result of several queries, is written to the bundle every time it is added.
+ *
+ * <p>This class is not thread-safe.
+ */
+public final class FirestoreBundleWriter implements Closeable {
+  private static final Logger logger = Logger.getLogger(FirestoreBundleWriter.class.getName());
+
+  private static final JsonFormat.Printer PRINTER = JsonFormat.printer();
+
+  /** The encoding of the elements in a bundle. */
+  public enum Encoding {
+    /**
+     * Elements are encoded as JSON, each prefixed with its length in bytes as a decimal number.
+     * This is the format that is understood by the client SDKs and by {@link FirestoreBundle}.
+     */
+    JSON,
+    /**
+     * Elements are encoded as binary protos, each prefixed with its length as a varint. Bundles in
+     * this encoding are smaller and faster to write, but cannot be loaded by the client SDKs.
+     */
+    PROTOBUF
+  }
+
+  private final String id;
+  private final Encoding encoding;
+  private final OutputStream output;
+  // Named queries saved in the bundle, keyed by query name.
+  private final Map<String, NamedQuery> namedQueries = new LinkedHashMap<>();
+  // The latest read time among all bundled documents and queries.
+  private Timestamp latestReadTime = Timestamp.MIN_VALUE;
+  // The number of documents and the number of bytes of encoded documents staged so far.
+  private int documentCount;
+  private long documentBytes;
+  private boolean closed;
+
+  @Nullable private File stagingFile;
+  @Nullable private OutputStream stagingOutput;
+
+  private FirestoreBundleWriter(String id, OutputStream output, Encoding encoding) {
+    this.id = id;
+    this.output = output;
+    this.encoding = encoding;
+  }
+
+  /**
+   * Creates a writer for a JSON encoded bundle.
+   *
+   * @param bundleId The ID of the bundle. When loaded on clients, client SDKs use this id and the
+   *     timestamp associated with the bundle to tell if it has been loaded already.
+   * @param output The stream that the bundle is written to when the writer is closed.
+   * @return The new writer.
+   */
+  @Nonnull
+  public static FirestoreBundleWriter create(
+      @Nonnull String bundleId, @Nonnull OutputStream output) {
+    return create(bundleId, output, Encoding.JSON);
+  }
+
+  /**
+   * Creates a writer for a bundle with the given element encoding.
+   *
+   * @param bundleId The ID of the bundle.
+   * @param output The stream that the bundle is written to when the writer is closed.
+   * @param encoding The encoding of the elements in the bundle.
+   * @return The new writer.
+   */
+  @Nonnull
+  public static FirestoreBundleWriter create(
+      @Nonnull String bundleId, @Nonnull OutputStream output, @Nonnull Encoding encoding) {
+    Preconditions.checkNotNull(bundleId, "bundleId must not be null");
+    Preconditions.checkNotNull(output, "output must not be null");
+    Preconditions.checkNotNull(encoding, "encoding must not be null");
+    return new FirestoreBundleWriter(bundleId, output, encoding);
+  }
+
+  /**
+   * Creates a writer for a bundle with the given element encoding.
+   *
+   * @param bundleId The ID of the bundle.
+   * @param channel The channel that the bundle is written to when the writer is closed.
+   * @param encoding The encoding of the elements in the bundle.
+   * @return The new writer.
+   */
+  @Nonnull
+  public static FirestoreBundleWriter create(
+      @Nonnull String bundleId, @Nonnull WritableByteChannel channel, @Nonnull Encoding encoding) {
+    Preconditions.checkNotNull(channel, "channel must not be null");
+    return create(bundleId, Channels.newOutputStream(channel), encoding);
+  }
+
+  /** Returns the ID for this bundle. */
+  public String getId() {
+    return id;
+  }
+
+  /**
+   * Adds a Firestore document snapshot to the bundle. Both the document data and the document read
+   * time will be included in the bundle.
+   *
+   * @param documentSnapshot A document snapshot to add.
+   * @return This instance.
+   * @throws IOException If the document could not be staged.
+   */
+  public FirestoreBundleWriter add(DocumentSnapshot documentSnapshot) throws IOException {
+    return addDocument(documentSnapshot, null);
+  }
+
+  /**
+   * Adds a Firestore document snapshot that is a result of a named query to the bundle. The query
+   * itself must be added with {@link #addQuery} before the writer is closed.
+   *
+   * @param queryName The name of the query that returned the document.
+   * @param documentSnapshot A document snapshot to add.
+   * @return This instance.
+   * @throws IOException If the document could not be staged.
+   */
+  public FirestoreBundleWriter add(String queryName, DocumentSnapshot documentSnapshot)
+      throws IOException {
+    Preconditions.checkNotNull(queryName, "queryName must not be null");
+    return addDocument(documentSnapshot, queryName);
+  }
+
+  /**
+   * Adds a Firestore query snapshot to the bundle. Both the documents in the query snapshot and the
+   * query read time will be included in the bundle.
+   *
+   * @param queryName The name of the query to add.
+   * @param querySnap The query snapshot to add.
+   * @return This instance.
+   * @throws IOException If a document could not be staged.
+   */
+  public FirestoreBundleWriter add(String queryName, QuerySnapshot querySnap) throws IOException {
+    addQuery(queryName, querySnap.getQuery(), querySnap.getReadTime());
+    for (QueryDocumentSnapshot snapshot : querySnap.getDocuments()) {
+      addDocument(snapshot, queryName);
+    }
+    return this;
+  }
+
+  /**
+   * Adds a named query to the bundle. The results of the query are added separately with {@link
+   * #add(String, DocumentSnapshot)}, which allows documents to be written as they are streamed.
+   *
+   * @param queryName The name of the query to add.
+   * @param query The query.
+   * @param readTime The time at which the query was executed.
+   * @return This instance.
+   */
+  public FirestoreBundleWriter addQuery(String queryName, Query query, Timestamp readTime) {
+    Preconditions.checkState(!closed, "FirestoreBundleWriter has already been closed.");
+    NamedQuery namedQuery =
+        NamedQuery.newBuilder()
+            .setName(queryName)
+            .setReadTime(readTime.toProto())
+            .setBundledQuery(query.toBundledQuery())
+            .build();
+    namedQueries.put(queryName, namedQuery);
+    updateLatestReadTime(readTime);
+    return this;
+  }
+
+  private FirestoreBundleWriter addDocument(
+      DocumentSnapshot documentSnapshot, @Nullable String queryName) throws IOException {
+    Preconditions.checkState(!closed, "FirestoreBundleWriter has already been closed.");
+    Timestamp readTime =
+        documentSnapshot.getReadTime() == null
+            ? Timestamp.MIN_VALUE
+            : documentSnapshot.getReadTime();
+    BundledDocumentMetadata.Builder metadata =
+        BundledDocumentMetadata.newBuilder()
+            .setName(documentSnapshot.getReference().getName())
+            .setReadTime(readTime.toProto())
+            .setExists(documentSnapshot.exists());
+    if (queryName != null) {
+      metadata.addQueries(queryName);
+    }
+
+    stage(BundleElement.newBuilder().setDocumentMetadata(metadata).build());
+    if (documentSnapshot.exists()) {
+      stage(BundleElement.newBuilder().setDocument(documentSnapshot.toDocumentPb()).build());
+    }
+    ++documentCount;
+    updateLatestReadTime(readTime);
+    return this;
+  }
+
+  private void updateLatestReadTime(Timestamp readTime) {
+    if (readTime.compareTo(latestReadTime) > 0) {
+      latestReadTime = readTime;
+    }
+  }
+
+  private void stage(BundleElement element) throws IOException {
+    if (stagingOutput == null) {
+      stagingFile = File.createTempFile("firestore-bundle", ".staging");
+      stagingOutput = new BufferedOutputStream(new FileOutputStream(stagingFile));
+    }
+    byte[] encoded = encode(element);
+    stagingOutput.write(encoded);
+    documentBytes += encoded.length;
+  }
+
+  /**
+   * Writes the bundle to the output and deletes the staged documents. The output is flushed, but
+   * not closed. Closing the writer more than once has no effect.
+   *
+   * @throws IOException If the bundle could not be written.
+   */
+  @Override
+  public void close() throws IOException {
+    if (closed) {
+      return;
+    }
+    closed = true;
+
+    try {
+      byte[][] encodedQueries = new byte[namedQueries.size()][];
+      long totalBytes = documentBytes;
+      int i = 0;
+      for (NamedQuery namedQuery : namedQueries.values()) {
+        encodedQueries[i] = encode(BundleElement.newBuilder().setNamedQuery(namedQuery).build());
+        totalBytes += encodedQueries[i++].length;
+      }
+
+      BundleMetadata metadata =
+          BundleMetadata.newBuilder()
+              .setId(id)
+              .setCreateTime(latestReadTime.toProto())
+              .setVersion(FirestoreBundle.BUNDLE_SCHEMA_VERSION)
+              .setTotalDocuments(documentCount)
+              .setTotalBytes(totalBytes)
+              .build();
+      output.write(encode(BundleElement.newBuilder().setMetadata(metadata).build()));
+      for (byte[] encodedQuery : encodedQueries) {
+        output.write(encodedQuery);
+      }
+      if (stagingOutput != null) {
+        stagingOutput.close();
+        stagingOutput = null;
+        Files.copy(stagingFile.toPath(), output);
+      }
+      output.flush();
+    } finally {
+      deleteStagingFile();
+    }
+  }
+
+  private byte[] encode(BundleElement element) throws IOException {
+    if (encoding == Encoding.PROTOBUF) {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      element.writeDelimitedTo(bytes);
+      return bytes.toByteArray();
+    }
+
+    byte[] json = PRINTER.print(element).getBytes(StandardCharsets.UTF_8);
+    byte[] length = Integer.toString(json.length).getBytes(StandardCharsets.UTF_8);
+    byte[] result = new byte[length.length + json.length];
+    System.arraycopy(length, 0, result, 0, length.length);
+    System.arraycopy(json, 0, result, length.length, json.length);
+    return result;
+  }
+
+  private void deleteStagingFile() {
+    if (stagingOutput != null) {
+      try {
+        stagingOutput.close();
+      } catch (IOException e) {
+        logger.log(Level.FINE, "Failed to close staging file", e);
+      }
+      stagingOutput = null;
+    }
+    if (stagingFile != null && !stagingFile.delete()) {
+      logger.log(Level.FINE, "Failed to delete staging file {0}", stagingFile);
+    }
+    stagingFile = null;
+  }
+}
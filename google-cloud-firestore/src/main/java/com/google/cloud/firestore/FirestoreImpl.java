@@ -21,6 +21,7 @@ import static com.google.cloud.firestore.telemetry.TraceUtil.*;
 
 import com.google.api.core.ApiClock;
 import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutures;
 import com.google.api.core.NanoClock;
 import com.google.api.core.ObsoleteApi;
 import com.google.api.core.SettableApiFuture;
@@ -41,14 +42,17 @@ import com.google.cloud.firestore.telemetry.TraceUtil;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.MoreExecutors;
 import com.google.firestore.v1.BatchGetDocumentsRequest;
 import com.google.firestore.v1.BatchGetDocumentsResponse;
 import com.google.firestore.v1.DatabaseRootName;
 import com.google.protobuf.ByteString;
 import java.security.SecureRandom;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
@@ -76,6 +80,24 @@ class FirestoreImpl implements Firestore, FirestoreRpcContext<FirestoreImpl> {
    */
   @Nullable private BulkWriter bulkWriterInstance;
 
+  /**
+   * A lazy-loaded multiplexer that shares Listen streams between snapshot listeners. Only used if
+   * more than one target per Listen stream is allowed.
+   */
+  @Nullable private ListenStreamMultiplexer listenStreamMultiplexer;
+
+  /** The client-side document cache, or null if documents are not cached. */
+  @Nullable private final DocumentCache documentCache;
+
+  /** Merges concurrent non-transactional reads, or null if reads are not coalesced. */
+  @Nullable private final ReadCoalescer readCoalescer;
+
+  /** Combines single-document writes, or null if writes are not combined. */
+  @Nullable private final WriteCombiner writeCombiner;
+
+  /** Tracks contention between transactions, or null if contention is not tracked. */
+  @Nullable private final TransactionContentionTracker contentionTracker;
+
   private boolean closed;
 
   FirestoreImpl(FirestoreOptions options) {
@@ -91,6 +113,21 @@ class FirestoreImpl implements Firestore, FirestoreRpcContext<FirestoreImpl> {
             + "Please explicitly set your Project ID in FirestoreOptions.");
     this.databasePath =
         ResourcePath.create(DatabaseRootName.of(options.getProjectId(), options.getDatabaseId()));
+    DocumentCacheOptions documentCacheOptions = options.getDocumentCacheOptions();
+    this.documentCache =
+        documentCacheOptions != null ? new DocumentCache(documentCacheOptions, getClock()) : null;
+    ReadCoalescingOptions readCoalescingOptions = options.getReadCoalescingOptions();
+    this.readCoalescer =
+        readCoalescingOptions != null ? new ReadCoalescer(this, readCoalescingOptions) : null;
+    WriteCombiningOptions writeCombiningOptions = options.getWriteCombiningOptions();
+    this.writeCombiner =
+        writeCombiningOptions != null ? new WriteCombiner(this, writeCombiningOptions) : null;
+    TransactionContentionOptions contentionOptions = options.getTransactionContentionOptions();
+    this.contentionTracker =
+        contentionOptions != null
+            ? new TransactionContentionTracker(
+                contentionOptions, options.getRetrySettings(), getClock())
+            : null;
   }
 
   /** Gets the TraceUtil object associated with this Firestore instance. */
@@ -107,6 +144,43 @@ class FirestoreImpl implements Firestore, FirestoreRpcContext<FirestoreImpl> {
     return bulkWriterInstance;
   }
 
+  /**
+   * Returns the multiplexer that shares Listen streams between snapshot listeners, or null if every
+   * listener should use a dedicated stream.
+   */
+  @Nullable
+  synchronized ListenStreamMultiplexer getListenStreamMultiplexer() {
+    if (firestoreOptions.getMaxListenTargetsPerStream() <= 1) {
+      return null;
+    }
+    if (listenStreamMultiplexer == null) {
+      listenStreamMultiplexer =
+          new ListenStreamMultiplexer(
+              this,
+              firestoreOptions.getMaxListenTargetsPerStream(),
+              firestoreOptions.getMaxListenStreams());
+    }
+    return listenStreamMultiplexer;
+  }
+
+  /** Returns the client-side document cache, or null if documents are not cached. */
+  @Nullable
+  DocumentCache getDocumentCache() {
+    return documentCache;
+  }
+
+  /** Returns the combiner for single-document writes, or null if writes are not combined. */
+  @Nullable
+  WriteCombiner getWriteCombiner() {
+    return writeCombiner;
+  }
+
+  /** Returns the tracker of transaction contention, or null if contention is not tracked. */
+  @Nullable
+  TransactionContentionTracker getContentionTracker() {
+    return contentionTracker;
+  }
+
   /** Creates a pseudo-random 20-character ID that can be used for Firestore documents. */
   static String autoId() {
     StringBuilder builder = new StringBuilder();
@@ -213,6 +287,17 @@ class FirestoreImpl implements Firestore, FirestoreRpcContext<FirestoreImpl> {
     return this.getAll(documentReferences, fieldMask, (ByteString) null);
   }
 
+  @Nonnull
+  @Override
+  public ApiFuture<List<DocumentSnapshot>> getAll(
+      @Nonnull DocumentReference[] documentReferences, @Nonnull Source source) {
+    Preconditions.checkNotNull(source, "source must not be null");
+    if (documentCache != null && source == Source.SERVER) {
+      return getAllCached(documentReferences, /* bypassCache= */ true);
+    }
+    return this.getAll(documentReferences, null, (ByteString) null);
+  }
+
   @Override
   public void getAll(
       final @Nonnull DocumentReference[] documentReferences,
@@ -221,12 +306,46 @@ class FirestoreImpl implements Firestore, FirestoreRpcContext<FirestoreImpl> {
     this.getAll(documentReferences, fieldMask, null, null, apiStreamObserver);
   }
 
+  @Nonnull
+  @Override
+  public ApiFuture<ConsistentReadSnapshot> readAtConsistentTime(@Nonnull ConsistentRead read) {
+    return new ConsistentReader(this, read).execute();
+  }
+
+  void getAll(
+      final @Nonnull DocumentReference[] documentReferences,
+      @Nullable FieldMask fieldMask,
+      @Nullable ByteString transactionId,
+      @Nullable com.google.protobuf.Timestamp readTime,
+      final ApiStreamObserver<DocumentSnapshot> apiStreamObserver) {
+    getAll(
+        documentReferences,
+        fieldMask,
+        transactionId,
+        readTime,
+        /* newTransaction= */ null,
+        /* newTransactionId= */ null,
+        apiStreamObserver);
+  }
+
+  /**
+   * Streams the given documents. If {@code newTransaction} is set, the request starts a new
+   * transaction with these options and the id of the new transaction is delivered to {@code
+   * newTransactionId}.
+   */
   void getAll(
       final @Nonnull DocumentReference[] documentReferences,
       @Nullable FieldMask fieldMask,
       @Nullable ByteString transactionId,
       @Nullable com.google.protobuf.Timestamp readTime,
+      @Nullable com.google.firestore.v1.TransactionOptions newTransaction,
+      @Nullable SettableApiFuture<ByteString> newTransactionId,
       final ApiStreamObserver<DocumentSnapshot> apiStreamObserver) {
+    Preconditions.checkArgument(
+        (newTransaction == null) == (newTransactionId == null),
+        "newTransaction and newTransactionId must be set together");
+    final boolean isTransactional = transactionId != null || newTransaction != null;
+
     // To reduce the size of traces, we only register one event for every 100 responses
     // that we receive from the server.
     final int NUM_RESPONSES_PER_TRACE_EVENT = 100;
@@ -235,9 +354,9 @@ class FirestoreImpl implements Firestore, FirestoreRpcContext<FirestoreImpl> {
         getOptions()
             .getMetricsUtil()
             .createMetricsContext(
-                transactionId == null
-                    ? TelemetryConstants.METHOD_NAME_BATCH_GET_DOCUMENTS_GET_ALL
-                    : TelemetryConstants.METHOD_NAME_BATCH_GET_DOCUMENTS_TRANSACTIONAL);
+                isTransactional
+                    ? TelemetryConstants.METHOD_NAME_BATCH_GET_DOCUMENTS_TRANSACTIONAL
+                    : TelemetryConstants.METHOD_NAME_BATCH_GET_DOCUMENTS_GET_ALL);
 
     ResponseObserver<BatchGetDocumentsResponse> responseObserver =
         new ResponseObserver<BatchGetDocumentsResponse>() {
@@ -252,7 +371,7 @@ class FirestoreImpl implements Firestore, FirestoreRpcContext<FirestoreImpl> {
                     TelemetryConstants.METHOD_NAME_BATCH_GET_DOCUMENTS + ": Start",
                     new ImmutableMap.Builder<String, Object>()
                         .put(ATTRIBUTE_KEY_DOC_COUNT, documentReferences.length)
-                        .put(ATTRIBUTE_KEY_IS_TRANSACTIONAL, transactionId != null)
+                        .put(ATTRIBUTE_KEY_IS_TRANSACTIONAL, isTransactional)
                         .build());
           }
 
@@ -261,6 +380,10 @@ class FirestoreImpl implements Firestore, FirestoreRpcContext<FirestoreImpl> {
             DocumentReference documentReference;
             DocumentSnapshot documentSnapshot;
 
+            if (newTransactionId != null && !response.getTransaction().isEmpty()) {
+              newTransactionId.set(response.getTransaction());
+            }
+
             numResponses++;
             if (numResponses == 1) {
               getTraceUtil()
@@ -312,6 +435,9 @@ class FirestoreImpl implements Firestore, FirestoreRpcContext<FirestoreImpl> {
 
           @Override
           public void onError(Throwable throwable) {
+            if (newTransactionId != null) {
+              newTransactionId.setException(throwable);
+            }
             getTraceUtil().currentSpan().end(throwable);
             metricsContext.recordLatency(MetricType.END_TO_END_LATENCY, throwable);
             apiStreamObserver.onError(throwable);
@@ -329,6 +455,10 @@ class FirestoreImpl implements Firestore, FirestoreRpcContext<FirestoreImpl> {
                         + numResponses
                         + " responses.",
                     Collections.singletonMap(ATTRIBUTE_KEY_NUM_RESPONSES, numResponses));
+            if (newTransactionId != null && !newTransactionId.isDone()) {
+              newTransactionId.setException(
+                  new IllegalStateException("BatchGetDocuments did not return a transaction"));
+            }
             metricsContext.recordLatency(MetricType.END_TO_END_LATENCY);
             apiStreamObserver.onCompleted();
           }
@@ -345,6 +475,10 @@ class FirestoreImpl implements Firestore, FirestoreRpcContext<FirestoreImpl> {
       request.setTransaction(transactionId);
     }
 
+    if (newTransaction != null) {
+      request.setNewTransaction(newTransaction);
+    }
+
     if (readTime != null) {
       request.setReadTime(readTime);
     }
@@ -370,12 +504,107 @@ class FirestoreImpl implements Firestore, FirestoreRpcContext<FirestoreImpl> {
     return getAll(documentReferences, fieldMask, transactionId, null);
   }
 
-  /** Internal getAll() method that accepts an optional transaction id. */
+  /**
+   * Internal getAll() method that accepts an optional transaction id. Reads of full documents that
+   * are neither transactional nor at a fixed read time are served from the document cache if one
+   * is configured. Non-transactional reads are coalesced if read coalescing is enabled.
+   */
   ApiFuture<List<DocumentSnapshot>> getAll(
       final @Nonnull DocumentReference[] documentReferences,
       @Nullable FieldMask fieldMask,
       @Nullable ByteString transactionId,
       @Nullable com.google.protobuf.Timestamp readTime) {
+    if (documentCache != null && fieldMask == null && transactionId == null && readTime == null) {
+      return getAllCached(documentReferences, /* bypassCache= */ false);
+    }
+    if (readCoalescer != null && transactionId == null) {
+      return readCoalescer.getAll(documentReferences, fieldMask, readTime);
+    }
+    return getAllFromBackend(documentReferences, fieldMask, transactionId, readTime);
+  }
+
+  /**
+   * Serves the given documents from the document cache and fetches the remaining ones with a
+   * single BatchGetDocuments request, or through the read coalescer if one is configured. Fetched
+   * documents are added to the cache. If {@code bypassCache} is set, all documents are fetched.
+   */
+  private ApiFuture<List<DocumentSnapshot>> getAllCached(
+      final @Nonnull DocumentReference[] documentReferences, boolean bypassCache) {
+    final DocumentSnapshot[] results = new DocumentSnapshot[documentReferences.length];
+    List<DocumentReference> misses = new ArrayList<>();
+    for (int i = 0; i < documentReferences.length; ++i) {
+      if (!bypassCache) {
+        results[i] = documentCache.get(documentReferences[i].getResourcePath());
+      }
+      if (results[i] == null) {
+        misses.add(documentReferences[i]);
+      }
+    }
+
+    if (!bypassCache) {
+      MetricsContext metricsContext =
+          getOptions()
+              .getMetricsUtil()
+              .createMetricsContext(TelemetryConstants.METHOD_NAME_BATCH_GET_DOCUMENTS_GET_ALL);
+      metricsContext.recordCount(
+          MetricType.DOCUMENT_CACHE_HIT_COUNT, documentReferences.length - misses.size());
+      metricsContext.recordCount(MetricType.DOCUMENT_CACHE_MISS_COUNT, misses.size());
+    }
+
+    if (misses.isEmpty()) {
+      return ApiFutures.immediateFuture(new ArrayList<>(Arrays.asList(results)));
+    }
+
+    DocumentReference[] missingReferences = misses.toArray(new DocumentReference[0]);
+    return ApiFutures.transform(
+        readCoalescer != null
+            ? readCoalescer.getAll(missingReferences, /* fieldMask= */ null, /* readTime= */ null)
+            : getAllFromBackend(
+                missingReferences,
+                /* fieldMask= */ null,
+                /* transactionId= */ null,
+                /* readTime= */ null),
+        fetched -> {
+          Iterator<DocumentSnapshot> iterator = fetched.iterator();
+          for (int i = 0; i < results.length; ++i) {
+            if (results[i] == null) {
+              results[i] = iterator.next();
+              if (results[i] != null) {
+                documentCache.put(results[i]);
+              }
+            }
+          }
+          return new ArrayList<>(Arrays.asList(results));
+        },
+        MoreExecutors.directExecutor());
+  }
+
+  /** Reads the given documents with a single BatchGetDocuments request. */
+  ApiFuture<List<DocumentSnapshot>> getAllFromBackend(
+      final @Nonnull DocumentReference[] documentReferences,
+      @Nullable FieldMask fieldMask,
+      @Nullable ByteString transactionId,
+      @Nullable com.google.protobuf.Timestamp readTime) {
+    return getAllFromBackend(
+        documentReferences,
+        fieldMask,
+        transactionId,
+        readTime,
+        /* newTransaction= */ null,
+        /* newTransactionId= */ null);
+  }
+
+  /**
+   * Reads the given documents with a single BatchGetDocuments request, optionally starting a new
+   * transaction whose id is delivered to {@code newTransactionId}.
+   */
+  ApiFuture<List<DocumentSnapshot>> getAllFromBackend(
+      final @Nonnull DocumentReference[] documentReferences,
+      @Nullable FieldMask fieldMask,
+      @Nullable ByteString transactionId,
+      @Nullable com.google.protobuf.Timestamp readTime,
+      @Nullable com.google.firestore.v1.TransactionOptions newTransaction,
+      @Nullable SettableApiFuture<ByteString> newTransactionId) {
     final SettableApiFuture<List<DocumentSnapshot>> futureList = SettableApiFuture.create();
     final Map<DocumentReference, DocumentSnapshot> documentSnapshotMap = new HashMap<>();
     getAll(
@@ -383,6 +612,8 @@ class FirestoreImpl implements Firestore, FirestoreRpcContext<FirestoreImpl> {
         fieldMask,
         transactionId,
         readTime,
+        newTransaction,
+        newTransactionId,
         new ApiStreamObserver<DocumentSnapshot>() {
           @Override
           public void onNext(DocumentSnapshot documentSnapshot) {
@@ -563,23 +794,45 @@ class FirestoreImpl implements Firestore, FirestoreRpcContext<FirestoreImpl> {
 
   @Override
   public void close() throws Exception {
+    flushCombinedWrites();
+    closeListenStreams();
     firestoreClient.close();
     closed = true;
   }
 
   @Override
   public void shutdown() {
+    flushCombinedWrites();
+    closeListenStreams();
     firestoreClient.shutdown();
     closed = true;
   }
 
   @Override
   public void shutdownNow() {
+    flushCombinedWrites();
+    closeListenStreams();
     firestoreClient.shutdownNow();
     closed = true;
   }
 
-  private static class TransactionAsyncAdapter<T> implements Transaction.AsyncFunction<T> {
+  /** Sends the writes that wait in the write combiner while the client is still open. */
+  private void flushCombinedWrites() {
+    if (writeCombiner != null) {
+      writeCombiner.close();
+    }
+  }
+
+  /** Closes the Listen streams that are shared between snapshot listeners. */
+  private synchronized void closeListenStreams() {
+    if (listenStreamMultiplexer != null) {
+      listenStreamMultiplexer.close();
+      listenStreamMultiplexer = null;
+    }
+  }
+
+  /** Adapts a synchronous transaction function to the asynchronous transaction runner. */
+  static class TransactionAsyncAdapter<T> implements Transaction.AsyncFunction<T> {
     private final Transaction.Function<T> syncFunction;
 
     public TransactionAsyncAdapter(Transaction.Function<T> syncFunction) {
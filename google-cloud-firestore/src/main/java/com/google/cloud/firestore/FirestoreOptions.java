@@ -34,6 +34,7 @@ import com.google.cloud.firestore.telemetry.CompositeApiTracerFactory;
 import com.google.cloud.firestore.telemetry.MetricsUtil;
 import com.google.cloud.firestore.v1.FirestoreSettings;
 import com.google.cloud.grpc.GrpcTransportOptions;
+import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import io.grpc.ManagedChannelBuilder;
@@ -66,6 +67,12 @@ public final class FirestoreOptions extends ServiceOptions<Firestore, FirestoreO
   private final CredentialsProvider credentialsProvider;
   private final String emulatorHost;
   private final boolean alwaysUseImplicitOrderBy;
+  private final int maxListenTargetsPerStream;
+  private final int maxListenStreams;
+  private final @Nullable DocumentCacheOptions documentCacheOptions;
+  private final @Nullable ReadCoalescingOptions readCoalescingOptions;
+  private final @Nullable WriteCombiningOptions writeCombiningOptions;
+  private final @Nullable TransactionContentionOptions transactionContentionOptions;
   private final transient @Nonnull FirestoreOpenTelemetryOptions openTelemetryOptions;
   private final transient @Nonnull com.google.cloud.firestore.telemetry.TraceUtil traceUtil;
   private final transient @Nonnull com.google.cloud.firestore.telemetry.MetricsUtil metricsUtil;
@@ -148,6 +155,48 @@ public final class FirestoreOptions extends ServiceOptions<Firestore, FirestoreO
     return alwaysUseImplicitOrderBy;
   }
 
+  /** Returns the maximum number of snapshot listener targets that share one Listen stream. */
+  public int getMaxListenTargetsPerStream() {
+    return maxListenTargetsPerStream;
+  }
+
+  /** Returns the maximum number of Listen streams that are shared by snapshot listeners. */
+  public int getMaxListenStreams() {
+    return maxListenStreams;
+  }
+
+  /**
+   * Returns the options of the client-side document cache, or null if documents are not cached.
+   */
+  @Nullable
+  public DocumentCacheOptions getDocumentCacheOptions() {
+    return documentCacheOptions;
+  }
+
+  /** Returns the options used to coalesce document reads, or null if reads are not coalesced. */
+  @Nullable
+  public ReadCoalescingOptions getReadCoalescingOptions() {
+    return readCoalescingOptions;
+  }
+
+  /**
+   * Returns the options used to combine single-document writes, or null if writes are not
+   * combined.
+   */
+  @Nullable
+  public WriteCombiningOptions getWriteCombiningOptions() {
+    return writeCombiningOptions;
+  }
+
+  /**
+   * Returns the options used to retry transactions that abort because of contention, or null if
+   * contention is not tracked.
+   */
+  @Nullable
+  public TransactionContentionOptions getTransactionContentionOptions() {
+    return transactionContentionOptions;
+  }
+
   @Nonnull
   com.google.cloud.firestore.telemetry.TraceUtil getTraceUtil() {
     return traceUtil;
@@ -170,6 +219,12 @@ public final class FirestoreOptions extends ServiceOptions<Firestore, FirestoreO
     @Nullable private CredentialsProvider credentialsProvider = null;
     @Nullable private String emulatorHost = null;
     private boolean alwaysUseImplicitOrderBy = false;
+    private int maxListenTargetsPerStream = 1;
+    private int maxListenStreams = Integer.MAX_VALUE;
+    @Nullable private DocumentCacheOptions documentCacheOptions = null;
+    @Nullable private ReadCoalescingOptions readCoalescingOptions = null;
+    @Nullable private WriteCombiningOptions writeCombiningOptions = null;
+    @Nullable private TransactionContentionOptions transactionContentionOptions = null;
     @Nullable private FirestoreOpenTelemetryOptions openTelemetryOptions = null;
 
     private Builder() {}
@@ -181,6 +236,12 @@ public final class FirestoreOptions extends ServiceOptions<Firestore, FirestoreO
       this.credentialsProvider = options.credentialsProvider;
       this.emulatorHost = options.emulatorHost;
       this.alwaysUseImplicitOrderBy = options.alwaysUseImplicitOrderBy;
+      this.maxListenTargetsPerStream = options.maxListenTargetsPerStream;
+      this.maxListenStreams = options.maxListenStreams;
+      this.documentCacheOptions = options.documentCacheOptions;
+      this.readCoalescingOptions = options.readCoalescingOptions;
+      this.writeCombiningOptions = options.writeCombiningOptions;
+      this.transactionContentionOptions = options.transactionContentionOptions;
       this.openTelemetryOptions = options.openTelemetryOptions;
     }
 
@@ -260,6 +321,98 @@ public final class FirestoreOptions extends ServiceOptions<Firestore, FirestoreO
       return this;
     }
 
+    /**
+     * Sets the maximum number of snapshot listener targets that share a single Listen stream.
+     *
+     * <p>By default, every snapshot listener opens its own Listen stream. Clients that hold many
+     * listeners can allow multiple listeners to share a stream, which reduces the number of open
+     * HTTP/2 streams and the memory used for their flow-control buffers. Each listener is then
+     * assigned a unique target ID and responses are routed to listeners by target ID.
+     *
+     * @param maxListenTargetsPerStream The number of targets per stream. Must be at least 1.
+     */
+    @Nonnull
+    public Builder setMaxListenTargetsPerStream(int maxListenTargetsPerStream) {
+      Preconditions.checkArgument(
+          maxListenTargetsPerStream >= 1,
+          "Value for argument 'maxListenTargetsPerStream' must be at least 1");
+      this.maxListenTargetsPerStream = maxListenTargetsPerStream;
+      return this;
+    }
+
+    /**
+     * Sets the maximum number of Listen streams that snapshot listeners share. Once this number of
+     * streams is open, new listeners are added to the least loaded stream even if it already holds
+     * {@link #setMaxListenTargetsPerStream} targets. Only applies if more than one target per
+     * stream is allowed. By default, the number of streams is not limited.
+     *
+     * @param maxListenStreams The number of streams. Must be at least 1.
+     */
+    @Nonnull
+    public Builder setMaxListenStreams(int maxListenStreams) {
+      Preconditions.checkArgument(
+          maxListenStreams >= 1, "Value for argument 'maxListenStreams' must be at least 1");
+      this.maxListenStreams = maxListenStreams;
+      return this;
+    }
+
+    /**
+     * Enables a client-side cache for document reads. {@link DocumentReference#get()} and {@link
+     * Firestore#getAll(DocumentReference...)} then serve recently read documents from memory.
+     * Reads with a field mask, reads at a fixed read time and reads in transactions always go to
+     * the backend. By default, documents are not cached.
+     *
+     * @param documentCacheOptions The cache options, or null to disable the cache.
+     */
+    @Nonnull
+    public Builder setDocumentCacheOptions(@Nullable DocumentCacheOptions documentCacheOptions) {
+      this.documentCacheOptions = documentCacheOptions;
+      return this;
+    }
+
+    /**
+     * Enables the coalescing of non-transactional document reads. Concurrent reads of the same
+     * document then share a single request, and reads of different documents are merged into
+     * shared BatchGetDocuments requests. By default, every read sends its own request.
+     *
+     * @param readCoalescingOptions The coalescing options, or null to disable coalescing.
+     */
+    @Nonnull
+    public Builder setReadCoalescingOptions(@Nullable ReadCoalescingOptions readCoalescingOptions) {
+      this.readCoalescingOptions = readCoalescingOptions;
+      return this;
+    }
+
+    /**
+     * Enables the combining of single-document writes. The writes of {@link DocumentReference}
+     * methods are then collected for a short window and sent together in a single BatchWrite
+     * request. Writes in a {@link WriteBatch}, a {@link Transaction} or a {@link BulkWriter} are
+     * not affected. By default, every write sends its own Commit request.
+     *
+     * @param writeCombiningOptions The combining options, or null to disable combining.
+     */
+    @Nonnull
+    public Builder setWriteCombiningOptions(@Nullable WriteCombiningOptions writeCombiningOptions) {
+      this.writeCombiningOptions = writeCombiningOptions;
+      return this;
+    }
+
+    /**
+     * Enables contention-aware retries of transactions. Retries of transactions that touched
+     * recently aborted documents are then delayed based on the contention on these documents and
+     * admitted one at a time per document. By default, all retries use the same exponential
+     * backoff.
+     *
+     * @param transactionContentionOptions The contention options, or null to disable contention
+     *     tracking.
+     */
+    @Nonnull
+    public Builder setTransactionContentionOptions(
+        @Nullable TransactionContentionOptions transactionContentionOptions) {
+      this.transactionContentionOptions = transactionContentionOptions;
+      return this;
+    }
+
     /**
      * Sets the database ID to use with this Firestore client.
      *
@@ -405,6 +558,12 @@ public final class FirestoreOptions extends ServiceOptions<Firestore, FirestoreO
 
     this.emulatorHost = builder.emulatorHost;
     this.alwaysUseImplicitOrderBy = builder.alwaysUseImplicitOrderBy;
+    this.maxListenTargetsPerStream = builder.maxListenTargetsPerStream;
+    this.maxListenStreams = builder.maxListenStreams;
+    this.documentCacheOptions = builder.documentCacheOptions;
+    this.readCoalescingOptions = builder.readCoalescingOptions;
+    this.writeCombiningOptions = builder.writeCombiningOptions;
+    this.transactionContentionOptions = builder.transactionContentionOptions;
   }
 
   private static class FirestoreDefaults implements ServiceDefaults<Firestore, FirestoreOptions> {
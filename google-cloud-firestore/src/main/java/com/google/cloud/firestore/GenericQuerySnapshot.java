@@ -17,7 +17,6 @@
 package com.google.cloud.firestore;
 
 import com.google.cloud.Timestamp;
-import com.google.cloud.firestore.encoding.CustomClassMapper;
 import com.google.common.collect.ImmutableList;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -100,10 +99,8 @@ public abstract class GenericQuerySnapshot<QueryT> implements Iterable<QueryDocu
   public <T> List<T> toObjects(@Nonnull Class<T> clazz) {
     List<QueryDocumentSnapshot> documents = getDocuments();
     List<T> results = new ArrayList<>(documents.size());
-    for (DocumentSnapshot documentSnapshot : documents) {
-      results.add(
-          CustomClassMapper.convertToCustomClass(
-              documentSnapshot.getData(), clazz, documentSnapshot.getReference()));
+    for (QueryDocumentSnapshot documentSnapshot : documents) {
+      results.add(documentSnapshot.toObject(clazz));
     }
 
     return results;
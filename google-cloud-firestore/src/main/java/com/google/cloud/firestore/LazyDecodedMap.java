@@ -0,0 +1,183 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.firestore;
+
+import com.google.firestore.v1.MapValue;
+import com.google.firestore.v1.Value;
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.Nullable;
+
+/**
+ * A map view over the Value protos of a document that converts each field to its native Java
+ * representation on first access.
+ *
+ * <p>Looking up a field only decodes that field, and decoded values are memoized for the lifetime
+ * of the view. Nested maps are returned as lazy views of their own. Like the {@link HashMap} that
+ * was previously returned by {@link DocumentSnapshot#getData()}, the view can be modified. The
+ * first modification, as well as the first iteration, decodes all remaining fields into a private
+ * copy that backs the view from then on.
+ */
+final class LazyDecodedMap extends AbstractMap<String, Object> implements Serializable {
+
+  private static final long serialVersionUID = 4287139108318962641L;
+
+  // Placeholder for decoded null values, which cannot be stored in a ConcurrentHashMap.
+  private static final Object NULL_PLACEHOLDER = new Object();
+
+  private final FirestoreRpcContext<?> rpcContext;
+  private final Map<String, Value> fields;
+  private final Map<String, Object> decodedFields = new ConcurrentHashMap<>();
+  @Nullable private volatile Map<String, Object> materializedFields;
+
+  LazyDecodedMap(FirestoreRpcContext<?> rpcContext, Map<String, Value> fields) {
+    this.rpcContext = rpcContext;
+    this.fields = fields;
+  }
+
+  /**
+   * Converts a Value proto to its native Java representation. Unlike {@link
+   * UserDataConverter#decodeValue}, plain maps are not decoded until their fields are accessed.
+   */
+  @Nullable
+  static Object decodeValue(FirestoreRpcContext<?> rpcContext, Value value) {
+    switch (value.getValueTypeCase()) {
+      case ARRAY_VALUE:
+        List<Value> values = value.getArrayValue().getValuesList();
+        List<Object> list = new ArrayList<>(values.size());
+        for (Value element : values) {
+          list.add(decodeValue(rpcContext, element));
+        }
+        return list;
+      case MAP_VALUE:
+        MapValue mapValue = value.getMapValue();
+        if (!mapValue.containsFields(MapType.RESERVED_MAP_KEY)) {
+          return new LazyDecodedMap(rpcContext, mapValue.getFieldsMap());
+        }
+        return UserDataConverter.decodeMap(rpcContext, mapValue);
+      default:
+        return UserDataConverter.decodeValue(rpcContext, value);
+    }
+  }
+
+  @Override
+  public int size() {
+    Map<String, Object> materialized = materializedFields;
+    return materialized != null ? materialized.size() : fields.size();
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    Map<String, Object> materialized = materializedFields;
+    if (materialized != null) {
+      return materialized.containsKey(key);
+    }
+    return key instanceof String && fields.containsKey(key);
+  }
+
+  @Override
+  public Object get(Object key) {
+    Map<String, Object> materialized = materializedFields;
+    if (materialized != null) {
+      return materialized.get(key);
+    }
+    return key instanceof String ? getDecoded((String) key) : null;
+  }
+
+  @Override
+  public Object put(String key, Object value) {
+    return materialize().put(key, value);
+  }
+
+  @Override
+  public Object remove(Object key) {
+    return materialize().remove(key);
+  }
+
+  @Override
+  public void putAll(Map<? extends String, ?> map) {
+    materialize().putAll(map);
+  }
+
+  @Override
+  public void clear() {
+    materialize().clear();
+  }
+
+  @Override
+  public Set<String> keySet() {
+    return materialize().keySet();
+  }
+
+  @Override
+  public Collection<Object> values() {
+    return materialize().values();
+  }
+
+  @Override
+  public Set<Entry<String, Object>> entrySet() {
+    return materialize().entrySet();
+  }
+
+  /** Returns the decoded value of the given field, decoding it if it has not been accessed yet. */
+  @Nullable
+  private Object getDecoded(String key) {
+    Object decoded = decodedFields.get(key);
+    if (decoded == null) {
+      Value value = fields.get(key);
+      if (value == null) {
+        return null;
+      }
+      decoded = decodeValue(rpcContext, value);
+      if (decoded == null) {
+        decoded = NULL_PLACEHOLDER;
+      }
+      // Racing readers keep the value that was stored first, so that all callers see the same
+      // nested map and list instances.
+      Object previous = decodedFields.putIfAbsent(key, decoded);
+      if (previous != null) {
+        decoded = previous;
+      }
+    }
+    return decoded == NULL_PLACEHOLDER ? null : decoded;
+  }
+
+  /** Decodes all fields into the map that backs this view from now on. */
+  private Map<String, Object> materialize() {
+    Map<String, Object> materialized = materializedFields;
+    if (materialized == null) {
+      materialized = new HashMap<>(fields.size());
+      for (String key : fields.keySet()) {
+        materialized.put(key, getDecoded(key));
+      }
+      materializedFields = materialized;
+    }
+    return materialized;
+  }
+
+  /** Serializes the view as a plain {@link HashMap} of its decoded fields. */
+  private Object writeReplace() {
+    return new HashMap<>(materialize());
+  }
+}
@@ -0,0 +1,326 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.firestore;
+
+import com.google.api.gax.rpc.BidiStreamObserver;
+import com.google.api.gax.rpc.ClientStream;
+import com.google.api.gax.rpc.StreamController;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.firestore.v1.ListenRequest;
+import com.google.firestore.v1.ListenResponse;
+import com.google.firestore.v1.Target;
+import com.google.firestore.v1.TargetChange;
+import io.grpc.Status;
+import io.grpc.Status.Code;
+import io.grpc.StatusException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Shares a pool of bidirectional Listen streams between all snapshot listeners of a Firestore
+ * instance.
+ *
+ * <p>Each {@link Watch} that attaches to the multiplexer is assigned a target ID that is unique
+ * within the Firestore instance. Target changes, document changes and existence filters are routed
+ * to the Watch that owns the referenced target ID. Responses that are not scoped to a target (for
+ * example, the global NO_CHANGE that carries a consistent read time) are forwarded to every Watch
+ * on the stream.
+ *
+ * <p>A stream hosts at most {@code maxTargetsPerStream} targets. New streams are opened until
+ * {@code maxStreams} is reached, after which new targets are placed on the least loaded stream. If
+ * a stream fails, every attached Watch is notified and re-attaches using its own backoff.
+ *
+ * <p>This class is thread-safe. Callbacks into a Watch are always made without holding the
+ * multiplexer's lock.
+ */
+final class ListenStreamMultiplexer {
+  private static final Logger LOGGER = Logger.getLogger(ListenStreamMultiplexer.class.getName());
+
+  private final FirestoreImpl firestore;
+  private final int maxTargetsPerStream;
+  private final int maxStreams;
+  private final Object lock = new Object();
+
+  /** The open streams, guarded by 'lock'. */
+  private final List<SharedStream> streams = new ArrayList<>();
+
+  /** The next target ID to hand out, guarded by 'lock'. */
+  private int nextTargetId = 1;
+
+  /**
+   * @param firestore The Firestore Database client.
+   * @param maxTargetsPerStream The number of targets after which a new stream is opened.
+   * @param maxStreams The maximum number of concurrently open streams.
+   */
+  ListenStreamMultiplexer(FirestoreImpl firestore, int maxTargetsPerStream, int maxStreams) {
+    this.firestore = firestore;
+    this.maxTargetsPerStream = maxTargetsPerStream;
+    this.maxStreams = maxStreams;
+  }
+
+  /**
+   * Adds the target to a shared stream. The target ID of the provided target is replaced with a
+   * newly assigned ID.
+   *
+   * @param watch The Watch that receives the responses for this target.
+   * @param target The target to listen on.
+   * @return A registration that can be used to remove the target from its stream.
+   */
+  TargetRegistration addTarget(Watch watch, Target.Builder target) {
+    synchronized (lock) {
+      SharedStream stream = pickStream();
+      int targetId = assignTargetId();
+      target.setTargetId(targetId);
+      stream.targets.put(targetId, watch);
+
+      ListenRequest.Builder request = ListenRequest.newBuilder();
+      request.setDatabase(firestore.getDatabaseName());
+      request.setAddTarget(target);
+      stream.send(request.build());
+
+      return new TargetRegistration(stream, targetId);
+    }
+  }
+
+  /**
+   * Closes all open streams. The attached Watch instances are not notified, since this is only
+   * called when the Firestore instance is closed.
+   */
+  void close() {
+    synchronized (lock) {
+      for (SharedStream stream : streams) {
+        stream.closed = true;
+        stream.targets.clear();
+        stream.stream.closeSendAndSilence();
+      }
+      streams.clear();
+    }
+  }
+
+  /** Returns the number of open streams. */
+  @VisibleForTesting
+  int getStreamCount() {
+    synchronized (lock) {
+      return streams.size();
+    }
+  }
+
+  /** Returns the number of targets across all open streams. */
+  @VisibleForTesting
+  int getTargetCount() {
+    synchronized (lock) {
+      int count = 0;
+      for (SharedStream stream : streams) {
+        count += stream.targets.size();
+      }
+      return count;
+    }
+  }
+
+  /** Picks the stream that receives the next target, opening a new stream if needed. */
+  private SharedStream pickStream() {
+    SharedStream leastLoaded = null;
+    for (SharedStream stream : streams) {
+      if (leastLoaded == null || stream.targets.size() < leastLoaded.targets.size()) {
+        leastLoaded = stream;
+      }
+    }
+
+    if (leastLoaded != null
+        && (leastLoaded.targets.size() < maxTargetsPerStream || streams.size() >= maxStreams)) {
+      return leastLoaded;
+    }
+
+    SharedStream stream = new SharedStream();
+    streams.add(stream);
+    return stream;
+  }
+
+  /** Returns a target ID that is not used by any open stream. */
+  private int assignTargetId() {
+    while (true) {
+      int targetId = nextTargetId;
+      nextTargetId = nextTargetId == Integer.MAX_VALUE ? 1 : nextTargetId + 1;
+
+      boolean inUse = false;
+      for (SharedStream stream : streams) {
+        if (stream.targets.containsKey(targetId)) {
+          inUse = true;
+          break;
+        }
+      }
+      if (!inUse) {
+        return targetId;
+      }
+    }
+  }
+
+  /** A handle to a target that was added to a shared stream. */
+  final class TargetRegistration {
+    private final SharedStream stream;
+    private final int targetId;
+
+    private TargetRegistration(SharedStream stream, int targetId) {
+      this.stream = stream;
+      this.targetId = targetId;
+    }
+
+    int getTargetId() {
+      return targetId;
+    }
+
+    /**
+     * Removes the target from its stream. Closes the stream if this was the last target. Further
+     * responses for this target are dropped.
+     */
+    void remove() {
+      synchronized (lock) {
+        if (stream.targets.remove(targetId) == null || stream.closed) {
+          return;
+        }
+
+        if (stream.targets.isEmpty()) {
+          stream.closed = true;
+          streams.remove(stream);
+          stream.stream.closeSendAndSilence();
+        } else {
+          ListenRequest.Builder request = ListenRequest.newBuilder();
+          request.setDatabase(firestore.getDatabaseName());
+          request.setRemoveTarget(targetId);
+          stream.send(request.build());
+        }
+      }
+    }
+  }
+
+  /** A single Listen stream and the targets that it serves. */
+  private final class SharedStream implements BidiStreamObserver<ListenRequest, ListenResponse> {
+    /** The Watch instances on this stream keyed by target ID, guarded by 'lock'. */
+    private final Map<Integer, Watch> targets = new HashMap<>();
+
+    private final SilenceableBidiStream<ListenRequest, ListenResponse> stream;
+
+    /** Whether the stream failed or was closed, guarded by 'lock'. */
+    private boolean closed;
+
+    SharedStream() {
+      stream =
+          new SilenceableBidiStream<>(
+              this,
+              observer ->
+                  firestore.streamRequest(observer, firestore.getClient().listenCallable()));
+    }
+
+    void send(ListenRequest request) {
+      if (!closed) {
+        stream.send(request);
+      }
+    }
+
+    @Override
+    public void onStart(StreamController streamController) {}
+
+    @Override
+    public void onReady(ClientStream<ListenRequest> clientStream) {}
+
+    @Override
+    public void onResponse(ListenResponse response) {
+      Map<Integer, Watch> recipients = new HashMap<>();
+
+      synchronized (lock) {
+        if (closed) {
+          return;
+        }
+
+        Collection<Integer> targetIds = getTargetIds(response);
+        if (targetIds.isEmpty()) {
+          recipients.putAll(targets);
+        } else {
+          for (Integer targetId : targetIds) {
+            Watch watch = targets.get(targetId);
+            if (watch != null) {
+              recipients.put(targetId, watch);
+            }
+          }
+        }
+      }
+
+      for (Map.Entry<Integer, Watch> recipient : recipients.entrySet()) {
+        recipient.getValue().onResponse(recipient.getKey(), response);
+      }
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+      for (Map.Entry<Integer, Watch> recipient : close().entrySet()) {
+        recipient.getValue().onStreamError(recipient.getKey(), throwable);
+      }
+    }
+
+    @Override
+    public void onComplete() {
+      onError(new StatusException(Status.fromCode(Code.UNKNOWN)));
+    }
+
+    /** Removes this stream from the pool and returns the targets that it served. */
+    private Map<Integer, Watch> close() {
+      synchronized (lock) {
+        if (closed) {
+          return new HashMap<>();
+        }
+        LOGGER.fine(
+            () -> String.format("Shared Listen stream ended with %d targets", targets.size()));
+        closed = true;
+        streams.remove(this);
+        Map<Integer, Watch> detached = new HashMap<>(targets);
+        targets.clear();
+        return detached;
+      }
+    }
+  }
+
+  /**
+   * Returns the target IDs that a response applies to. An empty result means that the response
+   * applies to all targets on the stream.
+   */
+  private static Collection<Integer> getTargetIds(ListenResponse response) {
+    switch (response.getResponseTypeCase()) {
+      case TARGET_CHANGE:
+        TargetChange change = response.getTargetChange();
+        return change.getTargetIdsList();
+      case DOCUMENT_CHANGE:
+        List<Integer> targetIds = new ArrayList<>();
+        targetIds.addAll(response.getDocumentChange().getTargetIdsList());
+        targetIds.addAll(response.getDocumentChange().getRemovedTargetIdsList());
+        return targetIds;
+      case DOCUMENT_DELETE:
+        return response.getDocumentDelete().getRemovedTargetIdsList();
+      case DOCUMENT_REMOVE:
+        return response.getDocumentRemove().getRemovedTargetIdsList();
+      case FILTER:
+        List<Integer> filterTarget = new ArrayList<>();
+        filterTarget.add(response.getFilter().getTargetId());
+        return filterTarget;
+      default:
+        return new ArrayList<>();
+    }
+  }
+}
@@ -0,0 +1,272 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.firestore;
+
+import com.google.cloud.Timestamp;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableSet;
+import com.google.firestore.bundle.BundleElement;
+import com.google.firestore.bundle.BundleMetadata;
+import com.google.firestore.bundle.BundledDocumentMetadata;
+import com.google.firestore.bundle.BundledQuery;
+import com.google.firestore.bundle.NamedQuery;
+import com.google.firestore.v1.Document;
+import com.google.firestore.v1.RunQueryRequest;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * An in-process store of documents and named queries that are loaded from Firestore data bundles.
+ *
+ * <p>Documents are keyed by their path and keep the time at which they were read. If a document or
+ * a named query is loaded more than once, the version with the latest read time is kept. Reads
+ * never contact the backend, and the store can be read while further bundles are being loaded.
+ *
+ * <p>If the Firestore instance has a document cache, loaded documents are also added to the cache,
+ * so that {@link DocumentReference#get()} and {@link Firestore#getAll} serve them without a
+ * backend read until they expire. Like documents that are read from the backend, they expire after
+ * the cache's maximum staleness, which is measured from the time the bundle was loaded.
+ */
+public final class LocalSnapshotStore {
+
+  /** A bundled document, or the knowledge that the document did not exist at its read time. */
+  private static final class StoredDocument {
+    final Timestamp readTime;
+    @Nullable final Document document;
+
+    StoredDocument(Timestamp readTime, @Nullable Document document) {
+      this.readTime = readTime;
+      this.document = document;
+    }
+  }
+
+  /** A named query and the paths of the documents in its result. */
+  private static final class StoredQuery {
+    final Query query;
+    final Timestamp readTime;
+    final Set<ResourcePath> results;
+
+    StoredQuery(Query query, Timestamp readTime, Set<ResourcePath> results) {
+      this.query = query;
+      this.readTime = readTime;
+      this.results = results;
+    }
+  }
+
+  private final FirestoreRpcContext<?> rpcContext;
+  @Nullable private final DocumentCache documentCache;
+  private final ConcurrentMap<ResourcePath, StoredDocument> documents = new ConcurrentHashMap<>();
+  private final ConcurrentMap<String, StoredQuery> namedQueries = new ConcurrentHashMap<>();
+
+  LocalSnapshotStore(FirestoreRpcContext<?> rpcContext, @Nullable DocumentCache documentCache) {
+    this.rpcContext = rpcContext;
+    this.documentCache = documentCache;
+  }
+
+  /**
+   * Creates an empty store for documents of the given Firestore database.
+   *
+   * @param firestore The Firestore instance that is used to create references to loaded documents.
+   * @return The new store.
+   */
+  @Nonnull
+  public static LocalSnapshotStore create(@Nonnull Firestore firestore) {
+    Preconditions.checkState(
+        FirestoreRpcContext.class.isAssignableFrom(firestore.getClass()),
+        "The firestore instance passed to this method must also implement FirestoreRpcContext.");
+    DocumentCache documentCache =
+        firestore instanceof FirestoreImpl ? ((FirestoreImpl) firestore).getDocumentCache() : null;
+    return new LocalSnapshotStore((FirestoreRpcContext<?>) firestore, documentCache);
+  }
+
+  /**
+   * Loads all documents and named queries of a bundle into the store, and the documents into the
+   * document cache of the Firestore instance if it has one. The reader is not closed.
+   *
+   * @param reader The reader of the bundle.
+   * @return The metadata of the loaded bundle.
+   * @throws IOException If the bundle could not be read, in which case the documents that were
+   *     read before the failure remain in the store.
+   * @throws IllegalArgumentException If the bundle contains data of another Firestore database.
+   */
+  @Nonnull
+  public BundleMetadata load(@Nonnull FirestoreBundleReader reader) throws IOException {
+    BundleMetadata metadata = reader.getMetadata();
+    List<NamedQuery> bundledQueries = new ArrayList<>();
+    Map<String, Set<ResourcePath>> queryResults = new HashMap<>();
+    BundledDocumentMetadata pendingMetadata = null;
+
+    BundleElement element;
+    while ((element = reader.next()) != null) {
+      switch (element.getElementTypeCase()) {
+        case NAMED_QUERY:
+          bundledQueries.add(element.getNamedQuery());
+          break;
+        case DOCUMENT_METADATA:
+          if (pendingMetadata != null) {
+            throw new IOException("Bundle is missing document " + pendingMetadata.getName());
+          }
+          BundledDocumentMetadata documentMetadata = element.getDocumentMetadata();
+          ResourcePath path = toResourcePath(documentMetadata.getName());
+          for (String queryName : documentMetadata.getQueriesList()) {
+            queryResults.computeIfAbsent(queryName, name -> new HashSet<>()).add(path);
+          }
+          if (documentMetadata.getExists()) {
+            pendingMetadata = documentMetadata;
+          } else {
+            storeDocument(path, Timestamp.fromProto(documentMetadata.getReadTime()), null);
+          }
+          break;
+        case DOCUMENT:
+          Document document = element.getDocument();
+          if (pendingMetadata == null || !pendingMetadata.getName().equals(document.getName())) {
+            throw new IOException(
+                "Bundle contains document without metadata " + document.getName());
+          }
+          storeDocument(
+              toResourcePath(document.getName()),
+              Timestamp.fromProto(pendingMetadata.getReadTime()),
+              document);
+          pendingMetadata = null;
+          break;
+        case METADATA:
+          throw new IOException("Bundle contains more than one metadata element");
+        default:
+          // Ignore elements that were added in newer versions of the bundle format.
+          break;
+      }
+    }
+    if (pendingMetadata != null) {
+      throw new IOException("Bundle is missing document " + pendingMetadata.getName());
+    }
+
+    for (NamedQuery namedQuery : bundledQueries) {
+      Set<ResourcePath> results =
+          queryResults.getOrDefault(namedQuery.getName(), Collections.emptySet());
+      StoredQuery storedQuery =
+          new StoredQuery(
+              toQuery(namedQuery.getBundledQuery()),
+              Timestamp.fromProto(namedQuery.getReadTime()),
+              ImmutableSet.copyOf(results));
+      namedQueries.merge(
+          namedQuery.getName(),
+          storedQuery,
+          (existing, loaded) ->
+              loaded.readTime.compareTo(existing.readTime) >= 0 ? loaded : existing);
+    }
+
+    return metadata;
+  }
+
+  /**
+   * Returns the bundled snapshot of a document.
+   *
+   * @param documentReference The reference of the document.
+   * @return The latest loaded snapshot of the document, which is a non-existing snapshot if the
+   *     document did not exist when it was bundled, or null if no bundle contained the document.
+   */
+  @Nullable
+  public DocumentSnapshot getDocument(@Nonnull DocumentReference documentReference) {
+    StoredDocument stored = documents.get(documentReference.getResourcePath());
+    return stored == null ? null : toSnapshot(documentReference, stored);
+  }
+
+  /**
+   * Returns the results of a named query. The snapshot contains the latest loaded version of each
+   * document that was bundled as a result of the query.
+   *
+   * @param queryName The name of the query.
+   * @return The bundled results of the query, or null if no bundle contained the query.
+   */
+  @Nullable
+  public QuerySnapshot getNamedQuery(@Nonnull String queryName) {
+    StoredQuery storedQuery = namedQueries.get(queryName);
+    if (storedQuery == null) {
+      return null;
+    }
+
+    List<QueryDocumentSnapshot> results = new ArrayList<>(storedQuery.results.size());
+    for (ResourcePath path : storedQuery.results) {
+      StoredDocument stored = documents.get(path);
+      if (stored != null && stored.document != null) {
+        results.add(
+            QueryDocumentSnapshot.fromDocument(rpcContext, stored.readTime, stored.document));
+      }
+    }
+    results.sort(storedQuery.query.comparator());
+    return QuerySnapshot.withDocuments(storedQuery.query, storedQuery.readTime, results);
+  }
+
+  /** Returns the number of documents in the store, including documents known not to exist. */
+  public int getDocumentCount() {
+    return documents.size();
+  }
+
+  private void storeDocument(ResourcePath path, Timestamp readTime, @Nullable Document document) {
+    StoredDocument stored =
+        documents.merge(
+            path,
+            new StoredDocument(readTime, document),
+            (existing, loaded) ->
+                loaded.readTime.compareTo(existing.readTime) >= 0 ? loaded : existing);
+    if (documentCache != null) {
+      // The cache ignores the snapshot if it already holds a later version of the document.
+      documentCache.put(toSnapshot(new DocumentReference(rpcContext, path), stored));
+    }
+  }
+
+  private DocumentSnapshot toSnapshot(DocumentReference documentReference, StoredDocument stored) {
+    return stored.document == null
+        ? DocumentSnapshot.fromMissing(rpcContext, documentReference, stored.readTime)
+        : DocumentSnapshot.fromDocument(rpcContext, stored.readTime, stored.document);
+  }
+
+  private ResourcePath toResourcePath(String name) {
+    ResourcePath path = ResourcePath.create(name);
+    if (!rpcContext.getDatabaseName().equals(path.getDatabaseName().toString())) {
+      throw new IllegalArgumentException(
+          String.format(
+              "Cannot load document from different Firestore project (\"%s\" vs \"%s\")",
+              rpcContext.getDatabaseName(), path.getDatabaseName()));
+    }
+    return path;
+  }
+
+  private Query toQuery(BundledQuery bundledQuery) {
+    Query query =
+        Query.fromProto(
+            rpcContext.getFirestore(),
+            RunQueryRequest.newBuilder()
+                .setParent(bundledQuery.getParent())
+                .setStructuredQuery(bundledQuery.getStructuredQuery())
+                .build());
+    if (bundledQuery.getLimitType() == BundledQuery.LimitType.LAST) {
+      query = query.limitToLast(bundledQuery.getStructuredQuery().getLimit().getValue());
+    }
+    return query;
+  }
+}
@@ -0,0 +1,330 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.firestore;
+
+import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutureCallback;
+import com.google.api.core.ApiFutures;
+import com.google.api.core.SettableApiFuture;
+import com.google.api.gax.rpc.ApiStreamObserver;
+import com.google.api.gax.rpc.ResponseObserver;
+import com.google.api.gax.rpc.StreamController;
+import com.google.common.util.concurrent.MoreExecutors;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.function.Function;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+
+/**
+ * Scans all documents of a collection group by splitting it into partitions and streaming the
+ * partitions concurrently.
+ *
+ * <p>The collection group is split with {@link CollectionGroup#getPartitions(long)}. At most
+ * {@link ParallelScanOptions#getMaxConcurrentPartitions()} partitions are streamed at the same
+ * time; the remaining partitions are started as running partitions complete. A partition whose
+ * stream fails with a retryable error is resumed after the last document that it returned, in the
+ * same way as {@link Query#stream}.
+ *
+ * <p>Example:
+ *
+ * <pre>{@code
+ * ParallelScan scan =
+ *     firestore
+ *         .collectionGroup("books")
+ *         .parallelScan(ParallelScanOptions.builder().setMaxConcurrentPartitions(8).build());
+ * ApiFuture<Void> done = scan.stream(new ApiStreamObserver<DocumentSnapshot>() { ... });
+ * }</pre>
+ */
+public final class ParallelScan {
+  private final CollectionGroup collectionGroup;
+  private final ParallelScanOptions options;
+
+  ParallelScan(CollectionGroup collectionGroup, ParallelScanOptions options) {
+    this.collectionGroup = collectionGroup;
+    this.options = options;
+  }
+
+  /**
+   * Streams the documents of all partitions to a single observer. Calls to the observer are
+   * serialized, but documents from different partitions are interleaved in no particular order.
+   *
+   * <p>The observer's {@code onCompleted()} is called once all partitions were scanned. If any
+   * partition fails, {@code onError()} is called with its error, no further partitions are started
+   * and the partitions that are still running are cancelled.
+   *
+   * @param observer The observer to be notified when documents arrive.
+   * @return An ApiFuture that is resolved once all partitions were scanned.
+   */
+  @Nonnull
+  public ApiFuture<Void> stream(@Nonnull final ApiStreamObserver<DocumentSnapshot> observer) {
+    final Object lock = new Object();
+    final ApiStreamObserver<DocumentSnapshot> partitionObserver =
+        new ApiStreamObserver<DocumentSnapshot>() {
+          @Override
+          public void onNext(DocumentSnapshot documentSnapshot) {
+            synchronized (lock) {
+              observer.onNext(documentSnapshot);
+            }
+          }
+
+          @Override
+          public void onError(Throwable throwable) {
+            // Reported once for the entire scan.
+          }
+
+          @Override
+          public void onCompleted() {
+            // Reported once for the entire scan.
+          }
+        };
+
+    ApiFuture<Void> result = stream(partition -> partitionObserver);
+    ApiFutures.addCallback(
+        result,
+        new ApiFutureCallback<Void>() {
+          @Override
+          public void onFailure(Throwable throwable) {
+            synchronized (lock) {
+              observer.onError(throwable);
+            }
+          }
+
+          @Override
+          public void onSuccess(Void ignored) {
+            synchronized (lock) {
+              observer.onCompleted();
+            }
+          }
+        },
+        MoreExecutors.directExecutor());
+    return result;
+  }
+
+  /**
+   * Streams the documents of every partition to an observer for that partition. The given function
+   * is called when a partition starts and returns the observer for the partition's documents.
+   * Observers of different partitions may be called concurrently.
+   *
+   * <p>Every partition observer receives {@code onCompleted()} or {@code onError()} once its
+   * partition finishes. If any partition fails, no further partitions are started, the partitions
+   * that are still running are cancelled and the returned future fails with the partition's error.
+   * The observers of cancelled partitions receive a {@link CancellationException}, and no
+   * documents are delivered to any observer once the returned future has failed.
+   *
+   * @param partitionObservers Returns the observer for the given partition.
+   * @return An ApiFuture that is resolved once all partitions were scanned.
+   */
+  @Nonnull
+  public ApiFuture<Void> stream(
+      @Nonnull
+          final Function<QueryPartition, ApiStreamObserver<DocumentSnapshot>> partitionObservers) {
+    final SettableApiFuture<Void> result = SettableApiFuture.create();
+
+    ApiFutures.addCallback(
+        collectionGroup.getPartitions(options.getEffectivePartitionCount()),
+        new ApiFutureCallback<List<QueryPartition>>() {
+          @Override
+          public void onFailure(Throwable throwable) {
+            result.setException(throwable);
+          }
+
+          @Override
+          public void onSuccess(List<QueryPartition> partitions) {
+            new Scan(partitions, partitionObservers, result).startPartitions();
+          }
+        },
+        MoreExecutors.directExecutor());
+
+    return result;
+  }
+
+  /** The state of a single scan over all partitions. */
+  private final class Scan {
+    private final Queue<QueryPartition> pendingPartitions;
+    private final Function<QueryPartition, ApiStreamObserver<DocumentSnapshot>> partitionObservers;
+    private final SettableApiFuture<Void> result;
+    private final Set<PartitionScan> activeScans = new HashSet<>();
+    private int runningPartitions;
+    private boolean done;
+
+    Scan(
+        List<QueryPartition> partitions,
+        Function<QueryPartition, ApiStreamObserver<DocumentSnapshot>> partitionObservers,
+        SettableApiFuture<Void> result) {
+      this.pendingPartitions = new ArrayDeque<>(partitions);
+      this.partitionObservers = partitionObservers;
+      this.result = result;
+    }
+
+    /** Starts pending partitions until the concurrency limit is reached. */
+    void startPartitions() {
+      while (true) {
+        QueryPartition partition;
+        synchronized (this) {
+          if (done) {
+            return;
+          }
+          if (pendingPartitions.isEmpty()) {
+            if (runningPartitions == 0) {
+              done = true;
+              result.set(null);
+            }
+            return;
+          }
+          if (runningPartitions >= options.getMaxConcurrentPartitions()) {
+            return;
+          }
+          partition = pendingPartitions.poll();
+          ++runningPartitions;
+        }
+
+        startPartition(partition);
+      }
+    }
+
+    private void startPartition(QueryPartition partition) {
+      try {
+        PartitionScan partitionScan = new PartitionScan(partitionObservers.apply(partition));
+        boolean cancelled;
+        synchronized (this) {
+          cancelled = done;
+          if (!cancelled) {
+            activeScans.add(partitionScan);
+          }
+        }
+        if (cancelled) {
+          partitionScan.cancel();
+          return;
+        }
+        partition.createQuery().stream(partitionScan);
+      } catch (RuntimeException e) {
+        fail(e);
+      }
+    }
+
+    /**
+     * Fails the scan and cancels all partitions that are still running. Running partitions are
+     * cancelled before the result fails, so that no documents are delivered after the failure.
+     */
+    private void fail(Throwable throwable) {
+      List<PartitionScan> runningScans;
+      synchronized (this) {
+        if (done) {
+          return;
+        }
+        done = true;
+        runningScans = new ArrayList<>(activeScans);
+        activeScans.clear();
+      }
+      for (PartitionScan partitionScan : runningScans) {
+        partitionScan.cancel();
+      }
+      result.setException(throwable);
+    }
+
+    /** Streams a single partition to its observer. */
+    private final class PartitionScan implements ResponseObserver<DocumentSnapshot> {
+      private final ApiStreamObserver<DocumentSnapshot> observer;
+
+      @GuardedBy("this")
+      @Nullable
+      private StreamController streamController;
+
+      /** Set once the partition completed, failed or was cancelled. */
+      @GuardedBy("this")
+      private boolean finished;
+
+      PartitionScan(ApiStreamObserver<DocumentSnapshot> observer) {
+        this.observer = observer;
+      }
+
+      @Override
+      public void onStart(StreamController controller) {
+        synchronized (this) {
+          if (!finished) {
+            streamController = controller;
+            return;
+          }
+        }
+        controller.cancel();
+      }
+
+      @Override
+      public void onResponse(DocumentSnapshot documentSnapshot) {
+        // Documents are delivered while holding the lock that cancel() acquires, so that no
+        // document is delivered once the partition was cancelled.
+        synchronized (this) {
+          if (!finished) {
+            observer.onNext(documentSnapshot);
+          }
+        }
+      }
+
+      @Override
+      public void onError(Throwable throwable) {
+        if (finish()) {
+          observer.onError(throwable);
+          fail(throwable);
+        }
+      }
+
+      @Override
+      public void onComplete() {
+        if (finish()) {
+          observer.onCompleted();
+          synchronized (Scan.this) {
+            activeScans.remove(this);
+            --runningPartitions;
+          }
+          startPartitions();
+        }
+      }
+
+      /** Cancels the partition's stream because another partition failed. */
+      void cancel() {
+        StreamController controller;
+        synchronized (this) {
+          if (finished) {
+            return;
+          }
+          finished = true;
+          controller = streamController;
+        }
+        if (controller != null) {
+          controller.cancel();
+        }
+        observer.onError(
+            new CancellationException("The partition was cancelled because the scan failed."));
+      }
+
+      private synchronized boolean finish() {
+        if (finished) {
+          return false;
+        }
+        finished = true;
+        return true;
+      }
+    }
+  }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.firestore;
+
+import com.google.auto.value.AutoValue;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/** Options used to configure a {@link ParallelScan}. */
+@AutoValue
+public abstract class ParallelScanOptions {
+  /** The number of partitions requested per concurrently scanned partition by default. */
+  static final int DEFAULT_PARTITIONS_PER_STREAM = 4;
+
+  /**
+   * Returns the maximum number of partitions that are scanned concurrently.
+   *
+   * @return The maximum number of partitions that are scanned concurrently.
+   */
+  public abstract int getMaxConcurrentPartitions();
+
+  /**
+   * Returns the desired number of partitions to split the collection group into. The backend may
+   * return fewer partitions.
+   *
+   * <p>If unset, the scan requests four partitions for every partition that is scanned
+   * concurrently, so that partitions that finish early can be replaced by pending ones.
+   *
+   * @return The desired number of partitions, or null if the default is used.
+   */
+  @Nullable
+  public abstract Long getDesiredPartitionCount();
+
+  /** Returns the number of partitions that is requested from the backend. */
+  long getEffectivePartitionCount() {
+    Long desiredPartitionCount = getDesiredPartitionCount();
+    return desiredPartitionCount != null
+        ? desiredPartitionCount
+        : (long) getMaxConcurrentPartitions() * DEFAULT_PARTITIONS_PER_STREAM;
+  }
+
+  public static Builder builder() {
+    return new AutoValue_ParallelScanOptions.Builder()
+        .setMaxConcurrentPartitions(4)
+        .setDesiredPartitionCount(null);
+  }
+
+  public abstract Builder toBuilder();
+
+  @AutoValue.Builder
+  public abstract static class Builder {
+    /**
+     * Sets the maximum number of partitions that are scanned concurrently. Defaults to 4.
+     *
+     * @param maxConcurrentPartitions The maximum number of concurrent partition scans. Must be at
+     *     least 1.
+     */
+    public abstract Builder setMaxConcurrentPartitions(int maxConcurrentPartitions);
+
+    abstract Builder setDesiredPartitionCount(@Nullable Long desiredPartitionCount);
+
+    /**
+     * Sets the desired number of partitions to split the collection group into. The backend may
+     * return fewer partitions.
+     *
+     * @param desiredPartitionCount The desired number of partitions. Must be at least 1.
+     */
+    public Builder setDesiredPartitionCount(long desiredPartitionCount) {
+      return setDesiredPartitionCount(Long.valueOf(desiredPartitionCount));
+    }
+
+    abstract ParallelScanOptions autoBuild();
+
+    @Nonnull
+    public ParallelScanOptions build() {
+      ParallelScanOptions options = autoBuild();
+
+      if (options.getMaxConcurrentPartitions() < 1) {
+        throw FirestoreException.forInvalidArgument(
+            "Value for argument 'maxConcurrentPartitions' must be greater than 0, but was: "
+                + options.getMaxConcurrentPartitions());
+      }
+
+      Long desiredPartitionCount = options.getDesiredPartitionCount();
+      if (desiredPartitionCount != null && desiredPartitionCount < 1) {
+        throw FirestoreException.forInvalidArgument(
+            "Value for argument 'desiredPartitionCount' must be greater than 0, but was: "
+                + desiredPartitionCount);
+      }
+
+      return options;
+    }
+  }
+}
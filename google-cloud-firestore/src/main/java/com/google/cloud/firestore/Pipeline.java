@@ -69,6 +69,7 @@ import com.google.cloud.firestore.telemetry.TelemetryConstants;
 import com.google.cloud.firestore.telemetry.TelemetryConstants.MetricType;
 import com.google.cloud.firestore.telemetry.TraceUtil;
 import com.google.cloud.firestore.telemetry.TraceUtil.Scope;
+import com.google.common.base.Preconditions;
 import com.google.common.collect.FluentIterable;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
@@ -1452,10 +1453,88 @@ public final class Pipeline {
         metricsContext);
   }
 
+  /**
+   * Executes this pipeline and streams the results to a {@link ResponseObserver} that can signal
+   * demand.
+   *
+   * <p>If the observer calls {@link StreamController#disableAutoInboundFlowControl()} in {@link
+   * ResponseObserver#onStart}, it receives at most as many results as it requested through {@link
+   * StreamController#request(int)}, and responses are only fetched from the backend as the observer
+   * requests them. Otherwise, results are delivered as they arrive. {@link
+   * StreamController#cancel()} stops the execution.
+   *
+   * @param observer The {@link ResponseObserver} to receive pipeline results and events.
+   */
+  @BetaApi
+  public void execute(@Nonnull ResponseObserver<PipelineResult> observer) {
+    if (this.rpcContext == null) {
+      throw new IllegalStateException(
+          "This pipeline was created without a database (e.g., as a subcollection pipeline) and"
+              + " cannot be executed directly. It can only be used as part of another pipeline.");
+    }
+    MetricsContext metricsContext =
+        createMetricsContext(TelemetryConstants.METHOD_NAME_EXECUTE_PIPELINE_EXECUTE);
+
+    final DemandDrivenStream<PipelineResult> stream = new DemandDrivenStream<>(observer);
+
+    executeInternal(
+        new PipelineExecuteOptions(),
+        null,
+        null,
+        new PipelineResultObserver() {
+          @Override
+          void onStart(StreamController controller) {
+            stream.onStart(controller);
+          }
+
+          @Override
+          public void onNext(PipelineResult result) {
+            stream.onNext(result);
+          }
+
+          @Override
+          void onResponseEnd() {
+            stream.onMessageEnd();
+          }
+
+          @Override
+          public void onError(Throwable t) {
+            stream.onError(t);
+          }
+
+          @Override
+          public void onCompleted() {
+            stream.onComplete();
+          }
+        },
+        metricsContext);
+  }
+
   ApiFuture<Snapshot> execute(
       @Nonnull PipelineExecuteOptions options,
       @Nullable final ByteString transactionId,
       @Nullable com.google.protobuf.Timestamp readTime) {
+    return execute(
+        options,
+        transactionId,
+        readTime,
+        /* newTransaction= */ null,
+        /* newTransactionId= */ null);
+  }
+
+  /**
+   * Executes the pipeline. If {@code newTransaction} is set, the request starts a new transaction
+   * with these options and the id of the new transaction is delivered to {@code newTransactionId}.
+   */
+  ApiFuture<Snapshot> execute(
+      @Nonnull PipelineExecuteOptions options,
+      @Nullable final ByteString transactionId,
+      @Nullable com.google.protobuf.Timestamp readTime,
+      @Nullable com.google.firestore.v1.TransactionOptions newTransaction,
+      @Nullable SettableApiFuture<ByteString> newTransactionId) {
+    Preconditions.checkArgument(
+        (newTransaction == null) == (newTransactionId == null),
+        "newTransaction and newTransactionId must be set together");
     if (this.rpcContext == null) {
       throw new IllegalStateException(
           "This pipeline was created without a database (e.g., as a subcollection pipeline) and"
@@ -1479,6 +1558,8 @@ public final class Pipeline {
           options,
           transactionId,
           readTime,
+          newTransaction,
+          newTransactionId,
           new PipelineResultObserver() {
             final List<PipelineResult> results = new ArrayList<>();
 
@@ -1515,6 +1596,24 @@ public final class Pipeline {
       @Nullable com.google.protobuf.Timestamp readTime,
       PipelineResultObserver observer,
       MetricsContext metricsContext) {
+    executeInternal(
+        options,
+        transactionId,
+        readTime,
+        /* newTransaction= */ null,
+        /* newTransactionId= */ null,
+        observer,
+        metricsContext);
+  }
+
+  private void executeInternal(
+      @Nonnull PipelineExecuteOptions options,
+      @Nullable final ByteString transactionId,
+      @Nullable com.google.protobuf.Timestamp readTime,
+      @Nullable com.google.firestore.v1.TransactionOptions newTransaction,
+      @Nullable SettableApiFuture<ByteString> newTransactionId,
+      PipelineResultObserver observer,
+      MetricsContext metricsContext) {
     ExecutePipelineRequest.Builder request =
         ExecutePipelineRequest.newBuilder()
             .setDatabase(rpcContext.getDatabaseName())
@@ -1528,13 +1627,23 @@ public final class Pipeline {
       request.setTransaction(transactionId);
     }
 
+    if (newTransaction != null) {
+      request.setNewTransaction(newTransaction);
+    }
+
     if (readTime != null) {
       request.setReadTime(readTime);
     }
 
     pipelineInternalStream(
         request.build(),
+        newTransactionId,
         new PipelineResultObserver() {
+          @Override
+          void onStart(StreamController controller) {
+            observer.onStart(controller);
+          }
+
           @Override
           public void onCompleted() {
             observer.setExplainStats(getExplainStats());
@@ -1547,6 +1656,11 @@ public final class Pipeline {
             observer.onNext(result);
           }
 
+          @Override
+          void onResponseEnd() {
+            observer.onResponseEnd();
+          }
+
           @Override
           public void onError(Throwable t) {
             observer.onError(t);
@@ -1569,6 +1683,7 @@ public final class Pipeline {
 
   private void pipelineInternalStream(
       ExecutePipelineRequest request,
+      @Nullable SettableApiFuture<ByteString> newTransactionId,
       PipelineResultObserver resultObserver,
       MetricsContext metricsContext) {
     TraceUtil traceUtil = rpcContext.getFirestore().getOptions().getTraceUtil();
@@ -1581,7 +1696,9 @@ public final class Pipeline {
     currentSpan.addEvent(
         TelemetryConstants.METHOD_NAME_EXECUTE_PIPELINE,
         new ImmutableMap.Builder<String, Object>()
-            .put(ATTRIBUTE_KEY_IS_TRANSACTIONAL, request.hasTransaction())
+            .put(
+                ATTRIBUTE_KEY_IS_TRANSACTIONAL,
+                request.hasTransaction() || request.hasNewTransaction())
             .build());
 
     ResponseObserver<ExecutePipelineResponse> observer =
@@ -1593,7 +1710,7 @@ public final class Pipeline {
 
           @Override
           public void onStart(StreamController controller) {
-            // No action needed in onStart
+            resultObserver.onStart(controller);
           }
 
           @Override
@@ -1605,6 +1722,10 @@ public final class Pipeline {
               metricsContext.recordLatency(MetricType.FIRST_RESPONSE_LATENCY);
             }
 
+            if (newTransactionId != null && !response.getTransaction().isEmpty()) {
+              newTransactionId.set(response.getTransaction());
+            }
+
             if (response.hasExplainStats()) {
               resultObserver.setExplainStats(
                   new ExplainStats(response.getExplainStats().getData()));
@@ -1628,6 +1749,8 @@ public final class Pipeline {
                 resultObserver.onNext(PipelineResult.fromDocument(rpcContext, executionTime, doc));
               }
             }
+
+            resultObserver.onResponseEnd();
           }
 
           @Override
@@ -1635,6 +1758,9 @@ public final class Pipeline {
             currentSpan.addEvent(
                 TelemetryConstants.METHOD_NAME_EXECUTE_PIPELINE + ": Error",
                 ImmutableMap.of("error.message", throwable.toString()));
+            if (newTransactionId != null) {
+              newTransactionId.setException(throwable);
+            }
             metricsContext.recordLatency(MetricType.END_TO_END_LATENCY, throwable);
             resultObserver.onError(throwable);
           }
@@ -1646,6 +1772,10 @@ public final class Pipeline {
             }
             hasCompleted = true;
 
+            if (newTransactionId != null && !newTransactionId.isDone()) {
+              newTransactionId.setException(
+                  new IllegalStateException("ExecutePipeline did not return a transaction"));
+            }
             metricsContext.recordLatency(MetricType.END_TO_END_LATENCY);
 
             currentSpan.addEvent(
@@ -1673,6 +1803,15 @@ public final class Pipeline {
     private Timestamp executionTime;
     private ExplainStats explainStats;
 
+    /**
+     * Called when the RPC starts. Observers that implement flow control may disable automatic
+     * inbound flow control on the given controller.
+     */
+    void onStart(StreamController controller) {}
+
+    /** Called after all results of a single response were passed to {@link #onNext}. */
+    void onResponseEnd() {}
+
     @Override
     public void onCompleted(Timestamp executionTime) {
       this.executionTime = executionTime;
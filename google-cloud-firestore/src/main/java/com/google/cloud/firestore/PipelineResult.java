@@ -24,7 +24,6 @@ import com.google.firestore.v1.Document;
 import com.google.firestore.v1.Value;
 import com.google.firestore.v1.Write;
 import java.util.Date;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Objects;
@@ -141,12 +140,7 @@ public final class PipelineResult {
       return null;
     }
 
-    Map<String, Object> decodedFields = new HashMap<>();
-    for (Map.Entry<String, Value> entry : fields.entrySet()) {
-      Object decodedValue = UserDataConverter.decodeValue(rpcContext, entry.getValue());
-      decodedFields.put(entry.getKey(), decodedValue);
-    }
-    return decodedFields;
+    return new LazyDecodedMap(rpcContext, fields);
   }
 
   /**
@@ -158,8 +152,12 @@ public final class PipelineResult {
    */
   @Nullable
   <T> T toObject(@Nonnull Class<T> valueType) {
-    Map<String, Object> data = getData();
-    return data == null ? null : CustomClassMapper.convertToCustomClass(data, valueType, docRef);
+    if (fields == null) {
+      return null;
+    }
+
+    return CustomClassMapper.convertToCustomClass(
+        fields, valueType, docRef, value -> UserDataConverter.decodeValue(rpcContext, value));
   }
 
   /**
@@ -222,7 +220,7 @@ public final class PipelineResult {
       return null;
     }
 
-    return UserDataConverter.decodeValue(rpcContext, value);
+    return LazyDecodedMap.decodeValue(rpcContext, value);
   }
 
   /**
@@ -259,6 +257,12 @@ public final class PipelineResult {
     return value;
   }
 
+  /** Converts a Value Proto returned by {@link #extractField} to its Java representation. */
+  @Nullable
+  private Object decodeField(@Nullable Value value) {
+    return value == null ? null : LazyDecodedMap.decodeValue(rpcContext, value);
+  }
+
   /**
    * Returns the value of the field as a boolean.
    *
@@ -268,7 +272,11 @@ public final class PipelineResult {
    */
   @Nullable
   public Boolean getBoolean(@Nonnull String field) {
-    return (Boolean) get(field);
+    Value value = extractField(FieldPath.fromDotSeparatedString(field));
+    if (value != null && value.getValueTypeCase() == Value.ValueTypeCase.BOOLEAN_VALUE) {
+      return value.getBooleanValue();
+    }
+    return (Boolean) decodeField(value);
   }
 
   /**
@@ -280,7 +288,18 @@ public final class PipelineResult {
    */
   @Nullable
   public Double getDouble(@Nonnull String field) {
-    Number number = (Number) get(field);
+    Value value = extractField(FieldPath.fromDotSeparatedString(field));
+    if (value != null) {
+      switch (value.getValueTypeCase()) {
+        case DOUBLE_VALUE:
+          return value.getDoubleValue();
+        case INTEGER_VALUE:
+          return (double) value.getIntegerValue();
+        default:
+          break;
+      }
+    }
+    Number number = (Number) decodeField(value);
     return number == null ? null : number.doubleValue();
   }
 
@@ -293,7 +312,11 @@ public final class PipelineResult {
    */
   @Nullable
   public String getString(@Nonnull String field) {
-    return (String) get(field);
+    Value value = extractField(FieldPath.fromDotSeparatedString(field));
+    if (value != null && value.getValueTypeCase() == Value.ValueTypeCase.STRING_VALUE) {
+      return value.getStringValue();
+    }
+    return (String) decodeField(value);
   }
 
   /**
@@ -305,7 +328,18 @@ public final class PipelineResult {
    */
   @Nullable
   public Long getLong(@Nonnull String field) {
-    Number number = (Number) get(field);
+    Value value = extractField(FieldPath.fromDotSeparatedString(field));
+    if (value != null) {
+      switch (value.getValueTypeCase()) {
+        case INTEGER_VALUE:
+          return value.getIntegerValue();
+        case DOUBLE_VALUE:
+          return (long) value.getDoubleValue();
+        default:
+          break;
+      }
+    }
+    Number number = (Number) decodeField(value);
     return number == null ? null : number.longValue();
   }
 
@@ -331,7 +365,11 @@ public final class PipelineResult {
    */
   @Nullable
   public Timestamp getTimestamp(@Nonnull String field) {
-    return (Timestamp) get(field);
+    Value value = extractField(FieldPath.fromDotSeparatedString(field));
+    if (value != null && value.getValueTypeCase() == Value.ValueTypeCase.TIMESTAMP_VALUE) {
+      return Timestamp.fromProto(value.getTimestampValue());
+    }
+    return (Timestamp) decodeField(value);
   }
 
   /**
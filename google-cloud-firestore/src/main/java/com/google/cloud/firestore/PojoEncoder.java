@@ -0,0 +1,186 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.firestore;
+
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.encoding.BeanProperty;
+import com.google.cloud.firestore.encoding.CustomClassMapper;
+import com.google.firestore.v1.ArrayValue;
+import com.google.firestore.v1.Document;
+import com.google.firestore.v1.MapValue;
+import com.google.firestore.v1.Value;
+import com.google.firestore.v1.Write;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import javax.annotation.Nullable;
+
+/**
+ * Encodes POJOs directly into Firestore Value protos.
+ *
+ * <p>The default write path first converts a POJO into a map of plain Java types with {@link
+ * CustomClassMapper} and then walks that map again in {@link UserDataConverter}, which builds two
+ * full object graphs for every write. This encoder reads each property through the accessors that
+ * CustomClassMapper caches per class and writes it straight into the proto builders.
+ *
+ * <p>Only objects that encode without field transforms are handled. If an object contains a {@link
+ * FieldValue}, an unset {@code @ServerTimestamp} property or a value that the default path rejects,
+ * the encoder gives up and the caller falls back to the default path, which then produces the
+ * transforms or the error message.
+ */
+final class PojoEncoder {
+
+  /** Maximum depth before we leave the object to CustomClassMapper, which rejects cycles. */
+  private static final int MAX_DEPTH = 500;
+
+  private PojoEncoder() {}
+
+  /**
+   * Encodes a POJO as a write that overwrites the document at `documentReference`.
+   *
+   * @return The write, or null if the POJO needs to be encoded by the default path.
+   */
+  @Nullable
+  static Write.Builder encodeWrite(DocumentReference documentReference, Object pojo) {
+    if (!isBean(pojo)) {
+      return null;
+    }
+
+    Write.Builder write = Write.newBuilder();
+    Document.Builder document = write.getUpdateBuilder();
+    document.setName(documentReference.getName());
+    return encodeBean(pojo, /* depth= */ 0, document::putFields) ? write : null;
+  }
+
+  /**
+   * Encodes a POJO, record or plain Java value.
+   *
+   * @return The Value proto, or null if the value needs to be encoded by the default path.
+   */
+  @Nullable
+  static Value encodeValue(@Nullable Object o, int depth) {
+    if (depth > MAX_DEPTH) {
+      return null;
+    } else if (o == null) {
+      return UserDataConverter.NULL_VALUE;
+    } else if (o instanceof String) {
+      return Value.newBuilder().setStringValue((String) o).build();
+    } else if (o instanceof Integer || o instanceof Long) {
+      return Value.newBuilder().setIntegerValue(((Number) o).longValue()).build();
+    } else if (o instanceof Double || o instanceof Float) {
+      return Value.newBuilder().setDoubleValue(((Number) o).doubleValue()).build();
+    } else if (o instanceof BigDecimal) {
+      return Value.newBuilder().setStringValue(String.valueOf(o)).build();
+    } else if (o instanceof Boolean) {
+      return Value.newBuilder().setBooleanValue((Boolean) o).build();
+    } else if (o instanceof Enum) {
+      // Enum names may be overridden with @PropertyName.
+      String name = (String) CustomClassMapper.convertToPlainJavaTypes(o);
+      return Value.newBuilder().setStringValue(name).build();
+    } else if (o instanceof Instant) {
+      Instant instant = (Instant) o;
+      Timestamp timestamp =
+          Timestamp.ofTimeSecondsAndNanos(instant.getEpochSecond(), instant.getNano());
+      return Value.newBuilder().setTimestampValue(timestamp.toProto()).build();
+    } else if (o instanceof Date
+        || o instanceof Timestamp
+        || o instanceof GeoPoint
+        || o instanceof Blob
+        || o instanceof DocumentReference
+        || o instanceof Value
+        || o instanceof VectorValue) {
+      return UserDataConverter.encodeValue(FieldPath.empty(), o, UserDataConverter.ARGUMENT);
+    } else if (o instanceof Map) {
+      MapValue.Builder res = MapValue.newBuilder();
+      for (Map.Entry<?, ?> entry : ((Map<?, ?>) o).entrySet()) {
+        if (!(entry.getKey() instanceof String)) {
+          return null;
+        }
+        Value encodedValue = encodeValue(entry.getValue(), depth + 1);
+        if (encodedValue == null) {
+          return null;
+        }
+        res.putFields((String) entry.getKey(), encodedValue);
+      }
+      return Value.newBuilder().setMapValue(res).build();
+    } else if (o instanceof List) {
+      ArrayValue.Builder res = ArrayValue.newBuilder();
+      for (Object child : (List<?>) o) {
+        Value encodedValue = encodeValue(child, depth + 1);
+        if (encodedValue == null) {
+          return null;
+        }
+        res.addValues(encodedValue);
+      }
+      return Value.newBuilder().setArrayValue(res).build();
+    } else if (isBean(o)) {
+      MapValue.Builder res = MapValue.newBuilder();
+      return encodeBean(o, depth, res::putFields)
+          ? Value.newBuilder().setMapValue(res).build()
+          : null;
+    }
+
+    // FieldValue sentinels and unsupported types.
+    return null;
+  }
+
+  /** Encodes all properties of `bean` into `fields`. Returns false if any property is rejected. */
+  private static boolean encodeBean(Object bean, int depth, BiConsumer<String, Value> fields) {
+    for (BeanProperty property : CustomClassMapper.getSerializableProperties(bean.getClass())) {
+      Object propertyValue = property.getValue(bean);
+      if (propertyValue == null && property.isServerTimestamp()) {
+        // Needs a server timestamp transform.
+        return false;
+      }
+      if (property.getName().isEmpty()) {
+        // Rejected as a field name.
+        return false;
+      }
+      Value encodedValue = encodeValue(propertyValue, depth + 1);
+      if (encodedValue == null) {
+        return false;
+      }
+      fields.accept(property.getName(), encodedValue);
+    }
+    return true;
+  }
+
+  /** Returns whether `o` is serialized through the properties of its class. */
+  private static boolean isBean(Object o) {
+    return !(o instanceof Map
+        || o instanceof Collection
+        || o instanceof Number
+        || o instanceof String
+        || o instanceof Boolean
+        || o instanceof Character
+        || o instanceof Enum
+        || o instanceof Date
+        || o instanceof Timestamp
+        || o instanceof Instant
+        || o instanceof GeoPoint
+        || o instanceof Blob
+        || o instanceof DocumentReference
+        || o instanceof FieldValue
+        || o instanceof Value
+        || o instanceof VectorValue
+        || o.getClass().isArray());
+  }
+}
@@ -32,9 +32,12 @@ import static com.google.firestore.v1.StructuredQuery.FieldFilter.Operator.NOT_E
 import static com.google.firestore.v1.StructuredQuery.FieldFilter.Operator.NOT_IN;
 
 import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutures;
 import com.google.api.core.InternalExtensionOnly;
 import com.google.api.core.SettableApiFuture;
 import com.google.api.gax.rpc.ApiStreamObserver;
+import com.google.api.gax.rpc.ResponseObserver;
+import com.google.api.gax.rpc.StreamController;
 import com.google.auto.value.AutoValue;
 import com.google.cloud.Timestamp;
 import com.google.cloud.firestore.Query.QueryOptions.Builder;
@@ -48,6 +51,7 @@ import com.google.cloud.firestore.telemetry.MetricsUtil.MetricsContext;
 import com.google.cloud.firestore.telemetry.TelemetryConstants;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.MoreExecutors;
 import com.google.firestore.bundle.BundledQuery;
 import com.google.firestore.v1.Cursor;
 import com.google.firestore.v1.Document;
@@ -1574,6 +1578,68 @@ public class Query extends StreamableQuery<QuerySnapshot> {
         /* isRetryRequestWithCursor= */ false);
   }
 
+  /**
+   * Executes the query and streams the results to a {@link ResponseObserver} that can signal
+   * demand.
+   *
+   * <p>If the observer calls {@link StreamController#disableAutoInboundFlowControl()} in {@link
+   * ResponseObserver#onStart}, it receives at most as many documents as it requested through
+   * {@link StreamController#request(int)}, and results are only fetched from the backend as the
+   * observer requests them. Otherwise, documents are delivered as they arrive. {@link
+   * StreamController#cancel()} stops the query.
+   *
+   * <p>The observer and controller map directly onto Reactive Streams: {@code onStart} corresponds
+   * to {@code onSubscribe}, and the controller's {@code request} and {@code cancel} correspond to
+   * those of a {@code Subscription}.
+   *
+   * @param responseObserver The observer to be notified when results arrive.
+   */
+  public void stream(@Nonnull final ResponseObserver<DocumentSnapshot> responseObserver) {
+    Preconditions.checkState(
+        !LimitType.Last.equals(Query.this.options.getLimitType()),
+        "Query results for queries that include limitToLast() constraints cannot be streamed. "
+            + "Use Query.get() instead.");
+
+    MetricsContext metricsContext =
+        createMetricsContext(TelemetryConstants.METHOD_NAME_RUN_QUERY_GET);
+
+    final DemandDrivenStream<DocumentSnapshot> stream =
+        new DemandDrivenStream<>(responseObserver);
+
+    ApiStreamObserver<RunQueryResponse> observer =
+        new ApiStreamObserver<RunQueryResponse>() {
+          @Override
+          public void onNext(RunQueryResponse runQueryResponse) {
+            if (runQueryResponse.hasDocument()) {
+              Document document = runQueryResponse.getDocument();
+              QueryDocumentSnapshot documentSnapshot =
+                  QueryDocumentSnapshot.fromDocument(
+                      rpcContext, Timestamp.fromProto(runQueryResponse.getReadTime()), document);
+              stream.onNext(documentSnapshot);
+            }
+            stream.onMessageEnd();
+          }
+
+          @Override
+          public void onError(Throwable throwable) {
+            stream.onError(throwable);
+          }
+
+          @Override
+          public void onCompleted() {
+            stream.onComplete();
+          }
+        };
+
+    internalStream(
+        new MonitoredStreamResponseObserver(observer, metricsContext, stream),
+        /* startTimeNanos= */ rpcContext.getClock().nanoTime(),
+        /* transactionId= */ null,
+        /* readTime= */ null,
+        /* explainOptions= */ null,
+        /* isRetryRequestWithCursor= */ false);
+  }
+
   /**
    * Executes the query, streams the results as a StreamObserver of DocumentSnapshots, and returns
    * an ApiFuture that will be resolved with the associated {@link ExplainMetrics}.
@@ -1786,6 +1852,28 @@ public class Query extends StreamableQuery<QuerySnapshot> {
     return get(null, null);
   }
 
+  /**
+   * Executes the query and converts the results to instances of the given class. Unless the query
+   * already selects a set of fields, only the fields that are populated in an instance of the class
+   * are fetched, which reduces the amount of data that is transferred for documents with many
+   * unused fields.
+   *
+   * @param clazz The POJO type used to convert the documents in the result.
+   * @return An ApiFuture that will be resolved with the converted results of the Query.
+   */
+  @Nonnull
+  public <T> ApiFuture<List<T>> get(@Nonnull Class<T> clazz) {
+    Query query = this;
+    if (options.getFieldProjections().isEmpty()) {
+      FieldMask fieldMask = FieldMask.forClass(clazz);
+      if (fieldMask != null) {
+        query = select(fieldMask.getFieldPaths().toArray(new FieldPath[0]));
+      }
+    }
+    return ApiFutures.transform(
+        query.get(), snapshot -> snapshot.toObjects(clazz), MoreExecutors.directExecutor());
+  }
+
   /**
    * Plans and optionally executes this query. Returns an ApiFuture that will be resolved with the
    * planner information, statistics from the query execution (if any), and the query results (if
@@ -1821,7 +1909,36 @@ public class Query extends StreamableQuery<QuerySnapshot> {
   @Nonnull
   public ListenerRegistration addSnapshotListener(
       @Nonnull Executor executor, @Nonnull EventListener<QuerySnapshot> listener) {
-    return Watch.forQuery(this).runWatch(executor, listener);
+    return addSnapshotListener(executor, SnapshotListenOptions.builder().build(), listener);
+  }
+
+  /**
+   * Starts listening to this query with the provided options.
+   *
+   * @param options The options that configure the listener.
+   * @param listener The event listener that will be called with the snapshots.
+   * @return A registration object that can be used to remove the listener.
+   */
+  @Nonnull
+  public ListenerRegistration addSnapshotListener(
+      @Nonnull SnapshotListenOptions options, @Nonnull EventListener<QuerySnapshot> listener) {
+    return addSnapshotListener(rpcContext.getClient().getExecutor(), options, listener);
+  }
+
+  /**
+   * Starts listening to this query with the provided options.
+   *
+   * @param executor The executor to use to call the listener.
+   * @param options The options that configure the listener.
+   * @param listener The event listener that will be called with the snapshots.
+   * @return A registration object that can be used to remove the listener.
+   */
+  @Nonnull
+  public ListenerRegistration addSnapshotListener(
+      @Nonnull Executor executor,
+      @Nonnull SnapshotListenOptions options,
+      @Nonnull EventListener<QuerySnapshot> listener) {
+    return Watch.forQuery(this).runWatch(executor, options, listener);
   }
 
   Comparator<QueryDocumentSnapshot> comparator() {
@@ -43,6 +43,9 @@ class RateLimiter {
   private int availableTokens;
   private long lastRefillTimeMillis;
 
+  /** The share of the ramped-up capacity that can currently be used. */
+  private double capacityFactor = 1.0;
+
   RateLimiter(int initialCapacity, double multiplier, int multiplierMillis, int maximumRate) {
     this(initialCapacity, multiplier, multiplierMillis, maximumRate, new Date().getTime());
   }
@@ -80,6 +83,18 @@ class RateLimiter {
     return maximumRate;
   }
 
+  /**
+   * Scales the capacity computed by the 500/50/5 ramp-up. Used by adaptive batching to throttle
+   * requests below the ramped-up capacity when BatchWrite requests are contended.
+   *
+   * @param capacityFactor The share of the capacity to use, between 0 (exclusive) and 1.
+   */
+  void setCapacityFactor(double capacityFactor) {
+    Preconditions.checkArgument(
+        capacityFactor > 0 && capacityFactor <= 1, "capacityFactor must be in (0, 1]");
+    this.capacityFactor = capacityFactor;
+  }
+
   public boolean tryMakeRequest(int numOperations) {
     return tryMakeRequest(numOperations, new Date().getTime());
   }
@@ -153,6 +168,9 @@ class RateLimiter {
             (int)
                 (Math.pow(multiplier, (int) (millisElapsed / multiplierMillis)) * initialCapacity),
             maximumRate);
+    if (capacityFactor < 1) {
+      operationsPerSecond = Math.max(1, (int) (operationsPerSecond * capacityFactor));
+    }
     return operationsPerSecond;
   }
 }
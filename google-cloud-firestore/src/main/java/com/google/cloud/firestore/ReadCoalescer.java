@@ -0,0 +1,271 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.firestore;
+
+import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutureCallback;
+import com.google.api.core.ApiFutures;
+import com.google.api.core.SettableApiFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.firestore.v1.DocumentMask;
+import com.google.protobuf.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Merges concurrent non-transactional document reads into shared BatchGetDocuments requests.
+ *
+ * <p>Reads with the same field mask and read time are collected in a pending batch that is sent
+ * once the batching window has passed or the batch is full. A read of a document that is already
+ * part of a pending or in-flight batch shares the result of that batch instead of requesting the
+ * document again.
+ */
+final class ReadCoalescer {
+  /** Identifies reads that can be sent in the same BatchGetDocuments request. */
+  private static final class BatchKey {
+    @Nullable private final DocumentMask mask;
+    @Nullable private final Timestamp readTime;
+
+    BatchKey(@Nullable FieldMask fieldMask, @Nullable Timestamp readTime) {
+      this.mask = fieldMask != null ? fieldMask.toPb() : null;
+      this.readTime = readTime;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof BatchKey)) {
+        return false;
+      }
+      BatchKey that = (BatchKey) o;
+      return Objects.equals(mask, that.mask) && Objects.equals(readTime, that.readTime);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(mask, readTime);
+    }
+  }
+
+  /** Identifies reads that can share the same document snapshot. */
+  private static final class ReadKey {
+    private final BatchKey batchKey;
+    private final ResourcePath path;
+
+    ReadKey(BatchKey batchKey, ResourcePath path) {
+      this.batchKey = batchKey;
+      this.path = path;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof ReadKey)) {
+        return false;
+      }
+      ReadKey that = (ReadKey) o;
+      return batchKey.equals(that.batchKey) && path.equals(that.path);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(batchKey, path);
+    }
+  }
+
+  /** Reads that have been collected but not sent yet. */
+  private static final class PendingBatch {
+    private final BatchKey batchKey;
+    @Nullable private final FieldMask fieldMask;
+    @Nullable private final Timestamp readTime;
+    private final List<DocumentReference> documentReferences = new ArrayList<>();
+    private final List<SettableApiFuture<DocumentSnapshot>> futures = new ArrayList<>();
+
+    PendingBatch(BatchKey batchKey, @Nullable FieldMask fieldMask, @Nullable Timestamp readTime) {
+      this.batchKey = batchKey;
+      this.fieldMask = fieldMask;
+      this.readTime = readTime;
+    }
+  }
+
+  private final FirestoreImpl firestore;
+  private final ReadCoalescingOptions options;
+
+  // All reads and writes on `pendingBatches` and `inFlightReads` must be done while holding the
+  // lock on `this`. Futures are completed and batches are sent without holding the lock.
+  private final Map<BatchKey, PendingBatch> pendingBatches = new HashMap<>();
+  private final Map<ReadKey, SettableApiFuture<DocumentSnapshot>> inFlightReads = new HashMap<>();
+
+  ReadCoalescer(FirestoreImpl firestore, ReadCoalescingOptions options) {
+    this.firestore = firestore;
+    this.options = options;
+  }
+
+  /**
+   * Reads the given documents, sharing requests with other reads that use the same field mask and
+   * read time. The returned list contains the snapshots in the order of the provided references.
+   */
+  ApiFuture<List<DocumentSnapshot>> getAll(
+      @Nonnull DocumentReference[] documentReferences,
+      @Nullable FieldMask fieldMask,
+      @Nullable Timestamp readTime) {
+    BatchKey batchKey = new BatchKey(fieldMask, readTime);
+    List<ApiFuture<DocumentSnapshot>> results = new ArrayList<>(documentReferences.length);
+    List<PendingBatch> readyBatches = new ArrayList<>();
+    PendingBatch scheduledBatch = null;
+
+    synchronized (this) {
+      for (DocumentReference documentReference : documentReferences) {
+        ReadKey readKey = new ReadKey(batchKey, documentReference.getResourcePath());
+        SettableApiFuture<DocumentSnapshot> future = inFlightReads.get(readKey);
+        if (future == null) {
+          future = SettableApiFuture.create();
+          inFlightReads.put(readKey, future);
+
+          PendingBatch batch = pendingBatches.get(batchKey);
+          if (batch == null) {
+            batch = new PendingBatch(batchKey, fieldMask, readTime);
+            pendingBatches.put(batchKey, batch);
+            scheduledBatch = batch;
+          }
+          batch.documentReferences.add(documentReference);
+          batch.futures.add(future);
+
+          if (batch.futures.size() >= options.getMaxBatchSize()) {
+            pendingBatches.remove(batchKey);
+            readyBatches.add(batch);
+          }
+        }
+        results.add(nonCancellable(future));
+      }
+
+      if (options.getBatchingWindow().isZero()) {
+        PendingBatch batch = pendingBatches.remove(batchKey);
+        if (batch != null) {
+          readyBatches.add(batch);
+        }
+        scheduledBatch = null;
+      }
+    }
+
+    for (PendingBatch batch : readyBatches) {
+      send(batch);
+    }
+    if (scheduledBatch != null && !readyBatches.contains(scheduledBatch)) {
+      schedule(scheduledBatch);
+    }
+
+    return ApiFutures.transform(
+        ApiFutures.allAsList(results), ArrayList::new, MoreExecutors.directExecutor());
+  }
+
+  /**
+   * Returns a future that follows the shared read but does not cancel it when it is cancelled
+   * itself. A caller that gives up on its read does not affect other readers of the document.
+   */
+  private static ApiFuture<DocumentSnapshot> nonCancellable(ApiFuture<DocumentSnapshot> read) {
+    SettableApiFuture<DocumentSnapshot> view = SettableApiFuture.create();
+    ApiFutures.addCallback(
+        read,
+        new ApiFutureCallback<DocumentSnapshot>() {
+          @Override
+          public void onFailure(Throwable throwable) {
+            view.setException(throwable);
+          }
+
+          @Override
+          public void onSuccess(DocumentSnapshot snapshot) {
+            view.set(snapshot);
+          }
+        },
+        MoreExecutors.directExecutor());
+    return view;
+  }
+
+  /** Sends the batch once the batching window has passed, unless it was sent because it filled. */
+  private void schedule(PendingBatch batch) {
+    firestore
+        .getClient()
+        .getExecutor()
+        .schedule(
+            () -> {
+              synchronized (this) {
+                if (pendingBatches.get(batch.batchKey) != batch) {
+                  return;
+                }
+                pendingBatches.remove(batch.batchKey);
+              }
+              send(batch);
+            },
+            options.getBatchingWindow().toNanos(),
+            TimeUnit.NANOSECONDS);
+  }
+
+  private void send(PendingBatch batch) {
+    ApiFuture<List<DocumentSnapshot>> response;
+    try {
+      response =
+          firestore.getAllFromBackend(
+              batch.documentReferences.toArray(new DocumentReference[0]),
+              batch.fieldMask,
+              /* transactionId= */ null,
+              batch.readTime);
+    } catch (RuntimeException e) {
+      response = ApiFutures.immediateFailedFuture(e);
+    }
+
+    ApiFutures.addCallback(
+        response,
+        new ApiFutureCallback<List<DocumentSnapshot>>() {
+          @Override
+          public void onFailure(Throwable throwable) {
+            complete(batch);
+            for (SettableApiFuture<DocumentSnapshot> future : batch.futures) {
+              future.setException(throwable);
+            }
+          }
+
+          @Override
+          public void onSuccess(List<DocumentSnapshot> snapshots) {
+            complete(batch);
+            for (int i = 0; i < batch.futures.size(); ++i) {
+              batch.futures.get(i).set(snapshots.get(i));
+            }
+          }
+        },
+        MoreExecutors.directExecutor());
+  }
+
+  /** Removes the reads of the batch, so that later reads of its documents send a new request. */
+  private synchronized void complete(PendingBatch batch) {
+    for (int i = 0; i < batch.documentReferences.size(); ++i) {
+      ReadKey readKey =
+          new ReadKey(batch.batchKey, batch.documentReferences.get(i).getResourcePath());
+      inFlightReads.remove(readKey, batch.futures.get(i));
+    }
+  }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.firestore;
+
+import com.google.auto.value.AutoValue;
+import java.io.Serializable;
+import java.time.Duration;
+import javax.annotation.Nonnull;
+
+/**
+ * Options used to configure the coalescing of non-transactional document reads.
+ *
+ * <p>If coalescing is configured in {@link FirestoreOptions.Builder#setReadCoalescingOptions},
+ * concurrent reads of the same document with the same field mask and read time share a single
+ * request, and reads of different documents that are issued within {@link #getBatchingWindow()}
+ * of each other are sent in a single BatchGetDocuments request. Reads in transactions are never
+ * coalesced.
+ */
+@AutoValue
+public abstract class ReadCoalescingOptions implements Serializable {
+  private static final long serialVersionUID = -4409311625385871720L;
+
+  /** The maximum number of documents that are requested in a single BatchGetDocuments request. */
+  static final int MAX_BATCH_SIZE = 1000;
+
+  /**
+   * Returns how long a read waits for other reads before its BatchGetDocuments request is sent.
+   *
+   * @return The batching window, or {@link Duration#ZERO} if reads are only merged with reads of
+   *     the same document that are already in flight.
+   */
+  public abstract Duration getBatchingWindow();
+
+  /**
+   * Returns the maximum number of documents that are requested in a single BatchGetDocuments
+   * request. A batch that reaches this size is sent immediately.
+   */
+  public abstract int getMaxBatchSize();
+
+  public static Builder builder() {
+    return new AutoValue_ReadCoalescingOptions.Builder()
+        .setBatchingWindow(Duration.ZERO)
+        .setMaxBatchSize(MAX_BATCH_SIZE);
+  }
+
+  public abstract Builder toBuilder();
+
+  @AutoValue.Builder
+  public abstract static class Builder {
+    /**
+     * Sets how long a read waits for other reads before its BatchGetDocuments request is sent. A
+     * longer window merges more reads into a single request at the cost of latency. By default,
+     * requests are sent immediately and only reads of documents that are already in flight are
+     * merged.
+     *
+     * @param batchingWindow The batching window. Must not be negative.
+     */
+    public abstract Builder setBatchingWindow(@Nonnull Duration batchingWindow);
+
+    /**
+     * Sets the maximum number of documents that are requested in a single BatchGetDocuments
+     * request. By default, up to 1000 documents are requested at once.
+     *
+     * @param maxBatchSize The number of documents. Must be between 1 and 1000.
+     */
+    public abstract Builder setMaxBatchSize(int maxBatchSize);
+
+    abstract ReadCoalescingOptions autoBuild();
+
+    @Nonnull
+    public ReadCoalescingOptions build() {
+      ReadCoalescingOptions options = autoBuild();
+
+      if (options.getBatchingWindow().isNegative()) {
+        throw FirestoreException.forInvalidArgument(
+            "Value for argument 'batchingWindow' must not be negative, but was: "
+                + options.getBatchingWindow());
+      }
+
+      if (options.getMaxBatchSize() < 1 || options.getMaxBatchSize() > MAX_BATCH_SIZE) {
+        throw FirestoreException.forInvalidArgument(
+            "Value for argument 'maxBatchSize' must be between 1 and "
+                + MAX_BATCH_SIZE
+                + ", but was: "
+                + options.getMaxBatchSize());
+      }
+
+      return options;
+    }
+  }
+}
@@ -16,8 +16,11 @@
 
 package com.google.cloud.firestore;
 
+import com.google.api.core.ApiAsyncFunction;
 import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutureCallback;
 import com.google.api.core.ApiFutures;
+import com.google.api.core.SettableApiFuture;
 import com.google.cloud.firestore.TransactionOptions.TransactionOptionsType;
 import com.google.cloud.firestore.pipeline.stages.PipelineExecuteOptions;
 import com.google.cloud.firestore.telemetry.TelemetryConstants;
@@ -28,19 +31,34 @@ import com.google.firestore.v1.BeginTransactionRequest;
 import com.google.firestore.v1.BeginTransactionResponse;
 import com.google.firestore.v1.RollbackRequest;
 import com.google.firestore.v1.TransactionOptions.ReadOnly;
+import com.google.firestore.v1.TransactionOptions.ReadWrite;
 import com.google.protobuf.ByteString;
 import com.google.protobuf.Empty;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
 
 /**
  * A `ServerSideTransaction` is a `Transaction` that uses server generated `transactionId` on
- * requests. The implementation starts with a `beginTransaction` request that receives a
- * `transactionId` from server. The `ServerSideTransactionRunner` must either `commit()` or
- * `rollback()` when done.
+ * requests. By default, the implementation starts with a `beginTransaction` request that receives a
+ * `transactionId` from server. If lazy begin is enabled, the transaction is instead started by the
+ * first read, be it a document read, a query, an aggregation or a pipeline, and attempts that only
+ * write are committed without a transaction. Documents are read at most once per transaction, and
+ * reads that are deferred by the runner are fetched together on the next tick of the client
+ * executor. The `ServerSideTransactionRunner` must either `commit()` or `rollback()` when done.
  *
  * @see Transaction
  * @see ServerSideTransactionRunner
@@ -54,39 +72,101 @@ final class ServerSideTransaction extends Transaction {
 
   private final FirestoreImpl firestore;
 
-  final ByteString transactionId;
+  private final TransactionOptionsType type;
 
-  private ServerSideTransaction(FirestoreImpl firestore, ByteString transactionId) {
+  /** The options used to start the transaction if it has not been started yet. */
+  private final com.google.firestore.v1.TransactionOptions newTransactionOptions;
+
+  /** The id of the transaction, or null if the transaction has not been started yet. */
+  @GuardedBy("this")
+  @Nullable
+  private ApiFuture<ByteString> transactionId;
+
+  /** The documents that were read in this transaction. */
+  @GuardedBy("this")
+  private final Set<ResourcePath> readDocuments = new HashSet<>();
+
+  /** The results of the full document reads in this transaction, keyed by document path. */
+  @GuardedBy("this")
+  private final Map<ResourcePath, ApiFuture<DocumentSnapshot>> documentReads = new HashMap<>();
+
+  /** Whether document reads are deferred until {@link #sendDeferredReads()} is called. */
+  @GuardedBy("this")
+  private boolean deferringReads;
+
+  @GuardedBy("this")
+  private List<DocumentReference> deferredReferences = new ArrayList<>();
+
+  @GuardedBy("this")
+  private List<SettableApiFuture<DocumentSnapshot>> deferredResults = new ArrayList<>();
+
+  private ServerSideTransaction(
+      FirestoreImpl firestore,
+      TransactionOptionsType type,
+      com.google.firestore.v1.TransactionOptions newTransactionOptions,
+      @Nullable ApiFuture<ByteString> transactionId) {
     super(firestore);
     this.firestore = firestore;
+    this.type = type;
+    this.newTransactionOptions = newTransactionOptions;
     this.transactionId = transactionId;
   }
 
+  /**
+   * Returns the id of the transaction, or null if the transaction has not been started (or is
+   * still being started).
+   */
+  @Nullable
   public ByteString getTransactionId() {
-    return transactionId;
+    ApiFuture<ByteString> transactionId;
+    synchronized (this) {
+      transactionId = this.transactionId;
+    }
+    if (transactionId == null || !transactionId.isDone()) {
+      return null;
+    }
+    try {
+      return transactionId.get();
+    } catch (ExecutionException | InterruptedException e) {
+      return null;
+    }
+  }
+
+  /** Returns the documents that were read or written in this transaction. */
+  Set<ResourcePath> getTouchedDocuments() {
+    Set<ResourcePath> touchedDocuments;
+    synchronized (this) {
+      touchedDocuments = new HashSet<>(readDocuments);
+    }
+    for (WriteOperation writeOperation : getWriteOperations()) {
+      touchedDocuments.add(writeOperation.documentReference.getResourcePath());
+    }
+    return touchedDocuments;
   }
 
   public static ApiFuture<ServerSideTransaction> begin(
       FirestoreImpl firestore,
       TransactionOptions transactionOptions,
       @Nullable ServerSideTransaction previousTransaction) {
+    ByteString previousTransactionId =
+        previousTransaction != null ? previousTransaction.getTransactionId() : null;
+    com.google.firestore.v1.TransactionOptions newTransactionOptions =
+        toProto(transactionOptions, previousTransactionId);
+
+    if (transactionOptions.isLazyBeginEnabled()) {
+      return ApiFutures.immediateFuture(
+          new ServerSideTransaction(
+              firestore,
+              transactionOptions.getType(),
+              newTransactionOptions,
+              /* transactionId= */ null));
+    }
+
     BeginTransactionRequest.Builder beginTransaction = BeginTransactionRequest.newBuilder();
     beginTransaction.setDatabase(firestore.getDatabaseName());
-    ByteString previousTransactionId =
-        previousTransaction != null ? previousTransaction.transactionId : null;
-
-    if (TransactionOptionsType.READ_WRITE.equals(transactionOptions.getType())
-        && previousTransactionId != null) {
-      beginTransaction
-          .getOptionsBuilder()
-          .getReadWriteBuilder()
-          .setRetryTransaction(previousTransactionId);
-    } else if (TransactionOptionsType.READ_ONLY.equals(transactionOptions.getType())) {
-      final ReadOnly.Builder readOnlyBuilder = ReadOnly.newBuilder();
-      if (transactionOptions.getReadTime() != null) {
-        readOnlyBuilder.setReadTime(transactionOptions.getReadTime());
-      }
-      beginTransaction.getOptionsBuilder().setReadOnly(readOnlyBuilder);
+    if (TransactionOptionsType.READ_ONLY.equals(transactionOptions.getType())
+        || previousTransactionId != null) {
+      beginTransaction.setOptions(newTransactionOptions);
     }
 
     ApiFuture<BeginTransactionResponse> transactionBeginFuture =
@@ -96,14 +176,274 @@ final class ServerSideTransaction extends Transaction {
     return ApiFutures.transform(
         transactionBeginFuture,
         beginTransactionResponse ->
-            new ServerSideTransaction(firestore, beginTransactionResponse.getTransaction()),
+            new ServerSideTransaction(
+                firestore,
+                transactionOptions.getType(),
+                newTransactionOptions,
+                ApiFutures.immediateFuture(beginTransactionResponse.getTransaction())),
+        MoreExecutors.directExecutor());
+  }
+
+  private static com.google.firestore.v1.TransactionOptions toProto(
+      TransactionOptions transactionOptions, @Nullable ByteString previousTransactionId) {
+    com.google.firestore.v1.TransactionOptions.Builder options =
+        com.google.firestore.v1.TransactionOptions.newBuilder();
+    if (TransactionOptionsType.READ_ONLY.equals(transactionOptions.getType())) {
+      final ReadOnly.Builder readOnlyBuilder = ReadOnly.newBuilder();
+      if (transactionOptions.getReadTime() != null) {
+        readOnlyBuilder.setReadTime(transactionOptions.getReadTime());
+      }
+      options.setReadOnly(readOnlyBuilder);
+    } else {
+      ReadWrite.Builder readWriteBuilder = ReadWrite.newBuilder();
+      if (previousTransactionId != null) {
+        readWriteBuilder.setRetryTransaction(previousTransactionId);
+      }
+      options.setReadWrite(readWriteBuilder);
+    }
+    return options.build();
+  }
+
+  /**
+   * Returns the id of the transaction, starting the transaction with a BeginTransaction RPC if no
+   * read has started it yet.
+   */
+  private synchronized ApiFuture<ByteString> ensureTransactionId() {
+    if (transactionId == null) {
+      BeginTransactionRequest request =
+          BeginTransactionRequest.newBuilder()
+              .setDatabase(firestore.getDatabaseName())
+              .setOptions(newTransactionOptions)
+              .build();
+      transactionId =
+          ApiFutures.transform(
+              firestore.sendRequest(request, firestore.getClient().beginTransactionCallable()),
+              BeginTransactionResponse::getTransaction,
+              MoreExecutors.directExecutor());
+    }
+    return transactionId;
+  }
+
+  /**
+   * Returns the future for the id of the transaction that the calling read starts, or {@code null}
+   * if the transaction has already been started.
+   */
+  @Nullable
+  private synchronized SettableApiFuture<ByteString> startTransactionWithRead() {
+    if (transactionId != null) {
+      return null;
+    }
+    SettableApiFuture<ByteString> newTransactionId = SettableApiFuture.create();
+    transactionId = newTransactionId;
+    return newTransactionId;
+  }
+
+  /**
+   * Reads the given documents in this transaction. If the transaction has not been started yet,
+   * the read starts it and captures the returned transaction id.
+   */
+  private ApiFuture<List<DocumentSnapshot>> getAllInTransaction(
+      DocumentReference[] documentReferences, @Nullable FieldMask fieldMask) {
+    SettableApiFuture<ByteString> newTransactionId = null;
+    synchronized (this) {
+      for (DocumentReference documentReference : documentReferences) {
+        readDocuments.add(documentReference.getResourcePath());
+      }
+      if (documentReferences.length > 0) {
+        newTransactionId = startTransactionWithRead();
+      }
+    }
+    if (newTransactionId != null) {
+      return firestore.getAllFromBackend(
+          documentReferences,
+          fieldMask,
+          /* transactionId= */ null,
+          /* readTime= */ null,
+          newTransactionOptions,
+          newTransactionId);
+    }
+    return withTransactionId(
+        id -> firestore.getAll(documentReferences, fieldMask, id, /* readTime= */ null));
+  }
+
+  /**
+   * Defers document reads until {@link #sendDeferredReads()} is called, so that documents read in
+   * the meantime are fetched with a single BatchGetDocuments request. The first deferred read of
+   * each batch schedules the batch to be sent on the client executor, so that deferred reads are
+   * sent even if the caller blocks on a future that is derived from them.
+   */
+  synchronized void deferDocumentReads() {
+    deferringReads = true;
+  }
+
+  /** Sends the document reads that were deferred and stops deferring further reads. */
+  void sendDeferredReads() {
+    synchronized (this) {
+      deferringReads = false;
+    }
+    flushDeferredReads();
+  }
+
+  /** Sends the document reads that were deferred so far. Later reads are still deferred. */
+  private void flushDeferredReads() {
+    List<DocumentReference> references;
+    List<SettableApiFuture<DocumentSnapshot>> results;
+    synchronized (this) {
+      references = deferredReferences;
+      results = deferredResults;
+      deferredReferences = new ArrayList<>();
+      deferredResults = new ArrayList<>();
+    }
+    if (!references.isEmpty()) {
+      fetchDocuments(references, results);
+    }
+  }
+
+  /**
+   * Reads the given documents in this transaction. Documents that were already read in this
+   * transaction are not fetched again. While reads are deferred, the remaining documents are added
+   * to the next batch. Otherwise, they are fetched with a single BatchGetDocuments request.
+   */
+  private ApiFuture<List<DocumentSnapshot>> readDocuments(DocumentReference[] documentReferences) {
+    List<ApiFuture<DocumentSnapshot>> results = new ArrayList<>();
+    List<DocumentReference> fetchedReferences = new ArrayList<>();
+    List<SettableApiFuture<DocumentSnapshot>> fetchedResults = new ArrayList<>();
+    boolean deferred;
+    boolean scheduleSend = false;
+    synchronized (this) {
+      deferred = deferringReads;
+      for (DocumentReference documentReference : documentReferences) {
+        ResourcePath path = documentReference.getResourcePath();
+        ApiFuture<DocumentSnapshot> result = documentReads.get(path);
+        if (result == null) {
+          SettableApiFuture<DocumentSnapshot> newResult = SettableApiFuture.create();
+          documentReads.put(path, newResult);
+          if (deferred) {
+            scheduleSend |= deferredReferences.isEmpty();
+            deferredReferences.add(documentReference);
+            deferredResults.add(newResult);
+          } else {
+            fetchedReferences.add(documentReference);
+            fetchedResults.add(newResult);
+          }
+          result = newResult;
+        }
+        results.add(result);
+      }
+    }
+    if (!fetchedReferences.isEmpty()) {
+      fetchDocuments(fetchedReferences, fetchedResults);
+    }
+    if (scheduleSend) {
+      firestore.getClient().getExecutor().execute(this::flushDeferredReads);
+    }
+    ApiFuture<List<DocumentSnapshot>> result = ApiFutures.allAsList(results);
+    return deferred ? new SendDeferredReadsOnGetFuture<>(result) : result;
+  }
+
+  /** Fetches the given documents with a single request and completes their results. */
+  private void fetchDocuments(
+      List<DocumentReference> documentReferences,
+      List<SettableApiFuture<DocumentSnapshot>> results) {
+    ApiFutures.addCallback(
+        getAllInTransaction(
+            documentReferences.toArray(new DocumentReference[0]), /* fieldMask= */ null),
+        new ApiFutureCallback<List<DocumentSnapshot>>() {
+          @Override
+          public void onSuccess(List<DocumentSnapshot> snapshots) {
+            for (int i = 0; i < results.size(); ++i) {
+              results.get(i).set(snapshots.get(i));
+            }
+          }
+
+          @Override
+          public void onFailure(Throwable throwable) {
+            synchronized (ServerSideTransaction.this) {
+              // Failed reads are not memoized, so that a later read fetches the document again.
+              for (int i = 0; i < documentReferences.size(); ++i) {
+                documentReads.remove(documentReferences.get(i).getResourcePath(), results.get(i));
+              }
+            }
+            for (SettableApiFuture<DocumentSnapshot> result : results) {
+              result.setException(throwable);
+            }
+          }
+        },
+        MoreExecutors.directExecutor());
+  }
+
+  /**
+   * A future for deferred reads that sends the deferred reads before blocking on its result, so
+   * that waiting for a read does not have to wait for the client executor to send the batch.
+   */
+  private final class SendDeferredReadsOnGetFuture<T> implements ApiFuture<T> {
+    private final ApiFuture<T> delegate;
+
+    SendDeferredReadsOnGetFuture(ApiFuture<T> delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public void addListener(Runnable listener, Executor executor) {
+      delegate.addListener(listener, executor);
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+      return delegate.cancel(mayInterruptIfRunning);
+    }
+
+    @Override
+    public boolean isCancelled() {
+      return delegate.isCancelled();
+    }
+
+    @Override
+    public boolean isDone() {
+      return delegate.isDone();
+    }
+
+    @Override
+    public T get() throws InterruptedException, ExecutionException {
+      flushDeferredReads();
+      return delegate.get();
+    }
+
+    @Override
+    public T get(long timeout, @Nonnull TimeUnit unit)
+        throws InterruptedException, ExecutionException, TimeoutException {
+      flushDeferredReads();
+      return delegate.get(timeout, unit);
+    }
+  }
+
+  /** Runs the given operation once the transaction id is known. */
+  private <T> ApiFuture<T> withTransactionId(ApiAsyncFunction<ByteString, T> operation) {
+    return ApiFutures.transformAsync(
+        ensureTransactionId(),
+        id -> {
+          try (TraceUtil.Scope ignored = transactionTraceContext.makeCurrent()) {
+            return operation.apply(id);
+          }
+        },
         MoreExecutors.directExecutor());
   }
 
   /** Commits a transaction. */
   ApiFuture<List<WriteResult>> commit() {
+    ApiFuture<ByteString> transactionId;
+    synchronized (this) {
+      transactionId = this.transactionId;
+    }
     try (TraceUtil.Scope ignored = transactionTraceContext.makeCurrent()) {
-      return super.commit(transactionId);
+      if (transactionId == null && TransactionOptionsType.READ_WRITE.equals(type)) {
+        // Nothing was read in this attempt, so no transaction was started. The writes do not depend
+        // on any reads and are applied atomically by a non-transactional commit.
+        return isEmpty()
+            ? ApiFutures.immediateFuture(Collections.emptyList())
+            : super.commit(/* transactionId= */ null);
+      }
+      return withTransactionId(super::commit);
     }
   }
 
@@ -114,14 +454,27 @@ final class ServerSideTransaction extends Transaction {
             .startSpan(
                 TelemetryConstants.METHOD_NAME_TRANSACTION_ROLLBACK, transactionTraceContext);
     try (TraceUtil.Scope ignored = span.makeCurrent()) {
-      RollbackRequest req =
-          RollbackRequest.newBuilder()
-              .setTransaction(transactionId)
-              .setDatabase(firestore.getDatabaseName())
-              .build();
+      ApiFuture<ByteString> transactionId;
+      synchronized (this) {
+        transactionId = this.transactionId;
+      }
+      if (transactionId == null) {
+        // The transaction was never started, so there is nothing to roll back.
+        span.end();
+        return ApiFutures.immediateFuture(null);
+      }
 
       ApiFuture<Empty> rollbackFuture =
-          firestore.sendRequest(req, firestore.getClient().rollbackCallable());
+          ApiFutures.transformAsync(
+              transactionId,
+              id ->
+                  firestore.sendRequest(
+                      RollbackRequest.newBuilder()
+                          .setTransaction(id)
+                          .setDatabase(firestore.getDatabaseName())
+                          .build(),
+                      firestore.getClient().rollbackCallable()),
+              MoreExecutors.directExecutor());
 
       ApiFuture<Void> transform =
           ApiFutures.transform(rollbackFuture, resp -> null, MoreExecutors.directExecutor());
@@ -133,7 +486,7 @@ final class ServerSideTransaction extends Transaction {
               (error) -> {
                 LOGGER.log(
                     Level.WARNING,
-                    "Failed best effort to rollback of transaction " + transactionId,
+                    "Failed best effort to rollback of transaction " + getTransactionId(),
                     error);
                 return null;
               },
@@ -166,15 +519,16 @@ final class ServerSideTransaction extends Transaction {
                 TelemetryConstants.METHOD_NAME_TRANSACTION_GET_DOCUMENT, transactionTraceContext);
     try (TraceUtil.Scope ignored = span.makeCurrent()) {
       Preconditions.checkState(isEmpty(), READ_BEFORE_WRITE_ERROR_MSG);
+      ApiFuture<List<DocumentSnapshot>> snapshots =
+          readDocuments(new DocumentReference[] {documentRef});
       ApiFuture<DocumentSnapshot> result =
           ApiFutures.transform(
-              firestore.getAll(
-                  new DocumentReference[] {documentRef},
-                  /* fieldMask= */ null,
-                  transactionId,
-                  /* readTime= */ null),
-              snapshots -> snapshots.isEmpty() ? null : snapshots.get(0),
+              snapshots,
+              snapshotList -> snapshotList.isEmpty() ? null : snapshotList.get(0),
               MoreExecutors.directExecutor());
+      if (snapshots instanceof SendDeferredReadsOnGetFuture) {
+        result = new SendDeferredReadsOnGetFuture<>(result);
+      }
       span.endAtFuture(result);
       return result;
     } catch (Exception error) {
@@ -199,9 +553,7 @@ final class ServerSideTransaction extends Transaction {
             .startSpan(
                 TelemetryConstants.METHOD_NAME_TRANSACTION_GET_DOCUMENTS, transactionTraceContext);
     try (TraceUtil.Scope ignored = span.makeCurrent()) {
-      ApiFuture<List<DocumentSnapshot>> result =
-          firestore.getAll(
-              documentReferences, /* fieldMask= */ null, transactionId, /* readTime= */ null);
+      ApiFuture<List<DocumentSnapshot>> result = readDocuments(documentReferences);
       span.endAtFuture(result);
       return result;
     } catch (Exception error) {
@@ -229,7 +581,9 @@ final class ServerSideTransaction extends Transaction {
                 TelemetryConstants.METHOD_NAME_TRANSACTION_GET_DOCUMENTS, transactionTraceContext);
     try (TraceUtil.Scope ignored = span.makeCurrent()) {
       ApiFuture<List<DocumentSnapshot>> result =
-          firestore.getAll(documentReferences, fieldMask, transactionId, /* readTime= */ null);
+          fieldMask == null
+              ? readDocuments(documentReferences)
+              : getAllInTransaction(documentReferences, fieldMask);
       span.endAtFuture(result);
       return result;
     } catch (Exception error) {
@@ -249,7 +603,15 @@ final class ServerSideTransaction extends Transaction {
   public ApiFuture<QuerySnapshot> get(@Nonnull Query query) {
     Preconditions.checkState(isEmpty(), READ_BEFORE_WRITE_ERROR_MSG);
     try (TraceUtil.Scope ignored = transactionTraceContext.makeCurrent()) {
-      return query.get(transactionId, /* readTime= */ null);
+      SettableApiFuture<ByteString> newTransactionId = startTransactionWithRead();
+      if (newTransactionId != null) {
+        return query.get(
+            /* transactionId= */ null,
+            /* readTime= */ null,
+            newTransactionOptions,
+            newTransactionId);
+      }
+      return withTransactionId(id -> query.get(id, /* readTime= */ null));
     }
   }
 
@@ -264,7 +626,15 @@ final class ServerSideTransaction extends Transaction {
   public ApiFuture<AggregateQuerySnapshot> get(@Nonnull AggregateQuery query) {
     Preconditions.checkState(isEmpty(), READ_BEFORE_WRITE_ERROR_MSG);
     try (TraceUtil.Scope ignored = transactionTraceContext.makeCurrent()) {
-      return query.get(transactionId, null);
+      SettableApiFuture<ByteString> newTransactionId = startTransactionWithRead();
+      if (newTransactionId != null) {
+        return query.get(
+            /* transactionId= */ null,
+            /* readTime= */ null,
+            newTransactionOptions,
+            newTransactionId);
+      }
+      return withTransactionId(id -> query.get(id, null));
     }
   }
 
@@ -281,7 +651,16 @@ final class ServerSideTransaction extends Transaction {
       @Nonnull Pipeline pipeline, @Nonnull PipelineExecuteOptions options) {
     Preconditions.checkState(isEmpty(), READ_BEFORE_WRITE_ERROR_MSG);
     try (TraceUtil.Scope ignored = transactionTraceContext.makeCurrent()) {
-      return pipeline.execute(options, transactionId, null);
+      SettableApiFuture<ByteString> newTransactionId = startTransactionWithRead();
+      if (newTransactionId != null) {
+        return pipeline.execute(
+            options,
+            /* transactionId= */ null,
+            /* readTime= */ null,
+            newTransactionOptions,
+            newTransactionId);
+      }
+      return withTransactionId(id -> pipeline.execute(options, id, null));
     }
   }
 }
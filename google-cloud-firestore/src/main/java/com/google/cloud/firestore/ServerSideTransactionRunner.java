@@ -26,6 +26,7 @@ import com.google.api.core.SettableApiFuture;
 import com.google.api.gax.retrying.ExponentialRetryAlgorithm;
 import com.google.api.gax.retrying.TimedAttemptSettings;
 import com.google.api.gax.rpc.ApiException;
+import com.google.api.gax.rpc.StatusCode;
 import com.google.cloud.firestore.telemetry.MetricsUtil.MetricsContext;
 import com.google.cloud.firestore.telemetry.TelemetryConstants;
 import com.google.cloud.firestore.telemetry.TelemetryConstants.MetricType;
@@ -34,10 +35,14 @@ import com.google.cloud.firestore.telemetry.TraceUtil.Scope;
 import com.google.cloud.firestore.telemetry.TraceUtil.Span;
 import com.google.common.util.concurrent.MoreExecutors;
 import io.grpc.Context;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
 /**
  * Implements backoff and retry semantics for Firestore transactions.
@@ -48,7 +53,9 @@ import javax.annotation.Nonnull;
  * resolves when all retries complete.
  *
  * <p>TransactionRunner uses exponential backoff to increase the chance that retries succeed. To
- * customize the backoff settings, you can specify custom settings via {@link FirestoreOptions}.
+ * customize the backoff settings, you can specify custom settings via {@link FirestoreOptions}. If
+ * contention tracking is enabled, retries of aborted transactions are additionally delayed and
+ * admitted based on the contention on the documents that the aborted attempt touched.
  */
 final class ServerSideTransactionRunner<T> {
   private final Transaction.AsyncFunction<T> userCallback;
@@ -63,6 +70,13 @@ final class ServerSideTransactionRunner<T> {
   private Span runTransactionSpan;
   private TraceUtil.Context runTransactionContext;
   private MetricsContext metricsContext;
+  @Nullable private final TransactionContentionTracker contentionTracker;
+
+  /** The documents touched by the last aborted attempt. */
+  private Set<ResourcePath> contendedDocuments = Collections.emptySet();
+
+  /** The admission of the current attempt, or null if the attempt was not admitted. */
+  @Nullable private TransactionContentionTracker.Admission admission;
 
   /**
    * @param firestore The active Firestore instance
@@ -81,9 +95,7 @@ final class ServerSideTransactionRunner<T> {
     this.attemptsRemaining = transactionOptions.getNumberOfAttempts();
     this.userCallbackExecutor =
         Context.currentContextExecutor(
-            transactionOptions.getExecutor() != null
-                ? transactionOptions.getExecutor()
-                : this.firestore.getClient().getExecutor());
+            getUserCallbackExecutor(firestore, userCallback, transactionOptions));
 
     this.backoffAlgorithm =
         new ExponentialRetryAlgorithm(
@@ -94,6 +106,26 @@ final class ServerSideTransactionRunner<T> {
             .getOptions()
             .getMetricsUtil()
             .createMetricsContext(TelemetryConstants.METHOD_NAME_TRANSACTION_RUN);
+    this.contentionTracker = firestore.getContentionTracker();
+  }
+
+  /**
+   * Returns the executor that runs the user callback. Synchronous callbacks block on their reads,
+   * so if requested they run on virtual threads rather than on the Firestore client executor.
+   */
+  private static Executor getUserCallbackExecutor(
+      FirestoreImpl firestore,
+      Transaction.AsyncFunction<?> userCallback,
+      TransactionOptions transactionOptions) {
+    if (transactionOptions.getExecutor() != null) {
+      return transactionOptions.getExecutor();
+    }
+    if (transactionOptions.isVirtualThreadsEnabled()
+        && userCallback instanceof FirestoreImpl.TransactionAsyncAdapter
+        && VirtualThreads.isSupported()) {
+      return VirtualThreads.getExecutor();
+    }
+    return firestore.getClient().getExecutor();
   }
 
   @Nonnull
@@ -170,10 +202,12 @@ final class ServerSideTransactionRunner<T> {
   private ApiFuture<T> rollbackCallback(Void input) {
     final SettableApiFuture<Void> backoff = SettableApiFuture.create();
     // Add a backoff delay. At first, this is 0.
-    firestoreExecutor.schedule(
-        () -> backoff.set(null),
-        nextBackoffAttempt.getRandomizedRetryDelay().toMillis(),
-        TimeUnit.MILLISECONDS);
+    long delayMillis = nextBackoffAttempt.getRandomizedRetryDelay().toMillis();
+    if (contentionTracker != null) {
+      delayMillis =
+          Math.max(delayMillis, contentionTracker.getRetryDelay(contendedDocuments).toMillis());
+    }
+    firestoreExecutor.schedule(() -> backoff.set(null), delayMillis, TimeUnit.MILLISECONDS);
 
     nextBackoffAttempt = backoffAlgorithm.createNextAttempt(nextBackoffAttempt);
     return ApiFutures.transformAsync(
@@ -185,14 +219,28 @@ final class ServerSideTransactionRunner<T> {
    */
   private SettableApiFuture<T> invokeUserCallback() {
     final SettableApiFuture<T> returnedResult = SettableApiFuture.create();
+    final ServerSideTransaction transaction = this.transaction;
+    // If enabled, document reads issued while an asynchronous callback runs are sent together on
+    // the next tick of the client executor or once the callback returns. Synchronous callbacks
+    // block on their reads, so their reads are always sent right away.
+    final boolean deferReads =
+        transactionOptions.isReadBatchingEnabled()
+            && !(userCallback instanceof FirestoreImpl.TransactionAsyncAdapter);
 
     userCallbackExecutor.execute(
         () -> {
           ApiFuture<T> userCallbackResult;
+          if (deferReads) {
+            transaction.deferDocumentReads();
+          }
           try {
             userCallbackResult = userCallback.updateCallback(transaction);
           } catch (Exception e) {
             userCallbackResult = ApiFutures.immediateFailedFuture(e);
+          } finally {
+            if (deferReads) {
+              transaction.sendDeferredReads();
+            }
           }
           ApiFutures.addCallback(
               userCallbackResult,
@@ -212,10 +260,59 @@ final class ServerSideTransactionRunner<T> {
     return returnedResult;
   }
 
-  /** A callback that invokes the BeginTransaction callback. */
+  /** A callback that waits for admission and then invokes the BeginTransaction callback. */
   private ApiFuture<T> backoffCallback(Void input) {
     return ApiFutures.transformAsync(
-        begin(), this::beginTransactionCallback, MoreExecutors.directExecutor());
+        admit(),
+        ignored ->
+            ApiFutures.transformAsync(
+                begin(), this::beginTransactionCallback, MoreExecutors.directExecutor()),
+        MoreExecutors.directExecutor());
+  }
+
+  /**
+   * Waits until this attempt may touch the documents that were contended in the previous attempt.
+   */
+  private ApiFuture<Void> admit() {
+    if (contentionTracker == null || contendedDocuments.isEmpty()) {
+      return ApiFutures.immediateFuture(null);
+    }
+    long startMillis = firestore.getClock().millisTime();
+    return ApiFutures.transform(
+        contentionTracker.admit(contendedDocuments),
+        admission -> {
+          this.admission = admission;
+          if (admission.size() > 0) {
+            metricsContext.recordValue(
+                MetricType.TRANSACTION_ADMISSION_LATENCY,
+                firestore.getClock().millisTime() - startMillis);
+          }
+          return null;
+        },
+        MoreExecutors.directExecutor());
+  }
+
+  /** Releases the admission of the current attempt, if any. */
+  private void releaseAdmission() {
+    TransactionContentionTracker.Admission admission = this.admission;
+    if (admission != null) {
+      admission.release();
+    }
+  }
+
+  /**
+   * Records that the current attempt was aborted, along with the documents that it touched if
+   * contention is tracked.
+   */
+  private void recordAbort() {
+    metricsContext.recordCount(MetricType.TRANSACTION_ABORT_COUNT, 1);
+    if (contentionTracker != null && hasTransaction()) {
+      contendedDocuments = transaction.getTouchedDocuments();
+      int newHotspots = contentionTracker.recordAbort(contendedDocuments);
+      if (newHotspots > 0) {
+        metricsContext.recordCount(MetricType.TRANSACTION_HOTSPOT_COUNT, newHotspots);
+      }
+    }
   }
 
   /**
@@ -233,8 +330,10 @@ final class ServerSideTransactionRunner<T> {
    * RPC.
    */
   private ApiFuture<T> userFunctionCallback(T userFunctionResult) {
+    ApiFuture<List<WriteResult>> commitFuture = transaction.commit();
+    commitFuture.addListener(this::releaseAdmission, MoreExecutors.directExecutor());
     return ApiFutures.transform(
-        transaction.commit(),
+        commitFuture,
         // The callback that is invoked after the Commit RPC returns. It returns the user result.
         input -> userFunctionResult,
         MoreExecutors.directExecutor());
@@ -242,14 +341,19 @@ final class ServerSideTransactionRunner<T> {
 
   /** A callback that restarts a transaction after an ApiException. It invokes the Rollback RPC. */
   private ApiFuture<T> restartTransactionCallback(Throwable throwable) {
+    releaseAdmission();
     if (!(throwable instanceof ApiException)) {
       // This is likely a failure in the user callback.
       return rollbackAndReject(throwable);
     }
 
     ApiException apiException = (ApiException) throwable;
+    if (StatusCode.Code.ABORTED.equals(apiException.getStatusCode().getCode())) {
+      recordAbort();
+    }
     if (isRetryableTransactionError(apiException)) {
       if (attemptsRemaining > 0) {
+        metricsContext.recordCount(MetricType.TRANSACTION_RETRY_COUNT, 1);
         getTraceUtil()
             .currentSpan()
             .addEvent("Initiating transaction retry. Attempts remaining: " + attemptsRemaining);
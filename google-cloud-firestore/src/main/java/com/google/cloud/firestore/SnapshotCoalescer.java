@@ -0,0 +1,272 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.firestore;
+
+import com.google.api.core.ApiClock;
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.DocumentChange.Type;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+import javax.annotation.Nullable;
+
+/**
+ * Delivers the snapshots of a Watch to its listener and merges snapshots that arrive faster than
+ * the listener should receive them.
+ *
+ * <p>A snapshot is held back if it arrives within the coalescing window of the previous delivery,
+ * or, if configured, while the listener is still processing the previous snapshot. Snapshots that
+ * are held back are merged: the coalescer tracks the latest version of every document that changed
+ * and, on delivery, diffs these against the last delivered result set. Consumers therefore receive
+ * the net changes between two delivered snapshots, with indexes relative to those snapshots.
+ */
+final class SnapshotCoalescer implements CoalescingListenerRegistration {
+  private static final Logger LOGGER = Logger.getLogger(SnapshotCoalescer.class.getName());
+
+  private final Query query;
+  private final ApiClock clock;
+  private final ScheduledExecutorService scheduler;
+  private final Executor userCallbackExecutor;
+  private final EventListener<QuerySnapshot> listener;
+  private final long windowNanos;
+  private final boolean coalesceWhileCallbackRunning;
+  private final ListenerRegistration watchRegistration;
+
+  /** The result set of the last snapshot that was delivered to the listener. */
+  private DocumentView deliveredView;
+
+  /**
+   * The latest version of every document that changed since the last delivery, or null for
+   * documents that were removed.
+   */
+  private final Map<ResourcePath, QueryDocumentSnapshot> pendingDocuments = new LinkedHashMap<>();
+
+  @Nullable private DocumentView pendingView;
+  @Nullable private Timestamp pendingReadTime;
+  @Nullable private List<DocumentChange> pendingChanges;
+  private int pendingCount;
+
+  private boolean hasDelivered;
+  private boolean callbackRunning;
+  private boolean closed;
+  private long lastDeliveryNanos;
+  @Nullable private ScheduledFuture<?> scheduledFlush;
+
+  private long coalescedSnapshotCount;
+  private long droppedSnapshotCount;
+
+  /**
+   * @param query The query that the delivered snapshots belong to.
+   * @param initialView The result set before the first snapshot.
+   * @param clock The clock that is used to enforce the coalescing window.
+   * @param scheduler The executor that schedules held back deliveries.
+   * @param userCallbackExecutor The executor that runs the listener.
+   * @param listener The user-provided listener.
+   * @param options The options that configure when snapshots are merged.
+   * @param watchRegistration The registration of the underlying Watch.
+   */
+  SnapshotCoalescer(
+      Query query,
+      DocumentView initialView,
+      ApiClock clock,
+      ScheduledExecutorService scheduler,
+      Executor userCallbackExecutor,
+      EventListener<QuerySnapshot> listener,
+      SnapshotListenOptions options,
+      ListenerRegistration watchRegistration) {
+    this.query = query;
+    this.deliveredView = initialView;
+    this.clock = clock;
+    this.scheduler = scheduler;
+    this.userCallbackExecutor = userCallbackExecutor;
+    this.listener = listener;
+    this.windowNanos = options.getCoalescingWindow().toNanos();
+    this.coalesceWhileCallbackRunning = options.getCoalesceWhileCallbackRunning();
+    this.watchRegistration = watchRegistration;
+  }
+
+  /**
+   * Accepts a consistent snapshot from the Watch and delivers it, either immediately or merged with
+   * later snapshots.
+   *
+   * @param view The result set of the snapshot.
+   * @param readTime The read time of the snapshot.
+   * @param changes The changes relative to the previous snapshot of the Watch.
+   */
+  synchronized void onSnapshot(
+      DocumentView view, Timestamp readTime, List<DocumentChange> changes) {
+    if (closed) {
+      return;
+    }
+
+    for (DocumentChange change : changes) {
+      QueryDocumentSnapshot document = change.getDocument();
+      pendingDocuments.put(
+          document.getReference().getResourcePath(),
+          change.getType() == Type.REMOVED ? null : document);
+    }
+    pendingView = view;
+    pendingReadTime = readTime;
+    pendingChanges = changes;
+    ++pendingCount;
+
+    maybeDeliver();
+  }
+
+  /**
+   * Stops delivering snapshots. Snapshots that have not been delivered yet are dropped. This is
+   * called before errors are delivered to the listener and when the listener is removed.
+   */
+  synchronized void close() {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    if (scheduledFlush != null) {
+      scheduledFlush.cancel(false);
+      scheduledFlush = null;
+    }
+    droppedSnapshotCount += pendingCount;
+    clearPending();
+    LOGGER.fine(
+        () ->
+            String.format(
+                "Snapshot listener closed after merging %d snapshots and dropping %d",
+                coalescedSnapshotCount, droppedSnapshotCount));
+  }
+
+  @Override
+  public void remove() {
+    close();
+    watchRegistration.remove();
+  }
+
+  @Override
+  public synchronized long getCoalescedSnapshotCount() {
+    return coalescedSnapshotCount;
+  }
+
+  @Override
+  public synchronized long getDroppedSnapshotCount() {
+    return droppedSnapshotCount;
+  }
+
+  /** Delivers the pending snapshot unless the window or a running callback holds it back. */
+  private void maybeDeliver() {
+    if (closed || pendingCount == 0 || scheduledFlush != null) {
+      return;
+    }
+
+    if (coalesceWhileCallbackRunning && callbackRunning) {
+      // The snapshot is delivered once the running callback returns.
+      return;
+    }
+
+    if (hasDelivered) {
+      long delayNanos = lastDeliveryNanos + windowNanos - clock.nanoTime();
+      if (delayNanos > 0) {
+        scheduledFlush = scheduler.schedule(this::flush, delayNanos, TimeUnit.NANOSECONDS);
+        return;
+      }
+    }
+
+    deliver();
+  }
+
+  private synchronized void flush() {
+    scheduledFlush = null;
+    maybeDeliver();
+  }
+
+  private void deliver() {
+    List<DocumentChange> changes = pendingCount == 1 ? pendingChanges : computeNetChanges();
+    int mergedCount = pendingCount;
+
+    deliveredView = pendingView;
+    final Timestamp readTime = pendingReadTime;
+    clearPending();
+
+    if (hasDelivered && changes.isEmpty()) {
+      // The merged snapshots cancelled each other out.
+      droppedSnapshotCount += mergedCount;
+      return;
+    }
+
+    if (mergedCount > 1) {
+      ++coalescedSnapshotCount;
+      droppedSnapshotCount += mergedCount - 1;
+    }
+
+    final QuerySnapshot querySnapshot =
+        new QuerySnapshot(query, readTime, deliveredView.toList(), changes);
+    hasDelivered = true;
+    callbackRunning = true;
+    lastDeliveryNanos = clock.nanoTime();
+
+    userCallbackExecutor.execute(
+        () -> {
+          try {
+            listener.onEvent(querySnapshot, null);
+          } finally {
+            onCallbackComplete();
+          }
+        });
+  }
+
+  private synchronized void onCallbackComplete() {
+    callbackRunning = false;
+    maybeDeliver();
+  }
+
+  /** Diffs the latest version of all pending documents against the last delivered result set. */
+  private List<DocumentChange> computeNetChanges() {
+    List<QueryDocumentSnapshot> deletes = new ArrayList<>();
+    List<QueryDocumentSnapshot> adds = new ArrayList<>();
+    List<QueryDocumentSnapshot> updates = new ArrayList<>();
+
+    for (Map.Entry<ResourcePath, QueryDocumentSnapshot> entry : pendingDocuments.entrySet()) {
+      QueryDocumentSnapshot oldDocument = deliveredView.getDocument(entry.getKey());
+      QueryDocumentSnapshot newDocument = entry.getValue();
+      if (oldDocument == null) {
+        if (newDocument != null) {
+          adds.add(newDocument);
+        }
+      } else if (newDocument == null) {
+        deletes.add(oldDocument);
+      } else {
+        updates.add(newDocument);
+      }
+    }
+
+    // The result set is discarded in favor of 'pendingView', which contains the same documents.
+    return deliveredView.applyChanges(deletes, adds, updates).changes;
+  }
+
+  private void clearPending() {
+    pendingDocuments.clear();
+    pendingView = null;
+    pendingReadTime = null;
+    pendingChanges = null;
+    pendingCount = 0;
+  }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.firestore;
+
+import com.google.auto.value.AutoValue;
+import java.time.Duration;
+import javax.annotation.Nonnull;
+
+/** Options used to configure a snapshot listener. */
+@AutoValue
+public abstract class SnapshotListenOptions {
+  /**
+   * Returns whether the listener keeps its result set in a compact, array-backed view.
+   *
+   * <p>The compact view uses substantially less heap than the default tree-backed view and lets
+   * snapshots share the listener's document array instead of copying it. Applying a batch of
+   * changes costs time linear in the size of the result set, so the compact view is best suited
+   * for listeners on large result sets that change in bursts rather than one document at a time.
+   *
+   * @return Whether the compact view is enabled.
+   */
+  public abstract boolean getCompactViewEnabled();
+
+  /**
+   * Returns the minimum time between two snapshots that are delivered to the listener.
+   *
+   * <p>Snapshots that arrive within this window after a delivery are merged into a single snapshot
+   * that is delivered once the window has passed. The merged snapshot contains the latest state of
+   * the result set and the net {@link DocumentChange}s since the previously delivered snapshot.
+   *
+   * @return The coalescing window, or {@link Duration#ZERO} if snapshots are not rate limited.
+   */
+  public abstract Duration getCoalescingWindow();
+
+  /**
+   * Returns whether snapshots are merged while the listener is still processing a previous
+   * snapshot.
+   *
+   * <p>If enabled, at most one listener callback is outstanding at any time. Snapshots that arrive
+   * while the callback runs are merged and delivered as a single snapshot once it returns.
+   *
+   * @return Whether snapshots are coalesced while a callback is running.
+   */
+  public abstract boolean getCoalesceWhileCallbackRunning();
+
+  /** Returns whether snapshots may be merged before they are delivered to the listener. */
+  boolean isCoalescingEnabled() {
+    return !getCoalescingWindow().isZero() || getCoalesceWhileCallbackRunning();
+  }
+
+  public static Builder builder() {
+    return new AutoValue_SnapshotListenOptions.Builder()
+        .setCompactViewEnabled(false)
+        .setCoalescingWindow(Duration.ZERO)
+        .setCoalesceWhileCallbackRunning(false);
+  }
+
+  public abstract Builder toBuilder();
+
+  @AutoValue.Builder
+  public abstract static class Builder {
+    /**
+     * Sets whether the listener keeps its result set in a compact, array-backed view. By default,
+     * the compact view is disabled.
+     *
+     * @param enabled Whether the compact view should be enabled.
+     */
+    public abstract Builder setCompactViewEnabled(boolean enabled);
+
+    /**
+     * Sets the minimum time between two snapshots that are delivered to the listener. Snapshots
+     * that arrive within the window are merged into one snapshot with the net changes. By default,
+     * every snapshot is delivered as soon as it is available.
+     *
+     * @param coalescingWindow The coalescing window. Must not be negative.
+     */
+    public abstract Builder setCoalescingWindow(@Nonnull Duration coalescingWindow);
+
+    /**
+     * Sets whether snapshots that arrive while the listener is still processing a previous snapshot
+     * are merged into one snapshot with the net changes. By default, snapshots are not merged.
+     *
+     * @param enabled Whether snapshots are coalesced while a callback is running.
+     */
+    public abstract Builder setCoalesceWhileCallbackRunning(boolean enabled);
+
+    abstract SnapshotListenOptions autoBuild();
+
+    @Nonnull
+    public SnapshotListenOptions build() {
+      SnapshotListenOptions options = autoBuild();
+
+      if (options.getCoalescingWindow().isNegative()) {
+        throw FirestoreException.forInvalidArgument(
+            "Value for argument 'coalescingWindow' must not be negative, but was: "
+                + options.getCoalescingWindow());
+      }
+
+      return options;
+    }
+  }
+}
@@ -0,0 +1,34 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.firestore;
+
+/**
+ * Specifies where {@link DocumentReference#get(Source)} and {@link
+ * Firestore#getAll(DocumentReference[], Source)} read documents from.
+ */
+public enum Source {
+  /**
+   * Serves documents from the client-side document cache if one is configured and the cached
+   * version is recent enough, and reads the remaining documents from the backend.
+   */
+  DEFAULT,
+  /**
+   * Reads all documents from the backend, even if a recent version is cached. The documents that
+   * are read still update the cache.
+   */
+  SERVER
+}
@@ -0,0 +1,233 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.firestore;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.firestore.v1.Write;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.annotation.Nullable;
+
+/**
+ * A FIFO buffer of encoded writes that keeps at most a fixed number of bytes of writes in memory.
+ *
+ * <p>Writes that would exceed the memory limit are appended to a temporary file as length-delimited
+ * {@link Write} protos and read back in order when they reach the head of the buffer. Only the
+ * element that is associated with a write stays in memory. The file is truncated once all spilled
+ * writes have been read back and reused for later spills. It is deleted when the buffer is
+ * closed.
+ *
+ * <p>This class is not thread-safe.
+ *
+ * @param <T> The type of the element that is associated with each write.
+ */
+final class SpillableWriteBuffer<T> implements Closeable {
+  private static final Logger logger = Logger.getLogger(SpillableWriteBuffer.class.getName());
+
+  private static final class Slot<T> {
+    final T element;
+
+    /** The write if it is kept in memory, or null if it was spilled to disk. */
+    @Nullable final Write write;
+
+    Slot(T element, @Nullable Write write) {
+      this.element = element;
+      this.write = write;
+    }
+  }
+
+  private final long memoryLimitBytes;
+  private final Deque<Slot<T>> slots = new ArrayDeque<>();
+
+  private long bufferedBytes;
+  private int spilledCount;
+
+  /** Set once spilling failed, after which all writes are kept in memory. */
+  private boolean spillFailed;
+
+  @Nullable private File spillFile;
+  @Nullable private OutputStream spillOutput;
+  @Nullable private InputStream spillInput;
+
+  /**
+   * @param memoryLimitBytes The maximum number of bytes of encoded writes to keep in memory. Pass
+   *     {@link Long#MAX_VALUE} to never spill to disk.
+   */
+  SpillableWriteBuffer(long memoryLimitBytes) {
+    Preconditions.checkArgument(memoryLimitBytes >= 0, "memoryLimitBytes must not be negative");
+    this.memoryLimitBytes = memoryLimitBytes;
+  }
+
+  /** Adds a write and its associated element to the end of the buffer. */
+  void add(T element, Write write) {
+    int size = write.getSerializedSize();
+    if (bufferedBytes + size > memoryLimitBytes && !spillFailed) {
+      try {
+        spill(write);
+        slots.add(new Slot<>(element, null));
+        ++spilledCount;
+        return;
+      } catch (IOException e) {
+        // The file may now end in a partial write, so don't append to it anymore.
+        spillFailed = true;
+        logger.log(
+            Level.WARNING, "Failed to spill buffered writes to disk, keeping them in memory", e);
+      }
+    }
+    slots.add(new Slot<>(element, write));
+    bufferedBytes += size;
+  }
+
+  /** Returns the element at the head of the buffer, or null if the buffer is empty. */
+  @Nullable
+  T peek() {
+    Slot<T> slot = slots.peek();
+    return slot != null ? slot.element : null;
+  }
+
+  /**
+   * Removes the head of the buffer and returns its write, reading it back from disk if it was
+   * spilled.
+   *
+   * @throws IOException If the spilled write could not be read. The head is removed regardless.
+   */
+  Write poll() throws IOException {
+    Slot<T> slot = slots.remove();
+    if (slot.write != null) {
+      bufferedBytes -= slot.write.getSerializedSize();
+      return slot.write;
+    }
+
+    --spilledCount;
+    try {
+      return readSpilled();
+    } finally {
+      if (spilledCount == 0) {
+        truncateSpillFile();
+      }
+    }
+  }
+
+  /** Returns the elements in the buffer, from head to tail. */
+  @VisibleForTesting
+  List<T> elements() {
+    List<T> elements = new ArrayList<>(slots.size());
+    for (Slot<T> slot : slots) {
+      elements.add(slot.element);
+    }
+    return elements;
+  }
+
+  int size() {
+    return slots.size();
+  }
+
+  /** Returns the number of bytes of encoded writes that are held in memory. */
+  long getBufferedBytes() {
+    return bufferedBytes;
+  }
+
+  /** Returns the number of writes that are currently stored on disk. */
+  int getSpilledCount() {
+    return spilledCount;
+  }
+
+  @Nullable
+  File getSpillFile() {
+    return spillFile;
+  }
+
+  /** Discards all buffered writes and deletes the spill file. */
+  @Override
+  public void close() {
+    slots.clear();
+    bufferedBytes = 0;
+    spilledCount = 0;
+    deleteSpillFile();
+  }
+
+  private void spill(Write write) throws IOException {
+    if (spillOutput == null) {
+      spillFile = File.createTempFile("firestore-bulk-writer", ".spill");
+      spillOutput = new BufferedOutputStream(new FileOutputStream(spillFile));
+    }
+    write.writeDelimitedTo(spillOutput);
+  }
+
+  private Write readSpilled() throws IOException {
+    if (spillInput == null) {
+      spillInput = new BufferedInputStream(new FileInputStream(spillFile));
+    }
+    // Make all spilled writes visible to the reader.
+    spillOutput.flush();
+    Write write = Write.parseDelimitedFrom(spillInput);
+    if (write == null) {
+      throw new IOException("Unexpected end of spill file " + spillFile);
+    }
+    return write;
+  }
+
+  /** Empties the spill file, so that the next spilled write is written to its start. */
+  private void truncateSpillFile() {
+    closeQuietly(spillInput);
+    closeQuietly(spillOutput);
+    spillInput = null;
+    spillOutput = null;
+    try {
+      // Opening the file for writing truncates it.
+      spillOutput = new BufferedOutputStream(new FileOutputStream(spillFile));
+    } catch (IOException e) {
+      logger.log(Level.FINE, "Failed to truncate spill file", e);
+      deleteSpillFile();
+    }
+  }
+
+  private void deleteSpillFile() {
+    closeQuietly(spillInput);
+    closeQuietly(spillOutput);
+    spillInput = null;
+    spillOutput = null;
+    if (spillFile != null && !spillFile.delete()) {
+      logger.log(Level.FINE, "Failed to delete spill file {0}", spillFile);
+    }
+    spillFile = null;
+  }
+
+  private static void closeQuietly(@Nullable Closeable closeable) {
+    if (closeable != null) {
+      try {
+        closeable.close();
+      } catch (IOException e) {
+        logger.log(Level.FINE, "Failed to close spill file", e);
+      }
+    }
+  }
+}
@@ -33,6 +33,7 @@ import com.google.cloud.firestore.telemetry.TelemetryConstants.MetricType;
 import com.google.cloud.firestore.telemetry.TraceUtil;
 import com.google.cloud.firestore.telemetry.TraceUtil.Scope;
 import com.google.cloud.firestore.v1.FirestoreSettings;
+import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableMap;
 import com.google.firestore.v1.Document;
 import com.google.firestore.v1.RunQueryRequest;
@@ -105,18 +106,39 @@ public abstract class StreamableQuery<SnapshotType> {
    */
   ApiFuture<SnapshotType> get(
       @Nullable ByteString transactionId, @Nullable Timestamp requestReadTime) {
+    return get(
+        transactionId,
+        requestReadTime,
+        /* newTransaction= */ null,
+        /* newTransactionId= */ null);
+  }
+
+  /**
+   * Executes the query and returns the results as QuerySnapshot. If {@code newTransaction} is set,
+   * the request starts a new transaction with these options and the id of the new transaction is
+   * delivered to {@code newTransactionId}.
+   */
+  ApiFuture<SnapshotType> get(
+      @Nullable ByteString transactionId,
+      @Nullable Timestamp requestReadTime,
+      @Nullable com.google.firestore.v1.TransactionOptions newTransaction,
+      @Nullable SettableApiFuture<ByteString> newTransactionId) {
+    Preconditions.checkArgument(
+        (newTransaction == null) == (newTransactionId == null),
+        "newTransaction and newTransactionId must be set together");
+    boolean isTransactional = transactionId != null || newTransaction != null;
     TraceUtil.Span span =
         getFirestore()
             .getOptions()
             .getTraceUtil()
             .startSpan(
-                transactionId == null
+                !isTransactional
                     ? TelemetryConstants.METHOD_NAME_QUERY_GET
                     : TelemetryConstants.METHOD_NAME_TRANSACTION_GET_QUERY);
 
     MetricsContext metricsContext =
         createMetricsContext(
-            transactionId != null
+            isTransactional
                 ? TelemetryConstants.METHOD_NAME_RUN_QUERY_TRANSACTIONAL
                 : TelemetryConstants.METHOD_NAME_RUN_QUERY_GET);
 
@@ -130,6 +152,9 @@ public abstract class StreamableQuery<SnapshotType> {
 
             @Override
             public void onNext(RunQueryResponse runQueryResponse) {
+              if (newTransactionId != null && !runQueryResponse.getTransaction().isEmpty()) {
+                newTransactionId.set(runQueryResponse.getTransaction());
+              }
               if (runQueryResponse.hasDocument()) {
                 Document document = runQueryResponse.getDocument();
                 QueryDocumentSnapshot documentSnapshot =
@@ -144,11 +169,18 @@ public abstract class StreamableQuery<SnapshotType> {
 
             @Override
             public void onError(Throwable throwable) {
+              if (newTransactionId != null) {
+                newTransactionId.setException(throwable);
+              }
               result.setException(throwable);
             }
 
             @Override
             public void onCompleted() {
+              if (newTransactionId != null && !newTransactionId.isDone()) {
+                newTransactionId.setException(
+                    new IllegalStateException("RunQuery did not return a transaction"));
+              }
               // The results for limitToLast queries need to be flipped since we reversed the
               // ordering constraints before sending the query to the backend.
               List<QueryDocumentSnapshot> resultView =
@@ -165,6 +197,7 @@ public abstract class StreamableQuery<SnapshotType> {
           /* startTimeNanos= */ rpcContext.getClock().nanoTime(),
           transactionId,
           /* readTime= */ requestReadTime,
+          newTransaction,
           /* explainOptions= */ null,
           /* isRetryRequestWithCursor= */ false);
 
@@ -274,13 +307,32 @@ public abstract class StreamableQuery<SnapshotType> {
   class MonitoredStreamResponseObserver implements ApiStreamObserver<RunQueryResponse> {
     private final ApiStreamObserver<RunQueryResponse> observer;
     private final MetricsContext metricsContext;
+    @Nullable private final DemandDrivenStream<?> demandDrivenStream;
     private boolean receivedFirstResponse = false;
 
     // Constructor to initialize with the delegate and MetricsContext
     public MonitoredStreamResponseObserver(
         ApiStreamObserver<RunQueryResponse> observer, MetricsContext metricsContext) {
+      this(observer, metricsContext, /* demandDrivenStream= */ null);
+    }
+
+    /**
+     * Creates an observer whose RPCs are flow controlled by the given stream. The stream is started
+     * with the controller of every RPC, including RPCs that resume the query from a cursor.
+     */
+    MonitoredStreamResponseObserver(
+        ApiStreamObserver<RunQueryResponse> observer,
+        MetricsContext metricsContext,
+        @Nullable DemandDrivenStream<?> demandDrivenStream) {
       this.observer = observer;
       this.metricsContext = metricsContext;
+      this.demandDrivenStream = demandDrivenStream;
+    }
+
+    void onStart(StreamController streamController) {
+      if (demandDrivenStream != null) {
+        demandDrivenStream.onStart(streamController);
+      }
     }
 
     @Override
@@ -312,6 +364,28 @@ public abstract class StreamableQuery<SnapshotType> {
       @Nullable final Timestamp readTime,
       @Nullable final ExplainOptions explainOptions,
       final boolean isRetryRequestWithCursor) {
+    internalStream(
+        streamResponseObserver,
+        startTimeNanos,
+        transactionId,
+        readTime,
+        /* newTransaction= */ null,
+        explainOptions,
+        isRetryRequestWithCursor);
+  }
+
+  /**
+   * Streams the query results. If {@code newTransaction} is set, the request starts a new
+   * transaction with these options, and the stream is not retried with a cursor.
+   */
+  void internalStream(
+      final MonitoredStreamResponseObserver streamResponseObserver,
+      final long startTimeNanos,
+      @Nullable final ByteString transactionId,
+      @Nullable final Timestamp readTime,
+      @Nullable final com.google.firestore.v1.TransactionOptions newTransaction,
+      @Nullable final ExplainOptions explainOptions,
+      final boolean isRetryRequestWithCursor) {
     TraceUtil traceUtil = getFirestore().getOptions().getTraceUtil();
 
     // To reduce the size of traces, we only register one event for every 100 responses
@@ -322,7 +396,7 @@ public abstract class StreamableQuery<SnapshotType> {
     currentSpan.addEvent(
         TelemetryConstants.METHOD_NAME_RUN_QUERY,
         new ImmutableMap.Builder<String, Object>()
-            .put(ATTRIBUTE_KEY_IS_TRANSACTIONAL, transactionId != null)
+            .put(ATTRIBUTE_KEY_IS_TRANSACTIONAL, transactionId != null || newTransaction != null)
             .put(ATTRIBUTE_KEY_IS_RETRY_WITH_CURSOR, isRetryRequestWithCursor)
             .build());
 
@@ -339,7 +413,9 @@ public abstract class StreamableQuery<SnapshotType> {
           boolean hasCompleted = false;
 
           @Override
-          public void onStart(StreamController streamController) {}
+          public void onStart(StreamController streamController) {
+            streamResponseObserver.onStart(streamController);
+          }
 
           @Override
           public void onResponse(RunQueryResponse response) {
@@ -421,14 +497,24 @@ public abstract class StreamableQuery<SnapshotType> {
               return false;
             }
 
+            // A retry would start a second transaction.
+            if (newTransaction != null) {
+              return false;
+            }
+
             Set<StatusCode.Code> retryableCodes =
                 FirestoreSettings.newBuilder().runQuerySettings().getRetryableCodes();
             return shouldRetryQuery(t, transactionId, startTimeNanos, retryableCodes);
           }
         };
 
+    RunQueryRequest.Builder request =
+        toRunQueryRequestBuilder(transactionId, readTime, explainOptions);
+    if (newTransaction != null) {
+      request.setNewTransaction(newTransaction);
+    }
     rpcContext.streamRequest(
-        toRunQueryRequestBuilder(transactionId, readTime, explainOptions).build(),
+        request.build(),
         observer,
         rpcContext.getClient().runQueryCallable());
   }
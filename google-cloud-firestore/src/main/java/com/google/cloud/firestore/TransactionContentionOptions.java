@@ -0,0 +1,117 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.firestore;
+
+import com.google.auto.value.AutoValue;
+import java.io.Serializable;
+import java.time.Duration;
+import javax.annotation.Nonnull;
+
+/**
+ * Options used to configure how transactions that abort because of contention are retried.
+ *
+ * <p>If contention tracking is configured in {@link
+ * FirestoreOptions.Builder#setTransactionContentionOptions}, the client remembers which documents
+ * were read or written by transactions that were aborted. A retry of a transaction that touched
+ * such a document waits with a backoff that grows with the number of recent aborts on that
+ * document, and at most {@link #getMaxConcurrentRetries()} retries per document are run at the
+ * same time. Retries that touch the same hot documents are therefore staggered rather than
+ * colliding again.
+ */
+@AutoValue
+public abstract class TransactionContentionOptions implements Serializable {
+  private static final long serialVersionUID = 4830127562918340571L;
+
+  /**
+   * Returns the maximum number of retrying transactions that may touch the same contended document
+   * at the same time. Further retries wait until one of them completes.
+   */
+  public abstract int getMaxConcurrentRetries();
+
+  /** Returns how long an abort is taken into account for the documents it touched. */
+  public abstract Duration getContentionWindow();
+
+  /**
+   * Returns the number of aborts within the contention window after which a document is reported
+   * as a contention hotspot.
+   */
+  public abstract int getHotspotThreshold();
+
+  public static Builder builder() {
+    return new AutoValue_TransactionContentionOptions.Builder()
+        .setMaxConcurrentRetries(1)
+        .setContentionWindow(Duration.ofSeconds(10))
+        .setHotspotThreshold(3);
+  }
+
+  public abstract Builder toBuilder();
+
+  @AutoValue.Builder
+  public abstract static class Builder {
+    /**
+     * Sets the maximum number of retrying transactions that may touch the same contended document
+     * at the same time. By default, retries of transactions touching the same contended document
+     * are run one at a time.
+     *
+     * @param maxConcurrentRetries The number of retries. Must be positive.
+     */
+    public abstract Builder setMaxConcurrentRetries(int maxConcurrentRetries);
+
+    /**
+     * Sets how long an abort is taken into account for the documents it touched. By default,
+     * aborts are remembered for 10 seconds.
+     *
+     * @param contentionWindow The contention window. Must be positive.
+     */
+    public abstract Builder setContentionWindow(@Nonnull Duration contentionWindow);
+
+    /**
+     * Sets the number of aborts within the contention window after which a document is reported
+     * as a contention hotspot. By default, a document is reported after 3 aborts.
+     *
+     * @param hotspotThreshold The number of aborts. Must be positive.
+     */
+    public abstract Builder setHotspotThreshold(int hotspotThreshold);
+
+    abstract TransactionContentionOptions autoBuild();
+
+    @Nonnull
+    public TransactionContentionOptions build() {
+      TransactionContentionOptions options = autoBuild();
+
+      if (options.getMaxConcurrentRetries() < 1) {
+        throw FirestoreException.forInvalidArgument(
+            "Value for argument 'maxConcurrentRetries' must be positive, but was: "
+                + options.getMaxConcurrentRetries());
+      }
+
+      if (options.getContentionWindow().isNegative() || options.getContentionWindow().isZero()) {
+        throw FirestoreException.forInvalidArgument(
+            "Value for argument 'contentionWindow' must be positive, but was: "
+                + options.getContentionWindow());
+      }
+
+      if (options.getHotspotThreshold() < 1) {
+        throw FirestoreException.forInvalidArgument(
+            "Value for argument 'hotspotThreshold' must be positive, but was: "
+                + options.getHotspotThreshold());
+      }
+
+      return options;
+    }
+  }
+}
@@ -0,0 +1,248 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.firestore;
+
+import com.google.api.core.ApiClock;
+import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutures;
+import com.google.api.core.SettableApiFuture;
+import com.google.api.gax.retrying.RetrySettings;
+import com.google.common.util.concurrent.MoreExecutors;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+
+/**
+ * Tracks the contention on documents across all transactions of a Firestore instance.
+ *
+ * <p>Every abort is recorded for the documents that the aborted transaction read or wrote. Retries
+ * of transactions that touched contended documents are delayed with a randomized backoff that
+ * grows with the number of recent aborts on these documents, and are then admitted through a
+ * per-document queue that lets at most {@link TransactionContentionOptions#getMaxConcurrentRetries}
+ * retries touch the same document at a time. Documents are acquired in path order, so retries that
+ * touch overlapping sets of documents cannot block each other indefinitely.
+ */
+final class TransactionContentionTracker {
+
+  private static final Logger LOGGER =
+      Logger.getLogger(TransactionContentionTracker.class.getName());
+
+  /** The contention on a single document. */
+  private static final class Contention {
+    int recentAborts;
+    long lastAbortNanos;
+    boolean isHotspot;
+    int activeRetries;
+    final Deque<SettableApiFuture<Void>> waitingRetries = new ArrayDeque<>();
+  }
+
+  /** The slots that a retrying transaction holds for its contended documents. */
+  final class Admission {
+    private final List<ResourcePath> acquiredPaths = new ArrayList<>();
+    private final AtomicBoolean released = new AtomicBoolean();
+
+    /** Releases all slots held by this admission. Subsequent calls have no effect. */
+    void release() {
+      if (released.compareAndSet(false, true)) {
+        for (ResourcePath path : acquiredPaths) {
+          TransactionContentionTracker.this.release(path);
+        }
+      }
+    }
+
+    /** Returns the number of contended documents that this admission holds a slot for. */
+    int size() {
+      return acquiredPaths.size();
+    }
+  }
+
+  private final TransactionContentionOptions options;
+  private final RetrySettings retrySettings;
+  private final ApiClock clock;
+
+  @GuardedBy("this")
+  private final Map<ResourcePath, Contention> contentions = new HashMap<>();
+
+  TransactionContentionTracker(
+      TransactionContentionOptions options, RetrySettings retrySettings, ApiClock clock) {
+    this.options = options;
+    this.retrySettings = retrySettings;
+    this.clock = clock;
+  }
+
+  TransactionContentionOptions getOptions() {
+    return options;
+  }
+
+  /**
+   * Records that a transaction that touched the given documents was aborted.
+   *
+   * @return The number of documents that became contention hotspots because of this abort.
+   */
+  synchronized int recordAbort(Collection<ResourcePath> paths) {
+    long now = clock.nanoTime();
+    pruneExpired(now);
+    int newHotspots = 0;
+    for (ResourcePath path : paths) {
+      Contention contention = contentions.computeIfAbsent(path, p -> new Contention());
+      ++contention.recentAborts;
+      contention.lastAbortNanos = now;
+      if (!contention.isHotspot && contention.recentAborts >= options.getHotspotThreshold()) {
+        contention.isHotspot = true;
+        ++newHotspots;
+        LOGGER.log(
+            Level.FINE,
+            "Document {0} is a contention hotspot with {1} aborted transactions",
+            new Object[] {path, contention.recentAborts});
+      }
+    }
+    return newHotspots;
+  }
+
+  /**
+   * Returns the delay before a retry of a transaction that touched the given documents. The delay
+   * is chosen at random up to an exponential bound that is derived from the retry settings and the
+   * number of recent aborts on the most contended of these documents.
+   */
+  Duration getRetryDelay(Collection<ResourcePath> paths) {
+    int maxRecentAborts = 0;
+    synchronized (this) {
+      long now = clock.nanoTime();
+      for (ResourcePath path : paths) {
+        Contention contention = contentions.get(path);
+        if (isContended(contention, now)) {
+          maxRecentAborts = Math.max(maxRecentAborts, contention.recentAborts);
+        }
+      }
+    }
+    if (maxRecentAborts == 0) {
+      return Duration.ZERO;
+    }
+
+    double boundMillis = retrySettings.getInitialRetryDelayDuration().toMillis();
+    for (int i = 1; i < maxRecentAborts; ++i) {
+      boundMillis *= retrySettings.getRetryDelayMultiplier();
+    }
+    boundMillis = Math.min(boundMillis, retrySettings.getMaxRetryDelayDuration().toMillis());
+    return Duration.ofMillis(ThreadLocalRandom.current().nextLong((long) boundMillis + 1));
+  }
+
+  /**
+   * Admits a retry of a transaction that touched the given documents. The returned future resolves
+   * once the retry holds a slot for each of these documents that is contended. The caller must
+   * release the admission when the retry completes.
+   */
+  ApiFuture<Admission> admit(Collection<ResourcePath> paths) {
+    List<ResourcePath> contendedPaths = new ArrayList<>();
+    synchronized (this) {
+      long now = clock.nanoTime();
+      for (ResourcePath path : paths) {
+        if (isContended(contentions.get(path), now)) {
+          contendedPaths.add(path);
+        }
+      }
+    }
+    Collections.sort(contendedPaths);
+    return acquire(new Admission(), contendedPaths.iterator());
+  }
+
+  /** Returns the number of documents that are currently tracked. */
+  synchronized int size() {
+    return contentions.size();
+  }
+
+  private ApiFuture<Admission> acquire(Admission admission, Iterator<ResourcePath> remainingPaths) {
+    if (!remainingPaths.hasNext()) {
+      return ApiFutures.immediateFuture(admission);
+    }
+    ResourcePath path = remainingPaths.next();
+    return ApiFutures.transformAsync(
+        acquire(path),
+        ignored -> {
+          admission.acquiredPaths.add(path);
+          return acquire(admission, remainingPaths);
+        },
+        MoreExecutors.directExecutor());
+  }
+
+  private synchronized ApiFuture<Void> acquire(ResourcePath path) {
+    Contention contention = contentions.computeIfAbsent(path, p -> new Contention());
+    if (contention.activeRetries < options.getMaxConcurrentRetries()) {
+      ++contention.activeRetries;
+      return ApiFutures.immediateFuture(null);
+    }
+    SettableApiFuture<Void> waitingRetry = SettableApiFuture.create();
+    contention.waitingRetries.add(waitingRetry);
+    return waitingRetry;
+  }
+
+  private void release(ResourcePath path) {
+    SettableApiFuture<Void> nextRetry;
+    synchronized (this) {
+      Contention contention = contentions.get(path);
+      nextRetry = contention.waitingRetries.poll();
+      if (nextRetry == null) {
+        --contention.activeRetries;
+      }
+    }
+    // The slot is handed over to the next waiting retry. The future is completed outside of the
+    // lock since it runs the retry's continuation.
+    if (nextRetry != null) {
+      nextRetry.set(null);
+    }
+  }
+
+  @GuardedBy("this")
+  private boolean isContended(@Nullable Contention contention, long now) {
+    return contention != null && contention.recentAborts > 0 && !isExpired(contention, now);
+  }
+
+  @GuardedBy("this")
+  private boolean isExpired(Contention contention, long now) {
+    return now - contention.lastAbortNanos >= options.getContentionWindow().toNanos();
+  }
+
+  /** Forgets the documents whose aborts have expired and that no retry is holding. */
+  @GuardedBy("this")
+  private void pruneExpired(long now) {
+    Iterator<Contention> iterator = contentions.values().iterator();
+    while (iterator.hasNext()) {
+      Contention contention = iterator.next();
+      if (isExpired(contention, now)) {
+        if (contention.activeRetries == 0 && contention.waitingRetries.isEmpty()) {
+          iterator.remove();
+        } else {
+          contention.recentAborts = 0;
+          contention.isHotspot = false;
+        }
+      }
+    }
+  }
+}
@@ -50,16 +50,25 @@ public final class TransactionOptions {
   private final TransactionOptionsType type;
   private final int numberOfAttempts;
   @Nullable private final Timestamp readTime;
+  private final boolean lazyBeginEnabled;
+  private final boolean virtualThreadsEnabled;
+  private final boolean readBatchingEnabled;
 
   TransactionOptions(
       Executor executor,
       TransactionOptionsType type,
       int numberOfAttempts,
-      @Nullable Timestamp readTime) {
+      @Nullable Timestamp readTime,
+      boolean lazyBeginEnabled,
+      boolean virtualThreadsEnabled,
+      boolean readBatchingEnabled) {
     this.executor = executor;
     this.type = type;
     this.numberOfAttempts = numberOfAttempts;
     this.readTime = readTime;
+    this.lazyBeginEnabled = lazyBeginEnabled;
+    this.virtualThreadsEnabled = virtualThreadsEnabled;
+    this.readBatchingEnabled = readBatchingEnabled;
   }
 
   /**
@@ -110,6 +119,43 @@ public final class TransactionOptions {
     }
   }
 
+  /**
+   * Whether the transaction is started lazily. If enabled, no BeginTransaction RPC is issued when
+   * the transaction starts. Instead, the first document read of each attempt starts the
+   * transaction, and attempts that only write are committed atomically without a transaction.
+   *
+   * @return Whether the transaction is started lazily.
+   */
+  public boolean isLazyBeginEnabled() {
+    return lazyBeginEnabled;
+  }
+
+  /**
+   * Whether synchronous transaction functions run on virtual threads. If enabled, no executor is
+   * set and the runtime supports virtual threads (Java 21 and later), each attempt of a {@link
+   * Transaction.Function} runs on its own virtual thread, so that blocking reads do not occupy a
+   * thread of the Firestore client executor. On older runtimes, this option has no effect.
+   *
+   * @return Whether synchronous transaction functions run on virtual threads.
+   */
+  public boolean isVirtualThreadsEnabled() {
+    return virtualThreadsEnabled;
+  }
+
+  /**
+   * Whether document reads of asynchronous transaction functions are batched. If enabled, the
+   * document reads that a {@link Transaction.AsyncFunction} issues while it runs are collected and
+   * fetched with a single BatchGetDocuments request. The batch is sent as soon as the Firestore
+   * client executor runs its next task, and at the latest when the function returns. Functions that
+   * block on their reads therefore need a free thread on the client executor, which is why read
+   * batching is disabled by default. Synchronous transaction functions always read right away.
+   *
+   * @return Whether document reads of asynchronous transaction functions are batched.
+   */
+  public boolean isReadBatchingEnabled() {
+    return readBatchingEnabled;
+  }
+
   /**
    * Create a default set of options suitable for most use cases. Transactions will be opened as
    * ReadWrite transactions and attempted up to 5 times.
@@ -190,6 +236,9 @@ public final class TransactionOptions {
   @InternalExtensionOnly
   public abstract static class Builder<B extends Builder<B>> {
     @Nullable protected Executor executor;
+    private boolean lazyBeginEnabled;
+    private boolean virtualThreadsEnabled;
+    private boolean readBatchingEnabled;
 
     protected Builder(@Nullable Executor executor) {
       this.executor = executor;
@@ -216,6 +265,65 @@ public final class TransactionOptions {
       return (B) this;
     }
 
+    /**
+     * @return Whether the transaction will be started lazily by its first read.
+     */
+    public boolean isLazyBeginEnabled() {
+      return lazyBeginEnabled;
+    }
+
+    /**
+     * @param lazyBeginEnabled If true, the transaction is started by its first document read rather
+     *     than by a separate BeginTransaction RPC. Defaults to false.
+     * @return {@code this} builder
+     */
+    @Nonnull
+    @SuppressWarnings("unchecked")
+    public B setLazyBeginEnabled(boolean lazyBeginEnabled) {
+      this.lazyBeginEnabled = lazyBeginEnabled;
+      return (B) this;
+    }
+
+    /**
+     * @return Whether synchronous transaction functions will run on virtual threads.
+     */
+    public boolean isVirtualThreadsEnabled() {
+      return virtualThreadsEnabled;
+    }
+
+    /**
+     * @param virtualThreadsEnabled If true and no executor is set, synchronous transaction
+     *     functions run on virtual threads when the runtime supports them (Java 21 and later).
+     *     Defaults to false.
+     * @return {@code this} builder
+     */
+    @Nonnull
+    @SuppressWarnings("unchecked")
+    public B setVirtualThreadsEnabled(boolean virtualThreadsEnabled) {
+      this.virtualThreadsEnabled = virtualThreadsEnabled;
+      return (B) this;
+    }
+
+    /**
+     * @return Whether document reads of asynchronous transaction functions will be batched.
+     */
+    public boolean isReadBatchingEnabled() {
+      return readBatchingEnabled;
+    }
+
+    /**
+     * @param readBatchingEnabled If true, the document reads that an asynchronous transaction
+     *     function issues while it runs are fetched with a single BatchGetDocuments request.
+     *     Defaults to false.
+     * @return {@code this} builder
+     */
+    @Nonnull
+    @SuppressWarnings("unchecked")
+    public B setReadBatchingEnabled(boolean readBatchingEnabled) {
+      this.readBatchingEnabled = readBatchingEnabled;
+      return (B) this;
+    }
+
     /**
      * @return an instance of {@link TransactionOptions} from the values passed to this builder
      */
@@ -267,7 +375,14 @@ public final class TransactionOptions {
       } else {
         timestamp = (Timestamp) readTime;
       }
-      return new TransactionOptions(executor, TransactionOptionsType.READ_ONLY, 1, timestamp);
+      return new TransactionOptions(
+          executor,
+          TransactionOptionsType.READ_ONLY,
+          1,
+          timestamp,
+          isLazyBeginEnabled(),
+          isVirtualThreadsEnabled(),
+          isReadBatchingEnabled());
     }
   }
 
@@ -314,7 +429,13 @@ public final class TransactionOptions {
     @Override
     public TransactionOptions build() {
       return new TransactionOptions(
-          executor, TransactionOptionsType.READ_WRITE, numberOfAttempts, null);
+          executor,
+          TransactionOptionsType.READ_WRITE,
+          numberOfAttempts,
+          /* readTime= */ null,
+          isLazyBeginEnabled(),
+          isVirtualThreadsEnabled(),
+          isReadBatchingEnabled());
     }
   }
 
@@ -22,6 +22,7 @@ import static com.google.common.base.Predicates.not;
 import static java.util.stream.Collectors.toCollection;
 
 import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutureCallback;
 import com.google.api.core.ApiFutures;
 import com.google.api.core.InternalExtensionOnly;
 import com.google.cloud.firestore.UserDataConverter.EncodingOptions;
@@ -178,6 +179,12 @@ public abstract class UpdateBuilder<T> {
    */
   @Nonnull
   public T create(@Nonnull DocumentReference documentReference, @Nonnull Object pojo) {
+    Write.Builder write = PojoEncoder.encodeWrite(documentReference, pojo);
+    if (write != null) {
+      write.setCurrentDocument(Precondition.exists(false).toPb());
+      return addWrite(documentReference, write);
+    }
+
     Object data = CustomClassMapper.convertToPlainJavaTypes(pojo);
     if (!(data instanceof Map)) {
       throw FirestoreException.forInvalidArgument(
@@ -245,6 +252,13 @@ public abstract class UpdateBuilder<T> {
       @Nonnull DocumentReference documentReference,
       @Nonnull Object pojo,
       @Nonnull SetOptions options) {
+    if (!options.isMerge()) {
+      Write.Builder write = PojoEncoder.encodeWrite(documentReference, pojo);
+      if (write != null) {
+        return addWrite(documentReference, write);
+      }
+    }
+
     Object data = CustomClassMapper.convertToPlainJavaTypes(pojo);
     if (!(data instanceof Map)) {
       throw new IllegalArgumentException("Can't set a document's data to an array or primitive");
@@ -293,7 +307,12 @@ public abstract class UpdateBuilder<T> {
   }
 
   private T addWrite(DocumentReference documentReference, Write.Builder write) {
-    WriteOperation operation = new WriteOperation(documentReference, write.build());
+    return addEncodedWrite(documentReference, write.build());
+  }
+
+  /** Adds a write that has already been encoded, for example by a different UpdateBuilder. */
+  T addEncodedWrite(DocumentReference documentReference, Write write) {
+    WriteOperation operation = new WriteOperation(documentReference, write);
     int writeIndex;
     synchronized (writes) {
       Preconditions.checkState(
@@ -642,6 +661,7 @@ public abstract class UpdateBuilder<T> {
 
       ApiFuture<CommitResponse> response =
           firestore.sendRequest(request, firestore.getClient().commitCallable());
+      invalidateCachedDocuments(response);
 
       ApiFuture<List<WriteResult>> returnValue =
           ApiFutures.transform(
@@ -671,6 +691,44 @@ public abstract class UpdateBuilder<T> {
     return builder.build();
   }
 
+  /**
+   * Evicts the written documents from the client-side document cache once the commit completes.
+   * After a successful commit, cached versions that were read at or after the commit time are
+   * kept. If the outcome of the commit is unknown, the documents are evicted unconditionally.
+   */
+  private void invalidateCachedDocuments(ApiFuture<CommitResponse> response) {
+    DocumentCache documentCache = firestore.getDocumentCache();
+    if (documentCache == null) {
+      return;
+    }
+    List<ResourcePath> paths = new ArrayList<>();
+    synchronized (writes) {
+      for (WriteOperation writeOperation : writes) {
+        paths.add(writeOperation.documentReference.getResourcePath());
+      }
+    }
+    ApiFutures.addCallback(
+        response,
+        new ApiFutureCallback<CommitResponse>() {
+          @Override
+          public void onFailure(Throwable throwable) {
+            for (ResourcePath path : paths) {
+              documentCache.invalidate(path, /* updateTime= */ null);
+            }
+          }
+
+          @Override
+          public void onSuccess(CommitResponse commitResponse) {
+            com.google.cloud.Timestamp commitTime =
+                com.google.cloud.Timestamp.fromProto(commitResponse.getCommitTime());
+            for (ResourcePath path : paths) {
+              documentCache.invalidate(path, commitTime);
+            }
+          }
+        },
+        MoreExecutors.directExecutor());
+  }
+
   /** Checks whether any updates have been queued. */
   boolean isEmpty() {
     synchronized (writes) {
@@ -686,6 +744,13 @@ public abstract class UpdateBuilder<T> {
     }
   }
 
+  /** Returns a copy of the queued write operations. */
+  List<WriteOperation> getWriteOperations() {
+    synchronized (writes) {
+      return new ArrayList<>(writes);
+    }
+  }
+
   /** Get the number of writes. */
   public int getMutationsSize() {
     synchronized (writes) {
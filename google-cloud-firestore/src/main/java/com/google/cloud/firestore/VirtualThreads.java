@@ -0,0 +1,77 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.firestore;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.annotation.Nullable;
+
+/**
+ * Provides an executor that runs each task on its own virtual thread if the runtime supports
+ * virtual threads (Java 21 and later). Virtual threads are looked up reflectively so that the
+ * client can still be compiled for and run on older Java versions.
+ */
+final class VirtualThreads {
+
+  private static final Logger LOGGER = Logger.getLogger(VirtualThreads.class.getName());
+
+  private static final String THREAD_NAME_PREFIX = "firestore-transaction-";
+
+  @Nullable private static final Executor EXECUTOR = createExecutor();
+
+  private VirtualThreads() {}
+
+  /** Returns whether the runtime supports virtual threads. */
+  static boolean isSupported() {
+    return EXECUTOR != null;
+  }
+
+  /**
+   * Returns an executor that starts a new virtual thread for each task, or null if the runtime does
+   * not support virtual threads.
+   */
+  @Nullable
+  static Executor getExecutor() {
+    return EXECUTOR;
+  }
+
+  @Nullable
+  private static Executor createExecutor() {
+    try {
+      // Equivalent to Executors.newThreadPerTaskExecutor(
+      //     Thread.ofVirtual().name(THREAD_NAME_PREFIX, 0).factory())
+      Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+      builder =
+          Class.forName("java.lang.Thread$Builder$OfVirtual")
+              .getMethod("name", String.class, long.class)
+              .invoke(builder, THREAD_NAME_PREFIX, 0L);
+      ThreadFactory threadFactory =
+          (ThreadFactory)
+              Class.forName("java.lang.Thread$Builder").getMethod("factory").invoke(builder);
+      return (Executor)
+          Executors.class
+              .getMethod("newThreadPerTaskExecutor", ThreadFactory.class)
+              .invoke(null, threadFactory);
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      LOGGER.log(Level.FINE, "Virtual threads are not supported by this runtime", e);
+      return null;
+    }
+  }
+}
@@ -25,7 +25,6 @@ import com.google.api.gax.rpc.BidiStreamObserver;
 import com.google.api.gax.rpc.ClientStream;
 import com.google.api.gax.rpc.StreamController;
 import com.google.cloud.Timestamp;
-import com.google.cloud.firestore.DocumentChange.Type;
 import com.google.common.base.Preconditions;
 import com.google.firestore.v1.Document;
 import com.google.firestore.v1.ListenRequest;
@@ -63,8 +62,9 @@ final class Watch implements BidiStreamObserver<ListenRequest, ListenResponse> {
   private static final Logger LOGGER = Logger.getLogger(Watch.class.getName());
 
   /**
-   * Target ID used by watch. Watch uses a fixed target id since we only support one target per
-   * stream. The actual target ID we use is arbitrary.
+   * Target ID used by watch on a dedicated stream. Watch uses a fixed target id since there is only
+   * one target per dedicated stream. The actual target ID we use is arbitrary. Targets on a stream
+   * shared through the {@link ListenStreamMultiplexer} are assigned their IDs by the multiplexer.
    */
   private static final int WATCH_TARGET_ID = 0x1;
 
@@ -77,8 +77,17 @@ final class Watch implements BidiStreamObserver<ListenRequest, ListenResponse> {
   private TimedAttemptSettings nextAttempt;
   private SilenceableBidiStream<ListenRequest, ListenResponse> stream;
 
-  /** The sorted tree of DocumentSnapshots as sent in the last snapshot. */
-  private DocumentSet documentSet;
+  /** The multiplexer that shares Listen streams, or null if this Watch uses a dedicated stream. */
+  @Nullable private final ListenStreamMultiplexer multiplexer;
+
+  /** The registration of this Watch's target on a shared stream. */
+  @Nullable private ListenStreamMultiplexer.TargetRegistration registration;
+
+  /** The target ID that is currently used for this Watch's target. */
+  private int targetId = WATCH_TARGET_ID;
+
+  /** The sorted view of DocumentSnapshots as sent in the last snapshot. */
+  private DocumentView documentSet;
 
   /** The accumulates map of document changes (keyed by document name) for the current snapshot. */
   private Map<ResourcePath, Document> changeMap;
@@ -89,6 +98,9 @@ final class Watch implements BidiStreamObserver<ListenRequest, ListenResponse> {
   /** The user-provided listener. */
   private EventListener<QuerySnapshot> listener;
 
+  /** Merges snapshots before they are delivered, if enabled in the listen options. */
+  @Nullable private SnapshotCoalescer coalescer;
+
   /** The user-provided callback executor. */
   private Executor userCallbackExecutor;
 
@@ -131,6 +143,7 @@ final class Watch implements BidiStreamObserver<ListenRequest, ListenResponse> {
         new ExponentialRetryAlgorithm(
             firestore.getOptions().getRetrySettings(), CurrentMillisClock.getDefaultClock());
     this.firestoreExecutor = firestore.getClient().getExecutor();
+    this.multiplexer = firestore.getListenStreamMultiplexer();
     this.isActive = new AtomicBoolean();
     this.nextAttempt = backoff.createFirstAttempt();
   }
@@ -192,8 +205,10 @@ final class Watch implements BidiStreamObserver<ListenRequest, ListenResponse> {
             }
             break;
           case ADD:
-            if (WATCH_TARGET_ID != change.getTargetIds(0)) {
-              closeStream(FirestoreException.forInvalidArgument("Target ID must be 0x01"));
+            if (!change.getTargetIdsList().contains(targetId)) {
+              closeStream(
+                  FirestoreException.forInvalidArgument(
+                      String.format("Target ID must be 0x%02x", targetId)));
             }
             break;
           case REMOVE:
@@ -218,7 +233,7 @@ final class Watch implements BidiStreamObserver<ListenRequest, ListenResponse> {
         }
 
         if (change.getResumeToken() != null
-            && affectsTarget(change.getTargetIdsList(), WATCH_TARGET_ID)) {
+            && affectsTarget(change.getTargetIdsList(), targetId)) {
           nextAttempt = backoff.createFirstAttempt();
         }
 
@@ -229,8 +244,8 @@ final class Watch implements BidiStreamObserver<ListenRequest, ListenResponse> {
         List<Integer> targetIds = listenResponse.getDocumentChange().getTargetIdsList();
         List<Integer> removedTargetIds =
             listenResponse.getDocumentChange().getRemovedTargetIdsList();
-        boolean changed = targetIds.contains(WATCH_TARGET_ID);
-        boolean removed = removedTargetIds.contains(WATCH_TARGET_ID);
+        boolean changed = targetIds.contains(targetId);
+        boolean removed = removedTargetIds.contains(targetId);
 
         Document document = listenResponse.getDocumentChange().getDocument();
         ResourcePath name = ResourcePath.create(document.getName());
@@ -281,9 +296,28 @@ final class Watch implements BidiStreamObserver<ListenRequest, ListenResponse> {
     maybeReopenStream(new StatusException(Status.fromCode(Code.UNKNOWN)));
   }
 
+  /**
+   * Handles a response that the ListenStreamMultiplexer routed to this Watch. Responses for a
+   * target that this Watch no longer uses are dropped.
+   */
+  synchronized void onResponse(int routedTargetId, ListenResponse listenResponse) {
+    if (registration != null && routedTargetId == targetId) {
+      onResponse(listenResponse);
+    }
+  }
+
+  /** Handles the failure of the shared stream that hosts the target with the given ID. */
+  synchronized void onStreamError(int routedTargetId, Throwable throwable) {
+    if (registration != null && routedTargetId == targetId) {
+      onError(throwable);
+    }
+  }
+
   /** API entry point that starts the Watch stream. */
   ListenerRegistration runWatch(
-      final Executor userCallbackExecutor, EventListener<QuerySnapshot> listener) {
+      final Executor userCallbackExecutor,
+      SnapshotListenOptions options,
+      EventListener<QuerySnapshot> listener) {
     boolean watchStarted = isActive.compareAndSet(false, true);
 
     Preconditions.checkState(watchStarted, "Can't restart an already active watch");
@@ -292,27 +326,52 @@ final class Watch implements BidiStreamObserver<ListenRequest, ListenResponse> {
     this.listener = listener;
 
     this.stream = null;
-    this.documentSet = DocumentSet.emptySet(comparator);
+    this.documentSet =
+        options.getCompactViewEnabled()
+            ? CompactDocumentSet.emptySet(comparator)
+            : DocumentSet.emptySet(comparator);
     this.changeMap = new HashMap<>();
     this.resumeToken = null;
     this.current = false;
 
+    ListenerRegistration watchRegistration =
+        () -> {
+          isActive.set(false);
+
+          firestore
+              .getClient()
+              .getExecutor()
+              .execute(
+                  () -> {
+                    synchronized (Watch.this) {
+                      if (registration != null) {
+                        registration.remove();
+                        registration = null;
+                      } else if (stream != null) {
+                        stream.closeSend();
+                        stream = null;
+                      }
+                    }
+                  });
+        };
+
+    if (options.isCoalescingEnabled()) {
+      this.coalescer =
+          new SnapshotCoalescer(
+              query,
+              documentSet,
+              firestore.getClock(),
+              firestoreExecutor,
+              userCallbackExecutor,
+              listener,
+              options,
+              watchRegistration);
+      watchRegistration = coalescer;
+    }
+
     initStream();
 
-    return () -> {
-      isActive.set(false);
-
-      firestore
-          .getClient()
-          .getExecutor()
-          .execute(
-              () -> {
-                synchronized (Watch.this) {
-                  stream.closeSend();
-                  stream = null;
-                }
-              });
-    };
+    return watchRegistration;
   }
 
   /**
@@ -339,12 +398,12 @@ final class Watch implements BidiStreamObserver<ListenRequest, ListenResponse> {
 
   /** Closes the stream and calls onError() if the stream is still active. */
   private void closeStream(final Throwable throwable) {
-    if (stream != null) {
-      stream.closeSendAndSilence();
-      stream = null;
-    }
+    detachFromStream();
 
     if (isActive.getAndSet(false)) {
+      if (coalescer != null) {
+        coalescer.close();
+      }
       userCallbackExecutor.execute(
           () -> {
             if (throwable instanceof FirestoreException) {
@@ -381,12 +440,24 @@ final class Watch implements BidiStreamObserver<ListenRequest, ListenResponse> {
 
   /** Helper to restart the outgoing stream to the backend. */
   private void resetStream() {
+    detachFromStream();
+    initStream();
+  }
+
+  /**
+   * Silences the dedicated stream or removes the target from its shared stream. No further
+   * responses are delivered for the current target.
+   */
+  private void detachFromStream() {
     if (stream != null) {
       stream.closeSendAndSilence();
       stream = null;
     }
 
-    initStream();
+    if (registration != null) {
+      registration.remove();
+      registration = null;
+    }
   }
 
   /** Initializes a new stream to the backend with backoff. */
@@ -403,11 +474,21 @@ final class Watch implements BidiStreamObserver<ListenRequest, ListenResponse> {
                 return;
               }
 
-              Preconditions.checkState(stream == null);
+              Preconditions.checkState(stream == null && registration == null);
 
               current = false;
               nextAttempt = backoff.createNextAttempt(nextAttempt);
 
+              if (multiplexer != null) {
+                Target.Builder sharedTarget = target.toBuilder();
+                if (resumeToken != null) {
+                  sharedTarget.setResumeToken(resumeToken);
+                }
+                registration = multiplexer.addTarget(Watch.this, sharedTarget);
+                targetId = registration.getTargetId();
+                return;
+              }
+
               stream =
                   new SilenceableBidiStream<>(
                       Watch.this,
@@ -471,11 +552,16 @@ final class Watch implements BidiStreamObserver<ListenRequest, ListenResponse> {
    */
   private void pushSnapshot(final Timestamp readTime, ByteString nextResumeToken) {
     final List<DocumentChange> changes = computeSnapshot(readTime);
+    updateDocumentCache(readTime, changes);
     if (!hasPushed || !changes.isEmpty()) {
-      final QuerySnapshot querySnapshot =
-          QuerySnapshot.withChanges(query, readTime, documentSet, changes);
-      LOGGER.fine(querySnapshot::toString);
-      userCallbackExecutor.execute(() -> listener.onEvent(querySnapshot, null));
+      if (coalescer != null) {
+        coalescer.onSnapshot(documentSet, readTime, changes);
+      } else {
+        final QuerySnapshot querySnapshot =
+            new QuerySnapshot(query, readTime, documentSet.toList(), changes);
+        LOGGER.fine(querySnapshot::toString);
+        userCallbackExecutor.execute(() -> listener.onEvent(querySnapshot, null));
+      }
       hasPushed = true;
     }
 
@@ -484,42 +570,27 @@ final class Watch implements BidiStreamObserver<ListenRequest, ListenResponse> {
   }
 
   /**
-   * Applies a document delete to the document tree. Returns the corresponding DocumentChange event.
-   */
-  private DocumentChange deleteDoc(QueryDocumentSnapshot oldDocument) {
-    ResourcePath resourcePath = oldDocument.getReference().getResourcePath();
-    int oldIndex = documentSet.indexOf(resourcePath);
-    documentSet = documentSet.remove(resourcePath);
-    return new DocumentChange(oldDocument, Type.REMOVED, oldIndex, -1);
-  }
-
-  /**
-   * Applies a document add to the document tree. Returns the corresponding DocumentChange event.
-   */
-  private DocumentChange addDoc(QueryDocumentSnapshot newDocument) {
-    ResourcePath resourcePath = newDocument.getReference().getResourcePath();
-    documentSet = documentSet.add(newDocument);
-    int newIndex = documentSet.indexOf(resourcePath);
-    return new DocumentChange(newDocument, Type.ADDED, -1, newIndex);
-  }
-
-  /**
-   * Applies a document modification to the document tree. Returns the DocumentChange event for
-   * successful modifications.
+   * Feeds the changes of a snapshot into the client-side document cache, if the cache accepts
+   * listener updates. Added and modified documents replace older cached versions. Documents that
+   * left the result set are evicted, since they may have been deleted. Documents of queries with a
+   * field projection are incomplete and only evict cached versions.
    */
-  @Nullable
-  private DocumentChange modifyDoc(QueryDocumentSnapshot newDocument) {
-    ResourcePath resourcePath = newDocument.getReference().getResourcePath();
-    DocumentSnapshot oldDocument = documentSet.getDocument(resourcePath);
-
-    if (!oldDocument.getUpdateTime().equals(newDocument.getUpdateTime())) {
-      int oldIndex = documentSet.indexOf(resourcePath);
-      documentSet = documentSet.remove(resourcePath);
-      documentSet = documentSet.add(newDocument);
-      int newIndex = documentSet.indexOf(resourcePath);
-      return new DocumentChange(newDocument, Type.MODIFIED, oldIndex, newIndex);
+  private void updateDocumentCache(Timestamp readTime, List<DocumentChange> changes) {
+    DocumentCache documentCache = firestore.getDocumentCache();
+    if (documentCache == null
+        || changes.isEmpty()
+        || !documentCache.getOptions().getListenerUpdatesEnabled()) {
+      return;
+    }
+    boolean isProjection = !query.options.getFieldProjections().isEmpty();
+    for (DocumentChange change : changes) {
+      QueryDocumentSnapshot document = change.getDocument();
+      if (change.getType() == DocumentChange.Type.REMOVED || isProjection) {
+        documentCache.invalidate(document.getReference().getResourcePath(), readTime);
+      } else {
+        documentCache.put(document);
+      }
     }
-    return null;
   }
 
   /**
@@ -529,32 +600,15 @@ final class Watch implements BidiStreamObserver<ListenRequest, ListenResponse> {
    * @param readTime The time at which this snapshot was obtained.
    */
   private List<DocumentChange> computeSnapshot(Timestamp readTime) {
-    List<DocumentChange> appliedChanges = new ArrayList<>();
-
     ChangeSet changeSet = extractChanges(readTime);
 
-    // Process the sorted changes in the order that is expected by our clients (removals, additions,
-    // and then modifications). We also need to sort the individual changes to assure that
-    // oldIndex/newIndex keep incrementing.
-    changeSet.deletes.sort(comparator);
-    for (QueryDocumentSnapshot delete : changeSet.deletes) {
-      appliedChanges.add(deleteDoc(delete));
-    }
-
-    changeSet.adds.sort(comparator);
-    for (QueryDocumentSnapshot add : changeSet.adds) {
-      appliedChanges.add(addDoc(add));
-    }
-
-    changeSet.updates.sort(comparator);
-    for (QueryDocumentSnapshot update : changeSet.updates) {
-      DocumentChange change = modifyDoc(update);
-      if (change != null) {
-        appliedChanges.add(change);
-      }
-    }
-
-    return appliedChanges;
+    // DocumentSet processes the changes in the order that is expected by our clients (removals,
+    // additions, and then modifications), sorted to assure that oldIndex/newIndex keep
+    // incrementing.
+    DocumentView.ChangeResult<? extends DocumentView> result =
+        documentSet.applyChanges(changeSet.deletes, changeSet.adds, changeSet.updates);
+    documentSet = result.documentSet;
+    return result.changes;
   }
 
   /** Determines whether a GRPC Error is considered permanent and should not be retried. */
@@ -17,6 +17,9 @@
 package com.google.cloud.firestore;
 
 import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutures;
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.MoreExecutors;
 import java.util.List;
 import javax.annotation.Nonnull;
 
@@ -41,6 +44,34 @@ public class WriteBatch extends UpdateBuilder<WriteBatch> {
     return super.commit(null);
   }
 
+  /**
+   * Commits a batch that holds the single write of a {@link DocumentReference} method. If write
+   * combining is enabled, the write shares a BatchWrite request with other single writes, except
+   * for deletes, which are always committed on their own.
+   *
+   * @return ApiFuture with the WriteResult of the write
+   */
+  ApiFuture<WriteResult> commitSingleWrite() {
+    WriteCombiner writeCombiner = firestore.getWriteCombiner();
+    if (writeCombiner != null) {
+      List<WriteOperation> writeOperations = getWriteOperations();
+      Preconditions.checkState(
+          writeOperations.size() == 1, "Only batches with a single write can be combined");
+      WriteOperation operation = writeOperations.get(0);
+      if (!operation.write.hasDelete()) {
+        committed = true;
+        return writeCombiner.enqueue(operation);
+      }
+      // BatchWrite does not report a time for deletes, so deletes are committed on their own to
+      // obtain the commit time. Pending writes to the same document are sent first.
+      writeCombiner.flush(operation.documentReference.getResourcePath());
+    }
+    return ApiFutures.transform(
+        commit(),
+        results -> results.isEmpty() ? null : results.get(0),
+        MoreExecutors.directExecutor());
+  }
+
   WriteBatch wrapResult(int writeIndex) {
     return this;
   }
@@ -0,0 +1,333 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.firestore;
+
+import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutureCallback;
+import com.google.api.core.ApiFutures;
+import com.google.api.core.SettableApiFuture;
+import com.google.api.gax.retrying.RetrySettings;
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.UpdateBuilder.WriteOperation;
+import com.google.cloud.firestore.telemetry.MetricsUtil.MetricsContext;
+import com.google.cloud.firestore.telemetry.TelemetryConstants;
+import com.google.cloud.firestore.telemetry.TelemetryConstants.MetricType;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.firestore.v1.BatchWriteRequest;
+import com.google.firestore.v1.BatchWriteResponse;
+import io.grpc.Status;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+
+/**
+ * Combines the single-document writes of {@link DocumentReference} into shared BatchWrite
+ * requests.
+ *
+ * <p>Writes are collected in a pending batch that is sent once the batching window has passed or
+ * the batch is full. Since BatchWrite does not accept two writes to the same document, a write to
+ * a document that is already part of the pending batch sends the pending batch first. Writes that
+ * fail with a retryable status are added to a later batch after a backoff delay.
+ *
+ * <p>When the Firestore instance is closed, the pending batch and all writes that wait for a retry
+ * are sent right away, and writes that are enqueued later fail.
+ */
+final class WriteCombiner {
+  /** Statuses of individual writes that are retried, as BatchWrite itself retries them. */
+  private static final Set<Status.Code> RETRYABLE_CODES =
+      EnumSet.of(Status.Code.ABORTED, Status.Code.UNAVAILABLE, Status.Code.RESOURCE_EXHAUSTED);
+
+  /** A write and the future for its result. */
+  private static final class CombinedWrite {
+    private final WriteOperation operation;
+    private final SettableApiFuture<WriteResult> future = SettableApiFuture.create();
+    private int failedAttempts;
+
+    CombinedWrite(WriteOperation operation) {
+      this.operation = operation;
+    }
+
+    ResourcePath getPath() {
+      return operation.documentReference.getResourcePath();
+    }
+  }
+
+  /** Writes that have been collected but not sent yet. */
+  private static final class PendingBatch {
+    private final List<CombinedWrite> writes = new ArrayList<>();
+    private final Set<ResourcePath> paths = new HashSet<>();
+  }
+
+  private final FirestoreImpl firestore;
+  private final WriteCombiningOptions options;
+
+  // All reads and writes on `pendingBatch`, `retryingWrites` and `closed` must be done while
+  // holding the lock on `this`. Batches are sent without holding the lock.
+  @Nullable private PendingBatch pendingBatch;
+
+  /** Writes that wait for their retry backoff to pass. */
+  private final Set<CombinedWrite> retryingWrites = new HashSet<>();
+
+  private boolean closed;
+
+  WriteCombiner(FirestoreImpl firestore, WriteCombiningOptions options) {
+    this.firestore = firestore;
+    this.options = options;
+  }
+
+  /** Adds the write to the pending batch and returns a future for its result. */
+  ApiFuture<WriteResult> enqueue(WriteOperation operation) {
+    CombinedWrite write = new CombinedWrite(operation);
+    synchronized (this) {
+      if (closed) {
+        write.future.setException(
+            new IllegalStateException("Firestore client has already been closed"));
+        return write.future;
+      }
+    }
+    add(write);
+    return write.future;
+  }
+
+  /**
+   * Sends the pending batch and the writes that wait for a retry without further delay. Writes that
+   * are enqueued afterwards fail, and failed writes are no longer retried. Must be called before
+   * the client is closed.
+   */
+  void close() {
+    List<CombinedWrite> writes = new ArrayList<>();
+    synchronized (this) {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      if (pendingBatch != null) {
+        writes.addAll(pendingBatch.writes);
+        pendingBatch = null;
+      }
+      writes.addAll(retryingWrites);
+      retryingWrites.clear();
+    }
+
+    List<PendingBatch> batches = new ArrayList<>();
+    PendingBatch batch = null;
+    for (CombinedWrite write : writes) {
+      if (batch == null
+          || batch.paths.contains(write.getPath())
+          || batch.writes.size() >= options.getMaxBatchSize()) {
+        batch = new PendingBatch();
+        batches.add(batch);
+      }
+      batch.writes.add(write);
+      batch.paths.add(write.getPath());
+    }
+    for (PendingBatch readyBatch : batches) {
+      send(readyBatch);
+    }
+  }
+
+  /** Sends the pending batch right away if it contains a write to the given document. */
+  void flush(ResourcePath path) {
+    PendingBatch readyBatch;
+    synchronized (this) {
+      if (pendingBatch == null || !pendingBatch.paths.contains(path)) {
+        return;
+      }
+      readyBatch = pendingBatch;
+      pendingBatch = null;
+    }
+    send(readyBatch);
+  }
+
+  private void add(CombinedWrite write) {
+    ResourcePath path = write.getPath();
+    List<PendingBatch> readyBatches = new ArrayList<>();
+    PendingBatch scheduledBatch = null;
+
+    synchronized (this) {
+      if (pendingBatch != null && pendingBatch.paths.contains(path)) {
+        readyBatches.add(pendingBatch);
+        pendingBatch = null;
+      }
+      if (pendingBatch == null) {
+        pendingBatch = new PendingBatch();
+        scheduledBatch = pendingBatch;
+      }
+      pendingBatch.writes.add(write);
+      pendingBatch.paths.add(path);
+      if (pendingBatch.writes.size() >= options.getMaxBatchSize()) {
+        readyBatches.add(pendingBatch);
+        pendingBatch = null;
+      }
+    }
+
+    for (PendingBatch batch : readyBatches) {
+      send(batch);
+    }
+    if (scheduledBatch != null && !readyBatches.contains(scheduledBatch)) {
+      schedule(scheduledBatch);
+    }
+  }
+
+  /** Sends the batch once the batching window has passed, unless it was sent before. */
+  private void schedule(PendingBatch batch) {
+    firestore
+        .getClient()
+        .getExecutor()
+        .schedule(
+            () -> {
+              synchronized (this) {
+                if (pendingBatch != batch) {
+                  return;
+                }
+                pendingBatch = null;
+              }
+              send(batch);
+            },
+            options.getBatchingWindow().toNanos(),
+            TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Adds the write to a later batch after an exponential backoff delay that is derived from the
+   * client's retry settings.
+   *
+   * @return Whether the write will be retried. Writes are not retried once the combiner is closed.
+   */
+  private boolean retry(CombinedWrite write) {
+    synchronized (this) {
+      if (closed) {
+        return false;
+      }
+      retryingWrites.add(write);
+    }
+    RetrySettings retrySettings = firestore.getOptions().getRetrySettings();
+    double boundMillis = retrySettings.getInitialRetryDelayDuration().toMillis();
+    for (int i = 1; i < write.failedAttempts; ++i) {
+      boundMillis *= retrySettings.getRetryDelayMultiplier();
+    }
+    boundMillis = Math.min(boundMillis, retrySettings.getMaxRetryDelayDuration().toMillis());
+    firestore
+        .getClient()
+        .getExecutor()
+        .schedule(
+            () -> {
+              synchronized (this) {
+                // The write was already sent if the combiner was closed in the meantime.
+                if (!retryingWrites.remove(write)) {
+                  return;
+                }
+              }
+              add(write);
+            },
+            ThreadLocalRandom.current().nextLong((long) boundMillis + 1),
+            TimeUnit.MILLISECONDS);
+    return true;
+  }
+
+  private void send(PendingBatch batch) {
+    MetricsContext metricsContext =
+        firestore
+            .getOptions()
+            .getMetricsUtil()
+            .createMetricsContext(TelemetryConstants.METHOD_NAME_WRITE_COMBINER_COMMIT);
+    metricsContext.recordValue(MetricType.WRITE_COMBINER_BATCH_SIZE, batch.writes.size());
+
+    BatchWriteRequest.Builder request = BatchWriteRequest.newBuilder();
+    request.setDatabase(firestore.getDatabaseName());
+    for (CombinedWrite write : batch.writes) {
+      request.addWrites(write.operation.write);
+    }
+
+    ApiFuture<BatchWriteResponse> response;
+    try {
+      response = firestore.sendRequest(request.build(), firestore.getClient().batchWriteCallable());
+    } catch (RuntimeException e) {
+      response = ApiFutures.immediateFailedFuture(e);
+    }
+    metricsContext.recordLatencyAtFuture(MetricType.END_TO_END_LATENCY, response);
+
+    ApiFutures.addCallback(
+        response,
+        new ApiFutureCallback<BatchWriteResponse>() {
+          @Override
+          public void onFailure(Throwable throwable) {
+            for (CombinedWrite write : batch.writes) {
+              invalidateCachedDocument(write, null);
+              write.future.setException(throwable);
+            }
+          }
+
+          @Override
+          public void onSuccess(BatchWriteResponse response) {
+            // BatchWrite does not return a commit time, and writes without a resulting document
+            // carry no update time. The latest update time of the batch is used for these.
+            Timestamp batchTime = getLatestUpdateTime(response);
+            for (int i = 0; i < batch.writes.size(); ++i) {
+              CombinedWrite write = batch.writes.get(i);
+              com.google.rpc.Status status = response.getStatus(i);
+              Status code = Status.fromCodeValue(status.getCode());
+              if (code.isOk()) {
+                Timestamp updateTime =
+                    response.getWriteResults(i).hasUpdateTime()
+                        ? Timestamp.fromProto(response.getWriteResults(i).getUpdateTime())
+                        : batchTime;
+                invalidateCachedDocument(write, updateTime);
+                write.future.set(new WriteResult(updateTime));
+              } else if (!RETRYABLE_CODES.contains(code.getCode())
+                  || ++write.failedAttempts >= BulkWriter.MAX_RETRY_ATTEMPTS
+                  || !retry(write)) {
+                invalidateCachedDocument(write, null);
+                write.future.setException(
+                    FirestoreException.forServerRejection(code, status.getMessage()));
+              }
+            }
+          }
+        },
+        MoreExecutors.directExecutor());
+  }
+
+  @Nullable
+  private static Timestamp getLatestUpdateTime(BatchWriteResponse response) {
+    Timestamp latest = null;
+    for (int i = 0; i < response.getWriteResultsCount(); ++i) {
+      if (response.getWriteResults(i).hasUpdateTime()) {
+        Timestamp updateTime = Timestamp.fromProto(response.getWriteResults(i).getUpdateTime());
+        if (latest == null || updateTime.compareTo(latest) > 0) {
+          latest = updateTime;
+        }
+      }
+    }
+    return latest;
+  }
+
+  /**
+   * Evicts the written document from the client-side document cache. After a successful write, a
+   * tombstone with the given update time is kept, so that older reads are not cached again.
+   */
+  private void invalidateCachedDocument(CombinedWrite write, @Nullable Timestamp updateTime) {
+    DocumentCache documentCache = firestore.getDocumentCache();
+    if (documentCache != null) {
+      documentCache.invalidate(write.getPath(), updateTime);
+    }
+  }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.firestore;
+
+import com.google.auto.value.AutoValue;
+import java.io.Serializable;
+import java.time.Duration;
+import javax.annotation.Nonnull;
+
+/**
+ * Options used to configure the combining of single-document writes.
+ *
+ * <p>If combining is configured in {@link FirestoreOptions.Builder#setWriteCombiningOptions}, the
+ * writes issued by {@link DocumentReference#create}, {@link DocumentReference#set} and {@link
+ * DocumentReference#update} are collected for up to {@link #getBatchingWindow()} and sent together
+ * in a single BatchWrite request. Each write is applied and reported individually, but writes in
+ * the same request are not applied atomically and may be applied in any order. Writes that fail
+ * with {@code ABORTED}, {@code UNAVAILABLE} or {@code RESOURCE_EXHAUSTED} are retried with backoff
+ * in a later request. Since BatchWrite does not report a time for deletes, {@link
+ * DocumentReference#delete} is not combined and is committed on its own.
+ */
+@AutoValue
+public abstract class WriteCombiningOptions implements Serializable {
+  private static final long serialVersionUID = 6183520937125380217L;
+
+  /** The maximum number of writes that BatchWrite accepts in a single request. */
+  static final int MAX_BATCH_SIZE = 500;
+
+  /** Returns how long a write waits for other writes before its BatchWrite request is sent. */
+  public abstract Duration getBatchingWindow();
+
+  /**
+   * Returns the maximum number of writes that are sent in a single BatchWrite request. A batch
+   * that reaches this size is sent immediately.
+   */
+  public abstract int getMaxBatchSize();
+
+  public static Builder builder() {
+    return new AutoValue_WriteCombiningOptions.Builder()
+        .setBatchingWindow(Duration.ofMillis(2))
+        .setMaxBatchSize(100);
+  }
+
+  public abstract Builder toBuilder();
+
+  @AutoValue.Builder
+  public abstract static class Builder {
+    /**
+     * Sets how long a write waits for other writes before its BatchWrite request is sent. By
+     * default, writes wait for up to 2 milliseconds.
+     *
+     * @param batchingWindow The batching window. Must be positive.
+     */
+    public abstract Builder setBatchingWindow(@Nonnull Duration batchingWindow);
+
+    /**
+     * Sets the maximum number of writes that are sent in a single BatchWrite request. By default,
+     * up to 100 writes are sent at once.
+     *
+     * @param maxBatchSize The number of writes. Must be between 1 and 500.
+     */
+    public abstract Builder setMaxBatchSize(int maxBatchSize);
+
+    abstract WriteCombiningOptions autoBuild();
+
+    @Nonnull
+    public WriteCombiningOptions build() {
+      WriteCombiningOptions options = autoBuild();
+
+      if (options.getBatchingWindow().isNegative() || options.getBatchingWindow().isZero()) {
+        throw FirestoreException.forInvalidArgument(
+            "Value for argument 'batchingWindow' must be positive, but was: "
+                + options.getBatchingWindow());
+      }
+
+      if (options.getMaxBatchSize() < 1 || options.getMaxBatchSize() > MAX_BATCH_SIZE) {
+        throw FirestoreException.forInvalidArgument(
+            "Value for argument 'maxBatchSize' must be between 1 and "
+                + MAX_BATCH_SIZE
+                + ", but was: "
+                + options.getMaxBatchSize());
+      }
+
+      return options;
+    }
+  }
+}
@@ -32,8 +32,11 @@ import java.time.Instant;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /** Base bean mapper class, providing common functionality for class and record serialization. */
 abstract class BeanMapper<T> {
@@ -50,6 +53,8 @@ abstract class BeanMapper<T> {
   // populated with document ID values during deserialization, and be skipped during
   // serialization.
   final HashSet<String> documentIdPropertyNames;
+  // The accessors for all serialized properties, created on first use.
+  private volatile List<BeanProperty> serializableProperties;
 
   BeanMapper(Class<T> clazz) {
     this.clazz = clazz;
@@ -71,6 +76,29 @@ abstract class BeanMapper<T> {
     return warnOnUnknownProperties;
   }
 
+  /**
+   * Returns the properties that are written when an object is serialized. This excludes properties
+   * annotated with {@code @DocumentId}.
+   */
+  List<BeanProperty> getSerializableProperties() {
+    List<BeanProperty> properties = serializableProperties;
+    if (properties == null) {
+      // Racing threads may build the list more than once, which is fine since it is "pure".
+      properties = Collections.unmodifiableList(createSerializableProperties());
+      serializableProperties = properties;
+    }
+    return properties;
+  }
+
+  /** Creates the accessors for all properties that are written during serialization. */
+  abstract List<BeanProperty> createSerializableProperties();
+
+  /**
+   * Returns the names of the properties that are populated from document data during
+   * deserialization. This excludes properties annotated with {@code @DocumentId}.
+   */
+  abstract Set<String> getDeserializablePropertyNames();
+
   /**
    * Serialize an object to a map.
    *
@@ -78,7 +106,16 @@ abstract class BeanMapper<T> {
    * @param path the path to a specific field/component in an object, for use in error messages
    * @return the map
    */
-  abstract Map<String, Object> serialize(T object, DeserializeContext.ErrorPath path);
+  Map<String, Object> serialize(T object, DeserializeContext.ErrorPath path) {
+    verifyValidType(object);
+    Map<String, Object> result = new HashMap<>();
+    for (BeanProperty property : getSerializableProperties()) {
+      Object propertyValue = property.getValue(object);
+      Object serializedValue = getSerializedValue(property.getName(), propertyValue, path);
+      result.put(property.getName(), serializedValue);
+    }
+    return result;
+  }
 
   /**
    * Deserialize a map to an object.
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.firestore.encoding;
+
+import com.google.api.core.InternalApi;
+
+/** A property of a POJO or record class that is written when instances are serialized. */
+@InternalApi
+public abstract class BeanProperty {
+  private final String name;
+  private final boolean serverTimestamp;
+
+  BeanProperty(String name, boolean serverTimestamp) {
+    this.name = name;
+    this.serverTimestamp = serverTimestamp;
+  }
+
+  /** Returns the name of the property in the serialized representation. */
+  public String getName() {
+    return name;
+  }
+
+  /** Returns whether the property is annotated with {@code @ServerTimestamp}. */
+  public boolean isServerTimestamp() {
+    return serverTimestamp;
+  }
+
+  /**
+   * Reads the value of this property from the given bean.
+   *
+   * @param bean An instance of the class that declares this property.
+   * @return The unconverted property value.
+   */
+  public abstract Object getValue(Object bean);
+}
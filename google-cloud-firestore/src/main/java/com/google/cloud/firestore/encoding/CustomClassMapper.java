@@ -42,8 +42,11 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+import javax.annotation.Nullable;
 
 /** Helper class to convert to/from custom POJO classes and plain Java types. */
 @InternalApi
@@ -52,6 +55,9 @@ public class CustomClassMapper {
   /** Maximum depth before we give up and assume it's a recursive object graph. */
   private static final int MAX_DEPTH = 500;
 
+  /** Key of the map field that marks maps representing special types, such as vectors. */
+  private static final String RESERVED_MAP_KEY = "__type__";
+
   private static final ConcurrentMap<Class<?>, BeanMapper<?>> mappers = new ConcurrentHashMap<>();
 
   /**
@@ -88,10 +94,69 @@ public class CustomClassMapper {
         object, clazz, new DeserializeContext(DeserializeContext.ErrorPath.EMPTY, docRef));
   }
 
+  /**
+   * Converts the fields of a document to an object of the provided class without decoding the
+   * document first. Values are only decoded if the class declares a property for them, and nested
+   * maps and arrays are read element by element.
+   *
+   * @param fields The fields of the document.
+   * @param clazz The class of the object to convert to
+   * @param docRef The value to set to {@link DocumentId} annotated fields in the custom class.
+   * @param valueDecoder Converts a Value proto to its plain Java representation.
+   * @return The POJO object.
+   */
+  public static <T> T convertToCustomClass(
+      Map<String, Value> fields,
+      Class<T> clazz,
+      DocumentReference docRef,
+      Function<Value, Object> valueDecoder) {
+    DeserializeContext context =
+        new DeserializeContext(DeserializeContext.ErrorPath.EMPTY, docRef, valueDecoder);
+    if (clazz.equals(Object.class)) {
+      // The result is the document itself, so all of it has to be decoded.
+      Map<String, Object> data = new HashMap<>();
+      for (Map.Entry<String, Value> entry : fields.entrySet()) {
+        data.put(entry.getKey(), valueDecoder.apply(entry.getValue()));
+      }
+      return clazz.cast(data);
+    }
+    return deserializeToClass(fields, clazz, context);
+  }
+
   public static <T> Object serialize(T o) {
     return serialize(o, DeserializeContext.ErrorPath.EMPTY);
   }
 
+  /**
+   * Returns the properties that {@link #serialize} writes for instances of a POJO or record class.
+   * The accessors are created once per class and cached.
+   *
+   * @param clazz The class of the bean.
+   * @return The serialized properties, excluding {@link DocumentId} annotated properties.
+   */
+  public static List<BeanProperty> getSerializableProperties(Class<?> clazz) {
+    return loadOrCreateBeanMapperForClass(clazz).getSerializableProperties();
+  }
+
+  /**
+   * Returns the names of the document fields that are read when converting a document to an
+   * instance of the given class, or null if the class is not converted as a POJO or record. The
+   * names respect {@link PropertyName} and exclude properties annotated with {@code @Exclude} or
+   * {@link DocumentId}.
+   *
+   * @param clazz The class that documents are converted to.
+   * @return The names of the fields read from the document, or null if all fields may be read.
+   */
+  @Nullable
+  public static Set<String> getDeserializablePropertyNames(Class<?> clazz) {
+    if (!isBeanClass(clazz)
+        || Map.class.isAssignableFrom(clazz)
+        || Collection.class.isAssignableFrom(clazz)) {
+      return null;
+    }
+    return loadOrCreateBeanMapperForClass(clazz).getDeserializablePropertyNames();
+  }
+
   @SuppressWarnings("unchecked")
   static <T> Object serialize(T o, DeserializeContext.ErrorPath path) {
     if (path.getLength() > MAX_DEPTH) {
@@ -173,9 +238,88 @@ public class CustomClassMapper {
     }
   }
 
+  /** Converts values to a target type that was resolved ahead of time. */
+  interface ValueDecoder {
+    Object decode(Object o, DeserializeContext context);
+  }
+
+  /**
+   * Returns a decoder that converts values to `type`. For the built-in value types, the decoder
+   * calls the matching conversion directly instead of dispatching on the type for every value.
+   */
+  static ValueDecoder decoderForType(Type type) {
+    if (!(type instanceof Class)) {
+      return (o, context) -> deserializeToType(o, type, context);
+    }
+
+    Class<?> clazz = (Class<?>) type;
+    if (clazz == String.class) {
+      return decodingWith(CustomClassMapper::convertString);
+    } else if (clazz == Integer.class || clazz == int.class) {
+      return decodingWith(CustomClassMapper::convertInteger);
+    } else if (clazz == Long.class || clazz == long.class) {
+      return decodingWith(CustomClassMapper::convertLong);
+    } else if (clazz == Double.class || clazz == double.class) {
+      return decodingWith(CustomClassMapper::convertDouble);
+    } else if (clazz == Float.class || clazz == float.class) {
+      return decodingWith((o, path) -> convertDouble(o, path).floatValue());
+    } else if (clazz == Boolean.class || clazz == boolean.class) {
+      return decodingWith(CustomClassMapper::convertBoolean);
+    } else if (clazz == BigDecimal.class) {
+      return decodingWith(CustomClassMapper::convertBigDecimal);
+    } else if (clazz == Date.class) {
+      return decodingWith(CustomClassMapper::convertDate);
+    } else if (clazz == Timestamp.class) {
+      return decodingWith(CustomClassMapper::convertTimestamp);
+    } else if (clazz == Instant.class) {
+      return decodingWith(CustomClassMapper::convertInstant);
+    } else if (clazz == Blob.class) {
+      return decodingWith(CustomClassMapper::convertBlob);
+    } else if (clazz == GeoPoint.class) {
+      return decodingWith(CustomClassMapper::convertGeoPoint);
+    } else if (clazz == VectorValue.class) {
+      return decodingWith(CustomClassMapper::convertVectorValue);
+    } else if (clazz == DocumentReference.class) {
+      return decodingWith(CustomClassMapper::convertDocumentReference);
+    } else if (clazz == Object.class) {
+      return (o, context) -> context.decode(o);
+    } else if (clazz.isEnum()) {
+      return decodingWith((o, path) -> deserializeToEnum(o, clazz, path));
+    } else {
+      return (o, context) -> deserializeToClass(o, clazz, context);
+    }
+  }
+
+  /** Converts a non-null, decoded value. */
+  private interface Conversion {
+    Object convert(Object o, DeserializeContext.ErrorPath errorPath);
+  }
+
+  /** Returns a decoder that decodes Value protos and then applies `conversion`. */
+  private static ValueDecoder decodingWith(Conversion conversion) {
+    return (o, context) -> {
+      Object value = context.decode(o);
+      return value == null ? null : conversion.convert(value, context.errorPath);
+    };
+  }
+
+  /** Returns whether `value` is a map that does not represent a special type such as a vector. */
+  private static boolean isPlainMap(Value value) {
+    return value.getValueTypeCase() == Value.ValueTypeCase.MAP_VALUE
+        && !value.getMapValue().containsFields(RESERVED_MAP_KEY);
+  }
+
+  /** Returns the undecoded fields of a map Value. */
+  @SuppressWarnings("unchecked")
+  private static Map<String, Object> undecodedFields(Value value) {
+    return (Map<String, Object>) (Map<String, ?>) value.getMapValue().getFieldsMap();
+  }
+
   @SuppressWarnings({"unchecked", "TypeParameterUnusedInFormals"})
   static <T> T deserializeToType(Object o, Type type, DeserializeContext context) {
-    if (o == null) {
+    if (o == null
+        || (context.isEncoded(o)
+            && ((Value) o).getValueTypeCase() == Value.ValueTypeCase.NULL_VALUE)) {
       return null;
     } else if (type instanceof ParameterizedType) {
       return deserializeToParameterizedType(o, (ParameterizedType) type, context);
@@ -214,6 +358,18 @@ public class CustomClassMapper {
       Object o, ParameterizedType type, DeserializeContext context) {
     // getRawType should always return a Class<?>
     Class<?> rawType = (Class<?>) type.getRawType();
+    if (context.isEncoded(o)) {
+      // Lists, maps and beans read their elements one by one, so only decode what they read.
+      Value value = (Value) o;
+      if (List.class.isAssignableFrom(rawType)
+          && value.getValueTypeCase() == Value.ValueTypeCase.ARRAY_VALUE) {
+        o = value.getArrayValue().getValuesList();
+      } else if (!Collection.class.isAssignableFrom(rawType) && isPlainMap(value)) {
+        o = undecodedFields(value);
+      } else {
+        o = context.decode(value);
+      }
+    }
     if (List.class.isAssignableFrom(rawType)) {
       Type genericType = type.getActualTypeArguments()[0];
       if (o instanceof List) {
@@ -295,6 +451,12 @@ public class CustomClassMapper {
 
   @SuppressWarnings("unchecked")
   private static <T> T deserializeToClass(Object o, Class<T> clazz, DeserializeContext context) {
+    if (context.isEncoded(o)) {
+      // Beans read the fields of a map one by one, so only decode the properties they declare.
+      Value value = (Value) o;
+      o = isPlainMap(value) && isBeanClass(clazz) ? undecodedFields(value) : context.decode(value);
+    }
+
     if (o == null) {
       return null;
     } else if (clazz.isPrimitive()
@@ -335,6 +497,26 @@ public class CustomClassMapper {
     }
   }
 
+  /** Returns whether deserializeToClass converts maps to instances of `clazz` with a BeanMapper. */
+  private static boolean isBeanClass(Class<?> clazz) {
+    return !(clazz.isPrimitive()
+        || Number.class.isAssignableFrom(clazz)
+        || Boolean.class.isAssignableFrom(clazz)
+        || Character.class.isAssignableFrom(clazz)
+        || String.class.isAssignableFrom(clazz)
+        || Date.class.isAssignableFrom(clazz)
+        || Timestamp.class.isAssignableFrom(clazz)
+        || Instant.class.isAssignableFrom(clazz)
+        || Blob.class.isAssignableFrom(clazz)
+        || GeoPoint.class.isAssignableFrom(clazz)
+        || VectorValue.class.isAssignableFrom(clazz)
+        || DocumentReference.class.isAssignableFrom(clazz)
+        || clazz.isArray()
+        || clazz.getTypeParameters().length > 0
+        || clazz.equals(Object.class)
+        || clazz.isEnum());
+  }
+
   private static <T> T convertBean(Object o, Class<T> clazz, DeserializeContext context) {
     BeanMapper<T> mapper = loadOrCreateBeanMapperForClass(clazz);
     if (o instanceof Map) {
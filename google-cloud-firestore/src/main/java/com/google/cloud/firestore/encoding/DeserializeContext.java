@@ -18,6 +18,9 @@ package com.google.cloud.firestore.encoding;
 
 import com.google.cloud.firestore.DocumentReference;
 import com.google.cloud.firestore.annotation.DocumentId;
+import com.google.firestore.v1.Value;
+import java.util.function.Function;
+import javax.annotation.Nullable;
 
 /** Holds information a deserialization operation needs to complete the job. */
 class DeserializeContext {
@@ -81,12 +84,31 @@ class DeserializeContext {
   /** Value used to set to {@link DocumentId} annotated fields during deserialization, if any. */
   final DocumentReference documentRef;
 
+  /** Converts Firestore Value protos in the input to plain Java types, if the input has any. */
+  @Nullable private final Function<Value, Object> valueDecoder;
+
   DeserializeContext newInstanceWithErrorPath(ErrorPath newPath) {
-    return new DeserializeContext(newPath, documentRef);
+    return new DeserializeContext(newPath, documentRef, valueDecoder);
   }
 
   DeserializeContext(ErrorPath path, DocumentReference docRef) {
+    this(path, docRef, null);
+  }
+
+  DeserializeContext(
+      ErrorPath path, DocumentReference docRef, @Nullable Function<Value, Object> valueDecoder) {
     errorPath = path;
     documentRef = docRef;
+    this.valueDecoder = valueDecoder;
+  }
+
+  /** Returns whether `o` is a Value proto from the input that still has to be decoded. */
+  boolean isEncoded(@Nullable Object o) {
+    return valueDecoder != null && o instanceof Value;
+  }
+
+  /** Decodes `o` to its plain Java representation if it is a Value proto from the input. */
+  Object decode(@Nullable Object o) {
+    return isEncoded(o) ? valueDecoder.apply((Value) o) : o;
   }
 }
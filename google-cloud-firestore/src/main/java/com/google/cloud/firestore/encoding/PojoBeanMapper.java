@@ -26,17 +26,21 @@ import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.lang.reflect.Type;
 import java.lang.reflect.TypeVariable;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 import java.util.logging.Logger;
 
 // Helper class to convert from maps to custom objects (Beans), and vice versa.
 class PojoBeanMapper<T> extends BeanMapper<T> {
   private static final Logger LOGGER = Logger.getLogger(PojoBeanMapper.class.getName());
 
-  private final Constructor<T> constructor;
+  // Creates instances through the no-argument constructor, or null if there is none.
+  private final PropertyAccessors.Instantiator instantiator;
 
   // Case insensitive mapping of properties to their case sensitive versions
   private final Map<String, String> properties;
@@ -48,6 +52,8 @@ class PojoBeanMapper<T> extends BeanMapper<T> {
   private final Map<String, Method> getters;
   private final Map<String, Method> setters;
   private final Map<String, Field> fields;
+  // The setter or field that deserialization writes for each property, bound once per class.
+  private final Map<String, PropertyWriter> writers;
 
   PojoBeanMapper(Class<T> clazz) {
     super(clazz);
@@ -56,6 +62,7 @@ class PojoBeanMapper<T> extends BeanMapper<T> {
     setters = new HashMap<>();
     getters = new HashMap<>();
     fields = new HashMap<>();
+    writers = new HashMap<>();
 
     Constructor<T> constructor;
     try {
@@ -65,7 +72,7 @@ class PojoBeanMapper<T> extends BeanMapper<T> {
       // We will only fail at deserialization time if no constructor is present
       constructor = null;
     }
-    this.constructor = constructor;
+    instantiator = constructor != null ? PropertyAccessors.forConstructor(constructor) : null;
     // Add any public getters to properties (including isXyz())
     for (Method method : clazz.getMethods()) {
       if (shouldIncludeGetter(method)) {
@@ -176,52 +183,69 @@ class PojoBeanMapper<T> extends BeanMapper<T> {
                 + " but no field or public setter was found");
       }
     }
+
+    for (Map.Entry<String, Method> entry : setters.entrySet()) {
+      Method setter = entry.getValue();
+      writers.put(
+          entry.getKey(),
+          new PropertyWriter(
+              setter.getGenericParameterTypes()[0], PropertyAccessors.forSetter(setter)));
+    }
+    for (Map.Entry<String, Field> entry : fields.entrySet()) {
+      if (!writers.containsKey(entry.getKey())) {
+        Field field = entry.getValue();
+        writers.put(
+            entry.getKey(),
+            new PropertyWriter(field.getGenericType(), PropertyAccessors.forSetter(field)));
+      }
+    }
   }
 
   @Override
-  Map<String, Object> serialize(T object, DeserializeContext.ErrorPath path) {
-    verifyValidType(object);
-    Map<String, Object> result = new HashMap<>();
+  List<BeanProperty> createSerializableProperties() {
+    List<BeanProperty> result = new ArrayList<>(properties.size());
     for (String property : properties.values()) {
       // Skip @DocumentId annotated properties;
       if (documentIdPropertyNames.contains(property)) {
         continue;
       }
 
-      Object propertyValue;
+      boolean serverTimestamp = serverTimestamps.contains(property);
+      PropertyAccessors.Getter getter;
       if (getters.containsKey(property)) {
-        Method getter = getters.get(property);
-        try {
-          propertyValue = getter.invoke(object);
-        } catch (IllegalAccessException | InvocationTargetException e) {
-          throw new RuntimeException(e);
-        }
+        getter = PropertyAccessors.forGetter(getters.get(property));
       } else {
         // Must be a field
         Field field = fields.get(property);
         if (field == null) {
           throw new IllegalStateException("Bean property without field or getter: " + property);
         }
-        try {
-          propertyValue = field.get(object);
-        } catch (IllegalAccessException e) {
-          throw new RuntimeException(e);
-        }
+        getter = PropertyAccessors.forGetter(field);
       }
-
-      Object serializedValue = getSerializedValue(property, propertyValue, path);
-
-      result.put(property, serializedValue);
+      result.add(
+          new BeanProperty(property, serverTimestamp) {
+            @Override
+            public Object getValue(Object bean) {
+              return getter.get(bean);
+            }
+          });
     }
     return result;
   }
 
+  @Override
+  Set<String> getDeserializablePropertyNames() {
+    Set<String> result = new HashSet<>(writers.keySet());
+    result.removeAll(documentIdPropertyNames);
+    return result;
+  }
+
   @Override
   T deserialize(
       Map<String, Object> values,
       Map<TypeVariable<Class<T>>, Type> types,
       DeserializeContext context) {
-    if (constructor == null) {
+    if (instantiator == null) {
       throw context.errorPath.deserializeError(
           "Class "
               + getClazz().getName()
@@ -229,43 +253,22 @@ class PojoBeanMapper<T> extends BeanMapper<T> {
               + "sure these constructors are not stripped");
     }
 
-    T instance;
-    try {
-      instance = constructor.newInstance();
-    } catch (InstantiationException | IllegalAccessException | InvocationTargetException e) {
-      throw new RuntimeException(e);
-    }
+    T instance = getClazz().cast(instantiator.newInstance());
     HashSet<String> deserializedProperties = new HashSet<>();
     for (Map.Entry<String, Object> entry : values.entrySet()) {
       String propertyName = entry.getKey();
       DeserializeContext.ErrorPath childPath = context.errorPath.child(propertyName);
-      if (setters.containsKey(propertyName)) {
-        Method setter = setters.get(propertyName);
-        Type[] params = setter.getGenericParameterTypes();
-        if (params.length != 1) {
-          throw childPath.deserializeError("Setter does not have exactly one parameter");
-        }
-        Type resolvedType = resolveType(params[0], types);
-        Object value =
-            CustomClassMapper.deserializeToType(
-                entry.getValue(), resolvedType, context.newInstanceWithErrorPath(childPath));
-        try {
-          setter.invoke(instance, value);
-        } catch (IllegalAccessException | InvocationTargetException e) {
-          throw new RuntimeException(e);
-        }
-        deserializedProperties.add(propertyName);
-      } else if (fields.containsKey(propertyName)) {
-        Field field = fields.get(propertyName);
-        Type resolvedType = resolveType(field.getGenericType(), types);
-        Object value =
-            CustomClassMapper.deserializeToType(
-                entry.getValue(), resolvedType, context.newInstanceWithErrorPath(childPath));
-        try {
-          field.set(instance, value);
-        } catch (IllegalAccessException e) {
-          throw new RuntimeException(e);
+      PropertyWriter writer = writers.get(propertyName);
+      if (writer != null) {
+        DeserializeContext childContext = context.newInstanceWithErrorPath(childPath);
+        Object value;
+        if (writer.decoder != null) {
+          value = writer.decoder.decode(entry.getValue(), childContext);
+        } else {
+          Type resolvedType = resolveType(writer.type, types);
+          value = CustomClassMapper.deserializeToType(entry.getValue(), resolvedType, childContext);
         }
+        writer.setter.set(instance, value);
         deserializedProperties.add(propertyName);
       } else {
         String message =
@@ -491,4 +494,20 @@ class PojoBeanMapper<T> extends BeanMapper<T> {
     }
     return new String(chars);
   }
+
+  /** Writes a property during deserialization. */
+  private static final class PropertyWriter {
+    // The declared type of the property.
+    final Type type;
+    // Converts values to the declared type, or null if the type is a type variable that has to
+    // be resolved for every object.
+    final CustomClassMapper.ValueDecoder decoder;
+    final PropertyAccessors.Setter setter;
+
+    PropertyWriter(Type type, PropertyAccessors.Setter setter) {
+      this.type = type;
+      this.decoder = type instanceof TypeVariable ? null : CustomClassMapper.decoderForType(type);
+      this.setter = setter;
+    }
+  }
 }
@@ -0,0 +1,197 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.firestore.encoding;
+
+import com.google.common.base.Throwables;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+/**
+ * Creates accessors that read and write bean properties through method handles.
+ *
+ * <p>Each handle is bound once per property and adapted to {@code Object} signatures, so calling
+ * it skips the access checks and argument array of {@link Method#invoke}. If a handle cannot be
+ * created, for example for a final field on older JDKs, the accessor falls back to reflection.
+ * Either way, unchecked exceptions and errors thrown by the bean are rethrown unchanged, and
+ * checked exceptions are rethrown wrapped in a {@link RuntimeException}.
+ */
+final class PropertyAccessors {
+
+  private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+  private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+  private static final MethodType SETTER_TYPE =
+      MethodType.methodType(void.class, Object.class, Object.class);
+  private static final MethodType CONSTRUCTOR_TYPE = MethodType.methodType(Object.class);
+
+  /** Reads a property from a bean. */
+  interface Getter {
+    Object get(Object bean);
+  }
+
+  /** Writes a property of a bean. */
+  interface Setter {
+    void set(Object bean, Object value);
+  }
+
+  /** Creates an instance of a bean class. */
+  interface Instantiator {
+    Object newInstance();
+  }
+
+  private PropertyAccessors() {}
+
+  /** Returns a getter that invokes `method`, which must already be accessible. */
+  static Getter forGetter(Method method) {
+    MethodHandle handle;
+    try {
+      handle = LOOKUP.unreflect(method).asType(GETTER_TYPE);
+    } catch (IllegalAccessException | RuntimeException e) {
+      return bean -> {
+        try {
+          return method.invoke(bean);
+        } catch (IllegalAccessException ex) {
+          throw new RuntimeException(ex);
+        } catch (InvocationTargetException ex) {
+          throw propagate(ex.getCause());
+        }
+      };
+    }
+    return bean -> {
+      try {
+        return handle.invokeExact(bean);
+      } catch (Throwable t) {
+        throw propagate(t);
+      }
+    };
+  }
+
+  /** Returns a getter that reads `field`, which must already be accessible. */
+  static Getter forGetter(Field field) {
+    MethodHandle handle;
+    try {
+      handle = LOOKUP.unreflectGetter(field).asType(GETTER_TYPE);
+    } catch (IllegalAccessException | RuntimeException e) {
+      return bean -> {
+        try {
+          return field.get(bean);
+        } catch (IllegalAccessException ex) {
+          throw new RuntimeException(ex);
+        }
+      };
+    }
+    return bean -> {
+      try {
+        return handle.invokeExact(bean);
+      } catch (Throwable t) {
+        throw propagate(t);
+      }
+    };
+  }
+
+  /** Returns a setter that invokes `method`, which must already be accessible. */
+  static Setter forSetter(Method method) {
+    MethodHandle handle;
+    try {
+      handle = LOOKUP.unreflect(method).asType(SETTER_TYPE);
+    } catch (IllegalAccessException | RuntimeException e) {
+      return (bean, value) -> {
+        try {
+          method.invoke(bean, value);
+        } catch (IllegalAccessException ex) {
+          throw new RuntimeException(ex);
+        } catch (InvocationTargetException ex) {
+          throw propagate(ex.getCause());
+        }
+      };
+    }
+    return forHandle(handle, method.getParameterTypes()[0]);
+  }
+
+  /** Returns a setter that writes `field`, which must already be accessible. */
+  static Setter forSetter(Field field) {
+    MethodHandle handle;
+    try {
+      handle = LOOKUP.unreflectSetter(field).asType(SETTER_TYPE);
+    } catch (IllegalAccessException | RuntimeException e) {
+      // Final fields can only be written through reflection.
+      return (bean, value) -> {
+        try {
+          field.set(bean, value);
+        } catch (IllegalAccessException ex) {
+          throw new RuntimeException(ex);
+        }
+      };
+    }
+    return forHandle(handle, field.getType());
+  }
+
+  /** Returns an instantiator that invokes `constructor`, which must already be accessible. */
+  static Instantiator forConstructor(Constructor<?> constructor) {
+    MethodHandle handle;
+    try {
+      handle = LOOKUP.unreflectConstructor(constructor).asType(CONSTRUCTOR_TYPE);
+    } catch (IllegalAccessException | RuntimeException e) {
+      return () -> {
+        try {
+          return constructor.newInstance();
+        } catch (InstantiationException | IllegalAccessException ex) {
+          throw new RuntimeException(ex);
+        } catch (InvocationTargetException ex) {
+          throw propagate(ex.getCause());
+        }
+      };
+    }
+    return () -> {
+      try {
+        return handle.invokeExact();
+      } catch (Throwable t) {
+        throw propagate(t);
+      }
+    };
+  }
+
+  private static Setter forHandle(MethodHandle handle, Class<?> valueType) {
+    boolean primitive = valueType.isPrimitive();
+    return (bean, value) -> {
+      if (primitive && value == null) {
+        // Matches the behavior of reflection, which cannot unbox null either.
+        throw new IllegalArgumentException(
+            "Cannot set primitive property of type " + valueType + " to null");
+      }
+      try {
+        handle.invokeExact(bean, value);
+      } catch (Throwable t) {
+        throw propagate(t);
+      }
+    };
+  }
+
+  /**
+   * Rethrows `t` if it is unchecked, and otherwise returns it wrapped in a {@link RuntimeException}
+   * for the caller to throw.
+   */
+  private static RuntimeException propagate(Throwable t) {
+    Throwables.throwIfUnchecked(t);
+    return new RuntimeException(t);
+  }
+}
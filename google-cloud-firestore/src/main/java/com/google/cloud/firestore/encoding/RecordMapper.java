@@ -23,9 +23,11 @@ import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Type;
 import java.lang.reflect.TypeVariable;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.logging.Logger;
@@ -71,9 +73,8 @@ class RecordMapper<T> extends BeanMapper<T> {
   }
 
   @Override
-  Map<String, Object> serialize(T object, DeserializeContext.ErrorPath path) {
-    verifyValidType(object);
-    Map<String, Object> result = new HashMap<>();
+  List<BeanProperty> createSerializableProperties() {
+    List<BeanProperty> result = new ArrayList<>(accessors.size());
     for (Map.Entry<String, Method> entry : accessors.entrySet()) {
       String property = entry.getKey();
       // Skip @DocumentId annotated properties;
@@ -81,21 +82,25 @@ class RecordMapper<T> extends BeanMapper<T> {
         continue;
       }
 
-      Object propertyValue;
-      Method accessor = entry.getValue();
-      try {
-        propertyValue = accessor.invoke(object);
-      } catch (IllegalAccessException | InvocationTargetException e) {
-        throw new RuntimeException(e);
-      }
-
-      Object serializedValue = getSerializedValue(property, propertyValue, path);
-
-      result.put(property, serializedValue);
+      PropertyAccessors.Getter getter = PropertyAccessors.forGetter(entry.getValue());
+      result.add(
+          new BeanProperty(property, serverTimestamps.contains(property)) {
+            @Override
+            public Object getValue(Object bean) {
+              return getter.get(bean);
+            }
+          });
     }
     return result;
   }
 
+  @Override
+  Set<String> getDeserializablePropertyNames() {
+    Set<String> result = new HashSet<>(accessors.keySet());
+    result.removeAll(documentIdPropertyNames);
+    return result;
+  }
+
   @Override
   T deserialize(
       Map<String, Object> values,
@@ -20,10 +20,19 @@ import static com.google.cloud.firestore.telemetry.TelemetryConstants.FIRESTORE_
 import static com.google.cloud.firestore.telemetry.TelemetryConstants.METRIC_ATTRIBUTE_KEY_CLIENT_UID;
 import static com.google.cloud.firestore.telemetry.TelemetryConstants.METRIC_ATTRIBUTE_KEY_LIBRARY_NAME;
 import static com.google.cloud.firestore.telemetry.TelemetryConstants.METRIC_ATTRIBUTE_KEY_LIBRARY_VERSION;
+import static com.google.cloud.firestore.telemetry.TelemetryConstants.METRIC_NAME_BULK_WRITER_BATCH_SIZE;
+import static com.google.cloud.firestore.telemetry.TelemetryConstants.METRIC_NAME_BULK_WRITER_OPS_PER_SECOND;
+import static com.google.cloud.firestore.telemetry.TelemetryConstants.METRIC_NAME_DOCUMENT_CACHE_HIT_COUNT;
+import static com.google.cloud.firestore.telemetry.TelemetryConstants.METRIC_NAME_DOCUMENT_CACHE_MISS_COUNT;
 import static com.google.cloud.firestore.telemetry.TelemetryConstants.METRIC_NAME_END_TO_END_LATENCY;
 import static com.google.cloud.firestore.telemetry.TelemetryConstants.METRIC_NAME_FIRST_RESPONSE_LATENCY;
+import static com.google.cloud.firestore.telemetry.TelemetryConstants.METRIC_NAME_TRANSACTION_ABORT_COUNT;
+import static com.google.cloud.firestore.telemetry.TelemetryConstants.METRIC_NAME_TRANSACTION_ADMISSION_LATENCY;
 import static com.google.cloud.firestore.telemetry.TelemetryConstants.METRIC_NAME_TRANSACTION_ATTEMPT_COUNT;
+import static com.google.cloud.firestore.telemetry.TelemetryConstants.METRIC_NAME_TRANSACTION_HOTSPOT_COUNT;
 import static com.google.cloud.firestore.telemetry.TelemetryConstants.METRIC_NAME_TRANSACTION_LATENCY;
+import static com.google.cloud.firestore.telemetry.TelemetryConstants.METRIC_NAME_TRANSACTION_RETRY_COUNT;
+import static com.google.cloud.firestore.telemetry.TelemetryConstants.METRIC_NAME_WRITE_COMBINER_BATCH_SIZE;
 import static com.google.cloud.firestore.telemetry.TelemetryConstants.METRIC_PREFIX;
 
 import com.google.api.gax.tracing.ApiTracerFactory;
@@ -54,6 +63,15 @@ class BuiltinMetricsProvider {
   private DoubleHistogram firstResponseLatency;
   private DoubleHistogram transactionLatency;
   private LongCounter transactionAttemptCount;
+  private DoubleHistogram bulkWriterBatchSize;
+  private DoubleHistogram bulkWriterOpsPerSecond;
+  private LongCounter documentCacheHitCount;
+  private LongCounter documentCacheMissCount;
+  private DoubleHistogram writeCombinerBatchSize;
+  private LongCounter transactionAbortCount;
+  private LongCounter transactionRetryCount;
+  private LongCounter transactionHotspotCount;
+  private DoubleHistogram transactionAdmissionLatency;
 
   private ApiTracerFactory apiTracerFactory;
   private final Map<String, String> staticAttributes;
@@ -121,6 +139,69 @@ class BuiltinMetricsProvider {
             .setDescription("Number of Firestore transaction attempts including retries")
             .setUnit(INTEGER_UNIT)
             .build();
+
+    this.bulkWriterBatchSize =
+        meter
+            .histogramBuilder(METRIC_PREFIX + "/" + METRIC_NAME_BULK_WRITER_BATCH_SIZE)
+            .setDescription("Batch size chosen by BulkWriter's adaptive batching")
+            .setUnit(INTEGER_UNIT)
+            .build();
+
+    this.bulkWriterOpsPerSecond =
+        meter
+            .histogramBuilder(METRIC_PREFIX + "/" + METRIC_NAME_BULK_WRITER_OPS_PER_SECOND)
+            .setDescription("Operations per second allowed by BulkWriter's adaptive batching")
+            .setUnit(INTEGER_UNIT)
+            .build();
+
+    this.documentCacheHitCount =
+        meter
+            .counterBuilder(METRIC_PREFIX + "/" + METRIC_NAME_DOCUMENT_CACHE_HIT_COUNT)
+            .setDescription("Number of document reads served from the client-side document cache")
+            .setUnit(INTEGER_UNIT)
+            .build();
+
+    this.documentCacheMissCount =
+        meter
+            .counterBuilder(METRIC_PREFIX + "/" + METRIC_NAME_DOCUMENT_CACHE_MISS_COUNT)
+            .setDescription("Number of document reads that missed the client-side document cache")
+            .setUnit(INTEGER_UNIT)
+            .build();
+
+    this.writeCombinerBatchSize =
+        meter
+            .histogramBuilder(METRIC_PREFIX + "/" + METRIC_NAME_WRITE_COMBINER_BATCH_SIZE)
+            .setDescription("Number of single-document writes combined into one BatchWrite request")
+            .setUnit(INTEGER_UNIT)
+            .build();
+
+    this.transactionAbortCount =
+        meter
+            .counterBuilder(METRIC_PREFIX + "/" + METRIC_NAME_TRANSACTION_ABORT_COUNT)
+            .setDescription("Number of Firestore transaction attempts aborted by contention")
+            .setUnit(INTEGER_UNIT)
+            .build();
+
+    this.transactionRetryCount =
+        meter
+            .counterBuilder(METRIC_PREFIX + "/" + METRIC_NAME_TRANSACTION_RETRY_COUNT)
+            .setDescription("Number of Firestore transaction retries")
+            .setUnit(INTEGER_UNIT)
+            .build();
+
+    this.transactionHotspotCount =
+        meter
+            .counterBuilder(METRIC_PREFIX + "/" + METRIC_NAME_TRANSACTION_HOTSPOT_COUNT)
+            .setDescription("Number of documents detected as transaction contention hotspots")
+            .setUnit(INTEGER_UNIT)
+            .build();
+
+    this.transactionAdmissionLatency =
+        meter
+            .histogramBuilder(METRIC_PREFIX + "/" + METRIC_NAME_TRANSACTION_ADMISSION_LATENCY)
+            .setDescription("Time transaction retries wait for contended documents")
+            .setUnit(MILLISECOND_UNIT)
+            .build();
   }
 
   public ApiTracerFactory getApiTracerFactory() {
@@ -129,13 +210,22 @@ class BuiltinMetricsProvider {
 
   public void latencyRecorder(
       MetricType metricType, double latency, Map<String, String> attributes) {
+    histogramRecorder(metricType, latency, attributes, "latency");
+  }
+
+  public void valueRecorder(MetricType metricType, double value, Map<String, String> attributes) {
+    histogramRecorder(metricType, value, attributes, "value");
+  }
+
+  private void histogramRecorder(
+      MetricType metricType, double value, Map<String, String> attributes, String kind) {
     DoubleHistogram histogram = getHistogram(metricType);
     if (histogram != null) {
       attributes.putAll(staticAttributes);
       try {
-        histogram.record(latency, toOtelAttributes(attributes));
+        histogram.record(value, toOtelAttributes(attributes));
       } catch (Exception e) {
-        logger.log(Level.WARNING, "Failed to record latency metric: " + e.getMessage(), e);
+        logger.log(Level.WARNING, "Failed to record " + kind + " metric: " + e.getMessage(), e);
       }
     }
   }
@@ -160,16 +250,35 @@ class BuiltinMetricsProvider {
         return firstResponseLatency;
       case TRANSACTION_LATENCY:
         return transactionLatency;
+      case BULK_WRITER_BATCH_SIZE:
+        return bulkWriterBatchSize;
+      case BULK_WRITER_OPS_PER_SECOND:
+        return bulkWriterOpsPerSecond;
+      case WRITE_COMBINER_BATCH_SIZE:
+        return writeCombinerBatchSize;
+      case TRANSACTION_ADMISSION_LATENCY:
+        return transactionAdmissionLatency;
       default:
-        throw new IllegalArgumentException("Unknown latency MetricType: " + metricType);
+        throw new IllegalArgumentException("Unknown histogram MetricType: " + metricType);
     }
   }
 
   public LongCounter getCounter(MetricType metricType) {
-    if (metricType == MetricType.TRANSACTION_ATTEMPT_COUNT) {
-      return transactionAttemptCount;
-    } else {
-      throw new IllegalArgumentException("Unknown counter MetricType: " + metricType);
+    switch (metricType) {
+      case TRANSACTION_ATTEMPT_COUNT:
+        return transactionAttemptCount;
+      case DOCUMENT_CACHE_HIT_COUNT:
+        return documentCacheHitCount;
+      case DOCUMENT_CACHE_MISS_COUNT:
+        return documentCacheMissCount;
+      case TRANSACTION_ABORT_COUNT:
+        return transactionAbortCount;
+      case TRANSACTION_RETRY_COUNT:
+        return transactionRetryCount;
+      case TRANSACTION_HOTSPOT_COUNT:
+        return transactionHotspotCount;
+      default:
+        throw new IllegalArgumentException("Unknown counter MetricType: " + metricType);
     }
   }
 
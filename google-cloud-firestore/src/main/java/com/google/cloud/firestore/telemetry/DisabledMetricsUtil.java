@@ -43,6 +43,12 @@ class DisabledMetricsUtil implements MetricsUtil {
 
     @Override
     public void incrementCounter() {}
+
+    @Override
+    public void recordValue(MetricType metric, double value) {}
+
+    @Override
+    public void recordCount(MetricType metric, long count) {}
   }
 
   @Override
@@ -216,6 +216,18 @@ class EnabledMetricsUtil implements MetricsUtil {
       counter++;
     }
 
+    public void recordValue(MetricType metric, double value) {
+      Map<String, String> attributes = createAttributes(StatusCode.Code.OK.toString(), methodName);
+      defaultMetricsProvider.valueRecorder(metric, value, attributes);
+      customMetricsProvider.valueRecorder(metric, value, attributes);
+    }
+
+    public void recordCount(MetricType metric, long count) {
+      Map<String, String> attributes = createAttributes(StatusCode.Code.OK.toString(), methodName);
+      defaultMetricsProvider.counterRecorder(metric, count, attributes);
+      customMetricsProvider.counterRecorder(metric, count, attributes);
+    }
+
     public <T> void recordCounterAtFuture(MetricType metric, ApiFuture<T> futureValue) {
       ApiFutures.addCallback(
           futureValue,
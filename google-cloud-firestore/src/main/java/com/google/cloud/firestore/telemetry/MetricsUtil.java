@@ -115,5 +115,11 @@ public interface MetricsUtil {
 
     /** Increments the counter tracked inside the MetricsContext. */
     void incrementCounter();
+
+    /** Records a value, such as a size or a rate, for the current operation. */
+    void recordValue(MetricType metric, double value);
+
+    /** Adds the given count to a counter metric for the current operation. */
+    void recordCount(MetricType metric, long count);
   }
 }
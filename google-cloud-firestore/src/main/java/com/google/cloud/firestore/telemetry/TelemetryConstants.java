@@ -58,6 +58,7 @@ public interface TelemetryConstants {
   String METHOD_NAME_TRANSACTION_COMMIT = "Transaction.Commit";
   String METHOD_NAME_PARTITION_QUERY = "PartitionQuery";
   String METHOD_NAME_BULK_WRITER_COMMIT = "BulkWriter.Commit";
+  String METHOD_NAME_WRITE_COMBINER_COMMIT = "WriteCombiner.Commit";
   String METHOD_NAME_RUN_TRANSACTION = "RunTransaction";
   String METHOD_NAME_PIPELINE_EXECUTE = "Pipeline.Execute";
   String METHOD_NAME_EXECUTE_PIPELINE = "ExecutePipeline";
@@ -102,6 +103,15 @@ public interface TelemetryConstants {
   String METRIC_NAME_END_TO_END_LATENCY = "end_to_end_latency";
   String METRIC_NAME_TRANSACTION_LATENCY = "transaction_latency";
   String METRIC_NAME_TRANSACTION_ATTEMPT_COUNT = "transaction_attempt_count";
+  String METRIC_NAME_BULK_WRITER_BATCH_SIZE = "bulk_writer_batch_size";
+  String METRIC_NAME_BULK_WRITER_OPS_PER_SECOND = "bulk_writer_ops_per_second";
+  String METRIC_NAME_DOCUMENT_CACHE_HIT_COUNT = "document_cache_hit_count";
+  String METRIC_NAME_DOCUMENT_CACHE_MISS_COUNT = "document_cache_miss_count";
+  String METRIC_NAME_WRITE_COMBINER_BATCH_SIZE = "write_combiner_batch_size";
+  String METRIC_NAME_TRANSACTION_ABORT_COUNT = "transaction_abort_count";
+  String METRIC_NAME_TRANSACTION_RETRY_COUNT = "transaction_retry_count";
+  String METRIC_NAME_TRANSACTION_HOTSPOT_COUNT = "transaction_hotspot_count";
+  String METRIC_NAME_TRANSACTION_ADMISSION_LATENCY = "transaction_admission_latency";
 
   // Metrics collected on GAX and Firestore SDK layer
   Set<String> GAX_METRICS =
@@ -116,12 +126,30 @@ public interface TelemetryConstants {
           METRIC_NAME_FIRST_RESPONSE_LATENCY,
           METRIC_NAME_END_TO_END_LATENCY,
           METRIC_NAME_TRANSACTION_LATENCY,
-          METRIC_NAME_TRANSACTION_ATTEMPT_COUNT);
+          METRIC_NAME_TRANSACTION_ATTEMPT_COUNT,
+          METRIC_NAME_BULK_WRITER_BATCH_SIZE,
+          METRIC_NAME_BULK_WRITER_OPS_PER_SECOND,
+          METRIC_NAME_DOCUMENT_CACHE_HIT_COUNT,
+          METRIC_NAME_DOCUMENT_CACHE_MISS_COUNT,
+          METRIC_NAME_WRITE_COMBINER_BATCH_SIZE,
+          METRIC_NAME_TRANSACTION_ABORT_COUNT,
+          METRIC_NAME_TRANSACTION_RETRY_COUNT,
+          METRIC_NAME_TRANSACTION_HOTSPOT_COUNT,
+          METRIC_NAME_TRANSACTION_ADMISSION_LATENCY);
 
   public enum MetricType {
     END_TO_END_LATENCY,
     FIRST_RESPONSE_LATENCY,
     TRANSACTION_LATENCY,
-    TRANSACTION_ATTEMPT_COUNT
+    TRANSACTION_ATTEMPT_COUNT,
+    BULK_WRITER_BATCH_SIZE,
+    BULK_WRITER_OPS_PER_SECOND,
+    DOCUMENT_CACHE_HIT_COUNT,
+    DOCUMENT_CACHE_MISS_COUNT,
+    WRITE_COMBINER_BATCH_SIZE,
+    TRANSACTION_ABORT_COUNT,
+    TRANSACTION_RETRY_COUNT,
+    TRANSACTION_HOTSPOT_COUNT,
+    TRANSACTION_ADMISSION_LATENCY
   }
 }
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.firestore;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Duration;
+import org.junit.Test;
+
+public class AdaptiveBatchControllerTest {
+  /** The size of the batches in tests that are not limited by the batch size in bytes. */
+  private static final long BATCH_BYTES = 64 * 1024;
+
+  @Test
+  public void growsAdditivelyUpToMaximum() {
+    AdaptiveBatchController controller =
+        new AdaptiveBatchController(18, 20, BulkWriter.MAX_BATCH_BYTES, null);
+
+    assertFalse(controller.onBatchCompleted(18, BATCH_BYTES, 0, 100));
+    assertEquals(19, controller.getBatchSize());
+    assertFalse(controller.onBatchCompleted(19, BATCH_BYTES, 1, 100));
+    assertEquals(20, controller.getBatchSize());
+    assertFalse(controller.onBatchCompleted(20, BATCH_BYTES, 0, 100));
+    assertEquals(20, controller.getBatchSize());
+    assertEquals(1.0, controller.getRateFactor(), 0.0);
+  }
+
+  @Test
+  public void halvesOnContention() {
+    AdaptiveBatchController controller =
+        new AdaptiveBatchController(20, 20, BulkWriter.MAX_BATCH_BYTES, null);
+
+    assertTrue(controller.onBatchCompleted(20, BATCH_BYTES, 3, 100));
+    assertEquals(10, controller.getBatchSize());
+    assertEquals(0.5, controller.getRateFactor(), 0.0);
+
+    assertTrue(controller.onBatchCompleted(10, BATCH_BYTES, 10, 100));
+    assertEquals(5, controller.getBatchSize());
+    assertEquals(0.25, controller.getRateFactor(), 0.0);
+
+    assertFalse(controller.onBatchCompleted(5, BATCH_BYTES, 0, 100));
+    assertEquals(6, controller.getBatchSize());
+    assertEquals(0.3, controller.getRateFactor(), 1e-9);
+  }
+
+  @Test
+  public void halvesWhenSlowerThanTarget() {
+    AdaptiveBatchController controller =
+        new AdaptiveBatchController(20, 50, BulkWriter.MAX_BATCH_BYTES, Duration.ofMillis(200));
+
+    assertFalse(controller.onBatchCompleted(20, BATCH_BYTES, 0, 200));
+    assertEquals(21, controller.getBatchSize());
+    assertTrue(controller.onBatchCompleted(21, BATCH_BYTES, 0, 201));
+    assertEquals(10, controller.getBatchSize());
+  }
+
+  @Test
+  public void neverDropsBelowMinimums() {
+    AdaptiveBatchController controller =
+        new AdaptiveBatchController(4, 20, BulkWriter.MAX_BATCH_BYTES, null);
+
+    for (int i = 0; i < 10; ++i) {
+      controller.onBatchCompleted(controller.getBatchSize(), BATCH_BYTES, 1, 100);
+    }
+    assertEquals(1, controller.getBatchSize());
+    assertEquals(AdaptiveBatchController.MIN_RATE_FACTOR, controller.getRateFactor(), 0.0);
+  }
+
+  @Test
+  public void ignoresEmptyBatches() {
+    AdaptiveBatchController controller =
+        new AdaptiveBatchController(10, 20, BulkWriter.MAX_BATCH_BYTES, null);
+
+    assertFalse(controller.onBatchCompleted(0, 0, 0, 100));
+    assertEquals(10, controller.getBatchSize());
+  }
+
+  @Test
+  public void capsBatchSizeByEncodedBytes() {
+    AdaptiveBatchController controller = new AdaptiveBatchController(18, 500, 1000, null);
+
+    assertFalse(controller.onBatchCompleted(18, 18 * 50, 0, 100));
+    assertEquals(19, controller.getBatchSize());
+    assertFalse(controller.onBatchCompleted(19, 19 * 100, 0, 100));
+    assertEquals(10, controller.getBatchSize());
+    assertEquals(1.0, controller.getRateFactor(), 0.0);
+  }
+}
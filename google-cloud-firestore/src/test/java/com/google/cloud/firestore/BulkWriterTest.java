@@ -46,13 +46,19 @@ import com.google.firestore.v1.Write;
 import com.google.protobuf.Message;
 import com.google.rpc.Code;
 import io.grpc.Status;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
@@ -1306,6 +1312,103 @@ public class BulkWriterTest {
     responseStubber.verifyAllRequestsSent();
   }
 
+  @Test
+  public void enqueuesWritesFromConcurrentThreads() throws Exception {
+    final int threadCount = 8;
+    final int writesPerThread = 50;
+
+    doAnswer(
+            invocation -> {
+              BatchWriteRequest request = invocation.getArgument(0);
+              BatchWriteResponse.Builder response = BatchWriteResponse.newBuilder();
+              for (int i = 0; i < request.getWritesCount(); ++i) {
+                response.addWriteResultsBuilder().getUpdateTimeBuilder().setSeconds(1);
+                response.addStatusBuilder();
+              }
+              return ApiFutures.immediateFuture(response.build());
+            })
+        .when(firestoreMock)
+        .sendRequest(
+            batchWriteCapture.capture(), ArgumentMatchers.<UnaryCallable<Message, Message>>any());
+
+    final BulkWriter bulkWriter =
+        firestoreMock.bulkWriter(
+            BulkWriterOptions.builder()
+                .setExecutor(timeoutExecutor)
+                .setThrottlingEnabled(false)
+                .build());
+    final List<ApiFuture<WriteResult>> results = new CopyOnWriteArrayList<>();
+    ExecutorService producers = Executors.newFixedThreadPool(threadCount);
+    List<Future<?>> producerFutures = new ArrayList<>();
+    for (int t = 0; t < threadCount; ++t) {
+      final int thread = t;
+      producerFutures.add(
+          producers.submit(
+              () -> {
+                for (int i = 0; i < writesPerThread; ++i) {
+                  results.add(
+                      bulkWriter.set(
+                          firestoreMock.document("coll/doc" + thread + "_" + i),
+                          LocalFirestoreHelper.SINGLE_FIELD_MAP));
+                }
+              }));
+    }
+    for (Future<?> future : producerFutures) {
+      future.get();
+    }
+    producers.shutdown();
+    bulkWriter.close();
+
+    assertEquals(threadCount * writesPerThread, results.size());
+    for (ApiFuture<WriteResult> result : results) {
+      assertEquals(Timestamp.ofTimeSecondsAndNanos(1, 0), result.get().getUpdateTime());
+    }
+    Set<String> writtenDocuments = new HashSet<>();
+    for (BatchWriteRequest request : batchWriteCapture.getAllValues()) {
+      for (Write write : request.getWritesList()) {
+        assertTrue(writtenDocuments.add(write.getUpdate().getName()));
+      }
+    }
+    assertEquals(threadCount * writesPerThread, writtenDocuments.size());
+  }
+
+  @Test
+  public void sendsBatchBeforeItExceedsByteLimit() throws Exception {
+    doAnswer(
+            invocation -> {
+              BatchWriteRequest request = invocation.getArgument(0);
+              BatchWriteResponse.Builder response = BatchWriteResponse.newBuilder();
+              for (int i = 0; i < request.getWritesCount(); ++i) {
+                response.addWriteResultsBuilder().getUpdateTimeBuilder().setSeconds(1);
+                response.addStatusBuilder();
+              }
+              return ApiFutures.immediateFuture(response.build());
+            })
+        .when(firestoreMock)
+        .sendRequest(
+            batchWriteCapture.capture(), ArgumentMatchers.<UnaryCallable<Message, Message>>any());
+
+    BulkWriter bulkWriter =
+        firestoreMock.bulkWriter(
+            BulkWriterOptions.builder()
+                .setExecutor(timeoutExecutor)
+                .setThrottlingEnabled(false)
+                .build());
+    // Four of these writes fit into a batch, while five exceed the byte limit.
+    char[] value = new char[2 * 1024 * 1024];
+    Arrays.fill(value, 'a');
+    for (int i = 1; i <= 5; ++i) {
+      bulkWriter.set(firestoreMock.document("coll/doc" + i), map("foo", new String(value)));
+    }
+    bulkWriter.close();
+
+    List<BatchWriteRequest> requests = batchWriteCapture.getAllValues();
+    assertEquals(2, requests.size());
+    assertEquals(4, requests.get(0).getWritesCount());
+    assertEquals(1, requests.get(1).getWritesCount());
+    assertTrue(requests.get(0).getSerializedSize() < 10 * 1024 * 1024);
+  }
+
   @Test
   public void optionsRequiresPositiveInteger() throws Exception {
     try {
@@ -1366,6 +1469,172 @@ public class BulkWriterTest {
     }
   }
 
+  @Test
+  public void optionsValidateAdaptiveBatching() throws Exception {
+    try {
+      BulkWriterOptions.builder()
+          .setAdaptiveBatchingEnabled(true)
+          .setMaxAdaptiveBatchSize(501)
+          .build();
+      fail("build() call should have failed");
+    } catch (Exception e) {
+      assertEquals(
+          e.getMessage(),
+          "Value for argument 'maxAdaptiveBatchSize' must be between 1 and 500, but was: 501");
+    }
+
+    try {
+      BulkWriterOptions.builder()
+          .setAdaptiveBatchingEnabled(true)
+          .setTargetBatchLatency(Duration.ZERO)
+          .build();
+      fail("build() call should have failed");
+    } catch (Exception e) {
+      assertEquals(
+          e.getMessage(),
+          "Value for argument 'targetBatchLatency' must be positive, but was: PT0S");
+    }
+
+    try {
+      BulkWriterOptions.builder().setMaxAdaptiveBatchSize(100).build();
+      fail("build() call should have failed");
+    } catch (Exception e) {
+      assertEquals(
+          e.getMessage(),
+          "Cannot set 'maxAdaptiveBatchSize' or 'targetBatchLatency' when"
+              + " 'adaptiveBatchingEnabled' is set to false.");
+    }
+  }
+
+  @Test
+  public void adaptiveBatchingShrinksBatchesAfterContention() throws Exception {
+    ResponseStubber responseStubber =
+        new ResponseStubber() {
+          {
+            put(
+                batchWrite(
+                    set(LocalFirestoreHelper.SINGLE_FIELD_PROTO, "coll/doc1"),
+                    set(LocalFirestoreHelper.SINGLE_FIELD_PROTO, "coll/doc2")),
+                mergeResponses(
+                    failedResponse(Code.RESOURCE_EXHAUSTED_VALUE),
+                    failedResponse(Code.RESOURCE_EXHAUSTED_VALUE)));
+            put(
+                batchWrite(set(LocalFirestoreHelper.SINGLE_FIELD_PROTO, "coll/doc3")),
+                successResponse(1));
+            put(
+                batchWrite(set(LocalFirestoreHelper.SINGLE_FIELD_PROTO, "coll/doc4")),
+                successResponse(2));
+          }
+        };
+    responseStubber.initializeStub(batchWriteCapture, firestoreMock);
+
+    BulkWriter bulkWriter =
+        firestoreMock.bulkWriter(
+            BulkWriterOptions.builder()
+                .setExecutor(timeoutExecutor)
+                .setAdaptiveBatchingEnabled(true)
+                .setMaxAdaptiveBatchSize(2)
+                .build());
+    bulkWriter.addWriteErrorListener(error -> false);
+
+    ApiFuture<WriteResult> result1 = bulkWriter.set(doc1, LocalFirestoreHelper.SINGLE_FIELD_MAP);
+    ApiFuture<WriteResult> result2 = bulkWriter.set(doc2, LocalFirestoreHelper.SINGLE_FIELD_MAP);
+    bulkWriter.flush().get();
+
+    // The contended batch halves the batch size, so the next writes are sent one at a time.
+    ApiFuture<WriteResult> result3 =
+        bulkWriter.set(firestoreMock.document("coll/doc3"), LocalFirestoreHelper.SINGLE_FIELD_MAP);
+    ApiFuture<WriteResult> result4 =
+        bulkWriter.set(firestoreMock.document("coll/doc4"), LocalFirestoreHelper.SINGLE_FIELD_MAP);
+    bulkWriter.close();
+
+    assertTrue(result1.isDone() && result2.isDone());
+    assertEquals(Timestamp.ofTimeSecondsAndNanos(1, 0), result3.get().getUpdateTime());
+    assertEquals(Timestamp.ofTimeSecondsAndNanos(2, 0), result4.get().getUpdateTime());
+    responseStubber.verifyAllRequestsSent();
+  }
+
+  @Test
+  public void optionsValidateLaneCount() throws Exception {
+    try {
+      BulkWriterOptions.builder().setLaneCount(0).build();
+      fail("build() call should have failed");
+    } catch (Exception e) {
+      assertEquals(e.getMessage(), "Value for argument 'laneCount' must be at least 1, but was: 0");
+    }
+  }
+
+  @Test
+  public void lanesShareRateLimit() throws Exception {
+    BulkWriter bulkWriter =
+        firestoreMock.bulkWriter(
+            BulkWriterOptions.builder().setLaneCount(4).setMaxOpsPerSecond(1000).build());
+    assertEquals(4, bulkWriter.getLaneCount());
+    assertEquals(125, bulkWriter.getRateLimiter().getInitialCapacity());
+    assertEquals(250, bulkWriter.getRateLimiter().getMaximumRate());
+
+    bulkWriter = firestoreMock.bulkWriter();
+    assertEquals(1, bulkWriter.getLaneCount());
+  }
+
+  @Test
+  public void orderedLanesCommitWritesToSameDocumentInOrder() throws Exception {
+    final SettableApiFuture<BatchWriteResponse> firstResponse = SettableApiFuture.create();
+    final List<Boolean> firstBatchDoneWhenSent = new CopyOnWriteArrayList<>();
+    doAnswer(
+            invocation -> {
+              firstBatchDoneWhenSent.add(firstResponse.isDone());
+              return firstBatchDoneWhenSent.size() == 1 ? firstResponse : successResponse(2);
+            })
+        .when(firestoreMock)
+        .sendRequest(
+            batchWriteCapture.capture(), ArgumentMatchers.<UnaryCallable<Message, Message>>any());
+
+    BulkWriter bulkWriter =
+        firestoreMock.bulkWriter(
+            BulkWriterOptions.builder().setExecutor(timeoutExecutor).setLaneCount(2).build());
+    ApiFuture<WriteResult> result1 = bulkWriter.set(doc1, LocalFirestoreHelper.SINGLE_FIELD_MAP);
+    ApiFuture<WriteResult> result2 = bulkWriter.delete(doc1);
+    ApiFuture<Void> flush = bulkWriter.flush();
+
+    testExecutor.schedule(
+        () -> firstResponse.set(successResponse(1).get()), 100, TimeUnit.MILLISECONDS);
+    flush.get();
+
+    assertEquals(Arrays.asList(false, true), firstBatchDoneWhenSent);
+    assertEquals(Timestamp.ofTimeSecondsAndNanos(1, 0), result1.get().getUpdateTime());
+    assertEquals(Timestamp.ofTimeSecondsAndNanos(2, 0), result2.get().getUpdateTime());
+  }
+
+  @Test
+  public void orderedLanesKeepWritesToSameDocumentBehindRetry() throws Exception {
+    final List<ApiFuture<BatchWriteResponse>> responses =
+        new CopyOnWriteArrayList<>(
+            Arrays.asList(
+                failedResponse(Code.ABORTED_VALUE), successResponse(1), successResponse(2)));
+    doAnswer(invocation -> responses.remove(0))
+        .when(firestoreMock)
+        .sendRequest(
+            batchWriteCapture.capture(), ArgumentMatchers.<UnaryCallable<Message, Message>>any());
+
+    BulkWriter bulkWriter =
+        firestoreMock.bulkWriter(
+            BulkWriterOptions.builder().setExecutor(timeoutExecutor).setLaneCount(1).build());
+    ApiFuture<WriteResult> result1 = bulkWriter.set(doc1, LocalFirestoreHelper.SINGLE_FIELD_MAP);
+    ApiFuture<WriteResult> result2 = bulkWriter.delete(doc1);
+    bulkWriter.close();
+
+    // The delete is only sent once the retried set has been committed.
+    assertEquals(
+        Arrays.asList(
+            batchWrite(set(LocalFirestoreHelper.SINGLE_FIELD_PROTO, "coll/doc1")),
+            batchWrite(set(LocalFirestoreHelper.SINGLE_FIELD_PROTO, "coll/doc1")),
+            batchWrite(delete("coll/doc1"))),
+        batchWriteCapture.getAllValues());
+    assertEquals(Timestamp.ofTimeSecondsAndNanos(1, 0), result1.get().getUpdateTime());
+    assertEquals(Timestamp.ofTimeSecondsAndNanos(2, 0), result2.get().getUpdateTime());
+  }
+
   @Test
   public void optionsInitialAndMaxRatesAreProperlySet() throws Exception {
     BulkWriter bulkWriter =
@@ -1429,4 +1698,90 @@ public class BulkWriterTest {
     responseStubber.verifyAllRequestsSent();
     assertEquals(numOps, responseStubber.actualRequestList.size());
   }
+
+  @Test
+  public void spillsBufferedOpsToDisk() throws Exception {
+    final int numOps = 20;
+
+    BulkWriter bulkWriter =
+        firestoreMock.bulkWriter(
+            BulkWriterOptions.builder()
+                .setExecutor(timeoutExecutor)
+                .setMaxBufferedBytes(0)
+                .build());
+    bulkWriter.setMaxPendingOpCount(2);
+    bulkWriter.setMaxBatchSize(1);
+
+    ResponseStubber responseStubber = new ResponseStubber();
+    for (int i = 0; i < numOps; i += 1) {
+      responseStubber.put(
+          batchWrite(set(LocalFirestoreHelper.SINGLE_FIELD_PROTO, "coll/doc" + i)),
+          successResponse(i + 1));
+    }
+    responseStubber.initializeStub(batchWriteCapture, firestoreMock);
+
+    List<ApiFuture<WriteResult>> results = new ArrayList<>();
+    for (int i = 0; i < numOps; ++i) {
+      results.add(
+          bulkWriter.set(
+              firestoreMock.document("coll/doc" + i), LocalFirestoreHelper.SINGLE_FIELD_MAP));
+    }
+    bulkWriter.close();
+
+    responseStubber.verifyAllRequestsSent();
+    for (int i = 0; i < numOps; ++i) {
+      assertEquals(Timestamp.ofTimeSecondsAndNanos(i + 1, 0), results.get(i).get().getUpdateTime());
+    }
+  }
+
+  @Test
+  public void spilledOpsAreNotHeldOnHeap() throws Exception {
+    BulkWriter bulkWriter =
+        firestoreMock.bulkWriter(
+            BulkWriterOptions.builder()
+                .setExecutor(timeoutExecutor)
+                .setMaxBufferedBytes(0)
+                .build());
+    bulkWriter.setMaxPendingOpCount(3);
+
+    ResponseStubber responseStubber =
+        new ResponseStubber() {
+          {
+            put(
+                batchWrite(
+                    set(LocalFirestoreHelper.SINGLE_FIELD_PROTO, "coll/doc1"),
+                    set(LocalFirestoreHelper.SINGLE_FIELD_PROTO, "coll/doc2"),
+                    set(LocalFirestoreHelper.SINGLE_FIELD_PROTO, "coll/doc3")),
+                mergeResponses(successResponse(1), successResponse(2), successResponse(3)));
+            put(
+                batchWrite(
+                    set(LocalFirestoreHelper.SINGLE_FIELD_PROTO, "coll/doc4"),
+                    set(LocalFirestoreHelper.SINGLE_FIELD_PROTO, "coll/doc5"),
+                    set(LocalFirestoreHelper.SINGLE_FIELD_PROTO, "coll/doc6")),
+                mergeResponses(successResponse(4), successResponse(5), successResponse(6)));
+          }
+        };
+    responseStubber.initializeStub(batchWriteCapture, firestoreMock);
+
+    for (int i = 1; i <= 6; ++i) {
+      bulkWriter.set(firestoreMock.document("coll/doc" + i), LocalFirestoreHelper.SINGLE_FIELD_MAP);
+    }
+    assertEquals(3, bulkWriter.getBufferedOperationsCount());
+    assertEquals(0, bulkWriter.getBufferedHeapBytes());
+
+    bulkWriter.close();
+    responseStubber.verifyAllRequestsSent();
+  }
+
+  @Test
+  public void optionsRequireNonNegativeMaxBufferedBytes() throws Exception {
+    try {
+      BulkWriterOptions.builder().setMaxBufferedBytes(-1).build();
+      fail("build() call should have failed");
+    } catch (Exception e) {
+      assertEquals(
+          e.getMessage(),
+          "Value for argument 'maxBufferedBytes' must not be negative, but was: -1");
+    }
+  }
 }
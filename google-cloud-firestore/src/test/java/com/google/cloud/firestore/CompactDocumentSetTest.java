@@ -0,0 +1,168 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.firestore;
+
+import static com.google.cloud.firestore.LocalFirestoreHelper.DATABASE_NAME;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.spi.v1.FirestoreRpc;
+import com.google.firestore.v1.Value;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+public class CompactDocumentSetTest {
+
+  private final FirestoreImpl firestore =
+      new FirestoreImpl(
+          FirestoreOptions.newBuilder().setProjectId("test-project").build(),
+          Mockito.mock(FirestoreRpc.class));
+
+  /** Orders documents by their 'value' field, then by document ID. */
+  private static final Comparator<QueryDocumentSnapshot> VALUE_COMPARATOR =
+      Comparator.<QueryDocumentSnapshot>comparingLong(
+              doc -> doc.getProtoFields().get("value").getIntegerValue())
+          .thenComparing(QueryDocumentSnapshot::compareDocumentId);
+
+  @Test
+  public void lookupsByKey() {
+    CompactDocumentSet documentSet =
+        CompactDocumentSet.emptySet(VALUE_COMPARATOR)
+            .applyChanges(
+                new ArrayList<>(),
+                list(doc("b", 1, 1), doc("a", 2, 1), doc("c", 0, 1)),
+                new ArrayList<>())
+            .documentSet;
+
+    assertEquals(3, documentSet.size());
+    assertTrue(documentSet.contains(path("a")));
+    assertFalse(documentSet.contains(path("d")));
+    assertNull(documentSet.getDocument(path("d")));
+    assertEquals("a", documentSet.getDocument(path("a")).getId());
+    assertEquals(0, documentSet.indexOf(path("c")));
+    assertEquals(1, documentSet.indexOf(path("b")));
+    assertEquals(2, documentSet.indexOf(path("a")));
+    assertEquals(-1, documentSet.indexOf(path("d")));
+  }
+
+  @Test
+  public void snapshotsAreNotAffectedByLaterChanges() {
+    CompactDocumentSet documentSet =
+        CompactDocumentSet.emptySet(VALUE_COMPARATOR)
+            .applyChanges(new ArrayList<>(), list(doc("a", 1, 1)), new ArrayList<>())
+            .documentSet;
+    List<QueryDocumentSnapshot> snapshot = documentSet.toList();
+
+    documentSet.applyChanges(list(documentSet.getDocument(path("a"))), list(), list());
+
+    assertEquals(1, snapshot.size());
+    assertEquals("a", snapshot.get(0).getId());
+  }
+
+  @Test
+  public void unchangedBatchReturnsSameView() {
+    CompactDocumentSet documentSet =
+        CompactDocumentSet.emptySet(VALUE_COMPARATOR)
+            .applyChanges(new ArrayList<>(), list(doc("a", 1, 1)), new ArrayList<>())
+            .documentSet;
+
+    DocumentView.ChangeResult<CompactDocumentSet> result =
+        documentSet.applyChanges(list(), list(), list(doc("a", 2, 1)));
+
+    assertTrue(result.changes.isEmpty());
+    assertSame(documentSet, result.documentSet);
+  }
+
+  @Test
+  public void matchesTreeBackedDocumentSet() {
+    Random random = new Random(7);
+    DocumentSet treeSet = DocumentSet.emptySet(VALUE_COMPARATOR);
+    CompactDocumentSet compactSet = CompactDocumentSet.emptySet(VALUE_COMPARATOR);
+    int nextId = 0;
+
+    for (int round = 0; round < 50; ++round) {
+      List<QueryDocumentSnapshot> deletes = new ArrayList<>();
+      List<QueryDocumentSnapshot> adds = new ArrayList<>();
+      List<QueryDocumentSnapshot> updates = new ArrayList<>();
+
+      for (QueryDocumentSnapshot document : treeSet) {
+        switch (random.nextInt(5)) {
+          case 0:
+            deletes.add(document);
+            break;
+          case 1:
+            updates.add(doc(document.getId(), random.nextInt(100), round + 2));
+            break;
+          default:
+            break;
+        }
+      }
+      int addCount = random.nextInt(30);
+      for (int i = 0; i < addCount; ++i) {
+        adds.add(doc("doc" + nextId++, random.nextInt(100), round + 2));
+      }
+
+      DocumentView.ChangeResult<DocumentSet> treeResult =
+          treeSet.applyChanges(
+              new ArrayList<>(deletes), new ArrayList<>(adds), new ArrayList<>(updates));
+      DocumentView.ChangeResult<CompactDocumentSet> compactResult =
+          compactSet.applyChanges(
+              new ArrayList<>(deletes), new ArrayList<>(adds), new ArrayList<>(updates));
+
+      assertEquals(treeResult.changes, compactResult.changes);
+      assertEquals(treeResult.documentSet.toList(), compactResult.documentSet.toList());
+
+      treeSet = treeResult.documentSet;
+      compactSet = compactResult.documentSet;
+      for (QueryDocumentSnapshot document : treeSet) {
+        ResourcePath resourcePath = document.getReference().getResourcePath();
+        assertSame(document, compactSet.getDocument(resourcePath));
+        assertEquals(treeSet.indexOf(resourcePath), compactSet.indexOf(resourcePath));
+      }
+    }
+  }
+
+  private QueryDocumentSnapshot doc(String id, long value, long updateSeconds) {
+    return new QueryDocumentSnapshot(
+        firestore,
+        new DocumentReference(firestore, path(id)),
+        Collections.singletonMap("value", Value.newBuilder().setIntegerValue(value).build()),
+        Timestamp.ofTimeSecondsAndNanos(updateSeconds, 0),
+        Timestamp.ofTimeSecondsAndNanos(updateSeconds, 0),
+        Timestamp.ofTimeSecondsAndNanos(1, 0));
+  }
+
+  private static ResourcePath path(String id) {
+    return ResourcePath.create(DATABASE_NAME + "/documents/coll/" + id);
+  }
+
+  @SafeVarargs
+  private static <T> List<T> list(T... elements) {
+    List<T> list = new ArrayList<>();
+    Collections.addAll(list, elements);
+    return list;
+  }
+}
@@ -0,0 +1,229 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.firestore;
+
+import static com.google.cloud.firestore.LocalFirestoreHelper.DOCUMENT_PATH;
+import static com.google.cloud.firestore.LocalFirestoreHelper.SINGLE_FIELD_PROTO;
+import static com.google.cloud.firestore.LocalFirestoreHelper.countQueryResponse;
+import static com.google.cloud.firestore.LocalFirestoreHelper.getAllResponse;
+import static com.google.cloud.firestore.LocalFirestoreHelper.queryResponse;
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+
+import com.google.api.core.ApiFuture;
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.spi.v1.FirestoreRpc;
+import com.google.firestore.v1.BatchGetDocumentsRequest;
+import com.google.firestore.v1.RunAggregationQueryRequest;
+import com.google.firestore.v1.RunQueryRequest;
+import com.google.protobuf.Message;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Spy;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ConsistentReaderTest {
+
+  /** The read time of the responses returned by {@link LocalFirestoreHelper#getAllResponse}. */
+  private static final Timestamp DOCUMENT_READ_TIME = Timestamp.ofTimeSecondsAndNanos(5, 6);
+
+  private static final Timestamp REQUESTED_READ_TIME = Timestamp.ofTimeSecondsAndNanos(7, 8);
+
+  @Spy
+  private final FirestoreImpl firestoreMock =
+      new FirestoreImpl(
+          FirestoreOptions.newBuilder().setProjectId("test-project").build(),
+          mock(FirestoreRpc.class));
+
+  private final List<Message> requests = new CopyOnWriteArrayList<>();
+
+  @Before
+  public void before() {
+    lenient().doReturn(Duration.ZERO).when(firestoreMock).getTotalRequestTimeoutDuration();
+  }
+
+  @Test
+  public void firstReadPicksReadTimeForAllOtherReads() throws Exception {
+    respondToAllReads();
+
+    ConsistentReadSnapshot snapshot =
+        firestoreMock
+            .readAtConsistentTime(
+                ConsistentRead.builder()
+                    .addDocuments(firestoreMock.document(DOCUMENT_PATH))
+                    .addQuery(firestoreMock.collection("first"))
+                    .addQuery(firestoreMock.collection("second"))
+                    .addAggregateQuery(firestoreMock.collection("third").count())
+                    .build())
+            .get();
+
+    assertThat(requests).hasSize(4);
+    BatchGetDocumentsRequest firstRequest = (BatchGetDocumentsRequest) requests.get(0);
+    assertThat(firstRequest.hasReadTime()).isFalse();
+    for (Message request : requests.subList(1, requests.size())) {
+      assertThat(getReadTime(request)).isEqualTo(DOCUMENT_READ_TIME);
+    }
+
+    assertThat(snapshot.getReadTime()).isEqualTo(DOCUMENT_READ_TIME);
+    assertThat(snapshot.getDocuments()).hasSize(1);
+    assertThat(snapshot.getDocuments().get(0).getData()).containsKey("foo");
+    assertThat(snapshot.getQuerySnapshots()).hasSize(2);
+    assertThat(snapshot.getQuerySnapshots().get(0).getQuery())
+        .isEqualTo(firestoreMock.collection("first"));
+    assertThat(snapshot.getQuerySnapshots().get(1).getQuery())
+        .isEqualTo(firestoreMock.collection("second"));
+    assertThat(snapshot.getAggregateQuerySnapshots()).hasSize(1);
+    assertThat(snapshot.getAggregateQuerySnapshots().get(0).getCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void allReadsUseRequestedReadTime() throws Exception {
+    respondToAllReads();
+
+    ConsistentReadSnapshot snapshot =
+        firestoreMock
+            .readAtConsistentTime(
+                ConsistentRead.builder()
+                    .addQuery(firestoreMock.collection("first"))
+                    .addDocuments(firestoreMock.document(DOCUMENT_PATH))
+                    .addAggregateQuery(firestoreMock.collection("second").count())
+                    .setReadTime(REQUESTED_READ_TIME)
+                    .build())
+            .get();
+
+    assertThat(requests).hasSize(3);
+    for (Message request : requests) {
+      assertThat(getReadTime(request)).isEqualTo(REQUESTED_READ_TIME);
+    }
+    assertThat(snapshot.getReadTime()).isEqualTo(REQUESTED_READ_TIME);
+  }
+
+  @Test
+  public void limitsNumberOfConcurrentReads() throws Exception {
+    final BlockingQueue<InvocationOnMock> pendingReads = new LinkedBlockingQueue<>();
+    final AtomicInteger activeReads = new AtomicInteger();
+    final AtomicInteger maxActiveReads = new AtomicInteger();
+    doAnswer(
+            invocation -> {
+              requests.add(invocation.getArgument(0));
+              maxActiveReads.accumulateAndGet(activeReads.incrementAndGet(), Math::max);
+              pendingReads.add(invocation);
+              return null;
+            })
+        .when(firestoreMock)
+        .streamRequest(any(), any(), any());
+
+    ConsistentRead.Builder builder =
+        ConsistentRead.builder().setReadTime(REQUESTED_READ_TIME).setMaxConcurrency(2);
+    for (int i = 0; i < 5; ++i) {
+      builder.addQuery(firestoreMock.collection("coll" + i));
+    }
+    ApiFuture<ConsistentReadSnapshot> result =
+        firestoreMock.readAtConsistentTime(builder.build());
+
+    assertThat(pendingReads).hasSize(2);
+    for (int i = 0; i < 5; ++i) {
+      InvocationOnMock read = pendingReads.poll(5, TimeUnit.SECONDS);
+      activeReads.decrementAndGet();
+      queryResponse().answer(read);
+    }
+
+    assertThat(result.get().getQuerySnapshots()).hasSize(5);
+    assertThat(requests).hasSize(5);
+    assertThat(maxActiveReads.get()).isEqualTo(2);
+  }
+
+  @Test
+  public void stopsStartingReadsAfterFailure() {
+    doAnswer(
+            invocation -> {
+              requests.add(invocation.getArgument(0));
+              return queryResponse(new IllegalStateException("Mock read failure"))
+                  .answer(invocation);
+            })
+        .when(firestoreMock)
+        .streamRequest(any(), any(), any());
+
+    ApiFuture<ConsistentReadSnapshot> result =
+        firestoreMock.readAtConsistentTime(
+            ConsistentRead.builder()
+                .addQuery(firestoreMock.collection("first"))
+                .addQuery(firestoreMock.collection("second"))
+                .addQuery(firestoreMock.collection("third"))
+                .setMaxConcurrency(1)
+                .build());
+
+    ExecutionException e = assertThrows(ExecutionException.class, result::get);
+    assertThat(e.getCause()).hasMessageThat().isEqualTo("Mock read failure");
+    assertThat(requests).hasSize(1);
+  }
+
+  @Test
+  public void validatesBuilder() {
+    assertThrows(FirestoreException.class, () -> ConsistentRead.builder().build());
+    assertThrows(
+        FirestoreException.class,
+        () ->
+            ConsistentRead.builder()
+                .addQuery(firestoreMock.collection("coll"))
+                .setMaxConcurrency(0)
+                .build());
+  }
+
+  /** Answers every read with a single result. */
+  private void respondToAllReads() {
+    doAnswer(
+            invocation -> {
+              Message request = invocation.getArgument(0);
+              requests.add(request);
+              if (request instanceof BatchGetDocumentsRequest) {
+                return getAllResponse(SINGLE_FIELD_PROTO).answer(invocation);
+              } else if (request instanceof RunQueryRequest) {
+                return queryResponse().answer(invocation);
+              } else {
+                return countQueryResponse(1, DOCUMENT_READ_TIME).answer(invocation);
+              }
+            })
+        .when(firestoreMock)
+        .streamRequest(any(), any(), any());
+  }
+
+  private static Timestamp getReadTime(Message request) {
+    if (request instanceof BatchGetDocumentsRequest) {
+      return Timestamp.fromProto(((BatchGetDocumentsRequest) request).getReadTime());
+    } else if (request instanceof RunQueryRequest) {
+      return Timestamp.fromProto(((RunQueryRequest) request).getReadTime());
+    } else {
+      return Timestamp.fromProto(((RunAggregationQueryRequest) request).getReadTime());
+    }
+  }
+}
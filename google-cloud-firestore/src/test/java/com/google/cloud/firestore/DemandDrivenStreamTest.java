@@ -0,0 +1,198 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.firestore;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import com.google.api.gax.rpc.ResponseObserver;
+import com.google.api.gax.rpc.StreamController;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+
+public class DemandDrivenStreamTest {
+
+  /** Records all events and optionally switches to manual flow control. */
+  private static class RecordingObserver implements ResponseObserver<String> {
+    final boolean manualFlowControl;
+    final int initialRequest;
+    final List<String> items = new ArrayList<>();
+    StreamController controller;
+    Throwable error;
+    boolean completed;
+
+    RecordingObserver(boolean manualFlowControl, int initialRequest) {
+      this.manualFlowControl = manualFlowControl;
+      this.initialRequest = initialRequest;
+    }
+
+    @Override
+    public void onStart(StreamController controller) {
+      this.controller = controller;
+      if (manualFlowControl) {
+        controller.disableAutoInboundFlowControl();
+        if (initialRequest > 0) {
+          controller.request(initialRequest);
+        }
+      }
+    }
+
+    @Override
+    public void onResponse(String response) {
+      items.add(response);
+    }
+
+    @Override
+    public void onError(Throwable t) {
+      error = t;
+    }
+
+    @Override
+    public void onComplete() {
+      completed = true;
+    }
+  }
+
+  @Test
+  public void deliversOnlyRequestedItems() {
+    RecordingObserver consumer = new RecordingObserver(/* manualFlowControl= */ true, 2);
+    DemandDrivenStream<String> stream = new DemandDrivenStream<>(consumer);
+    StreamController upstream = mock(StreamController.class);
+
+    stream.onStart(upstream);
+    verify(upstream).disableAutoInboundFlowControl();
+    verify(upstream, times(1)).request(1);
+
+    message(stream, "a", "b", "c");
+    assertEquals(Arrays.asList("a", "b"), consumer.items);
+    verify(upstream, times(1)).request(1);
+
+    consumer.controller.request(2);
+    assertEquals(Arrays.asList("a", "b", "c"), consumer.items);
+    verify(upstream, times(2)).request(1);
+
+    message(stream, "d");
+    stream.onComplete();
+    assertEquals(Arrays.asList("a", "b", "c", "d"), consumer.items);
+    assertTrue(consumer.completed);
+  }
+
+  @Test
+  public void requestsNextMessageForEmptyMessages() {
+    RecordingObserver consumer = new RecordingObserver(/* manualFlowControl= */ true, 1);
+    DemandDrivenStream<String> stream = new DemandDrivenStream<>(consumer);
+    StreamController upstream = mock(StreamController.class);
+
+    stream.onStart(upstream);
+    message(stream);
+    message(stream);
+
+    verify(upstream, times(3)).request(1);
+    assertTrue(consumer.items.isEmpty());
+  }
+
+  @Test
+  public void deliversBufferedItemsBeforeCompletion() {
+    RecordingObserver consumer = new RecordingObserver(/* manualFlowControl= */ true, 1);
+    DemandDrivenStream<String> stream = new DemandDrivenStream<>(consumer);
+    stream.onStart(mock(StreamController.class));
+
+    message(stream, "a", "b");
+    stream.onComplete();
+    assertFalse(consumer.completed);
+
+    consumer.controller.request(1);
+    assertEquals(Arrays.asList("a", "b"), consumer.items);
+    assertTrue(consumer.completed);
+  }
+
+  @Test
+  public void automaticFlowControlDeliversEverything() {
+    RecordingObserver consumer = new RecordingObserver(/* manualFlowControl= */ false, 0);
+    DemandDrivenStream<String> stream = new DemandDrivenStream<>(consumer);
+    StreamController upstream = mock(StreamController.class);
+
+    stream.onStart(upstream);
+    message(stream, "a", "b");
+    message(stream, "c");
+    Exception exception = new Exception("failed");
+    stream.onError(exception);
+
+    assertEquals(Arrays.asList("a", "b", "c"), consumer.items);
+    assertSame(exception, consumer.error);
+    verify(upstream, times(3)).request(1);
+  }
+
+  @Test
+  public void resumesFromRestartedStream() {
+    RecordingObserver consumer = new RecordingObserver(/* manualFlowControl= */ true, 5);
+    DemandDrivenStream<String> stream = new DemandDrivenStream<>(consumer);
+    StreamController first = mock(StreamController.class);
+    StreamController second = mock(StreamController.class);
+
+    stream.onStart(first);
+    message(stream, "a");
+    stream.onStart(second);
+    message(stream, "b");
+
+    assertEquals(Arrays.asList("a", "b"), consumer.items);
+    verify(first, times(2)).request(1);
+    verify(second, times(2)).request(1);
+  }
+
+  @Test
+  public void cancelStopsDelivery() {
+    RecordingObserver consumer = new RecordingObserver(/* manualFlowControl= */ true, 1);
+    DemandDrivenStream<String> stream = new DemandDrivenStream<>(consumer);
+    StreamController upstream = mock(StreamController.class);
+
+    stream.onStart(upstream);
+    message(stream, "a", "b");
+    consumer.controller.cancel();
+    consumer.controller.request(1);
+    stream.onError(new Exception("cancelled"));
+
+    verify(upstream).cancel();
+    assertEquals(Arrays.asList("a"), consumer.items);
+    assertFalse(consumer.completed);
+    assertNull(consumer.error);
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void requestRequiresManualFlowControl() {
+    RecordingObserver consumer = new RecordingObserver(/* manualFlowControl= */ false, 0);
+    DemandDrivenStream<String> stream = new DemandDrivenStream<>(consumer);
+    stream.onStart(mock(StreamController.class));
+
+    consumer.controller.request(1);
+  }
+
+  private static void message(DemandDrivenStream<String> stream, String... items) {
+    for (String item : items) {
+      stream.onNext(item);
+    }
+    stream.onMessageEnd();
+  }
+}
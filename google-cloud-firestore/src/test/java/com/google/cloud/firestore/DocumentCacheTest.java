@@ -0,0 +1,344 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.firestore;
+
+import static com.google.cloud.firestore.LocalFirestoreHelper.SINGLE_FIELD_PROTO;
+import static com.google.cloud.firestore.LocalFirestoreHelper.UPDATED_SINGLE_FIELD_PROTO;
+import static com.google.cloud.firestore.LocalFirestoreHelper.getAllResponse;
+import static com.google.cloud.firestore.LocalFirestoreHelper.map;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import com.google.api.core.ApiClock;
+import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutures;
+import com.google.api.gax.rpc.ServerStreamingCallable;
+import com.google.api.gax.rpc.UnaryCallable;
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.spi.v1.FirestoreRpc;
+import com.google.firestore.v1.BatchGetDocumentsRequest;
+import com.google.firestore.v1.BatchWriteRequest;
+import com.google.firestore.v1.BatchWriteResponse;
+import com.google.firestore.v1.CommitRequest;
+import com.google.firestore.v1.CommitResponse;
+import com.google.firestore.v1.Document;
+import com.google.firestore.v1.Value;
+import com.google.protobuf.ByteString;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+import org.mockito.Spy;
+import org.mockito.junit.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class DocumentCacheTest {
+
+  @Spy
+  private final FirestoreImpl firestoreMock =
+      new FirestoreImpl(
+          FirestoreOptions.newBuilder()
+              .setProjectId("test-project")
+              .setDocumentCacheOptions(DocumentCacheOptions.builder().build())
+              .build(),
+          Mockito.mock(FirestoreRpc.class));
+
+  private long nowNanos;
+
+  private final ApiClock clock =
+      new ApiClock() {
+        @Override
+        public long nanoTime() {
+          return nowNanos;
+        }
+
+        @Override
+        public long millisTime() {
+          return TimeUnit.NANOSECONDS.toMillis(nowNanos);
+        }
+      };
+
+  private DocumentSnapshot snapshot(String id, long readSeconds, Map<String, Value> fields) {
+    Document document =
+        Document.newBuilder()
+            .setName(firestoreMock.document("coll/" + id).getName())
+            .putAllFields(fields)
+            .setCreateTime(com.google.protobuf.Timestamp.newBuilder().setSeconds(1))
+            .setUpdateTime(com.google.protobuf.Timestamp.newBuilder().setSeconds(1))
+            .build();
+    return DocumentSnapshot.fromDocument(
+        firestoreMock, Timestamp.ofTimeSecondsAndNanos(readSeconds, 0), document);
+  }
+
+  private static ResourcePath path(DocumentSnapshot snapshot) {
+    return snapshot.getReference().getResourcePath();
+  }
+
+  private DocumentCache cache(DocumentCacheOptions.Builder options) {
+    return new DocumentCache(options.build(), clock);
+  }
+
+  @Test
+  public void returnsCachedSnapshot() {
+    DocumentCache cache = cache(DocumentCacheOptions.builder());
+    DocumentSnapshot snapshot = snapshot("doc", 5, SINGLE_FIELD_PROTO);
+
+    assertNull(cache.get(path(snapshot)));
+    cache.put(snapshot);
+    assertSame(snapshot, cache.get(path(snapshot)));
+  }
+
+  @Test
+  public void expiresStaleEntries() {
+    DocumentCache cache =
+        cache(DocumentCacheOptions.builder().setMaxStaleness(Duration.ofSeconds(10)));
+    DocumentSnapshot snapshot = snapshot("doc", 5, SINGLE_FIELD_PROTO);
+    cache.put(snapshot);
+
+    nowNanos = TimeUnit.SECONDS.toNanos(10);
+    assertSame(snapshot, cache.get(path(snapshot)));
+
+    nowNanos = TimeUnit.SECONDS.toNanos(10) + 1;
+    assertNull(cache.get(path(snapshot)));
+    assertEquals(0, cache.size());
+  }
+
+  @Test
+  public void evictsLeastRecentlyUsedEntries() {
+    DocumentCache cache = cache(DocumentCacheOptions.builder().setMaxEntries(2));
+    DocumentSnapshot first = snapshot("first", 5, SINGLE_FIELD_PROTO);
+    DocumentSnapshot second = snapshot("second", 5, SINGLE_FIELD_PROTO);
+    DocumentSnapshot third = snapshot("third", 5, SINGLE_FIELD_PROTO);
+
+    cache.put(first);
+    cache.put(second);
+    cache.get(path(first));
+    cache.put(third);
+
+    assertSame(first, cache.get(path(first)));
+    assertNull(cache.get(path(second)));
+    assertSame(third, cache.get(path(third)));
+  }
+
+  @Test
+  public void evictsByWeight() {
+    Map<String, Value> largeFields =
+        map("foo", Value.newBuilder().setStringValue(new String(new char[1000])).build());
+    DocumentCache cache = cache(DocumentCacheOptions.builder().setMaxBytes(2500));
+    DocumentSnapshot first = snapshot("first", 5, largeFields);
+    DocumentSnapshot second = snapshot("second", 5, largeFields);
+    DocumentSnapshot third = snapshot("third", 5, largeFields);
+
+    cache.put(first);
+    cache.put(second);
+    cache.put(third);
+
+    assertEquals(2, cache.size());
+    assertNull(cache.get(path(first)));
+    assertTrue(cache.getWeightedSize() <= 2500);
+  }
+
+  @Test
+  public void skipsDocumentsLargerThanCache() {
+    Map<String, Value> largeFields =
+        map("foo", Value.newBuilder().setStringValue(new String(new char[1000])).build());
+    DocumentCache cache = cache(DocumentCacheOptions.builder().setMaxBytes(500));
+    DocumentSnapshot snapshot = snapshot("doc", 5, largeFields);
+
+    cache.put(snapshot);
+
+    assertEquals(0, cache.size());
+    assertEquals(0, cache.getWeightedSize());
+  }
+
+  @Test
+  public void keepsSnapshotWithLatestReadTime() {
+    DocumentCache cache = cache(DocumentCacheOptions.builder());
+    DocumentSnapshot newer = snapshot("doc", 10, UPDATED_SINGLE_FIELD_PROTO);
+    DocumentSnapshot older = snapshot("doc", 5, SINGLE_FIELD_PROTO);
+
+    cache.put(newer);
+    cache.put(older);
+
+    assertSame(newer, cache.get(path(newer)));
+  }
+
+  @Test
+  public void invalidationIsReadTimeAware() {
+    DocumentCache cache = cache(DocumentCacheOptions.builder());
+    DocumentSnapshot snapshot = snapshot("doc", 10, SINGLE_FIELD_PROTO);
+    cache.put(snapshot);
+
+    // The cached version was read after the write and already reflects it.
+    cache.invalidate(path(snapshot), Timestamp.ofTimeSecondsAndNanos(8, 0));
+    assertSame(snapshot, cache.get(path(snapshot)));
+
+    cache.invalidate(path(snapshot), Timestamp.ofTimeSecondsAndNanos(12, 0));
+    assertNull(cache.get(path(snapshot)));
+
+    // A read that was in flight during the write does not put the old version back.
+    cache.put(snapshot("doc", 11, SINGLE_FIELD_PROTO));
+    assertNull(cache.get(path(snapshot)));
+
+    DocumentSnapshot updated = snapshot("doc", 12, UPDATED_SINGLE_FIELD_PROTO);
+    cache.put(updated);
+    assertSame(updated, cache.get(path(snapshot)));
+
+    cache.invalidate(path(snapshot), null);
+    assertNull(cache.get(path(snapshot)));
+    assertEquals(0, cache.size());
+  }
+
+  @Test
+  public void getServesRepeatedReadsFromCache() throws Exception {
+    doAnswer(getAllResponse(SINGLE_FIELD_PROTO))
+        .when(firestoreMock)
+        .streamRequest(
+            ArgumentMatchers.<BatchGetDocumentsRequest>any(),
+            ArgumentMatchers.any(),
+            ArgumentMatchers.<ServerStreamingCallable>any());
+
+    DocumentReference documentReference = firestoreMock.document("coll/doc");
+    DocumentSnapshot first = documentReference.get().get();
+    DocumentSnapshot second = documentReference.get().get();
+    DocumentSnapshot third = firestoreMock.getAll(documentReference).get().get(0);
+
+    assertSame(first, second);
+    assertSame(first, third);
+    verify(firestoreMock, times(1))
+        .streamRequest(
+            ArgumentMatchers.<BatchGetDocumentsRequest>any(),
+            ArgumentMatchers.any(),
+            ArgumentMatchers.<ServerStreamingCallable>any());
+  }
+
+  @Test
+  public void maskedAndTransactionalReadsBypassCache() throws Exception {
+    doAnswer(getAllResponse(SINGLE_FIELD_PROTO))
+        .when(firestoreMock)
+        .streamRequest(
+            ArgumentMatchers.<BatchGetDocumentsRequest>any(),
+            ArgumentMatchers.any(),
+            ArgumentMatchers.<ServerStreamingCallable>any());
+
+    DocumentReference documentReference = firestoreMock.document("coll/doc");
+    documentReference.get().get();
+    documentReference.get(FieldMask.of("foo")).get();
+    firestoreMock
+        .getAll(
+            new DocumentReference[] {documentReference},
+            null,
+            ByteString.copyFromUtf8("foo"),
+            /* readTime= */ null)
+        .get();
+    firestoreMock
+        .getAll(
+            new DocumentReference[] {documentReference},
+            null,
+            Timestamp.ofTimeSecondsAndNanos(1, 0).toProto())
+        .get();
+
+    verify(firestoreMock, times(4))
+        .streamRequest(
+            ArgumentMatchers.<BatchGetDocumentsRequest>any(),
+            ArgumentMatchers.any(),
+            ArgumentMatchers.<ServerStreamingCallable>any());
+  }
+
+  @Test
+  public void serverSourceBypassesCache() throws Exception {
+    doAnswer(getAllResponse(SINGLE_FIELD_PROTO))
+        .when(firestoreMock)
+        .streamRequest(
+            ArgumentMatchers.<BatchGetDocumentsRequest>any(),
+            ArgumentMatchers.any(),
+            ArgumentMatchers.<ServerStreamingCallable>any());
+
+    DocumentReference documentReference = firestoreMock.document("coll/doc");
+    documentReference.get().get();
+    documentReference.get(Source.SERVER).get();
+    firestoreMock.getAll(new DocumentReference[] {documentReference}, Source.SERVER).get();
+    documentReference.get(Source.DEFAULT).get();
+
+    verify(firestoreMock, times(3))
+        .streamRequest(
+            ArgumentMatchers.<BatchGetDocumentsRequest>any(),
+            ArgumentMatchers.any(),
+            ArgumentMatchers.<ServerStreamingCallable>any());
+  }
+
+  @Test
+  public void bulkWriterInvalidatesWrittenDocuments() throws Exception {
+    doAnswer(getAllResponse(SINGLE_FIELD_PROTO))
+        .when(firestoreMock)
+        .streamRequest(
+            ArgumentMatchers.<BatchGetDocumentsRequest>any(),
+            ArgumentMatchers.any(),
+            ArgumentMatchers.<ServerStreamingCallable>any());
+    doReturn(BulkWriterTest.successResponse(10))
+        .when(firestoreMock)
+        .sendRequest(
+            ArgumentMatchers.<BatchWriteRequest>any(),
+            ArgumentMatchers.<UnaryCallable<BatchWriteRequest, BatchWriteResponse>>any());
+
+    DocumentReference documentReference = firestoreMock.document("coll/doc");
+    documentReference.get().get();
+    assertEquals(1, firestoreMock.getDocumentCache().size());
+
+    BulkWriter bulkWriter = firestoreMock.bulkWriter();
+    ApiFuture<WriteResult> result = bulkWriter.set(documentReference, map("foo", "updated"));
+    bulkWriter.close();
+
+    assertEquals(Timestamp.ofTimeSecondsAndNanos(10, 0), result.get().getUpdateTime());
+    // The write leaves a tombstone at its update time.
+    assertEquals(1, firestoreMock.getDocumentCache().size());
+    assertNull(firestoreMock.getDocumentCache().get(documentReference.getResourcePath()));
+  }
+
+  @Test
+  public void commitInvalidatesWrittenDocuments() throws Exception {
+    doAnswer(getAllResponse(SINGLE_FIELD_PROTO))
+        .when(firestoreMock)
+        .streamRequest(
+            ArgumentMatchers.<BatchGetDocumentsRequest>any(),
+            ArgumentMatchers.any(),
+            ArgumentMatchers.<ServerStreamingCallable>any());
+    CommitResponse.Builder commitResponse = CommitResponse.newBuilder();
+    commitResponse.getCommitTimeBuilder().setSeconds(10);
+    commitResponse.addWriteResultsBuilder().getUpdateTimeBuilder().setSeconds(10);
+    doReturn(ApiFutures.immediateFuture(commitResponse.build()))
+        .when(firestoreMock)
+        .sendRequest(
+            ArgumentMatchers.<CommitRequest>any(),
+            ArgumentMatchers.<UnaryCallable<CommitRequest, CommitResponse>>any());
+
+    DocumentReference documentReference = firestoreMock.document("coll/doc");
+    documentReference.get().get();
+    assertEquals(1, firestoreMock.getDocumentCache().size());
+    documentReference.set(map("foo", "updated")).get();
+    assertNull(firestoreMock.getDocumentCache().get(documentReference.getResourcePath()));
+  }
+}
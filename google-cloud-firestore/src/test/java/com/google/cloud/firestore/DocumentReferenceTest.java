@@ -71,6 +71,9 @@ import com.google.api.gax.rpc.ServerStreamingCallable;
 import com.google.api.gax.rpc.UnaryCallable;
 import com.google.cloud.Timestamp;
 import com.google.cloud.firestore.LocalFirestoreHelper.InvalidPOJO;
+import com.google.cloud.firestore.annotation.DocumentId;
+import com.google.cloud.firestore.annotation.Exclude;
+import com.google.cloud.firestore.annotation.PropertyName;
 import com.google.cloud.firestore.spi.v1.FirestoreRpc;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
@@ -285,6 +288,57 @@ public class DocumentReferenceTest {
     assertEquals(documentReference, snapshot.getReference());
   }
 
+  public static class ProjectedPojo {
+    @DocumentId public String id;
+    public String foo;
+    @Exclude public String excluded;
+    @PropertyName("renamed")
+    public String value;
+
+    private String setterOnly;
+
+    public void setSetterOnly(String setterOnly) {
+      this.setterOnly = setterOnly;
+    }
+
+    public String getGetterOnly() {
+      return "computed";
+    }
+  }
+
+  @Test
+  public void getWithClassAppliesFieldMask() throws Exception {
+    doAnswer(getAllResponse(SINGLE_FIELD_PROTO))
+        .when(firestoreMock)
+        .streamRequest(
+            getAllCapture.capture(),
+            streamObserverCapture.capture(),
+            ArgumentMatchers.<ServerStreamingCallable>any());
+
+    ProjectedPojo pojo = documentReference.get(ProjectedPojo.class).get();
+
+    assertEquals(
+        Arrays.asList("foo", "renamed", "setterOnly"),
+        getAllCapture.getValue().getMask().getFieldPathsList());
+    assertEquals("bar", pojo.foo);
+    assertEquals(documentReference.getId(), pojo.id);
+  }
+
+  @Test
+  public void getWithMapClassFetchesAllFields() throws Exception {
+    doAnswer(getAllResponse(SINGLE_FIELD_PROTO))
+        .when(firestoreMock)
+        .streamRequest(
+            getAllCapture.capture(),
+            streamObserverCapture.capture(),
+            ArgumentMatchers.<ServerStreamingCallable>any());
+
+    Map<?, ?> data = documentReference.get(Map.class).get();
+
+    assertFalse(getAllCapture.getValue().hasMask());
+    assertEquals(SINGLE_FIELD_MAP, data);
+  }
+
   @Test
   public void getFieldWithFieldMask() throws Exception {
     doAnswer(getAllResponse(SINGLE_FIELD_PROTO))
@@ -0,0 +1,170 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.firestore;
+
+import static com.google.cloud.firestore.LocalFirestoreHelper.DATABASE_NAME;
+import static org.junit.Assert.assertEquals;
+
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.DocumentChange.Type;
+import com.google.cloud.firestore.spi.v1.FirestoreRpc;
+import com.google.firestore.v1.Value;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+public class DocumentSetTest {
+
+  private final FirestoreImpl firestore =
+      new FirestoreImpl(
+          FirestoreOptions.newBuilder().setProjectId("test-project").build(),
+          Mockito.mock(FirestoreRpc.class));
+
+  /** Orders documents by their 'value' field, then by document ID. */
+  private static final Comparator<QueryDocumentSnapshot> VALUE_COMPARATOR =
+      Comparator.<QueryDocumentSnapshot>comparingLong(
+              doc -> doc.getProtoFields().get("value").getIntegerValue())
+          .thenComparing(QueryDocumentSnapshot::compareDocumentId);
+
+  @Test
+  public void appliesChangesInListenerOrder() {
+    DocumentSet documentSet =
+        DocumentSet.emptySet(VALUE_COMPARATOR).add(doc("a", 1, 1)).add(doc("b", 2, 1));
+
+    for (boolean inBulk : new boolean[] {false, true}) {
+      DocumentView.ChangeResult<DocumentSet> result =
+          documentSet.applyChanges(
+              list(documentSet.getDocument(path("a"))),
+              list(doc("c", 3, 1)),
+              list(doc("b", 0, 2)),
+              inBulk);
+
+      assertEquals(3, result.changes.size());
+      assertChange(result.changes.get(0), Type.REMOVED, "a", 0, -1);
+      assertChange(result.changes.get(1), Type.ADDED, "c", -1, 1);
+      assertChange(result.changes.get(2), Type.MODIFIED, "b", 0, 0);
+      assertEquals(list("b", "c"), ids(result.documentSet));
+    }
+  }
+
+  @Test
+  public void skipsModificationsWithoutNewUpdateTime() {
+    DocumentSet documentSet = DocumentSet.emptySet(VALUE_COMPARATOR).add(doc("a", 1, 1));
+
+    for (boolean inBulk : new boolean[] {false, true}) {
+      DocumentView.ChangeResult<DocumentSet> result =
+          documentSet.applyChanges(list(), list(), list(doc("a", 5, 1)), inBulk);
+
+      assertEquals(0, result.changes.size());
+      QueryDocumentSnapshot document = result.documentSet.getDocument(path("a"));
+      assertEquals(1, document.getProtoFields().get("value").getIntegerValue());
+    }
+  }
+
+  @Test
+  public void bulkAndIncrementalPathsProduceSameChanges() {
+    Random random = new Random(42);
+    int updateTime = 1;
+
+    for (int round = 0; round < 50; ++round) {
+      DocumentSet documentSet = DocumentSet.emptySet(VALUE_COMPARATOR);
+      int size = random.nextInt(200);
+      for (int i = 0; i < size; ++i) {
+        documentSet = documentSet.add(doc("doc" + i, random.nextInt(100), updateTime));
+      }
+
+      List<QueryDocumentSnapshot> deletes = new ArrayList<>();
+      List<QueryDocumentSnapshot> adds = new ArrayList<>();
+      List<QueryDocumentSnapshot> updates = new ArrayList<>();
+      ++updateTime;
+      for (int i = 0; i < size; ++i) {
+        switch (random.nextInt(4)) {
+          case 0:
+            deletes.add(documentSet.getDocument(path("doc" + i)));
+            break;
+          case 1:
+            int newUpdateTime = random.nextBoolean() ? updateTime : updateTime - 1;
+            updates.add(doc("doc" + i, random.nextInt(100), newUpdateTime));
+            break;
+          default:
+            break;
+        }
+      }
+      int addCount = random.nextInt(50);
+      for (int i = 0; i < addCount; ++i) {
+        adds.add(doc("new" + i, random.nextInt(100), updateTime));
+      }
+
+      DocumentView.ChangeResult<DocumentSet> incremental =
+          documentSet.applyChanges(
+              new ArrayList<>(deletes), new ArrayList<>(adds), new ArrayList<>(updates), false);
+      DocumentView.ChangeResult<DocumentSet> bulk =
+          documentSet.applyChanges(
+              new ArrayList<>(deletes), new ArrayList<>(adds), new ArrayList<>(updates), true);
+
+      assertEquals(incremental.changes, bulk.changes);
+      assertEquals(incremental.documentSet.toList(), bulk.documentSet.toList());
+      assertEquals(incremental.documentSet.size(), bulk.documentSet.size());
+      for (QueryDocumentSnapshot document : bulk.documentSet) {
+        ResourcePath resourcePath = document.getReference().getResourcePath();
+        assertEquals(
+            incremental.documentSet.indexOf(resourcePath), bulk.documentSet.indexOf(resourcePath));
+      }
+    }
+  }
+
+  private QueryDocumentSnapshot doc(String id, long value, long updateSeconds) {
+    return new QueryDocumentSnapshot(
+        firestore,
+        new DocumentReference(firestore, path(id)),
+        Collections.singletonMap("value", Value.newBuilder().setIntegerValue(value).build()),
+        Timestamp.ofTimeSecondsAndNanos(updateSeconds, 0),
+        Timestamp.ofTimeSecondsAndNanos(updateSeconds, 0),
+        Timestamp.ofTimeSecondsAndNanos(1, 0));
+  }
+
+  private static ResourcePath path(String id) {
+    return ResourcePath.create(DATABASE_NAME + "/documents/coll/" + id);
+  }
+
+  private static void assertChange(
+      DocumentChange change, Type type, String id, int oldIndex, int newIndex) {
+    assertEquals(type, change.getType());
+    assertEquals(id, change.getDocument().getId());
+    assertEquals(oldIndex, change.getOldIndex());
+    assertEquals(newIndex, change.getNewIndex());
+  }
+
+  private static List<String> ids(DocumentSet documentSet) {
+    List<String> ids = new ArrayList<>();
+    for (QueryDocumentSnapshot document : documentSet) {
+      ids.add(document.getId());
+    }
+    return ids;
+  }
+
+  @SafeVarargs
+  private static <T> List<T> list(T... elements) {
+    List<T> list = new ArrayList<>();
+    Collections.addAll(list, elements);
+    return list;
+  }
+}
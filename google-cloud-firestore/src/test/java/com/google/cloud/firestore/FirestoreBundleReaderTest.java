@@ -0,0 +1,162 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.firestore;
+
+import static com.google.cloud.firestore.LocalFirestoreHelper.COLLECTION_ID;
+import static com.google.cloud.firestore.LocalFirestoreHelper.SINGLE_FIELD_SNAPSHOT;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
+
+import com.google.cloud.firestore.FirestoreBundleWriter.Encoding;
+import com.google.cloud.firestore.spi.v1.FirestoreRpc;
+import com.google.common.collect.Lists;
+import com.google.firestore.bundle.BundleElement;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+public class FirestoreBundleReaderTest {
+  private static final String TEST_BUNDLE_ID = "test-bundle";
+
+  private final FirestoreImpl firestore =
+      new FirestoreImpl(
+          FirestoreOptions.newBuilder().setProjectId("test-project").build(),
+          Mockito.mock(FirestoreRpc.class));
+
+  private byte[] writeBundle(Encoding encoding) throws IOException {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    try (FirestoreBundleWriter writer =
+        FirestoreBundleWriter.create(TEST_BUNDLE_ID, output, encoding)) {
+      writer.add(
+          "test-query",
+          QuerySnapshot.withDocuments(
+              firestore.collection(COLLECTION_ID),
+              SINGLE_FIELD_SNAPSHOT.getReadTime(),
+              Lists.newArrayList(
+                  QueryDocumentSnapshot.fromDocument(
+                      null,
+                      SINGLE_FIELD_SNAPSHOT.getReadTime(),
+                      SINGLE_FIELD_SNAPSHOT.toDocumentPb().build()))));
+    }
+    return output.toByteArray();
+  }
+
+  private static List<BundleElement> readAll(FirestoreBundleReader reader) throws IOException {
+    List<BundleElement> elements = new ArrayList<>();
+    elements.add(BundleElement.newBuilder().setMetadata(reader.getMetadata()).build());
+    BundleElement element;
+    while ((element = reader.next()) != null) {
+      elements.add(element);
+    }
+    return elements;
+  }
+
+  @Test
+  public void readsJsonBundleFromStream() throws Exception {
+    byte[] bundle = writeBundle(Encoding.JSON);
+
+    List<BundleElement> elements =
+        readAll(FirestoreBundleReader.create(new ByteArrayInputStream(bundle)));
+
+    assertEquals(FirestoreBundleTest.toBundleElements(ByteBuffer.wrap(bundle)), elements);
+  }
+
+  @Test
+  public void readsJsonBundleFromBuffer() throws Exception {
+    FirestoreBundle.Builder builder = new FirestoreBundle.Builder(TEST_BUNDLE_ID);
+    builder.add(SINGLE_FIELD_SNAPSHOT);
+    FirestoreBundle bundle = builder.build();
+
+    List<BundleElement> elements =
+        readAll(FirestoreBundleReader.create(bundle.toByteBuffer(), Encoding.JSON));
+
+    assertEquals(FirestoreBundleTest.toBundleElements(bundle.toByteBuffer()), elements);
+  }
+
+  @Test
+  public void readsProtobufBundleFromFile() throws Exception {
+    byte[] bundle = writeBundle(Encoding.PROTOBUF);
+    Path path = Files.createTempFile("bundle", ".pb");
+    try {
+      Files.write(path, bundle);
+
+      List<BundleElement> elements;
+      try (FirestoreBundleReader reader = FirestoreBundleReader.open(path, Encoding.PROTOBUF)) {
+        elements = readAll(reader);
+      }
+
+      List<BundleElement> expected = new ArrayList<>();
+      ByteArrayInputStream input = new ByteArrayInputStream(bundle);
+      BundleElement element;
+      while ((element = BundleElement.parseDelimitedFrom(input)) != null) {
+        expected.add(element);
+      }
+      assertEquals(4, elements.size());
+      assertEquals(expected, elements);
+    } finally {
+      Files.delete(path);
+    }
+  }
+
+  @Test
+  public void nextReadsMetadataFirst() throws Exception {
+    FirestoreBundleReader reader =
+        FirestoreBundleReader.create(new ByteArrayInputStream(writeBundle(Encoding.JSON)));
+
+    assertEquals("test-query", reader.next().getNamedQuery().getName());
+    assertEquals(TEST_BUNDLE_ID, reader.getMetadata().getId());
+    reader.next();
+    reader.next();
+    assertNull(reader.next());
+  }
+
+  @Test
+  public void rejectsBundleWithoutMetadata() {
+    byte[] bundle = "17{\"namedQuery\":{}}".getBytes(StandardCharsets.UTF_8);
+    FirestoreBundleReader reader = FirestoreBundleReader.create(new ByteArrayInputStream(bundle));
+
+    assertThrows(IOException.class, reader::getMetadata);
+  }
+
+  @Test
+  public void rejectsTruncatedBundle() throws Exception {
+    byte[] bundle = writeBundle(Encoding.JSON);
+    byte[] truncated = new byte[bundle.length - 1];
+    System.arraycopy(bundle, 0, truncated, 0, truncated.length);
+    FirestoreBundleReader reader =
+        FirestoreBundleReader.create(new ByteArrayInputStream(truncated));
+
+    assertThrows(IOException.class, () -> readAll(reader));
+  }
+
+  @Test
+  public void rejectsInvalidLengthPrefix() {
+    byte[] bundle = "12a{}".getBytes(StandardCharsets.UTF_8);
+    FirestoreBundleReader reader = FirestoreBundleReader.create(new ByteArrayInputStream(bundle));
+
+    assertThrows(IOException.class, reader::getMetadata);
+  }
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.firestore;
+
+import static com.google.cloud.firestore.FirestoreBundleTest.toBundleElements;
+import static com.google.cloud.firestore.FirestoreBundleTest.verifyDocumentAndMeta;
+import static com.google.cloud.firestore.FirestoreBundleTest.verifyMetadata;
+import static com.google.cloud.firestore.FirestoreBundleTest.verifyNamedQuery;
+import static com.google.cloud.firestore.LocalFirestoreHelper.COLLECTION_ID;
+import static com.google.cloud.firestore.LocalFirestoreHelper.DOCUMENT_NAME;
+import static com.google.cloud.firestore.LocalFirestoreHelper.SINGLE_FIELD_SNAPSHOT;
+import static com.google.cloud.firestore.LocalFirestoreHelper.UPDATED_SINGLE_FIELD_SNAPSHOT;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.spi.v1.FirestoreRpc;
+import com.google.common.collect.Lists;
+import com.google.firestore.bundle.BundleElement;
+import com.google.firestore.bundle.BundledQuery.LimitType;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+public class FirestoreBundleWriterTest {
+  private static final String TEST_BUNDLE_ID = "test-bundle";
+
+  private final FirestoreImpl firestore =
+      new FirestoreImpl(
+          FirestoreOptions.newBuilder().setProjectId("test-project").build(),
+          Mockito.mock(FirestoreRpc.class));
+
+  private final Query query = firestore.collection(COLLECTION_ID);
+
+  private QuerySnapshot singleFieldQuerySnapshot() {
+    return QuerySnapshot.withDocuments(
+        query,
+        SINGLE_FIELD_SNAPSHOT.getReadTime(),
+        Lists.newArrayList(
+            QueryDocumentSnapshot.fromDocument(
+                null,
+                SINGLE_FIELD_SNAPSHOT.getReadTime(),
+                SINGLE_FIELD_SNAPSHOT.toDocumentPb().build())));
+  }
+
+  @Test
+  public void writesSameBundleAsBuilder() throws Exception {
+    FirestoreBundle.Builder bundleBuilder = new FirestoreBundle.Builder(TEST_BUNDLE_ID);
+    bundleBuilder.add("test-query", singleFieldQuerySnapshot());
+    ByteBuffer expected = bundleBuilder.build().toByteBuffer();
+
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    try (FirestoreBundleWriter writer = FirestoreBundleWriter.create(TEST_BUNDLE_ID, output)) {
+      writer.add("test-query", singleFieldQuerySnapshot());
+    }
+
+    byte[] expectedBytes = new byte[expected.remaining()];
+    expected.get(expectedBytes);
+    assertArrayEquals(expectedBytes, output.toByteArray());
+  }
+
+  @Test
+  public void writesStreamedQueryResults() throws Exception {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    try (FirestoreBundleWriter writer = FirestoreBundleWriter.create(TEST_BUNDLE_ID, output)) {
+      writer.add("test-query", SINGLE_FIELD_SNAPSHOT);
+      writer.add("test-query", UPDATED_SINGLE_FIELD_SNAPSHOT);
+      writer.addQuery("test-query", query, UPDATED_SINGLE_FIELD_SNAPSHOT.getReadTime());
+    }
+
+    // Expected bundle elements are [bundleMetadata, named query, meta of SINGLE_FIELD_SNAPSHOT,
+    // SINGLE_FIELD_SNAPSHOT, meta of UPDATED_SINGLE_FIELD_SNAPSHOT, UPDATED_SINGLE_FIELD_SNAPSHOT]
+    byte[] bundle = output.toByteArray();
+    List<BundleElement> elements = toBundleElements(ByteBuffer.wrap(bundle));
+    assertEquals(6, elements.size());
+
+    verifyMetadata(
+        elements.get(0).getMetadata(),
+        UPDATED_SINGLE_FIELD_SNAPSHOT.getReadTime().toProto(),
+        /*totalDocuments*/ 2,
+        /*expectEmptyContent*/ false);
+    assertEquals(
+        bundle.length - firstElementLength(bundle), elements.get(0).getMetadata().getTotalBytes());
+
+    verifyNamedQuery(
+        elements.get(1).getNamedQuery(),
+        "test-query",
+        UPDATED_SINGLE_FIELD_SNAPSHOT.getReadTime().toProto(),
+        query,
+        LimitType.FIRST);
+    verifyDocumentAndMeta(
+        elements.get(2).getDocumentMetadata(),
+        elements.get(3).getDocument(),
+        DOCUMENT_NAME,
+        Collections.singletonList("test-query"),
+        SINGLE_FIELD_SNAPSHOT);
+    verifyDocumentAndMeta(
+        elements.get(4).getDocumentMetadata(),
+        elements.get(5).getDocument(),
+        DOCUMENT_NAME,
+        Collections.singletonList("test-query"),
+        UPDATED_SINGLE_FIELD_SNAPSHOT);
+  }
+
+  @Test
+  public void writesProtobufElements() throws Exception {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    try (FirestoreBundleWriter writer =
+        FirestoreBundleWriter.create(
+            TEST_BUNDLE_ID, output, FirestoreBundleWriter.Encoding.PROTOBUF)) {
+      writer.add(SINGLE_FIELD_SNAPSHOT);
+    }
+
+    List<BundleElement> elements = new ArrayList<>();
+    InputStream input = new ByteArrayInputStream(output.toByteArray());
+    BundleElement element;
+    while ((element = BundleElement.parseDelimitedFrom(input)) != null) {
+      elements.add(element);
+    }
+    assertEquals(3, elements.size());
+
+    verifyMetadata(
+        elements.get(0).getMetadata(),
+        SINGLE_FIELD_SNAPSHOT.getReadTime().toProto(),
+        /*totalDocuments*/ 1,
+        /*expectEmptyContent*/ false);
+    verifyDocumentAndMeta(
+        elements.get(1).getDocumentMetadata(),
+        elements.get(2).getDocument(),
+        DOCUMENT_NAME,
+        Collections.emptyList(),
+        SINGLE_FIELD_SNAPSHOT);
+  }
+
+  @Test
+  public void writesEmptyBundle() throws Exception {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    FirestoreBundleWriter.create(TEST_BUNDLE_ID, output).close();
+
+    List<BundleElement> elements = toBundleElements(ByteBuffer.wrap(output.toByteArray()));
+    assertEquals(1, elements.size());
+    verifyMetadata(
+        elements.get(0).getMetadata(),
+        Timestamp.MIN_VALUE.toProto(),
+        /*totalDocuments*/ 0,
+        /*expectEmptyContent*/ true);
+  }
+
+  @Test
+  public void closedWriterRejectsDocuments() throws Exception {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    FirestoreBundleWriter writer = FirestoreBundleWriter.create(TEST_BUNDLE_ID, output);
+    writer.close();
+    int size = output.size();
+
+    assertThrows(IllegalStateException.class, () -> writer.add(SINGLE_FIELD_SNAPSHOT));
+    // Closing again does not write the bundle a second time.
+    writer.close();
+    assertEquals(size, output.size());
+  }
+
+  /** Returns the number of bytes of the first element in a bundle, including its length prefix. */
+  private static int firstElementLength(byte[] bundle) {
+    String contents = new String(bundle, StandardCharsets.US_ASCII);
+    int jsonStart = contents.indexOf('{');
+    return jsonStart + Integer.parseInt(contents.substring(0, jsonStart));
+  }
+}
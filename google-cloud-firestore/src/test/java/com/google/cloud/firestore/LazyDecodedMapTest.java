@@ -0,0 +1,177 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.firestore;
+
+import static com.google.cloud.firestore.LocalFirestoreHelper.ALL_SUPPORTED_TYPES_MAP;
+import static com.google.cloud.firestore.LocalFirestoreHelper.ALL_SUPPORTED_TYPES_PROTO;
+import static com.google.cloud.firestore.LocalFirestoreHelper.TIMESTAMP;
+import static com.google.cloud.firestore.LocalFirestoreHelper.map;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import com.google.cloud.firestore.spi.v1.FirestoreRpc;
+import com.google.common.collect.ImmutableMap;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+public class LazyDecodedMapTest {
+
+  private final FirestoreImpl firestore =
+      new FirestoreImpl(
+          FirestoreOptions.newBuilder().setProjectId("test-project").build(),
+          Mockito.mock(FirestoreRpc.class));
+
+  private final DocumentReference documentReference = firestore.document("coll/doc");
+
+  private DocumentSnapshot snapshotOf(Map<String, Object> data) {
+    return DocumentSnapshot.fromObject(
+        firestore, documentReference, data, UserDataConverter.NO_DELETES);
+  }
+
+  @Test
+  public void equalsEagerlyDecodedMap() {
+    Map<String, Object> data = new LazyDecodedMap(firestore, ALL_SUPPORTED_TYPES_PROTO);
+
+    assertEquals(ALL_SUPPORTED_TYPES_MAP, data);
+    assertEquals(data, ALL_SUPPORTED_TYPES_MAP);
+    assertEquals(ALL_SUPPORTED_TYPES_MAP.hashCode(), data.hashCode());
+    assertEquals(ALL_SUPPORTED_TYPES_MAP.size(), data.size());
+    assertTrue(data.containsKey("nullValue"));
+    assertFalse(data.containsKey("missing"));
+    assertNull(data.get("missing"));
+    assertNull(data.get(null));
+  }
+
+  @Test
+  public void memoizesDecodedValues() {
+    Map<String, Object> data =
+        snapshotOf(map("nested", (Object) map("inner", (Object) map("a", 1L)))).getData();
+
+    Object nested = data.get("nested");
+    assertTrue(nested instanceof LazyDecodedMap);
+    assertSame(nested, data.get("nested"));
+    assertEquals(ImmutableMap.of("inner", ImmutableMap.of("a", 1L)), nested);
+  }
+
+  @Test
+  public void decodesNestedArrays() {
+    DocumentSnapshot snapshot =
+        snapshotOf(map("array", (Object) Arrays.asList(1L, map("a", (Object) "b"))));
+
+    List<?> array = (List<?>) snapshot.getData().get("array");
+    assertEquals(1L, array.get(0));
+    assertTrue(array.get(1) instanceof LazyDecodedMap);
+    assertEquals(ImmutableMap.of("a", "b"), array.get(1));
+  }
+
+  @Test
+  public void modificationsAreLocalToView() {
+    DocumentSnapshot snapshot = snapshotOf(map("foo", (Object) "bar", "baz", 1L));
+
+    Map<String, Object> data = snapshot.getData();
+    data.put("foo", "qux");
+    data.remove("baz");
+    data.put("added", true);
+
+    assertEquals(ImmutableMap.of("foo", "qux", "added", true), data);
+    assertEquals(ImmutableMap.of("foo", "bar", "baz", 1L), snapshot.getData());
+  }
+
+  @Test
+  public void iteratorSupportsRemoval() {
+    Map<String, Object> data = snapshotOf(map("foo", (Object) "bar", "baz", 1L)).getData();
+
+    data.keySet().removeIf("foo"::equals);
+    data.entrySet().iterator().next().setValue(2L);
+
+    assertEquals(ImmutableMap.of("baz", 2L), data);
+  }
+
+  @Test
+  public void serializesAsHashMap() throws Exception {
+    Map<String, Object> data =
+        snapshotOf(map("foo", (Object) "bar", "nested", map("a", (Object) 1L))).getData();
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+      out.writeObject(data);
+    }
+    Object copy;
+    try (ObjectInputStream in =
+        new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+      copy = in.readObject();
+    }
+
+    assertTrue(copy instanceof HashMap);
+    assertTrue(((Map<?, ?>) copy).get("nested") instanceof HashMap);
+    assertEquals(data, copy);
+  }
+
+  @Test
+  public void typedGettersReadProtoValues() {
+    DocumentSnapshot snapshot =
+        snapshotOf(
+            map(
+                "long",
+                (Object) 42L,
+                "double",
+                1.5,
+                "string",
+                "foo",
+                "boolean",
+                true,
+                "timestamp",
+                TIMESTAMP,
+                "null",
+                null));
+
+    assertEquals(42L, (long) snapshot.getLong("long"));
+    assertEquals(42.0, snapshot.getDouble("long"), 0.0);
+    assertEquals(1L, (long) snapshot.getLong("double"));
+    assertEquals(1.5, snapshot.getDouble("double"), 0.0);
+    assertEquals("foo", snapshot.getString("string"));
+    assertTrue(snapshot.getBoolean("boolean"));
+    assertEquals(TIMESTAMP, snapshot.getTimestamp("timestamp"));
+    assertEquals(TIMESTAMP.toDate(), snapshot.getDate("timestamp"));
+    assertNull(snapshot.getLong("null"));
+    assertNull(snapshot.getString("null"));
+    assertNull(snapshot.getString("missing"));
+    assertNull(snapshot.getDouble("missing"));
+  }
+
+  @Test
+  public void typedGettersRejectMismatchedTypes() {
+    DocumentSnapshot snapshot = snapshotOf(map("string", (Object) "foo", "long", 1L));
+
+    assertThrows(ClassCastException.class, () -> snapshot.getLong("string"));
+    assertThrows(ClassCastException.class, () -> snapshot.getString("long"));
+    assertThrows(ClassCastException.class, () -> snapshot.getBoolean("long"));
+    assertThrows(ClassCastException.class, () -> snapshot.getTimestamp("string"));
+  }
+}
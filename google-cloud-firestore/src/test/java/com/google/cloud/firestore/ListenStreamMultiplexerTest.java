@@ -0,0 +1,291 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.firestore;
+
+import static com.google.cloud.firestore.LocalFirestoreHelper.DATABASE_NAME;
+import static com.google.cloud.firestore.LocalFirestoreHelper.IMMEDIATE_RETRY_SETTINGS;
+import static com.google.cloud.firestore.LocalFirestoreHelper.SINGLE_FIELD_PROTO;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.lenient;
+
+import com.google.api.gax.rpc.BidiStreamObserver;
+import com.google.api.gax.rpc.BidiStreamingCallable;
+import com.google.api.gax.rpc.ClientStream;
+import com.google.cloud.firestore.spi.v1.FirestoreRpc;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.firestore.v1.Document;
+import com.google.firestore.v1.DocumentChange;
+import com.google.firestore.v1.ListenRequest;
+import com.google.firestore.v1.ListenResponse;
+import com.google.firestore.v1.TargetChange;
+import com.google.firestore.v1.TargetChange.TargetChangeType;
+import com.google.protobuf.Timestamp;
+import io.grpc.Status.Code;
+import io.grpc.StatusException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nonnull;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+import org.mockito.Spy;
+import org.mockito.junit.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ListenStreamMultiplexerTest {
+
+  @Rule public Timeout timeout = new Timeout(1, TimeUnit.SECONDS);
+
+  @Spy private final FirestoreRpc firestoreRpc = Mockito.mock(FirestoreRpc.class);
+
+  @Spy
+  private final FirestoreImpl firestoreMock =
+      new FirestoreImpl(
+          FirestoreOptions.newBuilder()
+              .setProjectId("test-project")
+              .setRetrySettings(IMMEDIATE_RETRY_SETTINGS)
+              .setMaxListenTargetsPerStream(2)
+              .setMaxListenStreams(2)
+              .build(),
+          firestoreRpc);
+
+  /** Executor that executes delayed tasks without delay. */
+  private final ScheduledExecutorService immediateExecutor =
+      new ScheduledThreadPoolExecutor(1) {
+        @Override
+        @Nonnull
+        public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+          return super.schedule(command, 0, TimeUnit.MILLISECONDS);
+        }
+      };
+
+  /** The observers of all streams opened so far, in order of creation. */
+  private final List<BidiStreamObserver<ListenRequest, ListenResponse>> observers =
+      new ArrayList<>();
+
+  /** The requests sent on any stream, tagged with the index of the stream. */
+  private final BlockingQueue<StreamRequest> requests = new LinkedBlockingDeque<>();
+
+  private final BlockingQueue<Integer> closes = new LinkedBlockingDeque<>();
+
+  private static class StreamRequest {
+    final int streamIndex;
+    final ListenRequest request;
+
+    StreamRequest(int streamIndex, ListenRequest request) {
+      this.streamIndex = streamIndex;
+      this.request = request;
+    }
+  }
+
+  @Before
+  public void before() {
+    lenient().doReturn(immediateExecutor).when(firestoreRpc).getExecutor();
+    doAnswer(
+            invocation -> {
+              BidiStreamObserver<ListenRequest, ListenResponse> observer =
+                  invocation.getArgument(0);
+              final int streamIndex;
+              synchronized (observers) {
+                streamIndex = observers.size();
+                observers.add(observer);
+              }
+              return new ClientStream<ListenRequest>() {
+                @Override
+                public void send(ListenRequest listenRequest) {
+                  requests.add(new StreamRequest(streamIndex, listenRequest));
+                }
+
+                @Override
+                public void closeSendWithError(Throwable throwable) {}
+
+                @Override
+                public void closeSend() {
+                  closes.add(streamIndex);
+                }
+
+                @Override
+                public boolean isSendReady() {
+                  return true;
+                }
+              };
+            })
+        .when(firestoreMock)
+        .streamRequest(
+            ArgumentMatchers.<BidiStreamObserver<ListenRequest, ListenResponse>>any(),
+            ArgumentMatchers.<BidiStreamingCallable>any());
+  }
+
+  @Test
+  public void listenersShareStreamUpToTargetLimit() throws InterruptedException {
+    firestoreMock.collection("a").addSnapshotListener((value, error) -> {});
+    StreamRequest first = requests.take();
+    firestoreMock.collection("b").addSnapshotListener((value, error) -> {});
+    StreamRequest second = requests.take();
+    firestoreMock.collection("c").addSnapshotListener((value, error) -> {});
+    StreamRequest third = requests.take();
+
+    assertEquals(0, first.streamIndex);
+    assertEquals(0, second.streamIndex);
+    assertEquals(1, third.streamIndex);
+    assertEquals(DATABASE_NAME, first.request.getDatabase());
+    assertNotEquals(
+        first.request.getAddTarget().getTargetId(), second.request.getAddTarget().getTargetId());
+    assertEquals(2, firestoreMock.getListenStreamMultiplexer().getStreamCount());
+    assertEquals(3, firestoreMock.getListenStreamMultiplexer().getTargetCount());
+  }
+
+  @Test
+  public void leastLoadedStreamIsUsedOnceStreamLimitIsReached() throws InterruptedException {
+    for (int i = 0; i < 5; ++i) {
+      firestoreMock.collection("coll" + i).addSnapshotListener((value, error) -> {});
+      requests.take();
+    }
+
+    assertEquals(2, firestoreMock.getListenStreamMultiplexer().getStreamCount());
+    assertEquals(5, firestoreMock.getListenStreamMultiplexer().getTargetCount());
+  }
+
+  @Test
+  public void responsesAreRoutedByTargetId() throws InterruptedException {
+    BlockingQueue<QuerySnapshot> snapshotsA = new LinkedBlockingDeque<>();
+    BlockingQueue<QuerySnapshot> snapshotsB = new LinkedBlockingDeque<>();
+
+    firestoreMock
+        .collection("a")
+        .addSnapshotListener(
+            MoreExecutors.directExecutor(), (value, error) -> snapshotsA.add(value));
+    int targetA = requests.take().request.getAddTarget().getTargetId();
+    firestoreMock
+        .collection("b")
+        .addSnapshotListener(
+            MoreExecutors.directExecutor(), (value, error) -> snapshotsB.add(value));
+    int targetB = requests.take().request.getAddTarget().getTargetId();
+
+    send(targetChange(TargetChangeType.ADD, targetA, targetB));
+    send(targetChange(TargetChangeType.CURRENT, targetA, targetB));
+    send(doc("a/doc", targetA));
+    send(snapshot());
+
+    QuerySnapshot snapshotA = snapshotsA.take();
+    QuerySnapshot snapshotB = snapshotsB.take();
+    assertEquals(1, snapshotA.size());
+    assertEquals("a/doc", snapshotA.getDocuments().get(0).getReference().getPath());
+    assertEquals(0, snapshotB.size());
+
+    send(doc("b/doc", targetB));
+    send(snapshot());
+
+    snapshotB = snapshotsB.take();
+    assertEquals(1, snapshotB.size());
+    assertEquals("b/doc", snapshotB.getDocuments().get(0).getReference().getPath());
+    assertTrue(snapshotsA.isEmpty());
+  }
+
+  @Test
+  public void removingListenerRemovesTarget() throws InterruptedException {
+    ListenerRegistration first =
+        firestoreMock.collection("a").addSnapshotListener((value, error) -> {});
+    int targetA = requests.take().request.getAddTarget().getTargetId();
+    ListenerRegistration second =
+        firestoreMock.collection("b").addSnapshotListener((value, error) -> {});
+    requests.take();
+
+    first.remove();
+    StreamRequest removal = requests.take();
+    assertEquals(targetA, removal.request.getRemoveTarget());
+
+    second.remove();
+    assertEquals(0, (int) closes.take());
+    assertEquals(0, firestoreMock.getListenStreamMultiplexer().getStreamCount());
+  }
+
+  @Test
+  public void closingFirestoreClosesSharedStreams() throws Exception {
+    for (int i = 0; i < 3; ++i) {
+      firestoreMock.collection("coll" + i).addSnapshotListener((value, error) -> {});
+      requests.take();
+    }
+    ListenStreamMultiplexer multiplexer = firestoreMock.getListenStreamMultiplexer();
+
+    firestoreMock.close();
+
+    assertEquals(0, (int) closes.take());
+    assertEquals(1, (int) closes.take());
+    assertEquals(0, multiplexer.getStreamCount());
+    assertEquals(0, multiplexer.getTargetCount());
+  }
+
+  @Test
+  public void targetsMoveToNewStreamOnError() throws InterruptedException {
+    firestoreMock.collection("a").addSnapshotListener((value, error) -> {});
+    requests.take();
+    firestoreMock.collection("b").addSnapshotListener((value, error) -> {});
+    requests.take();
+
+    observers.get(0).onError(new StatusException(io.grpc.Status.fromCode(Code.UNAVAILABLE)));
+
+    assertEquals(1, requests.take().streamIndex);
+    assertEquals(1, requests.take().streamIndex);
+    assertEquals(1, firestoreMock.getListenStreamMultiplexer().getStreamCount());
+  }
+
+  private void send(ListenResponse response) {
+    observers.get(0).onResponse(response);
+  }
+
+  private static ListenResponse targetChange(TargetChangeType type, int... targetIds) {
+    TargetChange.Builder targetChange = TargetChange.newBuilder().setTargetChangeType(type);
+    for (int targetId : targetIds) {
+      targetChange.addTargetIds(targetId);
+    }
+    return ListenResponse.newBuilder().setTargetChange(targetChange).build();
+  }
+
+  private static ListenResponse snapshot() {
+    return ListenResponse.newBuilder()
+        .setTargetChange(
+            TargetChange.newBuilder()
+                .setTargetChangeType(TargetChangeType.NO_CHANGE)
+                .setReadTime(Timestamp.getDefaultInstance()))
+        .build();
+  }
+
+  private static ListenResponse doc(String docPath, int targetId) {
+    DocumentChange.Builder documentChange = DocumentChange.newBuilder();
+    documentChange.addTargetIds(targetId);
+    documentChange.setDocument(
+        Document.newBuilder()
+            .setName(String.format("%s/documents/%s", DATABASE_NAME, docPath))
+            .putAllFields(SINGLE_FIELD_PROTO)
+            .setUpdateTime(Timestamp.newBuilder().setSeconds(1)));
+    return ListenResponse.newBuilder().setDocumentChange(documentChange).build();
+  }
+}
@@ -0,0 +1,203 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.firestore;
+
+import static com.google.cloud.firestore.LocalFirestoreHelper.COLLECTION_ID;
+import static com.google.cloud.firestore.LocalFirestoreHelper.DOCUMENT_NAME;
+import static com.google.cloud.firestore.LocalFirestoreHelper.DOCUMENT_PATH;
+import static com.google.cloud.firestore.LocalFirestoreHelper.SINGLE_FIELD_SNAPSHOT;
+import static com.google.cloud.firestore.LocalFirestoreHelper.UPDATED_SINGLE_FIELD_SNAPSHOT;
+import static com.google.cloud.firestore.LocalFirestoreHelper.map;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
+
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.spi.v1.FirestoreRpc;
+import com.google.firestore.bundle.BundleMetadata;
+import com.google.firestore.v1.Document;
+import com.google.firestore.v1.Value;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+public class LocalSnapshotStoreTest {
+
+  private final FirestoreImpl firestore =
+      new FirestoreImpl(
+          FirestoreOptions.newBuilder().setProjectId("test-project").build(),
+          Mockito.mock(FirestoreRpc.class));
+
+  private final LocalSnapshotStore store = LocalSnapshotStore.create(firestore);
+
+  private static QueryDocumentSnapshot document(String path, long value, Timestamp readTime) {
+    return QueryDocumentSnapshot.fromDocument(
+        null,
+        readTime,
+        Document.newBuilder()
+            .setName(DOCUMENT_NAME.replace(DOCUMENT_PATH, path))
+            .putAllFields(map("value", Value.newBuilder().setIntegerValue(value).build()))
+            .setCreateTime(readTime.toProto())
+            .setUpdateTime(readTime.toProto())
+            .build());
+  }
+
+  private static FirestoreBundleReader reader(FirestoreBundle.Builder builder) {
+    return FirestoreBundleReader.create(
+        builder.build().toByteBuffer(), FirestoreBundleWriter.Encoding.JSON);
+  }
+
+  @Test
+  public void loadsDocuments() throws Exception {
+    FirestoreBundle.Builder builder = new FirestoreBundle.Builder("bundle");
+    builder.add(SINGLE_FIELD_SNAPSHOT);
+    builder.add(
+        DocumentSnapshot.fromMissing(
+            null, firestore.document("coll/missing"), SINGLE_FIELD_SNAPSHOT.getReadTime()));
+
+    BundleMetadata metadata = store.load(reader(builder));
+
+    assertEquals("bundle", metadata.getId());
+    assertEquals(2, store.getDocumentCount());
+    DocumentSnapshot snapshot = store.getDocument(firestore.document(DOCUMENT_PATH));
+    assertEquals("bar", snapshot.getString("foo"));
+    assertEquals(SINGLE_FIELD_SNAPSHOT.getReadTime(), snapshot.getReadTime());
+    assertEquals(SINGLE_FIELD_SNAPSHOT.getUpdateTime(), snapshot.getUpdateTime());
+    assertFalse(store.getDocument(firestore.document("coll/missing")).exists());
+    assertNull(store.getDocument(firestore.document("coll/unknown")));
+  }
+
+  @Test
+  public void keepsLatestVersionOfDocument() throws Exception {
+    FirestoreBundle.Builder newer = new FirestoreBundle.Builder("newer");
+    newer.add(UPDATED_SINGLE_FIELD_SNAPSHOT);
+    FirestoreBundle.Builder older = new FirestoreBundle.Builder("older");
+    older.add(SINGLE_FIELD_SNAPSHOT);
+
+    store.load(reader(newer));
+    store.load(reader(older));
+
+    DocumentSnapshot snapshot = store.getDocument(firestore.document(DOCUMENT_PATH));
+    assertEquals(UPDATED_SINGLE_FIELD_SNAPSHOT.getReadTime(), snapshot.getReadTime());
+    assertEquals(UPDATED_SINGLE_FIELD_SNAPSHOT.getData(), snapshot.getData());
+  }
+
+  @Test
+  public void loadsDocumentsIntoDocumentCache() throws Exception {
+    // Reads that are not served from the cache fail, since the mocked RPC has no callables.
+    FirestoreImpl cachingFirestore =
+        new FirestoreImpl(
+            FirestoreOptions.newBuilder()
+                .setProjectId("test-project")
+                .setDocumentCacheOptions(DocumentCacheOptions.builder().build())
+                .build(),
+            Mockito.mock(FirestoreRpc.class));
+    FirestoreBundle.Builder builder = new FirestoreBundle.Builder("bundle");
+    builder.add(SINGLE_FIELD_SNAPSHOT);
+    builder.add(
+        DocumentSnapshot.fromMissing(
+            null, firestore.document("coll/missing"), SINGLE_FIELD_SNAPSHOT.getReadTime()));
+
+    LocalSnapshotStore.create(cachingFirestore).load(reader(builder));
+
+    DocumentSnapshot snapshot = cachingFirestore.document(DOCUMENT_PATH).get().get();
+    assertEquals("bar", snapshot.getString("foo"));
+    assertEquals(SINGLE_FIELD_SNAPSHOT.getReadTime(), snapshot.getReadTime());
+    assertFalse(cachingFirestore.document("coll/missing").get().get().exists());
+  }
+
+  @Test
+  public void loadsNamedQueries() throws Exception {
+    Timestamp readTime = Timestamp.ofTimeSecondsAndNanos(10, 0);
+    Query query = firestore.collection(COLLECTION_ID).orderBy("value").limitToLast(2);
+    FirestoreBundle.Builder builder = new FirestoreBundle.Builder("bundle");
+    builder.add(
+        "last-two",
+        QuerySnapshot.withDocuments(
+            query,
+            readTime,
+            Arrays.asList(document("coll/b", 2, readTime), document("coll/c", 3, readTime))));
+    builder.add(document("coll/a", 1, readTime));
+
+    store.load(reader(builder));
+
+    QuerySnapshot snapshot = store.getNamedQuery("last-two");
+    assertEquals(query.toBundledQuery(), snapshot.getQuery().toBundledQuery());
+    assertEquals(readTime, snapshot.getReadTime());
+    List<QueryDocumentSnapshot> documents = snapshot.getDocuments();
+    assertEquals(2, documents.size());
+    assertEquals("b", documents.get(0).getId());
+    assertEquals("c", documents.get(1).getId());
+    assertNull(store.getNamedQuery("unknown"));
+  }
+
+  @Test
+  public void loadsProtobufBundles() throws Exception {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    try (FirestoreBundleWriter writer =
+        FirestoreBundleWriter.create("bundle", output, FirestoreBundleWriter.Encoding.PROTOBUF)) {
+      writer.add(SINGLE_FIELD_SNAPSHOT);
+    }
+
+    store.load(
+        FirestoreBundleReader.create(
+            new ByteArrayInputStream(output.toByteArray()),
+            FirestoreBundleWriter.Encoding.PROTOBUF));
+
+    assertEquals("bar", store.getDocument(firestore.document(DOCUMENT_PATH)).getString("foo"));
+  }
+
+  @Test
+  public void rejectsDocumentsOfOtherDatabases() {
+    FirestoreImpl otherFirestore =
+        new FirestoreImpl(
+            FirestoreOptions.newBuilder().setProjectId("other-project").build(),
+            Mockito.mock(FirestoreRpc.class));
+    LocalSnapshotStore otherStore = LocalSnapshotStore.create(otherFirestore);
+    FirestoreBundle.Builder builder = new FirestoreBundle.Builder("bundle");
+    builder.add(SINGLE_FIELD_SNAPSHOT);
+
+    assertThrows(IllegalArgumentException.class, () -> otherStore.load(reader(builder)));
+  }
+
+  @Test
+  public void rejectsDocumentWithoutMetadata() throws IOException {
+    FirestoreBundle.Builder builder = new FirestoreBundle.Builder("bundle");
+    builder.add(SINGLE_FIELD_SNAPSHOT);
+    // Drop the document metadata element, which directly precedes the document.
+    List<String> elements =
+        LocalFirestoreHelper.bundleToElementList(builder.build().toByteBuffer());
+    String corrupted = prefixed(elements.get(0)) + prefixed(elements.get(2));
+
+    assertThrows(
+        IOException.class,
+        () ->
+            store.load(
+                FirestoreBundleReader.create(
+                    new ByteArrayInputStream(corrupted.getBytes(StandardCharsets.UTF_8)))));
+  }
+
+  private static String prefixed(String json) {
+    return json.getBytes(StandardCharsets.UTF_8).length + json;
+  }
+}
@@ -33,6 +33,8 @@ import com.google.cloud.firestore.encoding.CustomClassMapper;
 import com.google.cloud.firestore.spi.v1.FirestoreRpc;
 import com.google.common.collect.ImmutableList;
 import com.google.firestore.v1.DatabaseRootName;
+import com.google.firestore.v1.Value;
+import java.io.IOException;
 import java.io.Serializable;
 import java.math.BigDecimal;
 import java.util.ArrayList;
@@ -201,6 +203,40 @@ public class MapperTest {
     }
   }
 
+  private static class ProtoFieldsBean {
+    public String name;
+    public long count;
+    public List<Map<String, Long>> nested;
+    public Object raw;
+    public StringBean bean;
+  }
+
+  private static class FinalFieldBean {
+    public final String value;
+
+    FinalFieldBean() {
+      value = null;
+    }
+  }
+
+  private static class ThrowingSetterBean {
+    private String value;
+
+    public String getValue() {
+      return value;
+    }
+
+    public void setValue(String value) {
+      throw new IllegalStateException("setter failed for " + value);
+    }
+  }
+
+  private static class CheckedExceptionGetterBean {
+    public String getValue() throws IOException {
+      throw new IOException("getter failed");
+    }
+  }
+
   private static class PrivateSetterBean {
     public String value;
 
@@ -967,6 +1003,25 @@ public class MapperTest {
     return CustomClassMapper.convertToCustomClass(json, clazz, docRef);
   }
 
+  private static <T> T deserialize(
+      Map<String, Value> fields, Class<T> clazz, List<Value> decodedValues) {
+    return CustomClassMapper.convertToCustomClass(
+        fields,
+        clazz,
+        /* docRef= */ null,
+        value -> {
+          decodedValues.add(value);
+          return UserDataConverter.decodeValue(/* rpcContext= */ null, value);
+        });
+  }
+
+  private static Map<String, Value> encode(String jsonString) {
+    Value value =
+        UserDataConverter.encodeValue(
+            FieldPath.empty(), fromSingleQuotedString(jsonString), UserDataConverter.ARGUMENT);
+    return value.getMapValue().getFieldsMap();
+  }
+
   private static Object serialize(Object object) {
     return CustomClassMapper.convertToPlainJavaTypes(object);
   }
@@ -1384,6 +1439,66 @@ public class MapperTest {
     assertEquals("setter:foo", bean.value);
   }
 
+  @Test
+  public void protoFieldsAreConvertedDirectly() {
+    Map<String, Value> fields =
+        encode(
+            "{'name': 'foo', 'count': 3, 'nested': [{'a': 1}], 'raw': {'b': [true]},"
+                + " 'bean': {'value': 'bar'}}");
+
+    ProtoFieldsBean bean = deserialize(fields, ProtoFieldsBean.class, new ArrayList<>());
+
+    assertEquals("foo", bean.name);
+    assertEquals(3, bean.count);
+    assertEquals(Collections.singletonList(mapAnyType("a", 1L)), bean.nested);
+    assertEquals(mapAnyType("b", Collections.singletonList(true)), bean.raw);
+    assertTrue(bean.raw instanceof HashMap);
+    assertEquals("bar", bean.bean.getValue());
+  }
+
+  @Test
+  public void undeclaredProtoFieldsAreNotDecoded() {
+    Map<String, Value> fields = encode("{'name': 'foo', 'extra': {'deep': [1, 2, 3]}}");
+    List<Value> decodedValues = new ArrayList<>();
+
+    ProtoFieldsBean bean = deserialize(fields, ProtoFieldsBean.class, decodedValues);
+
+    assertEquals("foo", bean.name);
+    assertEquals(Collections.singletonList(fields.get("name")), decodedValues);
+  }
+
+  @Test
+  public void finalFieldsCanBeDeserialized() {
+    FinalFieldBean bean = deserialize("{'value': 'foo'}", FinalFieldBean.class);
+    assertEquals("foo", bean.value);
+  }
+
+  @Test
+  public void setterExceptionsArePropagated() {
+    IllegalStateException e =
+        assertThrows(
+            IllegalStateException.class,
+            () -> deserialize("{'value': 'foo'}", ThrowingSetterBean.class));
+    assertEquals("setter failed for foo", e.getMessage());
+  }
+
+  @Test
+  public void checkedGetterExceptionsAreWrapped() {
+    RuntimeException e =
+        assertThrows(RuntimeException.class, () -> serialize(new CheckedExceptionGetterBean()));
+    assertTrue(e.getCause() instanceof IOException);
+    assertEquals("getter failed", e.getCause().getMessage());
+  }
+
+  @Test
+  public void nullCannotBeAssignedToPrimitive() {
+    try {
+      deserialize("{'value': null}", IntBean.class);
+      fail("Should throw");
+    } catch (IllegalArgumentException e) { // ignore
+    }
+  }
+
   @Test
   public void privateSetterIsCalledWhenPresent() {
     PrivateSetterBean bean = deserialize("{'value': 'foo'}", PrivateSetterBean.class);
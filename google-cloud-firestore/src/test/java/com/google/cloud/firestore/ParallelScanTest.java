@@ -0,0 +1,263 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.firestore;
+
+import static com.google.cloud.firestore.LocalFirestoreHelper.DOCUMENT_NAME;
+import static com.google.cloud.firestore.LocalFirestoreHelper.queryResponse;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutures;
+import com.google.api.gax.rpc.ApiStreamObserver;
+import com.google.api.gax.rpc.ResponseObserver;
+import com.google.api.gax.rpc.ServerStreamingCallable;
+import com.google.api.gax.rpc.StreamController;
+import com.google.api.gax.rpc.UnaryCallable;
+import com.google.cloud.firestore.spi.v1.FirestoreRpc;
+import com.google.cloud.firestore.v1.FirestoreClient.PartitionQueryPagedResponse;
+import com.google.common.collect.ImmutableList;
+import com.google.firestore.v1.Cursor;
+import com.google.firestore.v1.Document;
+import com.google.firestore.v1.PartitionQueryRequest;
+import com.google.firestore.v1.RunQueryRequest;
+import com.google.firestore.v1.RunQueryResponse;
+import com.google.firestore.v1.Value;
+import io.grpc.Status;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.Spy;
+import org.mockito.junit.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ParallelScanTest {
+  private static final String DATABASE_NAME =
+      "projects/test-project/databases/(default)/documents";
+
+  @Spy
+  private final FirestoreImpl firestoreMock =
+      new FirestoreImpl(
+          FirestoreOptions.newBuilder().setProjectId("test-project").build(),
+          Mockito.mock(FirestoreRpc.class));
+
+  @Mock private PartitionQueryPagedResponse pagedResponse;
+
+  @Captor private ArgumentCaptor<RunQueryRequest> runQuery;
+  @Captor private ArgumentCaptor<ResponseObserver<RunQueryResponse>> streamObserverCapture;
+
+  @Before
+  public void before() {
+    lenient()
+        .when(pagedResponse.iterateAll())
+        .thenReturn(ImmutableList.of(cursor("doc1"), cursor("doc2")));
+    lenient()
+        .doReturn(ApiFutures.immediateFuture(pagedResponse))
+        .when(firestoreMock)
+        .sendRequest(
+            ArgumentMatchers.any(PartitionQueryRequest.class),
+            ArgumentMatchers
+                .<UnaryCallable<PartitionQueryRequest, PartitionQueryPagedResponse>>any());
+  }
+
+  @Test
+  public void streamsAllPartitionsToMergedObserver() throws Exception {
+    doAnswer(queryResponse())
+        .when(firestoreMock)
+        .streamRequest(
+            runQuery.capture(),
+            streamObserverCapture.capture(),
+            ArgumentMatchers.<ServerStreamingCallable>any());
+
+    RecordingObserver observer = new RecordingObserver();
+    ApiFuture<Void> result = scan(ParallelScanOptions.builder().build()).stream(observer);
+    result.get();
+
+    assertEquals(3, runQuery.getAllValues().size());
+    assertEquals(3, observer.documents.size());
+    assertEquals(DOCUMENT_NAME, observer.documents.get(0).getReference().getName());
+    assertTrue(observer.completed);
+  }
+
+  @Test
+  public void limitsConcurrentPartitions() {
+    doAnswer(invocation -> null)
+        .when(firestoreMock)
+        .streamRequest(
+            runQuery.capture(),
+            streamObserverCapture.capture(),
+            ArgumentMatchers.<ServerStreamingCallable>any());
+
+    List<QueryPartition> startedPartitions = Collections.synchronizedList(new ArrayList<>());
+    ApiFuture<Void> result =
+        scan(ParallelScanOptions.builder().setMaxConcurrentPartitions(2).build())
+            .stream(
+                partition -> {
+                  startedPartitions.add(partition);
+                  return new RecordingObserver();
+                });
+
+    assertEquals(2, startedPartitions.size());
+    assertEquals(2, runQuery.getAllValues().size());
+
+    completeStream(0);
+    assertEquals(3, startedPartitions.size());
+    assertFalse(result.isDone());
+
+    completeStream(1);
+    completeStream(2);
+    assertTrue(result.isDone());
+  }
+
+  @Test
+  public void failsScanWhenPartitionFails() throws Exception {
+    FirestoreException exception =
+        FirestoreException.forServerRejection(Status.PERMISSION_DENIED, "denied");
+    doAnswer(queryResponse(exception))
+        .when(firestoreMock)
+        .streamRequest(
+            runQuery.capture(),
+            streamObserverCapture.capture(),
+            ArgumentMatchers.<ServerStreamingCallable>any());
+
+    RecordingObserver observer = new RecordingObserver();
+    ApiFuture<Void> result =
+        scan(ParallelScanOptions.builder().setMaxConcurrentPartitions(1).build()).stream(observer);
+
+    try {
+      result.get();
+      fail();
+    } catch (ExecutionException e) {
+      assertSame(exception, e.getCause());
+    }
+    assertSame(exception, observer.error);
+    assertEquals(1, runQuery.getAllValues().size());
+  }
+
+  @Test
+  public void cancelsRunningPartitionsWhenPartitionFails() {
+    doAnswer(invocation -> null)
+        .when(firestoreMock)
+        .streamRequest(
+            runQuery.capture(),
+            streamObserverCapture.capture(),
+            ArgumentMatchers.<ServerStreamingCallable>any());
+
+    List<RecordingObserver> observers = Collections.synchronizedList(new ArrayList<>());
+    ApiFuture<Void> result =
+        scan(ParallelScanOptions.builder().setMaxConcurrentPartitions(2).build())
+            .stream(
+                partition -> {
+                  RecordingObserver observer = new RecordingObserver();
+                  observers.add(observer);
+                  return observer;
+                });
+
+    StreamController failingStream = mock(StreamController.class);
+    StreamController runningStream = mock(StreamController.class);
+    streamObserverCapture.getAllValues().get(0).onStart(failingStream);
+    streamObserverCapture.getAllValues().get(1).onStart(runningStream);
+
+    FirestoreException exception =
+        FirestoreException.forServerRejection(Status.PERMISSION_DENIED, "denied");
+    streamObserverCapture.getAllValues().get(0).onError(exception);
+
+    assertTrue(result.isDone());
+    verify(runningStream).cancel();
+    assertSame(exception, observers.get(0).error);
+    assertTrue(observers.get(1).error instanceof CancellationException);
+
+    // Documents that arrive after the cancellation are not delivered.
+    streamObserverCapture
+        .getAllValues()
+        .get(1)
+        .onResponse(
+            RunQueryResponse.newBuilder()
+                .setDocument(Document.newBuilder().setName(DOCUMENT_NAME))
+                .build());
+    assertTrue(observers.get(1).documents.isEmpty());
+    assertEquals(2, runQuery.getAllValues().size());
+    assertEquals(2, observers.size());
+  }
+
+  @Test
+  public void validatesOptions() {
+    try {
+      ParallelScanOptions.builder().setMaxConcurrentPartitions(0).build();
+      fail();
+    } catch (FirestoreException e) {
+      assertEquals(
+          "Value for argument 'maxConcurrentPartitions' must be greater than 0, but was: 0",
+          e.getMessage());
+    }
+  }
+
+  private ParallelScan scan(ParallelScanOptions options) {
+    return firestoreMock.collectionGroup("collectionId").parallelScan(options);
+  }
+
+  private void completeStream(int index) {
+    ResponseObserver<RunQueryResponse> observer = streamObserverCapture.getAllValues().get(index);
+    observer.onStart(mock(StreamController.class));
+    observer.onComplete();
+  }
+
+  private static Cursor cursor(String documentId) {
+    return Cursor.newBuilder()
+        .addValues(
+            Value.newBuilder().setReferenceValue(DATABASE_NAME + "/collectionId/" + documentId))
+        .build();
+  }
+
+  private static class RecordingObserver implements ApiStreamObserver<DocumentSnapshot> {
+    final List<DocumentSnapshot> documents = new ArrayList<>();
+    Throwable error;
+    boolean completed;
+
+    @Override
+    public void onNext(DocumentSnapshot value) {
+      documents.add(value);
+    }
+
+    @Override
+    public void onError(Throwable t) {
+      error = t;
+    }
+
+    @Override
+    public void onCompleted() {
+      completed = true;
+    }
+  }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.firestore;
+
+import static com.google.cloud.firestore.LocalFirestoreHelper.ALL_SUPPORTED_TYPES_OBJECT;
+import static com.google.cloud.firestore.LocalFirestoreHelper.NESTED_CLASS_OBJECT;
+import static com.google.cloud.firestore.LocalFirestoreHelper.SERVER_TIMESTAMP_OBJECT;
+import static com.google.cloud.firestore.LocalFirestoreHelper.SINGLE_FIELD_MAP;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import com.google.cloud.firestore.LocalFirestoreHelper.SingleField;
+import com.google.cloud.firestore.annotation.PropertyName;
+import com.google.cloud.firestore.encoding.CustomClassMapper;
+import com.google.cloud.firestore.spi.v1.FirestoreRpc;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.firestore.v1.Write;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+public class PojoEncoderTest {
+
+  private final FirestoreImpl firestore =
+      new FirestoreImpl(
+          FirestoreOptions.newBuilder().setProjectId("test-project").build(),
+          Mockito.mock(FirestoreRpc.class));
+
+  private final DocumentReference documentReference = firestore.document("coll/doc");
+
+  public enum Color {
+    RED,
+    @PropertyName("verde")
+    GREEN
+  }
+
+  public static class MixedTypes {
+    public Integer intValue = 42;
+    public float floatValue = 1.5f;
+    public BigDecimal decimalValue = new BigDecimal("1.25");
+    public Color color = Color.GREEN;
+    public Color nullColor = null;
+    public List<Object> list =
+        ImmutableList.of(new SingleField(), ImmutableMap.of("nested", ImmutableList.of(1L)));
+    public Map<String, Object> emptyMap = ImmutableMap.of();
+    public DocumentReference reference;
+    public SingleField nullBean = null;
+
+    @PropertyName("a.b")
+    public String dottedName = "dotted";
+
+    MixedTypes(DocumentReference reference) {
+      this.reference = reference;
+    }
+  }
+
+  public static class WithTransform {
+    public Object count = FieldValue.increment(1);
+  }
+
+  public static class WithNestedTransform {
+    public Map<String, Object> nested = ImmutableMap.of("deleted", FieldValue.delete());
+  }
+
+  public static class WithSet {
+    public Set<String> values = ImmutableSet.of("foo");
+  }
+
+  public static class WithCharacter {
+    public char value = 'a';
+  }
+
+  @Test
+  public void encodesLikeDefaultPath() {
+    assertEncodesLikeDefaultPath(ALL_SUPPORTED_TYPES_OBJECT);
+    assertEncodesLikeDefaultPath(NESTED_CLASS_OBJECT);
+    assertEncodesLikeDefaultPath(new MixedTypes(documentReference));
+  }
+
+  @Test
+  public void fallsBackForFieldTransforms() {
+    assertNull(PojoEncoder.encodeWrite(documentReference, SERVER_TIMESTAMP_OBJECT));
+    assertNull(PojoEncoder.encodeWrite(documentReference, new WithTransform()));
+    assertNull(PojoEncoder.encodeWrite(documentReference, new WithNestedTransform()));
+  }
+
+  @Test
+  public void fallsBackForUnsupportedValues() {
+    assertNull(PojoEncoder.encodeWrite(documentReference, new WithSet()));
+    assertNull(PojoEncoder.encodeWrite(documentReference, new WithCharacter()));
+    assertNull(PojoEncoder.encodeWrite(documentReference, SINGLE_FIELD_MAP));
+    assertNull(PojoEncoder.encodeWrite(documentReference, "foo"));
+  }
+
+  @Test
+  public void writeBatchUsesEncodedWrite() {
+    WriteBatch batch = firestore.batch();
+    batch.set(documentReference, ALL_SUPPORTED_TYPES_OBJECT);
+    batch.create(documentReference, ALL_SUPPORTED_TYPES_OBJECT);
+
+    Write expectedSet = encodeWithDefaultPath(ALL_SUPPORTED_TYPES_OBJECT).build();
+    Write expectedCreate =
+        encodeWithDefaultPath(ALL_SUPPORTED_TYPES_OBJECT)
+            .setCurrentDocument(Precondition.exists(false).toPb())
+            .build();
+    List<Write> writes = new ArrayList<>();
+    batch.forEachWrite(writes::add);
+    assertEquals(ImmutableList.of(expectedSet, expectedCreate), writes);
+  }
+
+  private void assertEncodesLikeDefaultPath(Object pojo) {
+    Write.Builder write = PojoEncoder.encodeWrite(documentReference, pojo);
+    assertNotNull(write);
+    assertEquals(encodeWithDefaultPath(pojo).build(), write.build());
+  }
+
+  @SuppressWarnings("unchecked")
+  private Write.Builder encodeWithDefaultPath(Object pojo) {
+    Map<String, Object> data =
+        (Map<String, Object>) CustomClassMapper.convertToPlainJavaTypes(pojo);
+    return DocumentSnapshot.fromObject(
+            firestore, documentReference, data, UserDataConverter.NO_DELETES)
+        .toPb();
+  }
+}
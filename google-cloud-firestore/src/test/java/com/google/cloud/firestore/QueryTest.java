@@ -50,6 +50,7 @@ import com.google.api.core.ApiClock;
 import com.google.api.gax.rpc.ApiStreamObserver;
 import com.google.api.gax.rpc.ResponseObserver;
 import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.LocalFirestoreHelper.SingleField;
 import com.google.cloud.firestore.Query.ComparisonFilterInternal;
 import com.google.cloud.firestore.Query.FieldOrder;
 import com.google.cloud.firestore.Query.FilterInternal;
@@ -544,6 +545,23 @@ public class QueryTest {
     }
   }
 
+  @Test
+  public void getWithClassSelectsFields() throws Exception {
+    doAnswer(queryResponse())
+        .when(firestoreMock)
+        .streamRequest(runQuery.capture(), streamObserverCapture.capture(), any());
+
+    List<SingleField> results = query.get(SingleField.class).get();
+    query.select("bar").get(SingleField.class).get();
+
+    assertEquals(Collections.singletonList(new SingleField()), results);
+    Iterator<RunQueryRequest> expectedQuery =
+        Arrays.asList(query(select("foo")), query(select("bar"))).iterator();
+    for (RunQueryRequest actual : runQuery.getAllValues()) {
+      assertEquals(expectedQuery.next(), actual);
+    }
+  }
+
   @Test
   public void withFieldPathSelect() throws Exception {
     doAnswer(queryResponse())
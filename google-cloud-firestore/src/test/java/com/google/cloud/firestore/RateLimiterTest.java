@@ -113,4 +113,16 @@ public class RateLimiterTest {
     // Check that maximum rate limit is enforced.
     assertEquals(1000000, limiter.calculateCapacity(new Date(1000 * 60 * 1000).getTime()));
   }
+
+  @Test
+  public void scalesCapacityByFactor() {
+    limiter.setCapacityFactor(0.5);
+    assertEquals(250, limiter.calculateCapacity(new Date(0).getTime()));
+    assertEquals(375, limiter.calculateCapacity(new Date(5 * 60 * 1000).getTime()));
+    assertFalse(limiter.tryMakeRequest(251, new Date(1000).getTime()));
+    assertTrue(limiter.tryMakeRequest(250, new Date(1000).getTime()));
+
+    limiter.setCapacityFactor(1.0);
+    assertEquals(500, limiter.calculateCapacity(new Date(0).getTime()));
+  }
 }
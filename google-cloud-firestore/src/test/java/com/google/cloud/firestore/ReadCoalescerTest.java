@@ -0,0 +1,264 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.firestore;
+
+import static com.google.cloud.firestore.LocalFirestoreHelper.SINGLE_FIELD_PROTO;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+
+import com.google.api.core.ApiFuture;
+import com.google.api.gax.rpc.ResponseObserver;
+import com.google.api.gax.rpc.ServerStreamingCallable;
+import com.google.api.gax.rpc.StreamController;
+import com.google.cloud.firestore.spi.v1.FirestoreRpc;
+import com.google.firestore.v1.BatchGetDocumentsRequest;
+import com.google.firestore.v1.BatchGetDocumentsResponse;
+import com.google.protobuf.Timestamp;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+import org.mockito.junit.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ReadCoalescerTest {
+
+  private final FirestoreRpc firestoreRpc = Mockito.mock(FirestoreRpc.class);
+
+  private final List<BatchGetDocumentsRequest> requests = new ArrayList<>();
+  private final List<ResponseObserver<BatchGetDocumentsResponse>> observers = new ArrayList<>();
+
+  private FirestoreImpl firestoreMock;
+
+  @Before
+  public void before() {
+    firestoreMock = createFirestore(ReadCoalescingOptions.builder());
+  }
+
+  @SuppressWarnings("unchecked")
+  private FirestoreImpl createFirestore(ReadCoalescingOptions.Builder options) {
+    FirestoreImpl firestore =
+        Mockito.spy(
+            new FirestoreImpl(
+                FirestoreOptions.newBuilder()
+                    .setProjectId("test-project")
+                    .setReadCoalescingOptions(options.build())
+                    .build(),
+                firestoreRpc));
+    lenient()
+        .doAnswer(
+            invocation -> {
+              requests.add(invocation.getArgument(0));
+              ResponseObserver<BatchGetDocumentsResponse> observer = invocation.getArgument(1);
+              observer.onStart(mock(StreamController.class));
+              observers.add(observer);
+              return null;
+            })
+        .when(firestore)
+        .streamRequest(
+            ArgumentMatchers.<BatchGetDocumentsRequest>any(),
+            ArgumentMatchers.any(),
+            ArgumentMatchers.<ServerStreamingCallable>any());
+    return firestore;
+  }
+
+  /** Answers the request with the given index by returning every requested document. */
+  private void respond(int index) {
+    ResponseObserver<BatchGetDocumentsResponse> observer = observers.get(index);
+    for (String name : requests.get(index).getDocumentsList()) {
+      BatchGetDocumentsResponse.Builder response = BatchGetDocumentsResponse.newBuilder();
+      response.setReadTime(Timestamp.newBuilder().setSeconds(5));
+      response
+          .getFoundBuilder()
+          .setName(name)
+          .putAllFields(SINGLE_FIELD_PROTO)
+          .setCreateTime(Timestamp.newBuilder().setSeconds(1))
+          .setUpdateTime(Timestamp.newBuilder().setSeconds(2));
+      observer.onResponse(response.build());
+    }
+    observer.onComplete();
+  }
+
+  @Test
+  public void concurrentReadsOfSameDocumentShareRequest() throws Exception {
+    DocumentReference documentReference = firestoreMock.document("coll/doc");
+
+    ApiFuture<DocumentSnapshot> first = documentReference.get();
+    ApiFuture<DocumentSnapshot> second = documentReference.get();
+
+    assertEquals(1, requests.size());
+    assertFalse(first.isDone());
+
+    respond(0);
+
+    assertSame(first.get(), second.get());
+    assertEquals("bar", first.get().getString("foo"));
+
+    // Once the request completed, the next read sends a new request.
+    documentReference.get();
+    assertEquals(2, requests.size());
+  }
+
+  @Test
+  public void cancellingOneReadDoesNotCancelSharedRead() throws Exception {
+    DocumentReference documentReference = firestoreMock.document("coll/doc");
+
+    ApiFuture<DocumentSnapshot> first = documentReference.get();
+    ApiFuture<DocumentSnapshot> second = documentReference.get();
+    assertTrue(first.cancel(true));
+
+    // A read that starts after the cancellation still shares the in-flight request.
+    ApiFuture<DocumentSnapshot> third = documentReference.get();
+    assertEquals(1, requests.size());
+
+    respond(0);
+
+    assertTrue(first.isCancelled());
+    assertEquals("bar", second.get().getString("foo"));
+    assertSame(second.get(), third.get());
+  }
+
+  @Test
+  public void readsWithDifferentMasksAreNotShared() throws Exception {
+    DocumentReference documentReference = firestoreMock.document("coll/doc");
+
+    documentReference.get();
+    documentReference.get(FieldMask.of("foo"));
+    firestoreMock.getAll(
+        new DocumentReference[] {documentReference},
+        null,
+        Timestamp.newBuilder().setSeconds(1).build());
+
+    assertEquals(3, requests.size());
+  }
+
+  @Test
+  public void transactionalReadsAreNotCoalesced() throws Exception {
+    DocumentReference documentReference = firestoreMock.document("coll/doc");
+
+    documentReference.get();
+    firestoreMock.getAll(
+        new DocumentReference[] {documentReference},
+        null,
+        com.google.protobuf.ByteString.copyFromUtf8("foo"),
+        /* readTime= */ null);
+
+    assertEquals(2, requests.size());
+    assertTrue(requests.get(1).hasTransaction());
+  }
+
+  @Test
+  public void duplicateReferencesInOneCallAreRequestedOnce() throws Exception {
+    DocumentReference documentReference = firestoreMock.document("coll/doc");
+
+    ApiFuture<List<DocumentSnapshot>> result =
+        firestoreMock.getAll(documentReference, documentReference);
+
+    assertEquals(1, requests.get(0).getDocumentsCount());
+    respond(0);
+    assertEquals(2, result.get().size());
+    assertSame(result.get().get(0), result.get().get(1));
+  }
+
+  @Test
+  public void splitsBatchesAtMaxBatchSize() throws Exception {
+    firestoreMock = createFirestore(ReadCoalescingOptions.builder().setMaxBatchSize(2));
+
+    ApiFuture<List<DocumentSnapshot>> result =
+        firestoreMock.getAll(
+            firestoreMock.document("coll/doc1"),
+            firestoreMock.document("coll/doc2"),
+            firestoreMock.document("coll/doc3"));
+
+    assertEquals(2, requests.size());
+    assertEquals(2, requests.get(0).getDocumentsCount());
+    assertEquals(1, requests.get(1).getDocumentsCount());
+
+    respond(0);
+    respond(1);
+
+    List<String> ids = new ArrayList<>();
+    for (DocumentSnapshot snapshot : result.get()) {
+      ids.add(snapshot.getId());
+    }
+    assertEquals(Arrays.asList("doc1", "doc2", "doc3"), ids);
+  }
+
+  @Test
+  public void mergesReadsWithinBatchingWindow() throws Exception {
+    ScheduledExecutorService executor = mock(ScheduledExecutorService.class);
+    doReturn(executor).when(firestoreRpc).getExecutor();
+    ArgumentCaptor<Runnable> flush = ArgumentCaptor.forClass(Runnable.class);
+    doReturn(null)
+        .when(executor)
+        .schedule(flush.capture(), ArgumentMatchers.anyLong(), ArgumentMatchers.any());
+    firestoreMock =
+        createFirestore(
+            ReadCoalescingOptions.builder().setBatchingWindow(Duration.ofMillis(10)));
+
+    ApiFuture<DocumentSnapshot> first = firestoreMock.document("coll/doc1").get();
+    ApiFuture<DocumentSnapshot> second = firestoreMock.document("coll/doc2").get();
+
+    assertEquals(0, requests.size());
+    Mockito.verify(executor)
+        .schedule(
+            ArgumentMatchers.any(Runnable.class),
+            ArgumentMatchers.eq(TimeUnit.MILLISECONDS.toNanos(10)),
+            ArgumentMatchers.eq(TimeUnit.NANOSECONDS));
+
+    flush.getValue().run();
+
+    assertEquals(1, requests.size());
+    assertEquals(2, requests.get(0).getDocumentsCount());
+    respond(0);
+    assertEquals("doc1", first.get().getId());
+    assertEquals("doc2", second.get().getId());
+  }
+
+  @Test
+  public void failuresArePropagatedToAllReaders() throws Exception {
+    DocumentReference documentReference = firestoreMock.document("coll/doc");
+
+    ApiFuture<DocumentSnapshot> first = documentReference.get();
+    ApiFuture<DocumentSnapshot> second = documentReference.get();
+    observers.get(0).onError(new IllegalStateException("test"));
+
+    for (ApiFuture<DocumentSnapshot> future : Arrays.asList(first, second)) {
+      try {
+        future.get();
+        fail();
+      } catch (ExecutionException e) {
+        assertEquals("test", e.getCause().getMessage());
+      }
+    }
+  }
+}
@@ -0,0 +1,238 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.firestore;
+
+import static com.google.cloud.firestore.LocalFirestoreHelper.DATABASE_NAME;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import com.google.api.core.ApiClock;
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.DocumentChange.Type;
+import com.google.cloud.firestore.spi.v1.FirestoreRpc;
+import com.google.firestore.v1.Value;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+public class SnapshotCoalescerTest {
+
+  private final FirestoreImpl firestore =
+      new FirestoreImpl(
+          FirestoreOptions.newBuilder().setProjectId("test-project").build(),
+          Mockito.mock(FirestoreRpc.class));
+
+  private static final Comparator<QueryDocumentSnapshot> ID_COMPARATOR =
+      QueryDocumentSnapshot::compareDocumentId;
+
+  private final List<Runnable> pendingCallbacks = new ArrayList<>();
+  private final List<Runnable> scheduledFlushes = new ArrayList<>();
+  private final List<Long> scheduledDelays = new ArrayList<>();
+  private final List<QuerySnapshot> snapshots = new ArrayList<>();
+
+  private ApiClock clock;
+  private ScheduledExecutorService scheduler;
+  private ListenerRegistration watchRegistration;
+  private DocumentView view;
+  private long nowNanos;
+
+  @Before
+  public void before() {
+    clock = mock(ApiClock.class);
+    doAnswer(invocation -> nowNanos).when(clock).nanoTime();
+
+    scheduler = mock(ScheduledExecutorService.class);
+    doAnswer(
+            invocation -> {
+              scheduledFlushes.add(invocation.getArgument(0));
+              scheduledDelays.add(invocation.getArgument(1));
+              return mock(ScheduledFuture.class);
+            })
+        .when(scheduler)
+        .schedule(any(Runnable.class), anyLong(), eq(TimeUnit.NANOSECONDS));
+
+    watchRegistration = mock(ListenerRegistration.class);
+    view = DocumentSet.emptySet(ID_COMPARATOR);
+  }
+
+  @Test
+  public void rateLimitsSnapshotsToWindow() {
+    SnapshotCoalescer coalescer =
+        coalescer(SnapshotListenOptions.builder().setCoalescingWindow(Duration.ofSeconds(1)));
+
+    push(coalescer, list(), list(doc("a", 1)), list());
+    runCallbacks();
+    assertEquals(1, snapshots.size());
+
+    nowNanos += TimeUnit.MILLISECONDS.toNanos(100);
+    push(coalescer, list(), list(doc("b", 1)), list());
+    push(coalescer, list(), list(doc("c", 1)), list());
+    runCallbacks();
+    assertEquals(1, snapshots.size());
+    assertEquals(1, scheduledFlushes.size());
+    assertEquals(TimeUnit.MILLISECONDS.toNanos(900), (long) scheduledDelays.get(0));
+
+    nowNanos += TimeUnit.MILLISECONDS.toNanos(900);
+    scheduledFlushes.remove(0).run();
+    runCallbacks();
+
+    assertEquals(2, snapshots.size());
+    QuerySnapshot merged = snapshots.get(1);
+    assertEquals(3, merged.size());
+    assertEquals(2, merged.getDocumentChanges().size());
+    assertChange(merged.getDocumentChanges().get(0), Type.ADDED, "b", -1, 1);
+    assertChange(merged.getDocumentChanges().get(1), Type.ADDED, "c", -1, 2);
+    assertEquals(1, coalescer.getCoalescedSnapshotCount());
+    assertEquals(1, coalescer.getDroppedSnapshotCount());
+  }
+
+  @Test
+  public void mergesSnapshotsWhileCallbackRuns() {
+    SnapshotCoalescer coalescer =
+        coalescer(SnapshotListenOptions.builder().setCoalesceWhileCallbackRunning(true));
+
+    push(coalescer, list(), list(doc("a", 1)), list());
+    push(coalescer, list(), list(doc("b", 1)), list());
+    push(coalescer, list(view.getDocument(path("b"))), list(), list(doc("a", 2)));
+    assertEquals(1, pendingCallbacks.size());
+
+    runCallbacks();
+
+    assertEquals(2, snapshots.size());
+    QuerySnapshot merged = snapshots.get(1);
+    assertEquals(1, merged.size());
+    assertEquals(1, merged.getDocumentChanges().size());
+    assertChange(merged.getDocumentChanges().get(0), Type.MODIFIED, "a", 0, 0);
+    assertEquals(1, coalescer.getCoalescedSnapshotCount());
+    assertEquals(1, coalescer.getDroppedSnapshotCount());
+  }
+
+  @Test
+  public void skipsSnapshotsThatCancelOut() {
+    SnapshotCoalescer coalescer =
+        coalescer(SnapshotListenOptions.builder().setCoalesceWhileCallbackRunning(true));
+
+    push(coalescer, list(), list(doc("a", 1)), list());
+    push(coalescer, list(), list(doc("b", 1)), list());
+    push(coalescer, list(view.getDocument(path("b"))), list(), list());
+    runCallbacks();
+
+    assertEquals(1, snapshots.size());
+    assertEquals(0, coalescer.getCoalescedSnapshotCount());
+    assertEquals(2, coalescer.getDroppedSnapshotCount());
+  }
+
+  @Test
+  public void removeDropsPendingSnapshots() {
+    SnapshotCoalescer coalescer =
+        coalescer(SnapshotListenOptions.builder().setCoalesceWhileCallbackRunning(true));
+
+    push(coalescer, list(), list(doc("a", 1)), list());
+    push(coalescer, list(), list(doc("b", 1)), list());
+    coalescer.remove();
+    push(coalescer, list(), list(doc("c", 1)), list());
+    runCallbacks();
+
+    assertEquals(1, snapshots.size());
+    assertEquals(1, coalescer.getDroppedSnapshotCount());
+    verify(watchRegistration).remove();
+  }
+
+  @Test
+  public void rejectsNegativeWindow() {
+    FirestoreException e =
+        assertThrows(
+            FirestoreException.class,
+            () ->
+                SnapshotListenOptions.builder().setCoalescingWindow(Duration.ofMillis(-1)).build());
+    assertTrue(e.getMessage().contains("coalescingWindow"));
+  }
+
+  private SnapshotCoalescer coalescer(SnapshotListenOptions.Builder options) {
+    return new SnapshotCoalescer(
+        firestore.collection("coll"),
+        view,
+        clock,
+        scheduler,
+        pendingCallbacks::add,
+        (value, error) -> snapshots.add(value),
+        options.build(),
+        watchRegistration);
+  }
+
+  /** Applies the changes to the current view and hands the resulting snapshot to the coalescer. */
+  private void push(
+      SnapshotCoalescer coalescer,
+      List<QueryDocumentSnapshot> deletes,
+      List<QueryDocumentSnapshot> adds,
+      List<QueryDocumentSnapshot> updates) {
+    DocumentView.ChangeResult<? extends DocumentView> result =
+        view.applyChanges(deletes, adds, updates);
+    view = result.documentSet;
+    coalescer.onSnapshot(view, Timestamp.ofTimeSecondsAndNanos(1, 0), result.changes);
+  }
+
+  private void runCallbacks() {
+    while (!pendingCallbacks.isEmpty()) {
+      pendingCallbacks.remove(0).run();
+    }
+  }
+
+  private QueryDocumentSnapshot doc(String id, long updateSeconds) {
+    return new QueryDocumentSnapshot(
+        firestore,
+        new DocumentReference(firestore, path(id)),
+        Collections.singletonMap("value", Value.newBuilder().setIntegerValue(1).build()),
+        Timestamp.ofTimeSecondsAndNanos(updateSeconds, 0),
+        Timestamp.ofTimeSecondsAndNanos(updateSeconds, 0),
+        Timestamp.ofTimeSecondsAndNanos(1, 0));
+  }
+
+  private static ResourcePath path(String id) {
+    return ResourcePath.create(DATABASE_NAME + "/documents/coll/" + id);
+  }
+
+  private static void assertChange(
+      DocumentChange change, Type type, String id, int oldIndex, int newIndex) {
+    assertEquals(type, change.getType());
+    assertEquals(id, change.getDocument().getId());
+    assertEquals(oldIndex, change.getOldIndex());
+    assertEquals(newIndex, change.getNewIndex());
+  }
+
+  @SafeVarargs
+  private static <T> List<T> list(T... elements) {
+    List<T> list = new ArrayList<>();
+    Collections.addAll(list, elements);
+    return list;
+  }
+}
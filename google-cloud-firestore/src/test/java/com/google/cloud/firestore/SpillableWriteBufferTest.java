@@ -0,0 +1,115 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.firestore;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.google.firestore.v1.Document;
+import com.google.firestore.v1.Write;
+import java.io.File;
+import org.junit.Test;
+
+public class SpillableWriteBufferTest {
+
+  @Test
+  public void keepsWritesInMemoryUnderLimit() throws Exception {
+    try (SpillableWriteBuffer<String> buffer = new SpillableWriteBuffer<>(Long.MAX_VALUE)) {
+      buffer.add("a", write("a"));
+      buffer.add("b", write("b"));
+
+      assertEquals(2, buffer.size());
+      assertEquals(0, buffer.getSpilledCount());
+      assertNull(buffer.getSpillFile());
+      assertEquals(write("a").getSerializedSize() * 2, buffer.getBufferedBytes());
+
+      assertEquals("a", buffer.peek());
+      assertEquals(write("a"), buffer.poll());
+      assertEquals("b", buffer.peek());
+      assertEquals(write("b"), buffer.poll());
+      assertNull(buffer.peek());
+      assertEquals(0, buffer.getBufferedBytes());
+    }
+  }
+
+  @Test
+  public void spillsWritesOverLimitInOrder() throws Exception {
+    long limit = write("a").getSerializedSize();
+    File spillFile;
+    try (SpillableWriteBuffer<String> buffer = new SpillableWriteBuffer<>(limit)) {
+      for (String id : new String[] {"a", "b", "c", "d"}) {
+        buffer.add(id, write(id));
+      }
+
+      assertEquals(4, buffer.size());
+      assertEquals(3, buffer.getSpilledCount());
+      assertEquals(limit, buffer.getBufferedBytes());
+      spillFile = buffer.getSpillFile();
+      assertNotNull(spillFile);
+      assertTrue(spillFile.exists());
+
+      for (String id : new String[] {"a", "b", "c"}) {
+        assertEquals(id, buffer.peek());
+        assertEquals(write(id), buffer.poll());
+      }
+
+      // Writes that are added while earlier writes are spilled are still returned in order.
+      buffer.add("e", write("e"));
+      assertEquals(write("d"), buffer.poll());
+      assertEquals(write("e"), buffer.poll());
+
+      // The drained spill file is truncated and reused.
+      assertEquals(0, buffer.getSpilledCount());
+      assertSame(spillFile, buffer.getSpillFile());
+      assertEquals(0, spillFile.length());
+
+      buffer.add("f", write("f"));
+      buffer.add("g", write("g"));
+      assertEquals(1, buffer.getSpilledCount());
+      assertSame(spillFile, buffer.getSpillFile());
+      assertEquals(write("f"), buffer.poll());
+      assertEquals(write("g"), buffer.poll());
+    }
+    assertFalse(spillFile.exists());
+  }
+
+  @Test
+  public void closeDeletesSpillFile() {
+    SpillableWriteBuffer<String> buffer = new SpillableWriteBuffer<>(0);
+    buffer.add("a", write("a"));
+    File spillFile = buffer.getSpillFile();
+    assertTrue(spillFile.exists());
+
+    buffer.close();
+
+    assertEquals(0, buffer.size());
+    assertFalse(spillFile.exists());
+  }
+
+  private static Write write(String id) {
+    return Write.newBuilder()
+        .setUpdate(
+            Document.newBuilder()
+                .setName(LocalFirestoreHelper.DOCUMENT_ROOT + "coll/" + id)
+                .build())
+        .build();
+  }
+}
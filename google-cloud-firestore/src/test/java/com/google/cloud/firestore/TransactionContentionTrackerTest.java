@@ -0,0 +1,242 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.firestore;
+
+import static com.google.cloud.firestore.LocalFirestoreHelper.IMMEDIATE_RETRY_SETTINGS;
+import static com.google.cloud.firestore.LocalFirestoreHelper.SINGLE_FIELD_PROTO;
+import static com.google.cloud.firestore.LocalFirestoreHelper.beginResponse;
+import static com.google.cloud.firestore.LocalFirestoreHelper.commitResponse;
+import static com.google.cloud.firestore.LocalFirestoreHelper.getAllResponse;
+import static com.google.cloud.firestore.LocalFirestoreHelper.rollbackResponse;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+
+import com.google.api.core.ApiClock;
+import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutures;
+import com.google.api.gax.grpc.GrpcStatusCode;
+import com.google.api.gax.retrying.RetrySettings;
+import com.google.api.gax.rpc.ApiException;
+import com.google.api.gax.rpc.ServerStreamingCallable;
+import com.google.api.gax.rpc.UnaryCallable;
+import com.google.cloud.firestore.TransactionContentionTracker.Admission;
+import com.google.cloud.firestore.spi.v1.FirestoreRpc;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.protobuf.Message;
+import io.grpc.Status;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+import org.mockito.junit.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class TransactionContentionTrackerTest {
+
+  private static final ResourcePath DOC_1 =
+      ResourcePath.create("projects/test-project/databases/(default)/documents/coll/doc1");
+  private static final ResourcePath DOC_2 =
+      ResourcePath.create("projects/test-project/databases/(default)/documents/coll/doc2");
+
+  private static final RetrySettings RETRY_SETTINGS =
+      RetrySettings.newBuilder()
+          .setInitialRetryDelayDuration(Duration.ofMillis(100))
+          .setMaxRetryDelayDuration(Duration.ofSeconds(1))
+          .setRetryDelayMultiplier(2)
+          .build();
+
+  private long nowNanos;
+
+  private final ApiClock clock =
+      new ApiClock() {
+        @Override
+        public long nanoTime() {
+          return nowNanos;
+        }
+
+        @Override
+        public long millisTime() {
+          return TimeUnit.NANOSECONDS.toMillis(nowNanos);
+        }
+      };
+
+  private TransactionContentionTracker createTracker(TransactionContentionOptions options) {
+    return new TransactionContentionTracker(options, RETRY_SETTINGS, clock);
+  }
+
+  @Test
+  public void reportsHotspotOnceThresholdIsReached() {
+    TransactionContentionTracker tracker =
+        createTracker(TransactionContentionOptions.builder().setHotspotThreshold(2).build());
+
+    assertEquals(0, tracker.recordAbort(Arrays.asList(DOC_1, DOC_2)));
+    assertEquals(1, tracker.recordAbort(Collections.singletonList(DOC_1)));
+    assertEquals(0, tracker.recordAbort(Collections.singletonList(DOC_1)));
+    assertEquals(1, tracker.recordAbort(Collections.singletonList(DOC_2)));
+  }
+
+  @Test
+  public void retryDelayGrowsWithRecentAborts() {
+    TransactionContentionTracker tracker =
+        createTracker(TransactionContentionOptions.builder().build());
+
+    assertEquals(Duration.ZERO, tracker.getRetryDelay(Collections.singletonList(DOC_1)));
+
+    tracker.recordAbort(Collections.singletonList(DOC_1));
+    assertTrue(tracker.getRetryDelay(Collections.singletonList(DOC_1)).toMillis() <= 100);
+
+    for (int i = 0; i < 10; ++i) {
+      tracker.recordAbort(Collections.singletonList(DOC_1));
+    }
+    assertTrue(tracker.getRetryDelay(Collections.singletonList(DOC_1)).toMillis() <= 1000);
+    assertEquals(Duration.ZERO, tracker.getRetryDelay(Collections.singletonList(DOC_2)));
+  }
+
+  @Test
+  public void admitsOneRetryPerContendedDocument() throws Exception {
+    TransactionContentionTracker tracker =
+        createTracker(TransactionContentionOptions.builder().build());
+    tracker.recordAbort(Arrays.asList(DOC_1, DOC_2));
+
+    ApiFuture<Admission> first = tracker.admit(Arrays.asList(DOC_1, DOC_2));
+    ApiFuture<Admission> second = tracker.admit(Collections.singletonList(DOC_2));
+    ApiFuture<Admission> third = tracker.admit(Arrays.asList(DOC_2, DOC_1));
+
+    assertTrue(first.isDone());
+    assertEquals(2, first.get().size());
+    assertFalse(second.isDone());
+    assertFalse(third.isDone());
+
+    first.get().release();
+    assertTrue(second.isDone());
+    assertFalse(third.isDone());
+
+    // Releasing an admission more than once has no effect.
+    first.get().release();
+    assertFalse(third.isDone());
+
+    second.get().release();
+    assertTrue(third.isDone());
+    assertEquals(2, third.get().size());
+  }
+
+  @Test
+  public void admitsRetriesOfUncontendedDocumentsImmediately() throws Exception {
+    TransactionContentionTracker tracker =
+        createTracker(TransactionContentionOptions.builder().build());
+
+    ApiFuture<Admission> first = tracker.admit(Collections.singletonList(DOC_1));
+    ApiFuture<Admission> second = tracker.admit(Collections.singletonList(DOC_1));
+
+    assertTrue(first.isDone());
+    assertTrue(second.isDone());
+    assertEquals(0, first.get().size());
+  }
+
+  @Test
+  public void forgetsAbortsAfterContentionWindow() throws Exception {
+    TransactionContentionTracker tracker =
+        createTracker(
+            TransactionContentionOptions.builder()
+                .setContentionWindow(Duration.ofSeconds(1))
+                .build());
+    tracker.recordAbort(Collections.singletonList(DOC_1));
+    assertEquals(1, tracker.size());
+
+    nowNanos += TimeUnit.SECONDS.toNanos(1);
+
+    assertEquals(0, tracker.admit(Collections.singletonList(DOC_1)).get().size());
+    assertEquals(Duration.ZERO, tracker.getRetryDelay(Collections.singletonList(DOC_1)));
+
+    tracker.recordAbort(Collections.singletonList(DOC_2));
+    assertEquals(1, tracker.size());
+  }
+
+  @Test
+  public void validatesOptions() {
+    assertThrows(
+        FirestoreException.class,
+        () -> TransactionContentionOptions.builder().setMaxConcurrentRetries(0).build());
+    assertThrows(
+        FirestoreException.class,
+        () -> TransactionContentionOptions.builder().setContentionWindow(Duration.ZERO).build());
+    assertThrows(
+        FirestoreException.class,
+        () -> TransactionContentionOptions.builder().setHotspotThreshold(0).build());
+  }
+
+  @Test
+  public void runnerRecordsAbortedDocumentsAndRetries() throws Exception {
+    FirestoreRpc firestoreRpc = Mockito.mock(FirestoreRpc.class);
+    doReturn(Executors.newSingleThreadScheduledExecutor()).when(firestoreRpc).getExecutor();
+    FirestoreImpl firestoreMock =
+        Mockito.spy(
+            new FirestoreImpl(
+                FirestoreOptions.newBuilder()
+                    .setProjectId("test-project")
+                    .setRetrySettings(IMMEDIATE_RETRY_SETTINGS)
+                    .setTransactionContentionOptions(TransactionContentionOptions.builder().build())
+                    .build(),
+                firestoreRpc));
+
+    doReturn(beginResponse())
+        .doReturn(
+            ApiFutures.immediateFailedFuture(
+                new ApiException(
+                    new Exception("Aborted"), GrpcStatusCode.of(Status.Code.ABORTED), true)))
+        .doReturn(rollbackResponse())
+        .doReturn(beginResponse())
+        .doReturn(commitResponse(0, 0))
+        .when(firestoreMock)
+        .sendRequest(
+            ArgumentMatchers.<Message>any(),
+            ArgumentMatchers.<UnaryCallable<Message, Message>>any());
+    doAnswer(getAllResponse(SINGLE_FIELD_PROTO))
+        .when(firestoreMock)
+        .streamRequest(
+            ArgumentMatchers.<Message>any(),
+            ArgumentMatchers.any(),
+            ArgumentMatchers.<ServerStreamingCallable>any());
+
+    DocumentReference documentReference = firestoreMock.document("coll/doc");
+    ApiFuture<String> result =
+        firestoreMock.runAsyncTransaction(
+            t ->
+                ApiFutures.transform(
+                    t.get(documentReference),
+                    snapshot -> "foo",
+                    MoreExecutors.directExecutor()));
+
+    assertEquals("foo", result.get());
+    assertEquals(1, firestoreMock.getContentionTracker().size());
+    // The retry was admitted and has released its admission.
+    assertTrue(
+        firestoreMock
+            .getContentionTracker()
+            .admit(Collections.singletonList(documentReference.getResourcePath()))
+            .isDone());
+  }
+}
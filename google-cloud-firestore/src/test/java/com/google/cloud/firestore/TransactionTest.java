@@ -36,11 +36,13 @@ import static com.google.cloud.firestore.LocalFirestoreHelper.queryResponse;
 import static com.google.cloud.firestore.LocalFirestoreHelper.rollback;
 import static com.google.cloud.firestore.LocalFirestoreHelper.rollbackResponse;
 import static com.google.cloud.firestore.LocalFirestoreHelper.set;
+import static com.google.cloud.firestore.LocalFirestoreHelper.streamingResponse;
 import static com.google.cloud.firestore.LocalFirestoreHelper.update;
 import static com.google.cloud.firestore.it.ITQueryTest.map;
 import static com.google.common.truth.Truth.assertThat;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThrows;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
@@ -62,18 +64,28 @@ import com.google.cloud.firestore.TransactionOptions.ReadWriteOptionsBuilder;
 import com.google.cloud.firestore.TransactionOptions.TransactionOptionsType;
 import com.google.cloud.firestore.spi.v1.FirestoreRpc;
 import com.google.firestore.v1.BatchGetDocumentsRequest;
+import com.google.firestore.v1.BatchGetDocumentsResponse;
 import com.google.firestore.v1.DocumentMask;
+import com.google.firestore.v1.RunAggregationQueryResponse;
+import com.google.firestore.v1.RunQueryResponse;
+import com.google.firestore.v1.Value;
 import com.google.firestore.v1.Write;
+import com.google.protobuf.ByteString;
 import com.google.protobuf.Message;
 import io.grpc.Status;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
+import javax.annotation.Nullable;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -82,6 +94,7 @@ import org.mockito.ArgumentMatchers;
 import org.mockito.Captor;
 import org.mockito.Spy;
 import org.mockito.junit.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
 
 @SuppressWarnings("deprecation")
 @RunWith(MockitoJUnitRunner.class)
@@ -1022,6 +1035,372 @@ public class TransactionTest {
     return exception(code, "Test exception", shouldRetry);
   }
 
+  @Test
+  public void batchesReadsOfAsyncCallback() throws Exception {
+    final DocumentReference doc1 = firestoreMock.document("coll/doc1");
+    final DocumentReference doc2 = firestoreMock.document("coll/doc2");
+
+    doReturn(beginResponse())
+        .doReturn(commitResponse(0, 0))
+        .when(firestoreMock)
+        .sendRequest(
+            requestCapture.capture(), ArgumentMatchers.<UnaryCallable<Message, Message>>any());
+
+    doAnswer(getAllResponse(SINGLE_FIELD_PROTO, SINGLE_FIELD_PROTO))
+        .when(firestoreMock)
+        .streamRequest(
+            requestCapture.capture(), streamObserverCapture.capture(), ArgumentMatchers.any());
+
+    // The callback runs on the single-threaded client executor, so the batch is sent once the
+    // callback returns.
+    ApiFuture<List<DocumentSnapshot>> transaction =
+        firestoreMock.runAsyncTransaction(
+            t -> ApiFutures.allAsList(Arrays.asList(t.get(doc1), t.get(doc2), t.get(doc1))),
+            TransactionOptions.createReadWriteOptionsBuilder()
+                .setReadBatchingEnabled(true)
+                .build());
+
+    List<DocumentSnapshot> snapshots = transaction.get();
+    assertEquals("doc1", snapshots.get(0).getId());
+    assertEquals("doc2", snapshots.get(1).getId());
+    assertEquals("doc1", snapshots.get(2).getId());
+
+    List<Message> requests = requestCapture.getAllValues();
+    assertEquals(3, requests.size());
+
+    assertEquals(begin(), requests.get(0));
+    assertEquals(
+        getAll(
+            TRANSACTION_ID, doc1.getResourcePath().toString(), doc2.getResourcePath().toString()),
+        requests.get(1));
+    assertEquals(commit(TRANSACTION_ID), requests.get(2));
+  }
+
+  @Test
+  public void blockingOnDeferredReadSendsBatch() throws Exception {
+    doReturn(beginResponse())
+        .doReturn(commitResponse(0, 0))
+        .when(firestoreMock)
+        .sendRequest(
+            requestCapture.capture(), ArgumentMatchers.<UnaryCallable<Message, Message>>any());
+
+    doAnswer(getAllResponse(SINGLE_FIELD_PROTO))
+        .when(firestoreMock)
+        .streamRequest(
+            requestCapture.capture(), streamObserverCapture.capture(), ArgumentMatchers.any());
+
+    ApiFuture<DocumentSnapshot> transaction =
+        firestoreMock.runAsyncTransaction(
+            t -> {
+              try {
+                return ApiFutures.immediateFuture(t.get(documentReference).get());
+              } catch (InterruptedException | ExecutionException e) {
+                return ApiFutures.immediateFailedFuture(e);
+              }
+            },
+            batchingOptions());
+
+    assertEquals("doc", transaction.get().getId());
+
+    List<Message> requests = requestCapture.getAllValues();
+    assertEquals(3, requests.size());
+    assertEquals(get(TRANSACTION_ID), requests.get(1));
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void blockingOnDerivedFutureOfDeferredReadsSendsBatch() throws Exception {
+    final DocumentReference doc1 = firestoreMock.document("coll/doc1");
+    final DocumentReference doc2 = firestoreMock.document("coll/doc2");
+
+    doReturn(beginResponse())
+        .doReturn(commitResponse(0, 0))
+        .when(firestoreMock)
+        .sendRequest(
+            requestCapture.capture(), ArgumentMatchers.<UnaryCallable<Message, Message>>any());
+
+    doAnswer(
+            invocation -> {
+              BatchGetDocumentsRequest request = invocation.getArgument(0);
+              Map<String, Value>[] documents = new Map[request.getDocumentsCount()];
+              Arrays.fill(documents, SINGLE_FIELD_PROTO);
+              return getAllResponse(documents).answer(invocation);
+            })
+        .when(firestoreMock)
+        .streamRequest(
+            requestCapture.capture(), streamObserverCapture.capture(), ArgumentMatchers.any());
+
+    ApiFuture<Integer> transaction =
+        firestoreMock.runAsyncTransaction(
+            t -> {
+              try {
+                List<DocumentSnapshot> snapshots =
+                    ApiFutures.allAsList(Arrays.asList(t.get(doc1), t.get(doc2)))
+                        .get(5, TimeUnit.SECONDS);
+                return ApiFutures.immediateFuture(snapshots.size());
+              } catch (InterruptedException | ExecutionException | TimeoutException e) {
+                return ApiFutures.immediateFailedFuture(e);
+              }
+            },
+            batchingOptions());
+
+    assertEquals(2, (int) transaction.get());
+  }
+
+  @Test
+  public void repeatedReadsAreNotFetchedAgain() throws Exception {
+    doReturn(beginResponse())
+        .doReturn(commitResponse(0, 0))
+        .when(firestoreMock)
+        .sendRequest(
+            requestCapture.capture(), ArgumentMatchers.<UnaryCallable<Message, Message>>any());
+
+    doAnswer(getAllResponse(SINGLE_FIELD_PROTO))
+        .when(firestoreMock)
+        .streamRequest(
+            requestCapture.capture(), streamObserverCapture.capture(), ArgumentMatchers.any());
+
+    ApiFuture<DocumentSnapshot> transaction =
+        firestoreMock.runTransaction(
+            t -> {
+              DocumentSnapshot first = t.get(documentReference).get();
+              DocumentSnapshot second = t.get(documentReference).get();
+              assertSame(first, second);
+              return second;
+            },
+            options);
+
+    assertEquals("doc", transaction.get().getId());
+
+    List<Message> requests = requestCapture.getAllValues();
+    assertEquals(3, requests.size());
+
+    assertEquals(begin(), requests.get(0));
+    assertEquals(get(TRANSACTION_ID), requests.get(1));
+    assertEquals(commit(TRANSACTION_ID), requests.get(2));
+  }
+
+  /** Returns options that batch reads and run the user callback on its own thread. */
+  private TransactionOptions batchingOptions() {
+    return TransactionOptions.createReadWriteOptionsBuilder()
+        .setExecutor(options.getExecutor())
+        .setReadBatchingEnabled(true)
+        .build();
+  }
+
+  @Test
+  public void lazyBeginStartsTransactionWithFirstRead() throws Exception {
+    doReturn(commitResponse(0, 0))
+        .when(firestoreMock)
+        .sendRequest(
+            requestCapture.capture(), ArgumentMatchers.<UnaryCallable<Message, Message>>any());
+
+    doAnswer(getAllResponseInNewTransaction(TRANSACTION_ID))
+        .when(firestoreMock)
+        .streamRequest(
+            requestCapture.capture(), streamObserverCapture.capture(), ArgumentMatchers.any());
+
+    ApiFuture<DocumentSnapshot> transaction =
+        firestoreMock.runTransaction(
+            t -> t.get(documentReference).get(),
+            TransactionOptions.createReadWriteOptionsBuilder().setLazyBeginEnabled(true).build());
+
+    assertEquals("doc", transaction.get().getId());
+
+    List<Message> requests = requestCapture.getAllValues();
+    assertEquals(2, requests.size());
+
+    assertEquals(getInNewTransaction(/* previousTransactionId= */ null), requests.get(0));
+    assertEquals(commit(TRANSACTION_ID), requests.get(1));
+  }
+
+  @Test
+  public void lazyBeginCommitsWriteOnlyTransactionWithoutTransactionId() throws Exception {
+    doReturn(commitResponse(1, 0))
+        .when(firestoreMock)
+        .sendRequest(
+            requestCapture.capture(), ArgumentMatchers.<UnaryCallable<Message, Message>>any());
+
+    ApiFuture<String> transaction =
+        firestoreMock.runTransaction(
+            t -> {
+              t.set(documentReference, LocalFirestoreHelper.SINGLE_FIELD_MAP);
+              return "foo";
+            },
+            TransactionOptions.createReadWriteOptionsBuilder().setLazyBeginEnabled(true).build());
+
+    assertEquals("foo", transaction.get());
+
+    List<Message> requests = requestCapture.getAllValues();
+    assertEquals(1, requests.size());
+    assertEquals(commit(/* transactionId= */ null, set(SINGLE_FIELD_PROTO)), requests.get(0));
+  }
+
+  @Test
+  public void lazyBeginRetriesWithPreviousTransactionId() throws Exception {
+    doReturn(immediateFailedFuture(exception(Status.Code.ABORTED, "Aborted", true)))
+        .doReturn(rollbackResponse())
+        .doReturn(commitResponse(0, 0))
+        .when(firestoreMock)
+        .sendRequest(
+            requestCapture.capture(), ArgumentMatchers.<UnaryCallable<Message, Message>>any());
+
+    doAnswer(getAllResponseInNewTransaction(TRANSACTION_ID))
+        .when(firestoreMock)
+        .streamRequest(
+            requestCapture.capture(), streamObserverCapture.capture(), ArgumentMatchers.any());
+
+    ApiFuture<DocumentSnapshot> transaction =
+        firestoreMock.runTransaction(
+            t -> t.get(documentReference).get(),
+            TransactionOptions.createReadWriteOptionsBuilder().setLazyBeginEnabled(true).build());
+
+    assertEquals("doc", transaction.get().getId());
+
+    List<Message> requests = requestCapture.getAllValues();
+    assertEquals(5, requests.size());
+
+    assertEquals(getInNewTransaction(/* previousTransactionId= */ null), requests.get(0));
+    assertEquals(commit(TRANSACTION_ID), requests.get(1));
+    assertEquals(rollback(), requests.get(2));
+    assertEquals(getInNewTransaction(TRANSACTION_ID), requests.get(3));
+    assertEquals(commit(TRANSACTION_ID), requests.get(4));
+  }
+
+  @Test
+  public void lazyBeginSkipsRollbackWhenNoTransactionWasStarted() {
+    ApiFuture<String> transaction =
+        firestoreMock.runTransaction(
+            t -> {
+              throw new Exception("Expected exception");
+            },
+            TransactionOptions.createReadWriteOptionsBuilder().setLazyBeginEnabled(true).build());
+
+    ExecutionException e = assertThrows(ExecutionException.class, transaction::get);
+    assertThat(e.getCause().getMessage()).isEqualTo("Expected exception");
+    assertThat(requestCapture.getAllValues()).isEmpty();
+  }
+
+  @Test
+  public void lazyBeginStartsTransactionWithQuery() throws Exception {
+    doReturn(commitResponse(0, 0))
+        .when(firestoreMock)
+        .sendRequest(
+            requestCapture.capture(), ArgumentMatchers.<UnaryCallable<Message, Message>>any());
+
+    RunQueryResponse.Builder response = RunQueryResponse.newBuilder();
+    response.setTransaction(ByteString.copyFromUtf8(TRANSACTION_ID));
+    response.getDocumentBuilder().setName(LocalFirestoreHelper.DOCUMENT_NAME);
+    response.getDocumentBuilder().putAllFields(SINGLE_FIELD_PROTO);
+    response.setReadTime(com.google.protobuf.Timestamp.newBuilder().setSeconds(1));
+    doAnswer(streamingResponse(new RunQueryResponse[] {response.build()}, null))
+        .when(firestoreMock)
+        .streamRequest(
+            requestCapture.capture(), streamObserverCapture.capture(), ArgumentMatchers.any());
+
+    ApiFuture<QuerySnapshot> transaction =
+        firestoreMock.runTransaction(
+            t -> t.get(queryReference).get(),
+            TransactionOptions.createReadWriteOptionsBuilder().setLazyBeginEnabled(true).build());
+
+    assertEquals(1, transaction.get().size());
+
+    List<Message> requests = requestCapture.getAllValues();
+    assertEquals(2, requests.size());
+
+    assertEquals(
+        query(/* transactionId= */ null, /* allDescendants= */ false)
+            .toBuilder()
+            .setNewTransaction(newReadWriteTransaction())
+            .build(),
+        requests.get(0));
+    assertEquals(commit(TRANSACTION_ID), requests.get(1));
+  }
+
+  @Test
+  public void lazyBeginStartsTransactionWithAggregateQuery() throws Exception {
+    doReturn(commitResponse(0, 0))
+        .when(firestoreMock)
+        .sendRequest(
+            requestCapture.capture(), ArgumentMatchers.<UnaryCallable<Message, Message>>any());
+
+    RunAggregationQueryResponse.Builder response = RunAggregationQueryResponse.newBuilder();
+    response.setTransaction(ByteString.copyFromUtf8(TRANSACTION_ID));
+    response
+        .getResultBuilder()
+        .putAggregateFields("aggregate_0", Value.newBuilder().setIntegerValue(42).build());
+    doAnswer(streamingResponse(new RunAggregationQueryResponse[] {response.build()}, null))
+        .when(firestoreMock)
+        .streamRequest(
+            requestCapture.capture(), streamObserverCapture.capture(), ArgumentMatchers.any());
+
+    ApiFuture<AggregateQuerySnapshot> transaction =
+        firestoreMock.runTransaction(
+            t -> t.get(aggregateQueryReference).get(),
+            TransactionOptions.createReadWriteOptionsBuilder().setLazyBeginEnabled(true).build());
+
+    assertEquals(42, transaction.get().getCount());
+
+    List<Message> requests = requestCapture.getAllValues();
+    assertEquals(2, requests.size());
+
+    assertEquals(
+        countQuery(/* transactionId= */ null)
+            .toBuilder()
+            .setNewTransaction(newReadWriteTransaction())
+            .build(),
+        requests.get(0));
+    assertEquals(commit(TRANSACTION_ID), requests.get(1));
+  }
+
+  @Test
+  public void lazyBeginFailsQueryThatDoesNotReturnTransaction() {
+    doAnswer(queryResponse())
+        .when(firestoreMock)
+        .streamRequest(
+            requestCapture.capture(), streamObserverCapture.capture(), ArgumentMatchers.any());
+
+    ApiFuture<QuerySnapshot> transaction =
+        firestoreMock.runTransaction(
+            t -> t.get(queryReference).get(),
+            TransactionOptions.createReadWriteOptionsBuilder().setLazyBeginEnabled(true).build());
+
+    // The query itself succeeds, but the transaction cannot be committed.
+    ExecutionException e = assertThrows(ExecutionException.class, transaction::get);
+    assertThat(e.getCause()).isInstanceOf(IllegalStateException.class);
+    assertThat(e.getCause().getMessage()).isEqualTo("RunQuery did not return a transaction");
+  }
+
+  private static com.google.firestore.v1.TransactionOptions newReadWriteTransaction() {
+    return com.google.firestore.v1.TransactionOptions.newBuilder()
+        .setReadWrite(com.google.firestore.v1.TransactionOptions.ReadWrite.getDefaultInstance())
+        .build();
+  }
+
+  private static BatchGetDocumentsRequest getInNewTransaction(
+      @Nullable String previousTransactionId) {
+    com.google.firestore.v1.TransactionOptions.ReadWrite.Builder readWrite =
+        com.google.firestore.v1.TransactionOptions.ReadWrite.newBuilder();
+    if (previousTransactionId != null) {
+      readWrite.setRetryTransaction(ByteString.copyFromUtf8(previousTransactionId));
+    }
+    return get(/* transactionId= */ null)
+        .toBuilder()
+        .setNewTransaction(
+            com.google.firestore.v1.TransactionOptions.newBuilder().setReadWrite(readWrite))
+        .build();
+  }
+
+  private static Answer<BatchGetDocumentsResponse> getAllResponseInNewTransaction(
+      String transactionId) {
+    BatchGetDocumentsResponse.Builder response = BatchGetDocumentsResponse.newBuilder();
+    response.setTransaction(ByteString.copyFromUtf8(transactionId));
+    response.getFoundBuilder().setName(LocalFirestoreHelper.DOCUMENT_NAME);
+    response.getFoundBuilder().putAllFields(SINGLE_FIELD_PROTO);
+    response.setReadTime(com.google.protobuf.Timestamp.newBuilder().setSeconds(5));
+    return streamingResponse(new BatchGetDocumentsResponse[] {response.build()}, null);
+  }
+
   private ApiException exception(Status.Code code, String message, boolean shouldRetry) {
     return new ApiException(new Exception(message), GrpcStatusCode.of(code), shouldRetry);
   }
@@ -0,0 +1,164 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.firestore;
+
+import static com.google.cloud.firestore.LocalFirestoreHelper.SINGLE_FIELD_PROTO;
+import static com.google.cloud.firestore.LocalFirestoreHelper.beginResponse;
+import static com.google.cloud.firestore.LocalFirestoreHelper.commitResponse;
+import static com.google.cloud.firestore.LocalFirestoreHelper.getAllResponse;
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assume.assumeTrue;
+import static org.mockito.Mockito.lenient;
+
+import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutures;
+import com.google.api.gax.rpc.ServerStreamingCallable;
+import com.google.api.gax.rpc.UnaryCallable;
+import com.google.cloud.firestore.spi.v1.FirestoreRpc;
+import com.google.firestore.v1.BeginTransactionRequest;
+import com.google.protobuf.Message;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+import org.mockito.Spy;
+import org.mockito.junit.MockitoJUnitRunner;
+
+/**
+ * Compares the throughput of synchronous transactions on virtual threads with a fixed pool of
+ * platform threads. Each transaction blocks on a read that the mocked backend answers after 10
+ * milliseconds, so a pool of platform threads completes at most one transaction per thread every
+ * 10 milliseconds, while virtual threads are not limited by the pool size.
+ *
+ * <p>As a load test, this only runs if the {@code firestore.runLoadTests} system property is set
+ * to {@code true}.
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class VirtualThreadsLoadTest {
+  private static final Logger logger = Logger.getLogger(VirtualThreadsLoadTest.class.getName());
+
+  private static final int TRANSACTION_COUNT = 10_000;
+  private static final int PLATFORM_THREAD_COUNT = 64;
+
+  @Spy private final FirestoreRpc firestoreRpc = Mockito.mock(FirestoreRpc.class);
+
+  @Spy
+  private final FirestoreImpl firestoreMock =
+      new FirestoreImpl(
+          FirestoreOptions.newBuilder().setProjectId("test-project").build(), firestoreRpc);
+
+  private final ScheduledExecutorService clientExecutor =
+      Executors.newSingleThreadScheduledExecutor();
+
+  private final ScheduledExecutorService responseExecutor =
+      Executors.newSingleThreadScheduledExecutor();
+
+  private final ExecutorService platformThreads =
+      Executors.newFixedThreadPool(PLATFORM_THREAD_COUNT);
+
+  @Before
+  public void before() {
+    lenient().doReturn(clientExecutor).when(firestoreRpc).getExecutor();
+
+    lenient()
+        .doAnswer(
+            invocation ->
+                invocation.getArgument(0) instanceof BeginTransactionRequest
+                    ? beginResponse()
+                    : commitResponse(0, 0))
+        .when(firestoreMock)
+        .sendRequest(
+            ArgumentMatchers.<Message>any(),
+            ArgumentMatchers.<UnaryCallable<Message, Message>>any());
+
+    lenient()
+        .doAnswer(
+            invocation -> {
+              responseExecutor.schedule(
+                  () -> {
+                    try {
+                      getAllResponse(SINGLE_FIELD_PROTO).answer(invocation);
+                    } catch (Throwable t) {
+                      throw new RuntimeException(t);
+                    }
+                  },
+                  10,
+                  TimeUnit.MILLISECONDS);
+              return null;
+            })
+        .when(firestoreMock)
+        .streamRequest(
+            ArgumentMatchers.<Message>any(),
+            ArgumentMatchers.any(),
+            ArgumentMatchers.<ServerStreamingCallable>any());
+  }
+
+  @After
+  public void after() {
+    platformThreads.shutdownNow();
+    responseExecutor.shutdownNow();
+    clientExecutor.shutdownNow();
+  }
+
+  @Test
+  public void virtualThreadsOutperformPlatformThreadPool() throws Exception {
+    assumeTrue(Boolean.getBoolean("firestore.runLoadTests"));
+    assumeTrue(VirtualThreads.isSupported());
+
+    TransactionOptions platformThreadOptions =
+        TransactionOptions.createReadWriteOptionsBuilder().setExecutor(platformThreads).build();
+    TransactionOptions virtualThreadOptions =
+        TransactionOptions.createReadWriteOptionsBuilder().setVirtualThreadsEnabled(true).build();
+
+    double platformThroughput = measureThroughput(platformThreadOptions);
+    double virtualThroughput = measureThroughput(virtualThreadOptions);
+
+    logger.info(
+        String.format(
+            "%d synchronous transactions: %.0f/s on %d platform threads, "
+                + "%.0f/s on virtual threads",
+            TRANSACTION_COUNT, platformThroughput, PLATFORM_THREAD_COUNT, virtualThroughput));
+    assertThat(virtualThroughput).isGreaterThan(platformThroughput);
+  }
+
+  /** Runs all transactions at the same time and returns the number of transactions per second. */
+  private double measureThroughput(TransactionOptions options) throws Exception {
+    DocumentReference documentReference = firestoreMock.document("coll/doc");
+    long startNanos = System.nanoTime();
+
+    List<ApiFuture<String>> results = new ArrayList<>();
+    for (int i = 0; i < TRANSACTION_COUNT; ++i) {
+      results.add(
+          firestoreMock.runTransaction(t -> t.get(documentReference).get().getId(), options));
+    }
+    List<String> ids = ApiFutures.allAsList(results).get(5, TimeUnit.MINUTES);
+
+    long elapsedNanos = System.nanoTime() - startNanos;
+    assertThat(ids).containsExactlyElementsIn(Collections.nCopies(TRANSACTION_COUNT, "doc"));
+    return TRANSACTION_COUNT * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+  }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.firestore;
+
+import static com.google.cloud.firestore.LocalFirestoreHelper.SINGLE_FIELD_PROTO;
+import static com.google.cloud.firestore.LocalFirestoreHelper.beginResponse;
+import static com.google.cloud.firestore.LocalFirestoreHelper.commitResponse;
+import static com.google.cloud.firestore.LocalFirestoreHelper.getAllResponse;
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+import static org.mockito.Mockito.lenient;
+
+import com.google.api.core.ApiFuture;
+import com.google.api.gax.rpc.ServerStreamingCallable;
+import com.google.api.gax.rpc.UnaryCallable;
+import com.google.cloud.firestore.spi.v1.FirestoreRpc;
+import com.google.firestore.v1.BeginTransactionRequest;
+import com.google.protobuf.Message;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+import org.mockito.Spy;
+import org.mockito.junit.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class VirtualThreadsTest {
+
+  @Spy private final FirestoreRpc firestoreRpc = Mockito.mock(FirestoreRpc.class);
+
+  @Spy
+  private final FirestoreImpl firestoreMock =
+      new FirestoreImpl(
+          FirestoreOptions.newBuilder().setProjectId("test-project").build(), firestoreRpc);
+
+  private final ScheduledExecutorService clientExecutor =
+      Executors.newSingleThreadScheduledExecutor();
+
+  private final ScheduledExecutorService responseExecutor =
+      Executors.newSingleThreadScheduledExecutor();
+
+  private final TransactionOptions virtualThreadOptions =
+      TransactionOptions.createReadWriteOptionsBuilder().setVirtualThreadsEnabled(true).build();
+
+  @Before
+  public void before() {
+    lenient().doReturn(clientExecutor).when(firestoreRpc).getExecutor();
+
+    lenient()
+        .doAnswer(
+            invocation ->
+                invocation.getArgument(0) instanceof BeginTransactionRequest
+                    ? beginResponse()
+                    : commitResponse(0, 0))
+        .when(firestoreMock)
+        .sendRequest(
+            ArgumentMatchers.<Message>any(),
+            ArgumentMatchers.<UnaryCallable<Message, Message>>any());
+
+    // Documents are delivered after a delay on another thread, so that transaction functions
+    // block while waiting for their reads.
+    lenient()
+        .doAnswer(
+            invocation -> {
+              responseExecutor.schedule(
+                  () -> {
+                    try {
+                      getAllResponse(SINGLE_FIELD_PROTO).answer(invocation);
+                    } catch (Throwable t) {
+                      throw new RuntimeException(t);
+                    }
+                  },
+                  10,
+                  TimeUnit.MILLISECONDS);
+              return null;
+            })
+        .when(firestoreMock)
+        .streamRequest(
+            ArgumentMatchers.<Message>any(),
+            ArgumentMatchers.any(),
+            ArgumentMatchers.<ServerStreamingCallable>any());
+  }
+
+  @After
+  public void after() {
+    responseExecutor.shutdownNow();
+    clientExecutor.shutdownNow();
+  }
+
+  @Test
+  public void runsSynchronousFunctionOnVirtualThread() throws Exception {
+    assumeTrue(VirtualThreads.isSupported());
+
+    ApiFuture<String> result =
+        firestoreMock.runTransaction(
+            t -> {
+              t.get(firestoreMock.document("coll/doc")).get();
+              return Thread.currentThread().getName();
+            },
+            virtualThreadOptions);
+
+    assertThat(result.get()).startsWith("firestore-transaction-");
+  }
+
+  @Test
+  public void explicitExecutorTakesPrecedence() throws Exception {
+    ExecutorService userExecutor =
+        Executors.newSingleThreadExecutor(
+            runnable -> {
+              Thread thread = new Thread(runnable);
+              thread.setName("user_provided");
+              return thread;
+            });
+    try {
+      ApiFuture<String> result =
+          firestoreMock.runTransaction(
+              t -> {
+                t.get(firestoreMock.document("coll/doc")).get();
+                return Thread.currentThread().getName();
+              },
+              TransactionOptions.createReadWriteOptionsBuilder()
+                  .setVirtualThreadsEnabled(true)
+                  .setExecutor(userExecutor)
+                  .build());
+
+      assertEquals("user_provided", result.get());
+    } finally {
+      userExecutor.shutdownNow();
+    }
+  }
+}
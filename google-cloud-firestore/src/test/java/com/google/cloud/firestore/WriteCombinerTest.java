@@ -0,0 +1,321 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.firestore;
+
+import static com.google.cloud.firestore.LocalFirestoreHelper.SINGLE_FIELD_MAP;
+import static com.google.cloud.firestore.LocalFirestoreHelper.SINGLE_FIELD_PROTO;
+import static com.google.cloud.firestore.LocalFirestoreHelper.UPDATED_FIELD_MAP;
+import static com.google.cloud.firestore.LocalFirestoreHelper.UPDATED_FIELD_PROTO;
+import static com.google.cloud.firestore.LocalFirestoreHelper.commit;
+import static com.google.cloud.firestore.LocalFirestoreHelper.delete;
+import static com.google.cloud.firestore.LocalFirestoreHelper.set;
+import static com.google.cloud.firestore.LocalFirestoreHelper.update;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+
+import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutures;
+import com.google.api.core.SettableApiFuture;
+import com.google.api.gax.rpc.UnaryCallable;
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.spi.v1.FirestoreRpc;
+import com.google.firestore.v1.BatchWriteRequest;
+import com.google.firestore.v1.BatchWriteResponse;
+import com.google.firestore.v1.CommitRequest;
+import com.google.firestore.v1.CommitResponse;
+import io.grpc.Status;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+import org.mockito.junit.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class WriteCombinerTest {
+
+  private final FirestoreRpc firestoreRpc = Mockito.mock(FirestoreRpc.class);
+  private final ScheduledExecutorService executor = mock(ScheduledExecutorService.class);
+  private final ArgumentCaptor<Runnable> flushCapture = ArgumentCaptor.forClass(Runnable.class);
+
+  private final List<BatchWriteRequest> requests = new ArrayList<>();
+  private final List<SettableApiFuture<BatchWriteResponse>> responses = new ArrayList<>();
+
+  private FirestoreImpl createFirestore(WriteCombiningOptions.Builder options) {
+    return createFirestore(options, null);
+  }
+
+  private FirestoreImpl createFirestore(
+      WriteCombiningOptions.Builder options, @Nullable DocumentCacheOptions cacheOptions) {
+    lenient().doReturn(executor).when(firestoreRpc).getExecutor();
+    lenient()
+        .doReturn(null)
+        .when(executor)
+        .schedule(flushCapture.capture(), ArgumentMatchers.anyLong(), ArgumentMatchers.any());
+    FirestoreImpl firestore =
+        Mockito.spy(
+            new FirestoreImpl(
+                FirestoreOptions.newBuilder()
+                    .setProjectId("test-project")
+                    .setWriteCombiningOptions(options.build())
+                    .setDocumentCacheOptions(cacheOptions)
+                    .build(),
+                firestoreRpc));
+    lenient()
+        .doAnswer(
+            invocation -> {
+              requests.add(invocation.getArgument(0));
+              SettableApiFuture<BatchWriteResponse> response = SettableApiFuture.create();
+              responses.add(response);
+              return response;
+            })
+        .when(firestore)
+        .sendRequest(
+            ArgumentMatchers.<BatchWriteRequest>any(),
+            ArgumentMatchers.<UnaryCallable<BatchWriteRequest, BatchWriteResponse>>any());
+    return firestore;
+  }
+
+  /** Completes the request with the given index with one status per write. */
+  private void respond(int index, Status.Code... codes) {
+    BatchWriteResponse.Builder response = BatchWriteResponse.newBuilder();
+    for (int i = 0; i < codes.length; ++i) {
+      response.addWriteResultsBuilder().getUpdateTimeBuilder().setSeconds(i + 1);
+      response.addStatusBuilder().setCode(codes[i].value());
+    }
+    responses.get(index).set(response.build());
+  }
+
+  @Test
+  public void combinesWritesWithinBatchingWindow() throws Exception {
+    FirestoreImpl firestore = createFirestore(WriteCombiningOptions.builder());
+
+    ApiFuture<WriteResult> first = firestore.document("coll/doc1").set(SINGLE_FIELD_MAP);
+    ApiFuture<WriteResult> second = firestore.document("coll/doc2").set(SINGLE_FIELD_MAP);
+
+    assertEquals(0, requests.size());
+    Mockito.verify(executor)
+        .schedule(
+            ArgumentMatchers.any(Runnable.class),
+            ArgumentMatchers.eq(TimeUnit.MILLISECONDS.toNanos(2)),
+            ArgumentMatchers.eq(TimeUnit.NANOSECONDS));
+
+    flushCapture.getValue().run();
+
+    assertEquals(1, requests.size());
+    assertEquals(
+        Arrays.asList(set(SINGLE_FIELD_PROTO, "coll/doc1"), set(SINGLE_FIELD_PROTO, "coll/doc2")),
+        requests.get(0).getWritesList());
+
+    respond(0, Status.Code.OK, Status.Code.OK);
+    assertEquals(Timestamp.ofTimeSecondsAndNanos(1, 0), first.get().getUpdateTime());
+    assertEquals(Timestamp.ofTimeSecondsAndNanos(2, 0), second.get().getUpdateTime());
+  }
+
+  @Test
+  public void reportsPerWriteFailures() throws Exception {
+    FirestoreImpl firestore = createFirestore(WriteCombiningOptions.builder());
+
+    ApiFuture<WriteResult> first = firestore.document("coll/doc1").set(SINGLE_FIELD_MAP);
+    ApiFuture<WriteResult> second = firestore.document("coll/doc2").set(SINGLE_FIELD_MAP);
+    flushCapture.getValue().run();
+    respond(0, Status.Code.OK, Status.Code.FAILED_PRECONDITION);
+
+    first.get();
+    try {
+      second.get();
+      fail();
+    } catch (ExecutionException e) {
+      FirestoreException cause = (FirestoreException) e.getCause();
+      assertEquals(Status.Code.FAILED_PRECONDITION, cause.getStatus().getCode());
+    }
+  }
+
+  @Test
+  public void sendsFullBatchImmediately() {
+    FirestoreImpl firestore = createFirestore(WriteCombiningOptions.builder().setMaxBatchSize(2));
+
+    firestore.document("coll/doc1").set(SINGLE_FIELD_MAP);
+    firestore.document("coll/doc2").set(SINGLE_FIELD_MAP);
+    firestore.document("coll/doc3").set(SINGLE_FIELD_MAP);
+
+    assertEquals(1, requests.size());
+    assertEquals(2, requests.get(0).getWritesCount());
+
+    // The scheduled flush of the first batch does not send it again.
+    flushCapture.getAllValues().get(0).run();
+    assertEquals(1, requests.size());
+
+    flushCapture.getAllValues().get(1).run();
+    assertEquals(2, requests.size());
+    assertEquals(1, requests.get(1).getWritesCount());
+  }
+
+  @Test
+  public void writesToSameDocumentAreSentInSeparateBatches() {
+    FirestoreImpl firestore = createFirestore(WriteCombiningOptions.builder());
+
+    firestore.document("coll/doc").set(SINGLE_FIELD_MAP);
+    firestore.document("coll/doc").update(UPDATED_FIELD_MAP);
+
+    assertEquals(1, requests.size());
+    assertEquals(1, requests.get(0).getWritesCount());
+
+    flushCapture.getAllValues().get(1).run();
+    assertEquals(2, requests.size());
+    assertEquals(update(UPDATED_FIELD_PROTO, "coll/doc"), requests.get(1).getWrites(0));
+  }
+
+  @Test
+  public void retriesRetryableWriteFailures() throws Exception {
+    FirestoreImpl firestore = createFirestore(WriteCombiningOptions.builder());
+
+    ApiFuture<WriteResult> first = firestore.document("coll/doc1").set(SINGLE_FIELD_MAP);
+    ApiFuture<WriteResult> second = firestore.document("coll/doc2").set(SINGLE_FIELD_MAP);
+    flushCapture.getValue().run();
+    respond(0, Status.Code.OK, Status.Code.ABORTED);
+
+    assertEquals(Timestamp.ofTimeSecondsAndNanos(1, 0), first.get().getUpdateTime());
+    assertFalse(second.isDone());
+
+    // The first scheduled task adds the write back after the backoff, the second sends it.
+    flushCapture.getValue().run();
+    flushCapture.getValue().run();
+    assertEquals(2, requests.size());
+    assertEquals(
+        Collections.singletonList(set(SINGLE_FIELD_PROTO, "coll/doc2")),
+        requests.get(1).getWritesList());
+
+    respond(1, Status.Code.OK);
+    assertEquals(Timestamp.ofTimeSecondsAndNanos(1, 0), second.get().getUpdateTime());
+  }
+
+  @Test
+  public void closeSendsPendingAndRetryingWrites() throws Exception {
+    FirestoreImpl firestore = createFirestore(WriteCombiningOptions.builder());
+
+    ApiFuture<WriteResult> first = firestore.document("coll/doc1").set(SINGLE_FIELD_MAP);
+    flushCapture.getValue().run();
+    respond(0, Status.Code.ABORTED);
+    Runnable retry = flushCapture.getValue();
+    ApiFuture<WriteResult> second = firestore.document("coll/doc2").set(SINGLE_FIELD_MAP);
+    assertEquals(1, requests.size());
+
+    firestore.close();
+
+    // Both writes are sent right away, without waiting for the batching window or the backoff.
+    assertEquals(2, requests.size());
+    assertEquals(
+        Arrays.asList(set(SINGLE_FIELD_PROTO, "coll/doc2"), set(SINGLE_FIELD_PROTO, "coll/doc1")),
+        requests.get(1).getWritesList());
+    retry.run();
+    assertEquals(2, requests.size());
+
+    respond(1, Status.Code.OK, Status.Code.OK);
+    assertEquals(Timestamp.ofTimeSecondsAndNanos(1, 0), second.get().getUpdateTime());
+    assertEquals(Timestamp.ofTimeSecondsAndNanos(2, 0), first.get().getUpdateTime());
+
+    try {
+      firestore.document("coll/doc3").set(SINGLE_FIELD_MAP).get();
+      fail();
+    } catch (ExecutionException e) {
+      assertEquals("Firestore client has already been closed", e.getCause().getMessage());
+    }
+    assertEquals(2, requests.size());
+  }
+
+  @Test
+  public void deletesAreCommittedWithCommitTime() throws Exception {
+    FirestoreImpl firestore =
+        createFirestore(WriteCombiningOptions.builder(), DocumentCacheOptions.builder().build());
+    CommitResponse.Builder commitResponse = CommitResponse.newBuilder();
+    commitResponse.getCommitTimeBuilder().setSeconds(10);
+    commitResponse.addWriteResultsBuilder();
+    doReturn(ApiFutures.immediateFuture(commitResponse.build()))
+        .when(firestore)
+        .sendRequest(
+            ArgumentMatchers.any(CommitRequest.class),
+            ArgumentMatchers.<UnaryCallable<CommitRequest, CommitResponse>>any());
+
+    firestore.document("coll/doc").set(SINGLE_FIELD_MAP);
+    ApiFuture<WriteResult> result = firestore.document("coll/doc").delete();
+
+    // The pending write to the same document is sent before the delete is committed.
+    assertEquals(1, requests.size());
+    assertEquals(
+        Collections.singletonList(set(SINGLE_FIELD_PROTO, "coll/doc")),
+        requests.get(0).getWritesList());
+    Mockito.verify(firestore)
+        .sendRequest(
+            ArgumentMatchers.eq(commit(delete("coll/doc"))),
+            ArgumentMatchers.<UnaryCallable<CommitRequest, CommitResponse>>any());
+
+    assertEquals(Timestamp.ofTimeSecondsAndNanos(10, 0), result.get().getUpdateTime());
+    // The delete leaves a tombstone in the document cache.
+    DocumentCache documentCache = firestore.getDocumentCache();
+    assertEquals(1, documentCache.size());
+    assertNull(documentCache.get(firestore.document("coll/doc").getResourcePath()));
+  }
+
+  @Test
+  public void requestFailureFailsAllWrites() throws Exception {
+    FirestoreImpl firestore = createFirestore(WriteCombiningOptions.builder());
+
+    ApiFuture<WriteResult> first = firestore.document("coll/doc1").set(SINGLE_FIELD_MAP);
+    ApiFuture<WriteResult> second = firestore.document("coll/doc2").set(SINGLE_FIELD_MAP);
+    flushCapture.getValue().run();
+    responses.get(0).setException(new IllegalStateException("test"));
+
+    for (ApiFuture<WriteResult> future : Arrays.asList(first, second)) {
+      try {
+        future.get();
+        fail();
+      } catch (ExecutionException e) {
+        assertEquals("test", e.getCause().getMessage());
+      }
+    }
+  }
+
+  @Test
+  public void writeBatchesAreNotCombined() throws Exception {
+    FirestoreImpl firestore = createFirestore(WriteCombiningOptions.builder());
+    doReturn(LocalFirestoreHelper.commitResponse(1, 0))
+        .when(firestore)
+        .sendRequest(
+            ArgumentMatchers.<CommitRequest>any(),
+            ArgumentMatchers.<UnaryCallable<CommitRequest, CommitResponse>>any());
+
+    ApiFuture<List<WriteResult>> result =
+        firestore.batch().set(firestore.document("coll/doc"), SINGLE_FIELD_MAP).commit();
+
+    assertFalse(result.get().isEmpty());
+    assertEquals(0, requests.size());
+  }
+}